@@ -18,7 +18,7 @@ public class SyosApplication {
         
         try {
             // Initialize connection pool
-            connectionPool = new ConnectionPool();
+            connectionPool = ConnectionPool.getShared();
             
             // Test database connection
             testDatabaseConnection();
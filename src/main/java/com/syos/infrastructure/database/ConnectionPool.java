@@ -2,6 +2,10 @@ package com.syos.infrastructure.database;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -13,29 +17,99 @@ import com.zaxxer.hikari.HikariDataSource;
  * Manages database connections for the SYOS application
  * Pure Java implementation without Spring framework
  */
-public class ConnectionPool {
+public class ConnectionPool implements ConnectionProvider {
+    
+    /** Pool for POS, checkout and CRUD traffic */
+    public static final String OLTP = "oltp";
+    
+    /** Bulkhead pool for report queries, optionally pointed at a replica */
+    public static final String REPORTING = "reporting";
+    
+    private static final Map<String, ConnectionPool> sharedPools = new HashMap<>();
     
     private final HikariDataSource dataSource;
     private final DatabaseConfig databaseConfig;
+    private final ReplicaRouter replicaRouter;
+    private final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+    private final ThreadLocal<int[]> primaryPins = ThreadLocal.withInitial(() -> new int[1]);
+    
+    /**
+     * Get the process-wide OLTP pool shared by the POS, the admin tools and the DAOs
+     * Created and warmed on first use, and closed by a shutdown hook
+     * @return The shared connection pool
+     */
+    public static ConnectionPool getShared() {
+        return getShared(OLTP);
+    }
+    
+    /**
+     * Get a named process-wide pool
+     * Each name has its own size, timeouts, URL and read-only/isolation settings
+     * (db.pool.<name>.*), so a burst of work on one pool cannot take connections from another
+     * @param name The pool name, e.g. {@link #OLTP} or {@link #REPORTING}
+     * @return The shared pool for that name
+     */
+    public static synchronized ConnectionPool getShared(String name) {
+        ConnectionPool pool = sharedPools.get(name);
+        if (pool == null || pool.isClosed()) {
+            pool = new ConnectionPool(new DatabaseConfig(name));
+            pool.warmUp();
+            Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "syos-connection-pool-shutdown-" + name));
+            sharedPools.put(name, pool);
+        }
+        return pool;
+    }
     
     public ConnectionPool() {
-        this.databaseConfig = new DatabaseConfig();
-        this.dataSource = createDataSource();
+        this(new DatabaseConfig());
     }
     
     public ConnectionPool(DatabaseConfig databaseConfig) {
         this.databaseConfig = databaseConfig;
         this.dataSource = createDataSource();
+        this.replicaRouter = createReplicaRouter();
     }
     
     /**
      * Creates and configures the HikariCP data source
      */
     private HikariDataSource createDataSource() {
+        return new HikariDataSource(createHikariConfig(databaseConfig.getUrl(), poolDisplayName()));
+    }
+    
+    private String poolDisplayName() {
+        return OLTP.equals(databaseConfig.getPoolName())
+               ? "SYOS-Connection-Pool" : "SYOS-" + databaseConfig.getPoolName() + "-Pool";
+    }
+    
+    /**
+     * Creates one read-only data source per configured replica URL
+     * Replica pools start even if the replica is unreachable; the health check keeps it out of rotation
+     */
+    private ReplicaRouter createReplicaRouter() {
+        List<String> urls = databaseConfig.getReplicaUrls();
+        if (urls.isEmpty()) {
+            return null;
+        }
+        List<ReplicaRouter.Replica> replicas = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            String name = poolDisplayName() + "-Replica-" + (i + 1);
+            HikariConfig config = createHikariConfig(urls.get(i), name);
+            config.setReadOnly(true);
+            config.setInitializationFailTimeout(-1);
+            replicas.add(new ReplicaRouter.Replica(name, new HikariDataSource(config)));
+        }
+        ReplicaRouter router = new ReplicaRouter(replicas, databaseConfig.getReplicaMaxLagSeconds());
+        router.checkHealth();
+        router.start(databaseConfig.getReplicaHealthCheckInterval());
+        return router;
+    }
+    
+    private HikariConfig createHikariConfig(String url, String poolName) {
         HikariConfig config = new HikariConfig();
         
         // Basic connection settings
-        config.setJdbcUrl(databaseConfig.getUrl());
+        config.setJdbcUrl(url);
         config.setUsername(databaseConfig.getUsername());
         config.setPassword(databaseConfig.getPassword());
         config.setDriverClassName(databaseConfig.getDriverClassName());
@@ -49,19 +123,132 @@ public class ConnectionPool {
         
         // Additional settings for reliability
         config.setConnectionTestQuery("SELECT 1");
-        config.setPoolName("SYOS-Connection-Pool");
+        config.setPoolName(poolName);
+        config.setReadOnly(databaseConfig.isReadOnly());
+        if (!databaseConfig.getTransactionIsolation().isEmpty()) {
+            config.setTransactionIsolation(databaseConfig.getTransactionIsolation());
+        }
         config.setLeakDetectionThreshold(60000); // 60 seconds
         
-        return new HikariDataSource(config);
+        return config;
     }
     
     /**
      * Gets a connection from the pool
      */
+    @Override
     public Connection getConnection() throws SQLException {
         return dataSource.getConnection();
     }
     
+    /**
+     * Gets a connection for a read that tolerates replication lag
+     * Served round-robin by a healthy replica when any are configured; the primary is used instead
+     * when none is healthy, inside {@link #pinToPrimary()}, or shortly after this thread wrote
+     * (see {@link #recordWrite()}) so a session always reads its own writes
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicaRouter == null || isPinnedToPrimary()) {
+            return getConnection();
+        }
+        Connection replica = replicaRouter.borrow();
+        return replica != null ? replica : getConnection();
+    }
+    
+    /**
+     * Note that the current thread just wrote to the primary,
+     * keeping its reads on the primary for db.read.your.writes.ms
+     */
+    public void recordWrite() {
+        if (replicaRouter != null && databaseConfig.getReadYourWritesWindow() > 0) {
+            lastWriteNanos.set(System.nanoTime());
+        }
+    }
+    
+    /**
+     * Send every read on the current thread to the primary until the returned scope is closed
+     * Scopes nest; use for flows such as checkout that must never see a lagging replica
+     */
+    public PrimaryScope pinToPrimary() {
+        int[] depth = primaryPins.get();
+        depth[0]++;
+        return new PrimaryScope(depth);
+    }
+    
+    private boolean isPinnedToPrimary() {
+        if (primaryPins.get()[0] > 0) {
+            return true;
+        }
+        Long lastWrite = lastWriteNanos.get();
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite < databaseConfig.getReadYourWritesWindow() * 1_000_000L) {
+            return true;
+        }
+        lastWriteNanos.remove();
+        return false;
+    }
+    
+    /**
+     * Scope returned by {@link #pinToPrimary()}
+     */
+    public static final class PrimaryScope implements AutoCloseable {
+        private final int[] depth;
+        private boolean closed;
+        
+        private PrimaryScope(int[] depth) {
+            this.depth = depth;
+        }
+        
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                depth[0]--;
+            }
+        }
+    }
+    
+    /**
+     * Gets the replica router, or null when this pool has no replicas
+     */
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+    
+    /**
+     * Open the configured minimum number of idle connections up front
+     * so the first operations do not pay the TCP, TLS and authentication handshake
+     */
+    public void warmUp() {
+        int target = Math.min(databaseConfig.getMinIdleConnections(), databaseConfig.getMaxPoolSize());
+        List<Connection> borrowed = new ArrayList<>(target);
+        try {
+            for (int i = 0; i < target; i++) {
+                borrowed.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            System.err.println("Warning: Connection pool warm-up stopped after " + borrowed.size() +
+                               " connections: " + e.getMessage());
+        } finally {
+            for (Connection connection : borrowed) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    // Returned to the pool regardless
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets the name of this pool's configuration, e.g. oltp or reporting
+     */
+    public String getName() {
+        return databaseConfig.getPoolName();
+    }
+    
     /**
      * Gets the underlying DataSource
      */
@@ -85,6 +272,9 @@ public class ConnectionPool {
      * Closes the connection pool
      */
     public void close() {
+        if (replicaRouter != null) {
+            replicaRouter.close();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
@@ -0,0 +1,18 @@
+package com.syos.infrastructure.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Source of JDBC connections shared by code that must run on either the pooled
+ * or the simple DriverManager-based connection source
+ */
+public interface ConnectionProvider {
+
+    /**
+     * Get a connection; the caller must close it
+     * @return Database connection
+     * @throws SQLException if connection cannot be obtained
+     */
+    Connection getConnection() throws SQLException;
+}
@@ -2,15 +2,26 @@ package com.syos.infrastructure.database;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 /**
  * Database configuration class for SYOS application
  * Contains database connection parameters for XAMPP MySQL
  * Uses pure Java with properties file loading
+ *
+ * Named pools (see {@link ConnectionPool#getShared(String)}) read db.pool.<name>.<setting>
+ * first and fall back to the plain db.* setting, e.g. db.pool.reporting.url, db.pool.reporting.max.size,
+ * db.pool.reporting.read.only and db.pool.reporting.transaction.isolation
+ *
+ * Read replicas are listed in db.replica.urls (or db.pool.<name>.replica.urls), comma separated;
+ * they share the pool's credentials and sizing and only serve {@link ConnectionPool#getReadConnection()}
  */
 public class DatabaseConfig {
     
+    private final String poolName;
     private String url;
     private String username;
     private String password;
@@ -21,8 +32,23 @@ public class DatabaseConfig {
     private long connectionTimeout;
     private long idleTimeout;
     private long maxLifetime;
+    private boolean readOnly;
+    private String transactionIsolation;
+    private List<String> replicaUrls;
+    private long replicaHealthCheckInterval;
+    private int replicaMaxLagSeconds;
+    private long readYourWritesWindow;
 
     public DatabaseConfig() {
+        this(ConnectionPool.OLTP);
+    }
+
+    /**
+     * Load the configuration of a named pool
+     * @param poolName The pool name, e.g. oltp or reporting
+     */
+    public DatabaseConfig(String poolName) {
+        this.poolName = poolName;
         loadConfiguration();
     }
 
@@ -40,20 +66,52 @@ public class DatabaseConfig {
             System.err.println("Warning: Could not load config.properties, using default values");
         }
         
-        // Load properties with default values
-        this.url = props.getProperty("db.url", "jdbc:mysql://localhost:3306/syos_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC");
-        this.username = props.getProperty("db.username", "syos_user");
-        this.password = props.getProperty("db.password", "temp1234");
+        // Load properties with default values, letting the named pool override each one
+        this.url = setting(props, "url", "db.url", "jdbc:mysql://localhost:3306/syos_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC");
+        this.username = setting(props, "username", "db.username", "syos_user");
+        this.password = setting(props, "password", "db.password", "temp1234");
         this.driverClassName = props.getProperty("db.driver", "com.mysql.cj.jdbc.Driver");
-        this.initialPoolSize = Integer.parseInt(props.getProperty("db.pool.initial.size", "5"));
-        this.maxPoolSize = Integer.parseInt(props.getProperty("db.pool.max.size", "20"));
-        this.minIdleConnections = Integer.parseInt(props.getProperty("db.pool.min.idle", "5"));
-        this.connectionTimeout = Long.parseLong(props.getProperty("db.connection.timeout", "30000"));
-        this.idleTimeout = Long.parseLong(props.getProperty("db.idle.timeout", "600000"));
-        this.maxLifetime = Long.parseLong(props.getProperty("db.max.lifetime", "1800000"));
+        this.initialPoolSize = Integer.parseInt(setting(props, "initial.size", "db.pool.initial.size", "5"));
+        this.maxPoolSize = Integer.parseInt(setting(props, "max.size", "db.pool.max.size", "20"));
+        this.minIdleConnections = Integer.parseInt(setting(props, "min.idle", "db.pool.min.idle", "5"));
+        this.connectionTimeout = Long.parseLong(setting(props, "connection.timeout", "db.connection.timeout", "30000"));
+        this.idleTimeout = Long.parseLong(setting(props, "idle.timeout", "db.idle.timeout", "600000"));
+        this.maxLifetime = Long.parseLong(setting(props, "max.lifetime", "db.max.lifetime", "1800000"));
+        this.readOnly = Boolean.parseBoolean(setting(props, "read.only", "db.read.only", "false"));
+        this.transactionIsolation = setting(props, "transaction.isolation", "db.transaction.isolation", "");
+        this.replicaUrls = parseUrls(setting(props, "replica.urls", "db.replica.urls", ""));
+        this.replicaHealthCheckInterval = Long.parseLong(setting(props, "replica.health.interval.ms", "db.replica.health.interval.ms", "5000"));
+        this.replicaMaxLagSeconds = Integer.parseInt(setting(props, "replica.max.lag.seconds", "db.replica.max.lag.seconds", "0"));
+        this.readYourWritesWindow = Long.parseLong(setting(props, "read.your.writes.ms", "db.read.your.writes.ms", "2000"));
+    }
+
+    private static List<String> parseUrls(String value) {
+        List<String> urls = new ArrayList<>();
+        for (String url : value.split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return Collections.unmodifiableList(urls);
+    }
+
+    /**
+     * Read db.pool.<poolName>.<suffix>, falling back to the shared key and then the default
+     * Blank pool-specific values count as unset, so an empty db.pool.reporting.url means "use db.url"
+     */
+    private String setting(Properties props, String suffix, String sharedKey, String defaultValue) {
+        String value = props.getProperty("db.pool." + poolName + "." + suffix);
+        if (value != null && !value.trim().isEmpty()) {
+            return value.trim();
+        }
+        return props.getProperty(sharedKey, defaultValue);
     }
 
     // Getters
+    public String getPoolName() {
+        return poolName;
+    }
+
     public String getUrl() {
         return url;
     }
@@ -94,10 +152,47 @@ public class DatabaseConfig {
         return maxLifetime;
     }
 
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return A java.sql.Connection constant name such as TRANSACTION_READ_COMMITTED, or empty for the driver default
+     */
+    public String getTransactionIsolation() {
+        return transactionIsolation;
+    }
+
+    /**
+     * @return JDBC URLs of the read replicas, empty when reads go to the primary
+     */
+    public List<String> getReplicaUrls() {
+        return replicaUrls;
+    }
+
+    public long getReplicaHealthCheckInterval() {
+        return replicaHealthCheckInterval;
+    }
+
+    /**
+     * @return Replication lag above which a replica stops serving reads, 0 to skip the lag check
+     */
+    public int getReplicaMaxLagSeconds() {
+        return replicaMaxLagSeconds;
+    }
+
+    /**
+     * @return How long a thread keeps reading from the primary after its last write
+     */
+    public long getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
     @Override
     public String toString() {
         return "DatabaseConfig{" +
-                "url='" + url + '\'' +
+                "poolName='" + poolName + '\'' +
+                ", url='" + url + '\'' +
                 ", username='" + username + '\'' +
                 ", driverClassName='" + driverClassName + '\'' +
                 ", initialPoolSize=" + initialPoolSize +
@@ -106,6 +201,9 @@ public class DatabaseConfig {
                 ", connectionTimeout=" + connectionTimeout +
                 ", idleTimeout=" + idleTimeout +
                 ", maxLifetime=" + maxLifetime +
+                ", readOnly=" + readOnly +
+                ", transactionIsolation='" + transactionIsolation + '\'' +
+                ", replicaUrls=" + replicaUrls +
                 '}';
     }
 }
@@ -0,0 +1,213 @@
+package com.syos.infrastructure.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * Round-robin selection over a set of read replicas with periodic health checks
+ * A replica that fails a health check or a borrow is skipped until a later check passes,
+ * and when no replica is usable {@link #borrow()} returns null so the caller can use the primary
+ */
+public class ReplicaRouter implements AutoCloseable {
+
+    /** Seconds a health-check query may run before the replica counts as down */
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+    private final List<Replica> replicas;
+    private final int maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * One replica and its last known health
+     */
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+        private volatile String lastError;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        void markHealthy() {
+            healthy = true;
+            lastError = null;
+        }
+
+        void markDown(String error) {
+            healthy = false;
+            lastError = error;
+        }
+
+        @Override
+        public String toString() {
+            return name + (healthy ? "{up}" : "{down: " + lastError + "}");
+        }
+    }
+
+    /**
+     * @param replicas The replicas to route between
+     * @param maxLagSeconds Replication lag above which a replica is taken out of rotation, 0 to skip the check
+     */
+    public ReplicaRouter(List<Replica> replicas, int maxLagSeconds) {
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    /**
+     * Start checking every replica in the background
+     * @param intervalMillis Delay between checks
+     */
+    public synchronized void start(long intervalMillis) {
+        if (healthChecker != null || intervalMillis <= 0) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "syos-replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the next healthy replica
+     * @return A replica connection, or null if every replica is down
+     */
+    public Connection borrow() {
+        int count = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (!replica.isHealthy()) {
+                continue;
+            }
+            try {
+                return replica.getDataSource().getConnection();
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check every replica once, marking each up or down
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.getDataSource().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+                statement.execute("SELECT 1");
+
+                Long lag = maxLagSeconds > 0 ? replicationLag(statement) : null;
+                if (lag != null && lag > maxLagSeconds) {
+                    replica.markDown("replication lag " + lag + "s");
+                } else {
+                    replica.markHealthy();
+                }
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Read Seconds_Behind_Source, falling back to the pre-8.0.22 statement and column names
+     * A server that reports no replication status (e.g. a second schema standing in for a replica) has no lag;
+     * stopped replication reports a null lag, which counts as infinitely behind
+     */
+    private Long replicationLag(Statement statement) throws SQLException {
+        ResultSet status;
+        try {
+            status = statement.executeQuery("SHOW REPLICA STATUS");
+        } catch (SQLException e) {
+            status = statement.executeQuery("SHOW SLAVE STATUS");
+        }
+        try (ResultSet rs = status) {
+            if (!rs.next()) {
+                return null;
+            }
+            Object lag;
+            try {
+                lag = rs.getObject("Seconds_Behind_Source");
+            } catch (SQLException e) {
+                lag = rs.getObject("Seconds_Behind_Master");
+            }
+            return lag instanceof Number ? ((Number) lag).longValue() : Long.MAX_VALUE;
+        }
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return The number of replicas currently in rotation
+     */
+    public int getHealthyCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.isHealthy()) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * Stop the health checks and close any replica data sources that can be closed
+     */
+    @Override
+    public synchronized void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) replica.getDataSource()).close();
+                } catch (Exception e) {
+                    // Closing on shutdown; nothing left to do with the error
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaRouter" + replicas;
+    }
+}
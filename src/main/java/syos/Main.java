@@ -1,11 +1,42 @@
 package syos;
 
+import java.io.PrintStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Scanner;
-import java.util.Base64;
+import java.util.function.Supplier;
+
+import com.syos.infrastructure.database.ConnectionPool;
+
+import syos.analytics.BasketPairs;
+import syos.analytics.DistinctCustomers;
+import syos.analytics.ReorderEngine;
+import syos.analytics.SalesFeed;
+import syos.analytics.SalesWindows;
+import syos.analytics.TopSellers;
+import syos.analytics.WindowedAggregate;
+import syos.dao.DAOFactory;
+import syos.dao.cache.CacheInvalidationLog;
+import syos.pos.Cart;
+import syos.pos.CartItem;
+import syos.pos.Cashier;
+import syos.pos.CheckoutResult;
+import syos.pos.CustomerInfo;
+import syos.pos.CustomerStats;
+import syos.pos.Money;
+import syos.pos.PosException;
+import syos.pos.PosServer;
+import syos.pos.PosService;
+import syos.pos.ProductLookup;
+import syos.reports.ReportCache;
+import syos.reports.ReportEngine;
+import syos.services.PasswordHashingService;
 
 
 /**
@@ -21,8 +52,18 @@ public class Main {
     private static final String APP_NAME = "SYOS - Store Your Outstanding Stock";
     private static final String APP_VERSION = "1.0.0";
     
+    private static final String STOCK_VALUE_EXPLANATION =
+        "\n📋 STOCK VALUE EXPLANATION:\n" +
+        "Stock Value = Quantity in Inventory × Unit Price\n" +
+        "This shows how much money is 'tied up' in your inventory.\n" +
+        "High stock values indicate major inventory investments.";
+    
     private final Scanner scanner;
-    private final SimpleConnectionPool connectionPool;
+    private final ConnectionPool connectionPool;
+    private ConnectionPool reportingPool;
+    private ReportEngine reportEngine;
+    private final PasswordHashingService passwordHasher = PasswordHashingService.getInstance();
+    private final PosService posService;
     private User currentUser;
     
     private static class User {
@@ -50,11 +91,18 @@ public class Main {
     
     public Main() throws Exception {
         this.scanner = new Scanner(System.in);
-        this.connectionPool = new SimpleConnectionPool();
+        this.connectionPool = ConnectionPool.getShared();
+        this.posService = new PosService(connectionPool);
         this.currentUser = null;
     }
     
     public static void main(String[] args) {
+        // Headless multi-terminal mode: java syos.Main --pos-server
+        if (args.length > 0 && args[0].equals("--pos-server")) {
+            PosServer.main(args);
+            return;
+        }
+        
         try {
             Main app = new Main();
             app.displayBanner();
@@ -75,6 +123,7 @@ public class Main {
             
             // Initialize sales tables if they don't exist
             initializeSalesTables();
+            startSalesAnalytics();
             
         } catch (Exception e) {
             System.err.println("Database connection failed: " + e.getMessage());
@@ -326,8 +375,8 @@ public class Main {
         // Generate username from email
         String username = email.split("@")[0];
         
-        // Encode password as Base64 (for consistency with existing system)
-        String passwordHash = java.util.Base64.getEncoder().encodeToString(password.getBytes());
+        // Hash password on the shared hashing pool
+        String passwordHash = passwordHasher.hash(password).get();
         
         String sql = "INSERT INTO users (username, email, password_hash, first_name, last_name, phone, role_id, is_active) " +
                     "VALUES (?, ?, ?, ?, ?, ?, 1, 1)"; // role_id 1 = Customer
@@ -369,6 +418,9 @@ public class Main {
                 String storedHash = rs.getString("password_hash");
                 // Proper password validation
                 if (validatePassword(password, storedHash)) {
+                    if (passwordHasher.needsRehash(storedHash)) {
+                        upgradePasswordHash(rs.getInt("id"), password, storedHash);
+                    }
                     return new User(
                         rs.getInt("id"),
                         rs.getString("email"),
@@ -382,7 +434,12 @@ public class Main {
         return null;
     }
     
-    private boolean validatePassword(String inputPassword, String storedHash) {
+    private boolean validatePassword(String inputPassword, String storedHash) throws Exception {
+        // PBKDF2 hashes are verified on the hashing pool
+        if (PasswordHashingService.isPbkdf2Hash(storedHash)) {
+            return passwordHasher.verify(inputPassword, storedHash, null).get().matches();
+        }
+        
         // Try Base64 decoding first (for properly encoded passwords)
         try {
             byte[] decodedBytes = java.util.Base64.getDecoder().decode(storedHash);
@@ -403,6 +460,25 @@ public class Main {
         return inputPassword.equals(storedHash);
     }
     
+    /**
+     * Replace a legacy or under-cost password hash after a successful login
+     * Runs in the background so the login itself does not wait on the extra hash
+     */
+    private void upgradePasswordHash(int userId, String password, String storedHash) {
+        passwordHasher.hash(password).thenAcceptAsync(newHash -> {
+            String sql = "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?";
+            try (Connection conn = connectionPool.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, newHash);
+                stmt.setInt(2, userId);
+                stmt.setString(3, storedHash);
+                stmt.executeUpdate();
+            } catch (Exception e) {
+                // Keep the old hash; the upgrade is retried at the next login
+            }
+        });
+    }
+    
     private void updateLastLogin(int userId) throws Exception {
         // Try to update last_login if column exists, otherwise skip silently
         try {
@@ -594,8 +670,8 @@ public class Main {
                 // Generate unique user code
                 String userCode = generateUserCode(conn, firstName, lastName);
                 
-                // Encode password
-                String encodedPassword = Base64.getEncoder().encodeToString(password.getBytes());
+                // Hash password
+                String encodedPassword = passwordHasher.hash(password).get();
                 
                 String insertQuery = "INSERT INTO users (user_code, username, email, password_hash, " +
                                    "first_name, last_name, phone, role_id) " +
@@ -843,8 +919,8 @@ public class Main {
                                 return true;
                             }
                             
-                            // Encode password and update
-                            String encodedPassword = Base64.getEncoder().encodeToString(newPassword.getBytes());
+                            // Hash password and update
+                            String encodedPassword = passwordHasher.hash(newPassword).get();
                             String updateQuery = "UPDATE users SET password_hash = ? WHERE id = ?";
                             
                             try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
@@ -1197,6 +1273,7 @@ public class Main {
                                 productId = generatedKeys.getInt(1);
                             }
                             generatedKeys.close();
+                            CacheInvalidationLog.publishQuietly(conn, "ProductDAO", productId);
                             
                             // Verify we got a valid product ID
                             if (productId <= 0) {
@@ -1237,6 +1314,7 @@ public class Main {
                                 int invResult = invStmt.executeUpdate();
                                 
                                 if (invResult > 0) {
+                                    ReportCache.getInstance().onStockChanged();
                                     System.out.println("✅ Inventory record created successfully!");
                                 } else {
                                     throw new Exception("Inventory record creation returned 0 rows affected");
@@ -1582,6 +1660,7 @@ public class Main {
                                     
                                     int result = updateStmt.executeUpdate();
                                     if (result > 0) {
+                                        CacheInvalidationLog.publishQuietly(conn, "ProductDAO", productId);
                                         System.out.println("\n✅ Product updated successfully!");
                                         System.out.println("Product: " + newName);
                                         System.out.println("Price: LKR " + newPrice);
@@ -1712,6 +1791,7 @@ public class Main {
                                         
                                         int result = deleteStmt.executeUpdate();
                                         if (result > 0) {
+                                            CacheInvalidationLog.publishQuietly(conn, "ProductDAO", productId);
                                             System.out.println("\n✅ Product deleted successfully!");
                                             System.out.println("Product '" + productName + "' has been removed from the system.");
                                         } else {
@@ -1941,6 +2021,7 @@ public class Main {
                         
                         int result = stmt.executeUpdate();
                         if (result > 0) {
+                            CacheInvalidationLog.publishQuietly(conn, "CategoryDAO", null);
                             System.out.println("\n✅ Category created successfully!");
                             System.out.println("Code: " + categoryCode);
                             System.out.println("Name: " + categoryName);
@@ -2094,6 +2175,7 @@ public class Main {
                                     
                                     int result = updateStmt.executeUpdate();
                                     if (result > 0) {
+                                        CacheInvalidationLog.publishQuietly(conn, "CategoryDAO", categoryId);
                                         System.out.println("\n✅ Category updated successfully!");
                                         System.out.println("Category Code: " + newCategoryCode);
                                         System.out.println("Category Name: " + newName);
@@ -2478,6 +2560,7 @@ public class Main {
                                 
                                 int result = updateStmt.executeUpdate();
                                 if (result > 0) {
+                                    CacheInvalidationLog.publishQuietly(conn, "ProductDAO", productId);
                                     System.out.println("✅ Discount updated successfully!");
                                     
                                     double originalPrice = rs.getDouble("unit_price");
@@ -2524,6 +2607,7 @@ public class Main {
                     
                     int result = stmt.executeUpdate();
                     if (result > 0) {
+                        CacheInvalidationLog.publishQuietly(conn, "ProductDAO", productId);
                         System.out.println("✅ Discount removed successfully!");
                     } else {
                         System.out.println("❌ Product not found or discount already removed!");
@@ -2542,6 +2626,16 @@ public class Main {
     private boolean checkLowStockAlerts() {
         System.out.println("\nLOW STOCK ALERTS");
         System.out.println("=".repeat(80));
+        
+        ReorderEngine reorderEngine = ReorderEngine.getInstance();
+        if (reorderEngine.isReady()) {
+            System.out.println("Products running out soonest at their current sales rate:");
+            printReorderRecommendations(reorderEngine.recommendations(25), System.out);
+            System.out.println("Press Enter to continue...");
+            scanner.nextLine();
+            return true;
+        }
+        
         System.out.println("Note: This feature requires inventory management setup");
         System.out.println("Currently showing all products with low reorder levels:");
         
@@ -2696,6 +2790,80 @@ public class Main {
         return true;
     }
     
+    /**
+     * Borrow a connection from the reporting pool, so heavy report joins never hold
+     * connections the tills need; falls back to the main pool if it cannot be opened.
+     * Reads go to a healthy replica when db.pool.reporting.replica.urls lists any
+     */
+    private Connection getReportingConnection() throws SQLException {
+        if (reportingPool == null) {
+            try {
+                reportingPool = ConnectionPool.getShared(ConnectionPool.REPORTING);
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Reporting pool unavailable (" + e.getMessage() + "), using the main pool");
+                reportingPool = connectionPool;
+            }
+        }
+        return reportingPool.getReadConnection();
+    }
+    
+    /**
+     * Engine that runs the sections of a multi-part report concurrently on reporting connections
+     */
+    private ReportEngine getReportEngine() {
+        if (reportEngine == null) {
+            reportEngine = new ReportEngine(this::getReportingConnection);
+        }
+        return reportEngine;
+    }
+    
+    /**
+     * Show a report from the report cache with its age stamp, re-running it when the cached copy
+     * is missing, expired or invalidated, or when the user asks for a refresh
+     * @param key The report cache key
+     * @param report Builds the report's sections
+     * @param failureNote Printed when a section fails, or null
+     * @param footer Printed after the report, or null
+     * @param topics The data the report reads
+     */
+    private boolean showCachedReport(String key, Supplier<ReportEngine.Report> report, String failureNote,
+                                     String footer, ReportCache.Topic... topics) {
+        return showCachedReport(key, null, report, failureNote, footer, topics);
+    }
+    
+    /**
+     * Show a report on a fixed sales period from the report cache; sales after that period leave it cached
+     * @param key The report cache key
+     * @param salesThrough The last day of sales the report shows, or null if its range runs up to now
+     * @param report Builds the report's sections
+     * @param failureNote Printed when a section fails, or null
+     * @param footer Printed after the report, or null
+     * @param topics The data the report reads
+     */
+    private boolean showCachedReport(String key, LocalDate salesThrough, Supplier<ReportEngine.Report> report,
+                                     String failureNote, String footer, ReportCache.Topic... topics) {
+        boolean refresh = false;
+        while (true) {
+            ReportCache.CachedReport result = ReportCache.getInstance().get(key, refresh, salesThrough,
+                                                                            () -> report.get().run(), topics);
+            ReportEngine.print(result.getResults(), System.out);
+            if (failureNote != null && !ReportEngine.allSucceeded(result.getResults())) {
+                System.out.println(failureNote);
+            }
+            if (footer != null) {
+                System.out.println(footer);
+            }
+            
+            System.out.println("\n🕒 Report " + result.describeAge());
+            System.out.println("Press Enter to continue, or R and Enter to refresh...");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("r")) {
+                return true;
+            }
+            refresh = true;
+            System.out.println("\n🔄 Refreshing...");
+        }
+    }
+    
     private boolean handleSystemReports() {
         System.out.println("\nSYSTEM REPORTS (ADMIN ACCESS)");
         System.out.println("─".repeat(50));
@@ -2729,592 +2897,656 @@ public class Main {
         System.out.println("\n📈 DAILY SALES ANALYSIS");
         System.out.println("═".repeat(60));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            // Today's sales summary
-            String todayQuery = "SELECT COUNT(*) as transaction_count, " +
-                              "SUM(final_amount) as total_sales, " +
-                              "AVG(final_amount) as avg_transaction_value " +
-                              "FROM sales " +
-                              "WHERE DATE(sale_date) = CURDATE()";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(todayQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+        LocalDate today = LocalDate.now();
+        return showCachedReport(ReportCache.key("daily-sales-analysis", today), today, () -> getReportEngine().report()
+            .section("Today's sales summary", (conn, out) -> {
+                // Today's sales summary
+                String todayQuery = "SELECT COUNT(*) as transaction_count, " +
+                                  "SUM(final_amount) as total_sales, " +
+                                  "AVG(final_amount) as avg_transaction_value " +
+                                  "FROM sales " +
+                                  "WHERE DATE(sale_date) = CURDATE()";
                 
-                if (rs.next()) {
-                    int transactionCount = rs.getInt("transaction_count");
-                    double totalSales = rs.getDouble("total_sales");
-                    double avgTransaction = rs.getDouble("avg_transaction_value");
-                    
-                    System.out.println("📅 TODAY'S SALES SUMMARY:");
-                    System.out.println("─".repeat(40));
-                    System.out.println("Total Transactions: " + transactionCount);
-                    System.out.println("Total Sales: LKR " + String.format("%.2f", totalSales));
-                    System.out.println("Average Transaction: LKR " + String.format("%.2f", avgTransaction));
-                    System.out.println();
-                }
-            }
-            
-            // Top selling products today
-            System.out.println("🏆 TOP SELLING PRODUCTS TODAY:");
-            System.out.println("─".repeat(40));
-            String topProductsQuery = "SELECT p.product_name, " +
-                                    "SUM(si.quantity) as total_quantity, " +
-                                    "SUM(si.total_price) as total_revenue " +
-                                    "FROM sale_items si " +
-                                    "JOIN sales s ON si.sale_id = s.id " +
-                                    "JOIN products p ON si.product_id = p.id " +
-                                    "WHERE DATE(s.sale_date) = CURDATE() " +
-                                    "GROUP BY p.id, p.product_name " +
-                                    "ORDER BY total_quantity DESC " +
-                                    "LIMIT 10";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(topProductsQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+                try (PreparedStatement stmt = conn.prepareStatement(todayQuery);
+                     ResultSet rs = stmt.executeQuery()) {
                 
-                int rank = 1;
-                while (rs.next()) {
-                    String productName = rs.getString("product_name");
-                    int quantity = rs.getInt("total_quantity");
-                    double revenue = rs.getDouble("total_revenue");
-                    
-                    System.out.printf("%d. %s - Qty: %d, Revenue: LKR %.2f%n", 
-                                    rank++, productName, quantity, revenue);
+                    if (rs.next()) {
+                        int transactionCount = rs.getInt("transaction_count");
+                        double totalSales = rs.getDouble("total_sales");
+                        double avgTransaction = rs.getDouble("avg_transaction_value");
+                
+                        out.println("📅 TODAY'S SALES SUMMARY:");
+                        out.println("─".repeat(40));
+                        out.println("Total Transactions: " + transactionCount);
+                        out.println("Total Sales: LKR " + String.format("%.2f", totalSales));
+                        out.println("Average Transaction: LKR " + String.format("%.2f", avgTransaction));
+                        out.println();
+                    }
+                }
+            })
+            .section("Top selling products today", (conn, out) -> {
+                // Top selling products today
+                out.println("🏆 TOP SELLING PRODUCTS TODAY:");
+                out.println("─".repeat(40));
+                if (TopSellers.getInstance().isSeeded()) {
+                    printTopSellers(out, TopSellers.Window.TODAY, 10);
+                    out.println();
+                    out.println("🔥 LAST HOUR:");
+                    printTopSellers(out, TopSellers.Window.LAST_HOUR, 5);
+                    out.println();
+                    out.println("📆 LAST 7 DAYS:");
+                    printTopSellers(out, TopSellers.Window.LAST_7_DAYS, 5);
+                    return;
                 }
+                String topProductsQuery = "SELECT p.product_name, " +
+                                        "SUM(si.quantity) as total_quantity, " +
+                                        "SUM(si.total_price) as total_revenue " +
+                                        "FROM sale_items si " +
+                                        "JOIN sales s ON si.sale_id = s.id " +
+                                        "JOIN products p ON si.product_id = p.id " +
+                                        "WHERE DATE(s.sale_date) = CURDATE() " +
+                                        "GROUP BY p.id, p.product_name " +
+                                        "ORDER BY total_quantity DESC " +
+                                        "LIMIT 10";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(topProductsQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    int rank = 1;
+                    while (rs.next()) {
+                        String productName = rs.getString("product_name");
+                        int quantity = rs.getInt("total_quantity");
+                        double revenue = rs.getDouble("total_revenue");
                 
-                if (rank == 1) {
-                    System.out.println("No sales recorded for today yet.");
+                        out.printf("%d. %s - Qty: %d, Revenue: LKR %.2f%n", 
+                                        rank++, productName, quantity, revenue);
+                    }
+                
+                    if (rank == 1) {
+                        out.println("No sales recorded for today yet.");
+                    }
                 }
+            }), "Note: Ensure transaction tables exist and contain data.", null, ReportCache.Topic.SALES);
+    }
+    
+    /**
+     * Suggest products often bought with the one just scanned that are not already in the cart
+     */
+    private static void printBoughtTogether(Cart cart, int productId) {
+        StringBuilder suggestions = new StringBuilder();
+        int shown = 0;
+        for (BasketPairs.Neighbour neighbour : BasketPairs.getInstance().together(productId, 10)) {
+            if (shown == 3) {
+                break;
             }
-            
-        } catch (Exception e) {
-            System.out.println("⚠️ Error generating sales analysis: " + e.getMessage());
-            System.out.println("Note: Ensure transaction tables exist and contain data.");
+            if (neighbour.getProductName() == null || cart.findItem(neighbour.getProductId()) != null) {
+                continue;
+            }
+            suggestions.append(shown++ > 0 ? ", " : "").append(neighbour.getProductName());
+        }
+        if (shown > 0) {
+            System.out.println("Frequently bought together: " + suggestions);
+        }
+    }
+    
+    private static void printTopSellers(PrintStream out, TopSellers.Window window, int limit) {
+        List<TopSellers.Entry> top = TopSellers.getInstance().top(window, limit);
+        int rank = 1;
+        for (TopSellers.Entry entry : top) {
+            String name = entry.getProductName() != null ? entry.getProductName() : "Product #" + entry.getProductId();
+            out.printf("%d. %s - Qty: %d%s, Revenue: LKR %.2f%n", rank++, name, entry.getQuantity(),
+                       entry.getError() > 0 ? " (±" + entry.getError() + ")" : "", entry.getRevenueCents() / 100.0);
+        }
+        if (top.isEmpty()) {
+            out.println("No sales recorded for the " + window.getLabel() + " yet.");
         }
-        
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
     }
     
     private boolean handleInventoryReports() {
         System.out.println("\n📦 INVENTORY REPORTS");
         System.out.println("═".repeat(60));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            // Current inventory status
-            System.out.println("📊 CURRENT INVENTORY STATUS:");
-            System.out.println("─".repeat(50));
-            
-            String inventoryQuery = "SELECT p.product_name, p.product_code, " +
-                                  "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
-                                  "COALESCE(il.shelf_capacity, 50) as shelf_capacity, " +
-                                  "COALESCE(il.warehouse_qty, 0) as warehouse_qty, " +
-                                  "COALESCE(il.online_qty, 0) as online_qty, " +
-                                  "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_stock " +
-                                  "FROM products p " +
-                                  "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
-                                  "ORDER BY total_stock ASC";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(inventoryQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+        return showCachedReport(ReportCache.key("inventory-status"), () -> getReportEngine().report()
+            .section("Current inventory status", (conn, out) -> {
+                // Current inventory status
+                out.println("📊 CURRENT INVENTORY STATUS:");
+                out.println("─".repeat(50));
                 
-                System.out.printf("%-20s %-10s %-8s %-8s %-8s %-8s %-10s%n", 
-                                "Product", "Code", "Shelf", "Capacity", "Warehouse", "Online", "Total");
-                System.out.println("─".repeat(80));
+                String inventoryQuery = "SELECT p.product_name, p.product_code, " +
+                                      "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
+                                      "COALESCE(il.shelf_capacity, 50) as shelf_capacity, " +
+                                      "COALESCE(il.warehouse_qty, 0) as warehouse_qty, " +
+                                      "COALESCE(il.online_qty, 0) as online_qty, " +
+                                      "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_stock " +
+                                      "FROM products p " +
+                                      "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                                      "ORDER BY total_stock ASC";
                 
-                while (rs.next()) {
-                    String name = rs.getString("product_name");
-                    String code = rs.getString("product_code");
-                    int shelfQty = rs.getInt("shelf_qty");
-                    int shelfCapacity = rs.getInt("shelf_capacity");
-                    int warehouseQty = rs.getInt("warehouse_qty");
-                    int onlineQty = rs.getInt("online_qty");
-                    int totalStock = rs.getInt("total_stock");
-                    
-                    System.out.printf("%-20s %-10s %-8d %-8d %-8d %-8d %-10d%n", 
-                                    name.length() > 20 ? name.substring(0, 17) + "..." : name,
-                                    code, shelfQty, shelfCapacity, warehouseQty, onlineQty, totalStock);
+                try (PreparedStatement stmt = conn.prepareStatement(inventoryQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    out.printf("%-20s %-10s %-8s %-8s %-8s %-8s %-10s%n", 
+                                    "Product", "Code", "Shelf", "Capacity", "Warehouse", "Online", "Total");
+                    out.println("─".repeat(80));
+                
+                    while (rs.next()) {
+                        String name = rs.getString("product_name");
+                        String code = rs.getString("product_code");
+                        int shelfQty = rs.getInt("shelf_qty");
+                        int shelfCapacity = rs.getInt("shelf_capacity");
+                        int warehouseQty = rs.getInt("warehouse_qty");
+                        int onlineQty = rs.getInt("online_qty");
+                        int totalStock = rs.getInt("total_stock");
+                
+                        out.printf("%-20s %-10s %-8d %-8d %-8d %-8d %-10d%n", 
+                                        name.length() > 20 ? name.substring(0, 17) + "..." : name,
+                                        code, shelfQty, shelfCapacity, warehouseQty, onlineQty, totalStock);
+                    }
                 }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("⚠️ Error generating inventory report: " + e.getMessage());
-            System.out.println("Note: Ensure inventory_locations table exists.");
-        }
-        
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
+            }), "Note: Ensure inventory_locations table exists.", null, ReportCache.Topic.INVENTORY);
     }
     
     private boolean handleReorderLevelsAnalysis() {
         System.out.println("\n🔄 REORDER LEVELS ANALYSIS");
         System.out.println("═".repeat(60));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            System.out.println("⚠️ PRODUCTS REQUIRING IMMEDIATE REORDER:");
-            System.out.println("─".repeat(50));
-            
-            // Products with low stock (less than 20% of shelf capacity)
-            String reorderQuery = "SELECT p.product_name, p.product_code, " +
-                                "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
-                                "COALESCE(il.shelf_capacity, 50) as shelf_capacity, " +
-                                "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) as total_available, " +
-                                "ROUND((COALESCE(il.shelf_qty, 0) / COALESCE(il.shelf_capacity, 50)) * 100, 1) as fill_percentage " +
-                                "FROM products p " +
-                                "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
-                                "WHERE (COALESCE(il.shelf_qty, 0) / COALESCE(il.shelf_capacity, 50)) < 0.2 " +
-                                "ORDER BY fill_percentage ASC";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(reorderQuery);
-                 ResultSet rs = stmt.executeQuery()) {
-                
-                System.out.printf("%-25s %-10s %-8s %-8s %-10s %-12s%n", 
-                                "Product", "Code", "Current", "Capacity", "Available", "Fill %");
-                System.out.println("─".repeat(75));
+        return showCachedReport(ReportCache.key("reorder-levels"), () -> getReportEngine().report()
+            .section("Products requiring reorder", (conn, out) -> {
+                out.println("⚠️ PRODUCTS REQUIRING IMMEDIATE REORDER:");
+                out.println("─".repeat(50));
                 
-                int criticalCount = 0;
-                while (rs.next()) {
-                    String name = rs.getString("product_name");
-                    String code = rs.getString("product_code");
-                    int shelfQty = rs.getInt("shelf_qty");
-                    int shelfCapacity = rs.getInt("shelf_capacity");
-                    int totalAvailable = rs.getInt("total_available");
-                    double fillPercentage = rs.getDouble("fill_percentage");
-                    
-                    String status = fillPercentage == 0 ? "🔴 EMPTY" : 
-                                  fillPercentage < 10 ? "🟠 CRITICAL" : "🟡 LOW";
-                    
-                    System.out.printf("%-25s %-10s %-8d %-8d %-10d %s %.1f%%%n", 
-                                    name.length() > 25 ? name.substring(0, 22) + "..." : name,
-                                    code, shelfQty, shelfCapacity, totalAvailable, status, fillPercentage);
-                    criticalCount++;
+                ReorderEngine reorderEngine = ReorderEngine.getInstance();
+                if (reorderEngine.isReady()) {
+                    printReorderRecommendations(reorderEngine.recommendations(25), out);
+                    return;
                 }
                 
-                if (criticalCount == 0) {
-                    System.out.println("✅ All products are adequately stocked!");
-                } else {
-                    System.out.println("\n📋 RECOMMENDATION:");
-                    System.out.println("Consider reordering " + criticalCount + " products to maintain optimal stock levels.");
+                // Products with low stock (less than 20% of shelf capacity)
+                String reorderQuery = "SELECT p.product_name, p.product_code, " +
+                                    "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
+                                    "COALESCE(il.shelf_capacity, 50) as shelf_capacity, " +
+                                    "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) as total_available, " +
+                                    "ROUND((COALESCE(il.shelf_qty, 0) / COALESCE(il.shelf_capacity, 50)) * 100, 1) as fill_percentage " +
+                                    "FROM products p " +
+                                    "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                                    "WHERE (COALESCE(il.shelf_qty, 0) / COALESCE(il.shelf_capacity, 50)) < 0.2 " +
+                                    "ORDER BY fill_percentage ASC";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(reorderQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    out.printf("%-25s %-10s %-8s %-8s %-10s %-12s%n", 
+                                    "Product", "Code", "Current", "Capacity", "Available", "Fill %");
+                    out.println("─".repeat(75));
+                
+                    int criticalCount = 0;
+                    while (rs.next()) {
+                        String name = rs.getString("product_name");
+                        String code = rs.getString("product_code");
+                        int shelfQty = rs.getInt("shelf_qty");
+                        int shelfCapacity = rs.getInt("shelf_capacity");
+                        int totalAvailable = rs.getInt("total_available");
+                        double fillPercentage = rs.getDouble("fill_percentage");
+                
+                        String status = fillPercentage == 0 ? "🔴 EMPTY" : 
+                                      fillPercentage < 10 ? "🟠 CRITICAL" : "🟡 LOW";
+                
+                        out.printf("%-25s %-10s %-8d %-8d %-10d %s %.1f%%%n", 
+                                        name.length() > 25 ? name.substring(0, 22) + "..." : name,
+                                        code, shelfQty, shelfCapacity, totalAvailable, status, fillPercentage);
+                        criticalCount++;
+                    }
+                
+                    if (criticalCount == 0) {
+                        out.println("✅ All products are adequately stocked!");
+                    } else {
+                        out.println("\n📋 RECOMMENDATION:");
+                        out.println("Consider reordering " + criticalCount + " products to maintain optimal stock levels.");
+                    }
                 }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("⚠️ Error generating reorder analysis: " + e.getMessage());
+            }), null, null, ReportCache.Topic.INVENTORY, ReportCache.Topic.SALES);
+    }
+    
+    private static void printReorderRecommendations(List<ReorderEngine.Recommendation> recommendations, PrintStream out) {
+        out.printf("%-25s %-10s %-8s %-10s %-8s %-10s%n",
+                   "Product", "Code", "Stock", "Per Day", "Cover", "Reorder");
+        out.println("─".repeat(75));
+        
+        for (ReorderEngine.Recommendation recommendation : recommendations) {
+            String name = recommendation.getProductName();
+            double cover = recommendation.getDaysOfCover();
+            String status = recommendation.getStock() == 0 ? "🔴 OUT" :
+                          cover < 2 ? "🟠 CRITICAL" : "🟡 LOW";
+            
+            out.printf("%-25s %-10s %-8d %-10.1f %-8s %-10d %s%n",
+                       name.length() > 25 ? name.substring(0, 22) + "..." : name,
+                       recommendation.getProductCode(), recommendation.getStock(), recommendation.getDailyDemand(),
+                       String.format("%.1fd", cover), recommendation.getReorderQuantity(), status);
         }
         
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
+        if (recommendations.isEmpty()) {
+            out.println("✅ No product will run out within the cover threshold at its current sales rate!");
+        } else {
+            out.println("\n📋 RECOMMENDATION:");
+            out.println("Reorder " + recommendations.size() + " products; cover is days of stock left at the smoothed daily sales rate.");
+        }
     }
     
     private boolean handleStockReports() {
         System.out.println("\n📋 COMPREHENSIVE STOCK ANALYSIS");
         System.out.println("═".repeat(80));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            // 1. STOCK VALUE ANALYSIS BY CATEGORY
-            System.out.println("💰 STOCK VALUE ANALYSIS BY CATEGORY:");
-            System.out.println("─".repeat(80));
-            
-            String categoryValueQuery = "SELECT c.category_name, " +
-                                      "COUNT(p.id) as product_count, " +
-                                      "SUM((COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) * p.unit_price) as category_value, " +
-                                      "AVG(p.unit_price) as avg_unit_price, " +
-                                      "SUM(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_quantity " +
-                                      "FROM categories c " +
-                                      "LEFT JOIN products p ON c.id = p.category_id " +
-                                      "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
-                                      "WHERE p.is_active = TRUE " +
-                                      "GROUP BY c.id, c.category_name " +
-                                      "ORDER BY category_value DESC";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(categoryValueQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+        return showCachedReport(ReportCache.key("stock-analysis"), () -> getReportEngine().report()
+            .section("Stock value by category", (conn, out) -> {
+                // 1. STOCK VALUE ANALYSIS BY CATEGORY
+                out.println("💰 STOCK VALUE ANALYSIS BY CATEGORY:");
+                out.println("─".repeat(80));
+                
+                String categoryValueQuery = "SELECT c.category_name, " +
+                                          "COUNT(p.id) as product_count, " +
+                                          "SUM((COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) * p.unit_price) as category_value, " +
+                                          "AVG(p.unit_price) as avg_unit_price, " +
+                                          "SUM(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_quantity " +
+                                          "FROM categories c " +
+                                          "LEFT JOIN products p ON c.id = p.category_id " +
+                                          "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                                          "WHERE p.is_active = TRUE " +
+                                          "GROUP BY c.id, c.category_name " +
+                                          "ORDER BY category_value DESC";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(categoryValueQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    double totalValue = 0;
+                    out.printf("%-20s %-8s %-12s %-12s %-10s %-15s%n", 
+                                    "Category", "Products", "Avg Price", "Total Qty", "Value", "% of Total");
+                    out.println("─".repeat(85));
+                
+                    // First pass to calculate total for percentages
+                    java.util.List<String[]> categoryData = new java.util.ArrayList<>();
+                    while (rs.next()) {
+                        String categoryName = rs.getString("category_name");
+                        int productCount = rs.getInt("product_count");
+                        double categoryValue = rs.getDouble("category_value");
+                        double avgPrice = rs.getDouble("avg_unit_price");
+                        int totalQty = rs.getInt("total_quantity");
+                        totalValue += categoryValue;
+                
+                        categoryData.add(new String[]{categoryName, String.valueOf(productCount), 
+                                                    String.format("%.2f", avgPrice), String.valueOf(totalQty), 
+                                                    String.format("%.2f", categoryValue)});
+                    }
                 
-                double totalValue = 0;
-                System.out.printf("%-20s %-8s %-12s %-12s %-10s %-15s%n", 
-                                "Category", "Products", "Avg Price", "Total Qty", "Value", "% of Total");
-                System.out.println("─".repeat(85));
+                    // Second pass to display with percentages
+                    for (String[] data : categoryData) {
+                        double value = Double.parseDouble(data[4]);
+                        double percentage = totalValue > 0 ? (value / totalValue) * 100 : 0;
+                        out.printf("%-20s %-8s LKR %-8s %-10s LKR %-11s %.1f%%%n", 
+                                        data[0], data[1], data[2], data[3], data[4], percentage);
+                    }
                 
-                // First pass to calculate total for percentages
-                java.util.List<String[]> categoryData = new java.util.ArrayList<>();
-                while (rs.next()) {
-                    String categoryName = rs.getString("category_name");
-                    int productCount = rs.getInt("product_count");
-                    double categoryValue = rs.getDouble("category_value");
-                    double avgPrice = rs.getDouble("avg_unit_price");
-                    int totalQty = rs.getInt("total_quantity");
-                    totalValue += categoryValue;
-                    
-                    categoryData.add(new String[]{categoryName, String.valueOf(productCount), 
-                                                String.format("%.2f", avgPrice), String.valueOf(totalQty), 
-                                                String.format("%.2f", categoryValue)});
+                    out.println("─".repeat(85));
+                    out.printf("TOTAL STOCK VALUE: LKR %.2f%n", totalValue);
+                    out.println();
                 }
+            })
+            .section("Detailed inventory status", (conn, out) -> {
+                // 2. DETAILED PRODUCT STOCK STATUS
+                out.println("📦 DETAILED PRODUCT INVENTORY STATUS:");
+                out.println("─".repeat(100));
+                
+                String detailedStockQuery = "SELECT p.product_code, p.product_name, p.brand, c.category_name, " +
+                                          "p.unit_price, " +
+                                          "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
+                                          "COALESCE(il.shelf_capacity, 50) as shelf_capacity, " +
+                                          "COALESCE(il.warehouse_qty, 0) as warehouse_qty, " +
+                                          "COALESCE(il.online_qty, 0) as online_qty, " +
+                                          "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_stock, " +
+                                          "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) * p.unit_price as stock_value, " +
+                                          "p.reorder_level, " +
+                                          "CASE " +
+                                          "  WHEN (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) = 0 THEN 'OUT_OF_STOCK' " +
+                                          "  WHEN (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) <= p.reorder_level THEN 'LOW_STOCK' " +
+                                          "  WHEN (COALESCE(il.shelf_qty, 0) / COALESCE(il.shelf_capacity, 50)) > 0.8 THEN 'WELL_STOCKED' " +
+                                          "  ELSE 'NORMAL' " +
+                                          "END as stock_status " +
+                                          "FROM products p " +
+                                          "LEFT JOIN categories c ON p.category_id = c.id " +
+                                          "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                                          "WHERE p.is_active = TRUE " +
+                                          "ORDER BY stock_value DESC, p.product_name";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(detailedStockQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    out.printf("%-12s %-25s %-15s %-8s %-6s %-6s %-6s %-8s %-12s %-12s%n", 
+                                    "Code", "Product", "Category", "Price", "Shelf", "Warehouse", "Online", "Total", "Value", "Status");
+                    out.println("─".repeat(120));
                 
-                // Second pass to display with percentages
-                for (String[] data : categoryData) {
-                    double value = Double.parseDouble(data[4]);
-                    double percentage = totalValue > 0 ? (value / totalValue) * 100 : 0;
-                    System.out.printf("%-20s %-8s LKR %-8s %-10s LKR %-11s %.1f%%%n", 
-                                    data[0], data[1], data[2], data[3], data[4], percentage);
-                }
+                    while (rs.next()) {
+                        String code = rs.getString("product_code");
+                        String name = rs.getString("product_name");
+                        String brand = rs.getString("brand");
+                        String category = rs.getString("category_name");
+                        double price = rs.getDouble("unit_price");
+                        int shelfQty = rs.getInt("shelf_qty");
+                        int warehouseQty = rs.getInt("warehouse_qty");
+                        int onlineQty = rs.getInt("online_qty");
+                        int totalStock = rs.getInt("total_stock");
+                        double stockValue = rs.getDouble("stock_value");
+                        String status = rs.getString("stock_status");
+                
+                        String displayName = (name + (brand != null ? " (" + brand + ")" : ""));
+                        if (displayName.length() > 25) displayName = displayName.substring(0, 22) + "...";
+                
+                        String statusIcon = "";
+                        switch (status) {
+                            case "OUT_OF_STOCK": statusIcon = "🔴 " + status; break;
+                            case "LOW_STOCK": statusIcon = "🟡 " + status; break;
+                            case "WELL_STOCKED": statusIcon = "🟢 " + status; break;
+                            default: statusIcon = "⚪ " + status; break;
+                        }
                 
-                System.out.println("─".repeat(85));
-                System.out.printf("TOTAL STOCK VALUE: LKR %.2f%n", totalValue);
-                System.out.println();
-            }
-            
-            // 2. DETAILED PRODUCT STOCK STATUS
-            System.out.println("📦 DETAILED PRODUCT INVENTORY STATUS:");
-            System.out.println("─".repeat(100));
-            
-            String detailedStockQuery = "SELECT p.product_code, p.product_name, p.brand, c.category_name, " +
-                                      "p.unit_price, " +
-                                      "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
-                                      "COALESCE(il.shelf_capacity, 50) as shelf_capacity, " +
-                                      "COALESCE(il.warehouse_qty, 0) as warehouse_qty, " +
-                                      "COALESCE(il.online_qty, 0) as online_qty, " +
-                                      "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_stock, " +
-                                      "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) * p.unit_price as stock_value, " +
-                                      "p.reorder_level, " +
-                                      "CASE " +
-                                      "  WHEN (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) = 0 THEN 'OUT_OF_STOCK' " +
-                                      "  WHEN (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) <= p.reorder_level THEN 'LOW_STOCK' " +
-                                      "  WHEN (COALESCE(il.shelf_qty, 0) / COALESCE(il.shelf_capacity, 50)) > 0.8 THEN 'WELL_STOCKED' " +
-                                      "  ELSE 'NORMAL' " +
-                                      "END as stock_status " +
-                                      "FROM products p " +
-                                      "LEFT JOIN categories c ON p.category_id = c.id " +
-                                      "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
-                                      "WHERE p.is_active = TRUE " +
-                                      "ORDER BY stock_value DESC, p.product_name";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(detailedStockQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+                        out.printf("%-12s %-25s %-15s %-8.0f %-6d %-9d %-6d %-8d LKR %-8.0f %s%n", 
+                                        code, displayName, 
+                                        category != null ? (category.length() > 15 ? category.substring(0, 12) + "..." : category) : "N/A",
+                                        price, shelfQty, warehouseQty, onlineQty, totalStock, stockValue, statusIcon);
+                    }
+                }
+            })
+            .section("Stock movements", (conn, out) -> {
+                // 3. STOCK MOVEMENT ANALYSIS (Enhanced)
+                out.println("\n📊 DETAILED STOCK MOVEMENTS (Last 7 Days):");
+                out.println("─".repeat(80));
+                
+                String movementQuery = "SELECT movement_type, " +
+                                     "COUNT(*) as movement_count, " +
+                                     "SUM(quantity) as total_quantity, " +
+                                     "AVG(quantity) as avg_quantity " +
+                                     "FROM stock_movements " +
+                                     "WHERE movement_date >= DATE_SUB(NOW(), INTERVAL 7 DAY) " +
+                                     "GROUP BY movement_type " +
+                                     "ORDER BY total_quantity DESC";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(movementQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    out.printf("%-25s %-10s %-15s %-15s%n", "Movement Type", "Count", "Total Quantity", "Avg Per Movement");
+                    out.println("─".repeat(70));
                 
-                System.out.printf("%-12s %-25s %-15s %-8s %-6s %-6s %-6s %-8s %-12s %-12s%n", 
-                                "Code", "Product", "Category", "Price", "Shelf", "Warehouse", "Online", "Total", "Value", "Status");
-                System.out.println("─".repeat(120));
+                    while (rs.next()) {
+                        String movementType = rs.getString("movement_type");
+                        int count = rs.getInt("movement_count");
+                        int totalQty = rs.getInt("total_quantity");
+                        double avgQty = rs.getDouble("avg_quantity");
                 
-                while (rs.next()) {
-                    String code = rs.getString("product_code");
-                    String name = rs.getString("product_name");
-                    String brand = rs.getString("brand");
-                    String category = rs.getString("category_name");
-                    double price = rs.getDouble("unit_price");
-                    int shelfQty = rs.getInt("shelf_qty");
-                    int warehouseQty = rs.getInt("warehouse_qty");
-                    int onlineQty = rs.getInt("online_qty");
-                    int totalStock = rs.getInt("total_stock");
-                    double stockValue = rs.getDouble("stock_value");
-                    String status = rs.getString("stock_status");
-                    
-                    String displayName = (name + (brand != null ? " (" + brand + ")" : ""));
-                    if (displayName.length() > 25) displayName = displayName.substring(0, 22) + "...";
-                    
-                    String statusIcon = "";
-                    switch (status) {
-                        case "OUT_OF_STOCK": statusIcon = "🔴 " + status; break;
-                        case "LOW_STOCK": statusIcon = "🟡 " + status; break;
-                        case "WELL_STOCKED": statusIcon = "🟢 " + status; break;
-                        default: statusIcon = "⚪ " + status; break;
+                        out.printf("%-25s %-10d %-15d %-15.1f%n", 
+                                        movementType, count, totalQty, avgQty);
                     }
-                    
-                    System.out.printf("%-12s %-25s %-15s %-8.0f %-6d %-9d %-6d %-8d LKR %-8.0f %s%n", 
-                                    code, displayName, 
-                                    category != null ? (category.length() > 15 ? category.substring(0, 12) + "..." : category) : "N/A",
-                                    price, shelfQty, warehouseQty, onlineQty, totalStock, stockValue, statusIcon);
                 }
-            }
-            
-            // 3. STOCK MOVEMENT ANALYSIS (Enhanced)
-            System.out.println("\n📊 DETAILED STOCK MOVEMENTS (Last 7 Days):");
-            System.out.println("─".repeat(80));
-            
-            String movementQuery = "SELECT movement_type, " +
-                                 "COUNT(*) as movement_count, " +
-                                 "SUM(quantity) as total_quantity, " +
-                                 "AVG(quantity) as avg_quantity " +
-                                 "FROM stock_movements " +
-                                 "WHERE movement_date >= DATE_SUB(NOW(), INTERVAL 7 DAY) " +
-                                 "GROUP BY movement_type " +
-                                 "ORDER BY total_quantity DESC";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(movementQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+            })
+            .section("Critical stock alerts", (conn, out) -> {
+                // 4. CRITICAL STOCK ALERTS
+                out.println("\n⚠️ CRITICAL STOCK ALERTS:");
+                out.println("─".repeat(80));
+                
+                String criticalStockQuery = "SELECT p.product_code, p.product_name, p.brand, " +
+                                          "COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) as available_stock, " +
+                                          "p.reorder_level, " +
+                                          "(p.reorder_level - (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0))) as shortage, " +
+                                          "p.unit_price * (p.reorder_level - (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0))) as reorder_cost " +
+                                          "FROM products p " +
+                                          "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                                          "WHERE (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) <= p.reorder_level " +
+                                          "AND p.is_active = TRUE " +
+                                          "ORDER BY shortage DESC";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(criticalStockQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    out.printf("%-12s %-25s %-10s %-12s %-10s %-15s%n", 
+                                    "Code", "Product", "Available", "Reorder Level", "Shortage", "Reorder Cost");
+                    out.println("─".repeat(85));
+                
+                    double totalReorderCost = 0;
+                    int criticalCount = 0;
                 
-                System.out.printf("%-25s %-10s %-15s %-15s%n", "Movement Type", "Count", "Total Quantity", "Avg Per Movement");
-                System.out.println("─".repeat(70));
+                    while (rs.next()) {
+                        String code = rs.getString("product_code");
+                        String name = rs.getString("product_name");
+                        String brand = rs.getString("brand");
+                        int available = rs.getInt("available_stock");
+                        int reorderLevel = rs.getInt("reorder_level");
+                        int shortage = rs.getInt("shortage");
+                        double reorderCost = rs.getDouble("reorder_cost");
                 
-                while (rs.next()) {
-                    String movementType = rs.getString("movement_type");
-                    int count = rs.getInt("movement_count");
-                    int totalQty = rs.getInt("total_quantity");
-                    double avgQty = rs.getDouble("avg_quantity");
-                    
-                    System.out.printf("%-25s %-10d %-15d %-15.1f%n", 
-                                    movementType, count, totalQty, avgQty);
-                }
-            }
-            
-            // 4. CRITICAL STOCK ALERTS
-            System.out.println("\n⚠️ CRITICAL STOCK ALERTS:");
-            System.out.println("─".repeat(80));
-            
-            String criticalStockQuery = "SELECT p.product_code, p.product_name, p.brand, " +
-                                      "COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) as available_stock, " +
-                                      "p.reorder_level, " +
-                                      "(p.reorder_level - (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0))) as shortage, " +
-                                      "p.unit_price * (p.reorder_level - (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0))) as reorder_cost " +
-                                      "FROM products p " +
-                                      "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
-                                      "WHERE (COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0)) <= p.reorder_level " +
-                                      "AND p.is_active = TRUE " +
-                                      "ORDER BY shortage DESC";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(criticalStockQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+                        String displayName = (name + (brand != null ? " (" + brand + ")" : ""));
+                        if (displayName.length() > 25) displayName = displayName.substring(0, 22) + "...";
                 
-                System.out.printf("%-12s %-25s %-10s %-12s %-10s %-15s%n", 
-                                "Code", "Product", "Available", "Reorder Level", "Shortage", "Reorder Cost");
-                System.out.println("─".repeat(85));
+                        out.printf("%-12s %-25s %-10d %-12d %-10d LKR %-12.2f%n", 
+                                        code, displayName, available, reorderLevel, shortage, reorderCost);
                 
-                double totalReorderCost = 0;
-                int criticalCount = 0;
+                        totalReorderCost += reorderCost;
+                        criticalCount++;
+                    }
                 
-                while (rs.next()) {
-                    String code = rs.getString("product_code");
-                    String name = rs.getString("product_name");
-                    String brand = rs.getString("brand");
-                    int available = rs.getInt("available_stock");
-                    int reorderLevel = rs.getInt("reorder_level");
-                    int shortage = rs.getInt("shortage");
-                    double reorderCost = rs.getDouble("reorder_cost");
-                    
-                    String displayName = (name + (brand != null ? " (" + brand + ")" : ""));
-                    if (displayName.length() > 25) displayName = displayName.substring(0, 22) + "...";
-                    
-                    System.out.printf("%-12s %-25s %-10d %-12d %-10d LKR %-12.2f%n", 
-                                    code, displayName, available, reorderLevel, shortage, reorderCost);
-                    
-                    totalReorderCost += reorderCost;
-                    criticalCount++;
+                    if (criticalCount == 0) {
+                        out.println("✅ No critical stock alerts! All products are adequately stocked.");
+                    } else {
+                        out.println("─".repeat(85));
+                        out.printf("📋 SUMMARY: %d products need reordering | Total Cost: LKR %.2f%n", 
+                                        criticalCount, totalReorderCost);
+                    }
                 }
+            })
+            .section("Top value products", (conn, out) -> {
+                // 5. TOP VALUE PRODUCTS
+                out.println("\n💎 TOP 10 MOST VALUABLE PRODUCTS (By Total Stock Value):");
+                out.println("─".repeat(80));
+                
+                String topValueQuery = "SELECT p.product_code, p.product_name, p.brand, " +
+                                     "p.unit_price, " +
+                                     "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_qty, " +
+                                     "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) * p.unit_price as stock_value " +
+                                     "FROM products p " +
+                                     "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                                     "WHERE p.is_active = TRUE " +
+                                     "ORDER BY stock_value DESC " +
+                                     "LIMIT 10";
                 
-                if (criticalCount == 0) {
-                    System.out.println("✅ No critical stock alerts! All products are adequately stocked.");
-                } else {
-                    System.out.println("─".repeat(85));
-                    System.out.printf("📋 SUMMARY: %d products need reordering | Total Cost: LKR %.2f%n", 
-                                    criticalCount, totalReorderCost);
-                }
-            }
-            
-            // 5. TOP VALUE PRODUCTS
-            System.out.println("\n💎 TOP 10 MOST VALUABLE PRODUCTS (By Total Stock Value):");
-            System.out.println("─".repeat(80));
-            
-            String topValueQuery = "SELECT p.product_code, p.product_name, p.brand, " +
-                                 "p.unit_price, " +
-                                 "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) as total_qty, " +
-                                 "(COALESCE(il.shelf_qty, 0) + COALESCE(il.warehouse_qty, 0) + COALESCE(il.online_qty, 0)) * p.unit_price as stock_value " +
-                                 "FROM products p " +
-                                 "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
-                                 "WHERE p.is_active = TRUE " +
-                                 "ORDER BY stock_value DESC " +
-                                 "LIMIT 10";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(topValueQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+                try (PreparedStatement stmt = conn.prepareStatement(topValueQuery);
+                     ResultSet rs = stmt.executeQuery()) {
                 
-                System.out.printf("%-4s %-12s %-25s %-10s %-8s %-15s%n", 
-                                "Rank", "Code", "Product", "Unit Price", "Quantity", "Total Value");
-                System.out.println("─".repeat(80));
+                    out.printf("%-4s %-12s %-25s %-10s %-8s %-15s%n", 
+                                    "Rank", "Code", "Product", "Unit Price", "Quantity", "Total Value");
+                    out.println("─".repeat(80));
                 
-                int rank = 1;
-                while (rs.next()) {
-                    String code = rs.getString("product_code");
-                    String name = rs.getString("product_name");
-                    String brand = rs.getString("brand");
-                    double unitPrice = rs.getDouble("unit_price");
-                    int quantity = rs.getInt("total_qty");
-                    double stockValue = rs.getDouble("stock_value");
-                    
-                    String displayName = (name + (brand != null ? " (" + brand + ")" : ""));
-                    if (displayName.length() > 25) displayName = displayName.substring(0, 22) + "...";
-                    
-                    System.out.printf("%-4d %-12s %-25s LKR %-6.0f %-8d LKR %-12.2f%n", 
-                                    rank++, code, displayName, unitPrice, quantity, stockValue);
+                    int rank = 1;
+                    while (rs.next()) {
+                        String code = rs.getString("product_code");
+                        String name = rs.getString("product_name");
+                        String brand = rs.getString("brand");
+                        double unitPrice = rs.getDouble("unit_price");
+                        int quantity = rs.getInt("total_qty");
+                        double stockValue = rs.getDouble("stock_value");
+                
+                        String displayName = (name + (brand != null ? " (" + brand + ")" : ""));
+                        if (displayName.length() > 25) displayName = displayName.substring(0, 22) + "...";
+                
+                        out.printf("%-4d %-12s %-25s LKR %-6.0f %-8d LKR %-12.2f%n", 
+                                        rank++, code, displayName, unitPrice, quantity, stockValue);
+                    }
                 }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("⚠️ Error generating comprehensive stock report: " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        System.out.println("\n📋 STOCK VALUE EXPLANATION:");
-        System.out.println("Stock Value = Quantity in Inventory × Unit Price");
-        System.out.println("This shows how much money is 'tied up' in your inventory.");
-        System.out.println("High stock values indicate major inventory investments.");
-        
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
+            }), null, STOCK_VALUE_EXPLANATION, ReportCache.Topic.INVENTORY);
     }
     
     private boolean handleBillReports() {
         System.out.println("\n🧾 BILL REPORTS");
         System.out.println("═".repeat(60));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            // Recent transactions
-            System.out.println("📋 RECENT TRANSACTIONS (Last 24 Hours):");
-            System.out.println("─".repeat(60));
-            
-            String recentBillsQuery = "SELECT s.bill_number, s.final_amount, s.sale_date, " +
-                                    "COALESCE(s.customer_name, 'Walk-in Customer') as customer_name " +
-                                    "FROM sales s " +
-                                    "WHERE s.sale_date >= DATE_SUB(NOW(), INTERVAL 24 HOUR) " +
-                                    "ORDER BY s.sale_date DESC " +
-                                    "LIMIT 20";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(recentBillsQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+        return showCachedReport(ReportCache.key("bill-reports"), () -> getReportEngine().report()
+            .section("Recent transactions", (conn, out) -> {
+                // Recent transactions
+                out.println("📋 RECENT TRANSACTIONS (Last 24 Hours):");
+                out.println("─".repeat(60));
                 
-                System.out.printf("%-12s %-15s %-20s %-20s%n", "Bill No.", "Amount", "Customer", "Date/Time");
-                System.out.println("─".repeat(70));
+                String recentBillsQuery = "SELECT s.bill_number, s.final_amount, s.sale_date, " +
+                                        "COALESCE(s.customer_name, 'Walk-in Customer') as customer_name " +
+                                        "FROM sales s " +
+                                        "WHERE s.sale_date >= DATE_SUB(NOW(), INTERVAL 24 HOUR) " +
+                                        "ORDER BY s.sale_date DESC " +
+                                        "LIMIT 20";
                 
-                while (rs.next()) {
-                    String billNumber = rs.getString("bill_number");
-                    double amount = rs.getDouble("final_amount");
-                    String customerName = rs.getString("customer_name");
-                    String transactionDate = rs.getString("sale_date");
-                    
-                    System.out.printf("%-12s LKR %-12.2f %-20s %s%n", 
-                                    billNumber, amount, 
-                                    customerName.length() > 20 ? customerName.substring(0, 17) + "..." : customerName,
-                                    transactionDate.substring(0, 16));
+                try (PreparedStatement stmt = conn.prepareStatement(recentBillsQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    out.printf("%-12s %-15s %-20s %-20s%n", "Bill No.", "Amount", "Customer", "Date/Time");
+                    out.println("─".repeat(70));
+                
+                    while (rs.next()) {
+                        String billNumber = rs.getString("bill_number");
+                        double amount = rs.getDouble("final_amount");
+                        String customerName = rs.getString("customer_name");
+                        String transactionDate = rs.getString("sale_date");
+                
+                        out.printf("%-12s LKR %-12.2f %-20s %s%n", 
+                                        billNumber, amount, 
+                                        customerName.length() > 20 ? customerName.substring(0, 17) + "..." : customerName,
+                                        transactionDate.substring(0, 16));
+                    }
+                }
+            })
+            .section("Bill statistics", (conn, out) -> {
+                // Bill statistics
+                out.println("\n📊 BILL STATISTICS (Last 7 Days):");
+                out.println("─".repeat(40));
+                
+                SalesWindows salesWindows = SalesWindows.getInstance();
+                if (salesWindows.isBillsReady()) {
+                    WindowedAggregate.Stats week = salesWindows.bills(Duration.ofDays(7));
+                    out.println("Total Bills: " + week.getCount());
+                    out.println("Total Revenue: LKR " + String.format("%.2f", Money.toAmount(week.getSumCents())));
+                    out.println("Average Bill Amount: LKR " + String.format("%.2f", Money.toAmount(week.getAverageCents())));
+                    out.println("Highest Bill: LKR " + String.format("%.2f", Money.toAmount(week.getMaxCents())));
+                    out.println("Lowest Bill: LKR " + String.format("%.2f", Money.toAmount(week.getMinCents())));
+                    return;
                 }
-            }
-            
-            // Bill statistics
-            System.out.println("\n📊 BILL STATISTICS (Last 7 Days):");
-            System.out.println("─".repeat(40));
-            
-            String billStatsQuery = "SELECT " +
-                                  "COUNT(*) as total_bills, " +
-                                  "SUM(final_amount) as total_revenue, " +
-                                  "AVG(final_amount) as avg_bill_amount, " +
-                                  "MAX(final_amount) as highest_bill, " +
-                                  "MIN(final_amount) as lowest_bill " +
-                                  "FROM sales " +
-                                  "WHERE sale_date >= DATE_SUB(NOW(), INTERVAL 7 DAY)";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(billStatsQuery);
-                 ResultSet rs = stmt.executeQuery()) {
                 
-                if (rs.next()) {
-                    int totalBills = rs.getInt("total_bills");
-                    double totalRevenue = rs.getDouble("total_revenue");
-                    double avgBillAmount = rs.getDouble("avg_bill_amount");
-                    double highestBill = rs.getDouble("highest_bill");
-                    double lowestBill = rs.getDouble("lowest_bill");
-                    
-                    System.out.println("Total Bills: " + totalBills);
-                    System.out.println("Total Revenue: LKR " + String.format("%.2f", totalRevenue));
-                    System.out.println("Average Bill Amount: LKR " + String.format("%.2f", avgBillAmount));
-                    System.out.println("Highest Bill: LKR " + String.format("%.2f", highestBill));
-                    System.out.println("Lowest Bill: LKR " + String.format("%.2f", lowestBill));
+                String billStatsQuery = "SELECT " +
+                                      "COUNT(*) as total_bills, " +
+                                      "SUM(final_amount) as total_revenue, " +
+                                      "AVG(final_amount) as avg_bill_amount, " +
+                                      "MAX(final_amount) as highest_bill, " +
+                                      "MIN(final_amount) as lowest_bill " +
+                                      "FROM sales " +
+                                      "WHERE sale_date >= DATE_SUB(NOW(), INTERVAL 7 DAY)";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(billStatsQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    if (rs.next()) {
+                        int totalBills = rs.getInt("total_bills");
+                        double totalRevenue = rs.getDouble("total_revenue");
+                        double avgBillAmount = rs.getDouble("avg_bill_amount");
+                        double highestBill = rs.getDouble("highest_bill");
+                        double lowestBill = rs.getDouble("lowest_bill");
+                
+                        out.println("Total Bills: " + totalBills);
+                        out.println("Total Revenue: LKR " + String.format("%.2f", totalRevenue));
+                        out.println("Average Bill Amount: LKR " + String.format("%.2f", avgBillAmount));
+                        out.println("Highest Bill: LKR " + String.format("%.2f", highestBill));
+                        out.println("Lowest Bill: LKR " + String.format("%.2f", lowestBill));
+                    }
                 }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("⚠️ Error generating bill report: " + e.getMessage());
-            System.out.println("Note: Ensure transaction tables exist and contain data.");
-        }
-        
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
+            }), "Note: Ensure transaction tables exist and contain data.", null, ReportCache.Topic.SALES);
     }
     
     private boolean handleCustomerAnalytics() {
         System.out.println("\n👥 CUSTOMER ANALYTICS");
         System.out.println("═".repeat(60));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            // Customer registration stats
-            System.out.println("📈 CUSTOMER REGISTRATION TRENDS:");
-            System.out.println("─".repeat(40));
-            
-            String customerStatsQuery = "SELECT " +
-                                      "COUNT(DISTINCT customer_phone) as total_customers, " +
-                                      "COUNT(DISTINCT CASE WHEN sale_date >= DATE_SUB(NOW(), INTERVAL 30 DAY) THEN customer_phone END) as new_this_month, " +
-                                      "COUNT(DISTINCT CASE WHEN sale_date >= DATE_SUB(NOW(), INTERVAL 7 DAY) THEN customer_phone END) as new_this_week " +
-                                      "FROM sales WHERE customer_phone IS NOT NULL";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(customerStatsQuery);
-                 ResultSet rs = stmt.executeQuery()) {
-                
-                if (rs.next()) {
-                    int totalCustomers = rs.getInt("total_customers");
-                    int newThisMonth = rs.getInt("new_this_month");
-                    int newThisWeek = rs.getInt("new_this_week");
-                    
-                    System.out.println("Total Registered Customers: " + totalCustomers);
-                    System.out.println("New Customers This Month: " + newThisMonth);
-                    System.out.println("New Customers This Week: " + newThisWeek);
-                    System.out.println();
+        return showCachedReport(ReportCache.key("customer-analytics"), () -> getReportEngine().report()
+            .section("Customer registration trends", (conn, out) -> {
+                // Customer registration stats
+                out.println("📈 CUSTOMER REGISTRATION TRENDS:");
+                out.println("─".repeat(40));
+                
+                DistinctCustomers distinctCustomers = DistinctCustomers.getInstance();
+                LocalDate today = LocalDate.now();
+                if (distinctCustomers.isReady()) {
+                    out.println("Total Customers: " + distinctCustomers.estimate(distinctCustomers.getFirstDay(), today));
+                    out.println("Customers This Year: " + distinctCustomers.estimate(today.minusDays(364), today));
+                    out.println("Customers This Month: " + distinctCustomers.estimate(today.minusDays(29), today));
+                    out.println("Customers This Week: " + distinctCustomers.estimate(today.minusDays(6), today));
+                } else {
+                    // Exact counts use the sketches' customer keys, so both modes report the same figures
+                    out.println("Total Customers: " + DistinctCustomers.exactCount(conn, null, today));
+                    out.println("Customers This Year: " + DistinctCustomers.exactCount(conn, today.minusDays(364), today));
+                    out.println("Customers This Month: " + DistinctCustomers.exactCount(conn, today.minusDays(29), today));
+                    out.println("Customers This Week: " + DistinctCustomers.exactCount(conn, today.minusDays(6), today));
                 }
-            }
-            
-            // Top customers by purchase value
-            System.out.println("🏆 TOP CUSTOMERS BY PURCHASE VALUE:");
-            System.out.println("─".repeat(50));
-            
-            String topCustomersQuery = "SELECT s.customer_name, s.customer_phone, " +
-                                     "COUNT(s.id) as total_transactions, " +
-                                     "SUM(s.final_amount) as total_spent " +
-                                     "FROM sales s " +
-                                     "WHERE s.customer_name IS NOT NULL AND s.customer_name != 'Walk-in Customer' " +
-                                     "GROUP BY s.customer_name, s.customer_phone " +
-                                     "ORDER BY total_spent DESC " +
-                                     "LIMIT 10";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(topCustomersQuery);
-                 ResultSet rs = stmt.executeQuery()) {
+                out.println();
+            })
+            .section("Top customers", (conn, out) -> {
+                // Top customers by purchase value
+                out.println("🏆 TOP CUSTOMERS BY PURCHASE VALUE:");
+                out.println("─".repeat(50));
+                
+                // Running totals kept at checkout make this an index read on customer_stats.total_spent;
+                // until BackfillCustomerStats has finished they miss older sales, so history is aggregated instead
+                String topCustomersQuery = "SELECT TRIM(CONCAT(c.first_name, ' ', c.last_name)) as customer_name, " +
+                                         "c.phone_number as customer_phone, " +
+                                         "cs.transaction_count as total_transactions, cs.total_spent " +
+                                         "FROM customer_stats cs JOIN customers c ON c.id = cs.customer_id " +
+                                         "ORDER BY cs.total_spent DESC " +
+                                         "LIMIT 10";
+                String historyQuery = "SELECT s.customer_name, s.customer_phone, " +
+                                    "COUNT(s.id) as total_transactions, " +
+                                    "SUM(s.final_amount) as total_spent " +
+                                    "FROM sales s " +
+                                    "WHERE s.customer_name IS NOT NULL AND s.customer_name != 'Walk-in Customer' " +
+                                    "GROUP BY s.customer_name, s.customer_phone " +
+                                    "ORDER BY total_spent DESC " +
+                                    "LIMIT 10";
                 
-                System.out.printf("%-20s %-15s %-12s %-15s%n", "Customer", "Phone", "Transactions", "Total Spent");
-                System.out.println("─".repeat(65));
+                out.printf("%-20s %-15s %-12s %-15s%n", "Customer", "Phone", "Transactions", "Total Spent");
+                out.println("─".repeat(65));
                 
-                int rank = 1;
-                while (rs.next()) {
-                    String customerName = rs.getString("customer_name");
-                    String phoneNumber = rs.getString("customer_phone");
-                    int totalTransactions = rs.getInt("total_transactions");
-                    double totalSpent = rs.getDouble("total_spent");
-                    
-                    System.out.printf("%d. %-18s %-15s %-12d LKR %-12.2f%n", 
-                                    rank++,
-                                    customerName != null ? (customerName.length() > 18 ? customerName.substring(0, 15) + "..." : customerName) : "N/A",
-                                    phoneNumber, totalTransactions, totalSpent);
+                boolean backfilled = false;
+                try {
+                    backfilled = CustomerStats.isBackfilled(conn);
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != 1146) {
+                        throw e;
+                    }
                 }
                 
-                if (rank == 1) {
-                    System.out.println("No customer transaction data available yet.");
+                int printed;
+                try (PreparedStatement stmt = conn.prepareStatement(backfilled ? topCustomersQuery : historyQuery);
+                     ResultSet rs = stmt.executeQuery()) {
+                    printed = printTopCustomers(rs, out);
                 }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("⚠️ Error generating customer analytics: " + e.getMessage());
-            System.out.println("Note: Ensure customer and transaction tables exist.");
+                
+                if (printed == 0) {
+                    out.println("No customer transaction data available yet.");
+                }
+            }), "Note: Ensure customer and transaction tables exist.", null, ReportCache.Topic.CUSTOMERS, ReportCache.Topic.SALES);
+    }
+    
+    private static int printTopCustomers(ResultSet rs, PrintStream out) throws SQLException {
+        int rank = 1;
+        while (rs.next()) {
+            String customerName = rs.getString("customer_name");
+            String phoneNumber = rs.getString("customer_phone");
+            int totalTransactions = rs.getInt("total_transactions");
+            double totalSpent = rs.getDouble("total_spent");
+            
+            out.printf("%d. %-18s %-15s %-12d LKR %-12.2f%n", 
+                            rank++,
+                            customerName != null ? (customerName.length() > 18 ? customerName.substring(0, 15) + "..." : customerName) : "N/A",
+                            phoneNumber, totalTransactions, totalSpent);
         }
-        
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
+        return rank - 1;
     }
     
     private boolean handleReports() {
@@ -3347,181 +3579,172 @@ public class Main {
         System.out.println("\nDAILY SALES SUMMARY");
         System.out.println("=".repeat(80));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            // Get today's date
-            String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
-            
-            // Daily totals
-            String totalQuery = "SELECT " +
-                              "COUNT(*) as total_transactions, " +
-                              "SUM(final_amount) as total_sales, " +
-                              "AVG(final_amount) as average_sale " +
-                              "FROM sales WHERE DATE(sale_date) = ?";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(totalQuery)) {
-                stmt.setString(1, today);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        System.out.printf("📊 DAILY OVERVIEW (%s)%n", today);
-                        System.out.println("─".repeat(50));
-                        System.out.printf("Total Transactions: %d%n", rs.getInt("total_transactions"));
-                        System.out.printf("Total Sales Amount: $%.2f%n", rs.getDouble("total_sales"));
-                        System.out.printf("Average Sale Amount: $%.2f%n", rs.getDouble("average_sale"));
-                        System.out.println();
+        // Get today's date
+        LocalDate reportDay = LocalDate.now();
+        String today = reportDay.toString();
+        
+        return showCachedReport(ReportCache.key("daily-sales-summary", today), reportDay, () -> getReportEngine().report()
+            .section("Daily overview", (conn, out) -> {
+                // Daily totals
+                String totalQuery = "SELECT " +
+                                  "COUNT(*) as total_transactions, " +
+                                  "SUM(final_amount) as total_sales, " +
+                                  "AVG(final_amount) as average_sale " +
+                                  "FROM sales WHERE DATE(sale_date) = ?";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(totalQuery)) {
+                    stmt.setString(1, today);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            out.printf("📊 DAILY OVERVIEW (%s)%n", today);
+                            out.println("─".repeat(50));
+                            out.printf("Total Transactions: %d%n", rs.getInt("total_transactions"));
+                            out.printf("Total Sales Amount: $%.2f%n", rs.getDouble("total_sales"));
+                            out.printf("Average Sale Amount: $%.2f%n", rs.getDouble("average_sale"));
+                            out.println();
+                        }
                     }
                 }
-            }
-            
-            // Top selling products today
-            String topProductsQuery = "SELECT p.product_name, " +
-                                    "SUM(si.quantity) as total_quantity, " +
-                                    "SUM(si.total_price) as total_revenue " +
-                                    "FROM sale_items si " +
-                                    "JOIN products p ON si.product_id = p.id " +
-                                    "JOIN sales s ON si.sale_id = s.id " +
-                                    "WHERE DATE(s.sale_date) = ? " +
-                                    "GROUP BY p.id, p.product_name " +
-                                    "ORDER BY total_quantity DESC " +
-                                    "LIMIT 5";
-            
-            System.out.println("🏆 TOP SELLING PRODUCTS TODAY");
-            System.out.println("─".repeat(70));
-            System.out.printf("%-30s %10s %15s%n", "Product Name", "Qty Sold", "Revenue");
-            System.out.println("─".repeat(70));
-            
-            try (PreparedStatement stmt = conn.prepareStatement(topProductsQuery)) {
-                stmt.setString(1, today);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    int rank = 1;
-                    while (rs.next() && rank <= 5) {
-                        System.out.printf("%-30s %10d %15.2f%n",
-                            rs.getString("product_name").substring(0, Math.min(30, rs.getString("product_name").length())),
-                            rs.getInt("total_quantity"),
-                            rs.getDouble("total_revenue"));
-                        rank++;
+            })
+            .section("Top selling products today", (conn, out) -> {
+                // Top selling products today
+                String topProductsQuery = "SELECT p.product_name, " +
+                                        "SUM(si.quantity) as total_quantity, " +
+                                        "SUM(si.total_price) as total_revenue " +
+                                        "FROM sale_items si " +
+                                        "JOIN products p ON si.product_id = p.id " +
+                                        "JOIN sales s ON si.sale_id = s.id " +
+                                        "WHERE DATE(s.sale_date) = ? " +
+                                        "GROUP BY p.id, p.product_name " +
+                                        "ORDER BY total_quantity DESC " +
+                                        "LIMIT 5";
+                
+                out.println("🏆 TOP SELLING PRODUCTS TODAY");
+                out.println("─".repeat(70));
+                out.printf("%-30s %10s %15s%n", "Product Name", "Qty Sold", "Revenue");
+                out.println("─".repeat(70));
+                
+                try (PreparedStatement stmt = conn.prepareStatement(topProductsQuery)) {
+                    stmt.setString(1, today);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        int rank = 1;
+                        while (rs.next() && rank <= 5) {
+                            out.printf("%-30s %10d %15.2f%n",
+                                rs.getString("product_name").substring(0, Math.min(30, rs.getString("product_name").length())),
+                                rs.getInt("total_quantity"),
+                                rs.getDouble("total_revenue"));
+                            rank++;
+                        }
                     }
                 }
-            }
-            
-            // Recent transactions
-            String recentQuery = "SELECT s.id, s.sale_date, s.final_amount, " +
-                               "CASE WHEN s.customer_name IS NOT NULL AND s.customer_name != '' THEN s.customer_name ELSE 'Walk-in Customer' END as customer_name " +
-                               "FROM sales s " +
-                               "WHERE DATE(s.sale_date) = ? " +
-                               "ORDER BY s.sale_date DESC " +
-                               "LIMIT 10";
-            
-            System.out.println("\n📋 RECENT TRANSACTIONS TODAY");
-            System.out.println("─".repeat(80));
-            System.out.printf("%-10s %-20s %-25s %15s%n", "Sale ID", "Time", "Customer", "Amount");
-            System.out.println("─".repeat(80));
-            
-            try (PreparedStatement stmt = conn.prepareStatement(recentQuery)) {
-                stmt.setString(1, today);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        String timeOnly = rs.getTimestamp("sale_date").toString().substring(11, 19);
-                        System.out.printf("%-10d %-20s %-25s $%14.2f%n",
-                            rs.getInt("id"),
-                            timeOnly,
-                            rs.getString("customer_name").substring(0, Math.min(25, rs.getString("customer_name").length())),
-                            rs.getDouble("final_amount"));
+            })
+            .section("Recent transactions today", (conn, out) -> {
+                // Recent transactions
+                String recentQuery = "SELECT s.id, s.sale_date, s.final_amount, " +
+                                   "CASE WHEN s.customer_name IS NOT NULL AND s.customer_name != '' THEN s.customer_name ELSE 'Walk-in Customer' END as customer_name " +
+                                   "FROM sales s " +
+                                   "WHERE DATE(s.sale_date) = ? " +
+                                   "ORDER BY s.sale_date DESC " +
+                                   "LIMIT 10";
+                
+                out.println("\n📋 RECENT TRANSACTIONS TODAY");
+                out.println("─".repeat(80));
+                out.printf("%-10s %-20s %-25s %15s%n", "Sale ID", "Time", "Customer", "Amount");
+                out.println("─".repeat(80));
+                
+                try (PreparedStatement stmt = conn.prepareStatement(recentQuery)) {
+                    stmt.setString(1, today);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String timeOnly = rs.getTimestamp("sale_date").toString().substring(11, 19);
+                            out.printf("%-10d %-20s %-25s $%14.2f%n",
+                                rs.getInt("id"),
+                                timeOnly,
+                                rs.getString("customer_name").substring(0, Math.min(25, rs.getString("customer_name").length())),
+                                rs.getDouble("final_amount"));
+                        }
                     }
                 }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("Error generating daily sales summary: " + e.getMessage());
-        }
-        
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
+            }), null, null, ReportCache.Topic.SALES);
     }
     
     private boolean showInventoryLevels() {
         System.out.println("\nINVENTORY LEVELS");
         System.out.println("=".repeat(100));
         
-        try (Connection conn = connectionPool.getConnection()) {
-            String query = "SELECT p.product_code, p.product_name, c.category_name, " +
-                          "p.unit_price, p.unit_of_measure, " +
-                          "p.reorder_level as current_stock, " +
-                          "p.expiry_date " +
-                          "FROM products p " +
-                          "LEFT JOIN categories c ON p.category_id = c.id " +
-                          "WHERE p.is_active = 1 " +
-                          "ORDER BY p.reorder_level ASC, p.product_name";
-            
-            System.out.printf("%-15s %-25s %-15s %10s %8s %12s %-12s%n",
-                "Product Code", "Product Name", "Category", "Price", "UoM", "Stock", "Expiry");
-            System.out.println("=".repeat(100));
-            
-            int lowStockCount = 0;
-            int outOfStockCount = 0;
-            
-            try (PreparedStatement stmt = conn.prepareStatement(query);
-                 ResultSet rs = stmt.executeQuery()) {
+        return showCachedReport(ReportCache.key("inventory-levels"), () -> getReportEngine().report()
+            .section("Inventory levels", (conn, out) -> {
+                String query = "SELECT p.product_code, p.product_name, c.category_name, " +
+                              "p.unit_price, p.unit_of_measure, " +
+                              "p.reorder_level as current_stock, " +
+                              "p.expiry_date " +
+                              "FROM products p " +
+                              "LEFT JOIN categories c ON p.category_id = c.id " +
+                              "WHERE p.is_active = 1 " +
+                              "ORDER BY p.reorder_level ASC, p.product_name";
                 
-                while (rs.next()) {
-                    String productCode = rs.getString("product_code");
-                    String productName = rs.getString("product_name");
-                    String categoryName = rs.getString("category_name");
-                    double unitPrice = rs.getDouble("unit_price");
-                    String uom = rs.getString("unit_of_measure");
-                    int currentStock = rs.getInt("current_stock");
-                    String expiry = rs.getString("expiry_date");
-                    
-                    // Truncate long names for display
-                    productName = productName.substring(0, Math.min(25, productName.length()));
-                    categoryName = categoryName != null ? categoryName.substring(0, Math.min(15, categoryName.length())) : "None";
-                    expiry = expiry != null ? expiry : "N/A";
-                    
-                    // Color coding for stock levels (using reorder_level as approximate stock)
-                    String stockStatus = "";
-                    if (currentStock == 0) {
-                        stockStatus = "NONE SET";
-                        outOfStockCount++;
-                    } else if (currentStock <= 10) {
-                        stockStatus = "LOW (" + currentStock + ")";
-                        lowStockCount++;
-                    } else {
-                        stockStatus = "OK (" + currentStock + ")";
+                out.printf("%-15s %-25s %-15s %10s %8s %12s %-12s%n",
+                    "Product Code", "Product Name", "Category", "Price", "UoM", "Stock", "Expiry");
+                out.println("=".repeat(100));
+                
+                int lowStockCount = 0;
+                int outOfStockCount = 0;
+                
+                try (PreparedStatement stmt = conn.prepareStatement(query);
+                     ResultSet rs = stmt.executeQuery()) {
+                
+                    while (rs.next()) {
+                        String productCode = rs.getString("product_code");
+                        String productName = rs.getString("product_name");
+                        String categoryName = rs.getString("category_name");
+                        double unitPrice = rs.getDouble("unit_price");
+                        String uom = rs.getString("unit_of_measure");
+                        int currentStock = rs.getInt("current_stock");
+                        String expiry = rs.getString("expiry_date");
+                
+                        // Truncate long names for display
+                        productName = productName.substring(0, Math.min(25, productName.length()));
+                        categoryName = categoryName != null ? categoryName.substring(0, Math.min(15, categoryName.length())) : "None";
+                        expiry = expiry != null ? expiry : "N/A";
+                
+                        // Color coding for stock levels (using reorder_level as approximate stock)
+                        String stockStatus = "";
+                        if (currentStock == 0) {
+                            stockStatus = "NONE SET";
+                            outOfStockCount++;
+                        } else if (currentStock <= 10) {
+                            stockStatus = "LOW (" + currentStock + ")";
+                            lowStockCount++;
+                        } else {
+                            stockStatus = "OK (" + currentStock + ")";
+                        }
+                
+                        out.printf("%-15s %-25s %-15s $%8.2f %-8s %12s %-12s%n",
+                            productCode, productName, categoryName, unitPrice, uom, stockStatus, expiry);
                     }
-                    
-                    System.out.printf("%-15s %-25s %-15s $%8.2f %-8s %12s %-12s%n",
-                        productCode, productName, categoryName, unitPrice, uom, stockStatus, expiry);
-                }
-            }
-            
-            // Summary statistics
-            System.out.println("=".repeat(100));
-            System.out.println("\n📊 INVENTORY ALERTS");
-            System.out.println("─".repeat(40));
-            System.out.printf("🔴 Items with No Reorder Level: %d%n", outOfStockCount);
-            System.out.printf("🟡 Low Reorder Level Items (≤10): %d%n", lowStockCount);
-            
-            if (outOfStockCount > 0 || lowStockCount > 0) {
-                System.out.println("\n⚠️  IMMEDIATE ATTENTION REQUIRED:");
-                if (outOfStockCount > 0) {
-                    System.out.println("   • Set reorder levels for " + outOfStockCount + " items");
                 }
-                if (lowStockCount > 0) {
-                    System.out.println("   • Review " + lowStockCount + " low reorder level items");
+                
+                // Summary statistics
+                out.println("=".repeat(100));
+                out.println("\n📊 INVENTORY ALERTS");
+                out.println("─".repeat(40));
+                out.printf("🔴 Items with No Reorder Level: %d%n", outOfStockCount);
+                out.printf("🟡 Low Reorder Level Items (≤10): %d%n", lowStockCount);
+                
+                if (outOfStockCount > 0 || lowStockCount > 0) {
+                    out.println("\n⚠️  IMMEDIATE ATTENTION REQUIRED:");
+                    if (outOfStockCount > 0) {
+                        out.println("   • Set reorder levels for " + outOfStockCount + " items");
+                    }
+                    if (lowStockCount > 0) {
+                        out.println("   • Review " + lowStockCount + " low reorder level items");
+                    }
+                    out.println("\n📝 NOTE: This shows reorder level settings. For actual stock levels,");
+                    out.println("   implement proper inventory tracking system.");
+                } else {
+                    out.println("✅ All items have reasonable reorder level settings");
                 }
-                System.out.println("\n📝 NOTE: This shows reorder level settings. For actual stock levels,");
-                System.out.println("   implement proper inventory tracking system.");
-            } else {
-                System.out.println("✅ All items have reasonable reorder level settings");
-            }
-            
-        } catch (Exception e) {
-            System.out.println("Error generating inventory levels report: " + e.getMessage());
-        }
-        
-        System.out.println("\nPress Enter to continue...");
-        scanner.nextLine();
-        return true;
+            }), null, null, ReportCache.Topic.INVENTORY);
     }
     
     private boolean handleViewTeam() {
@@ -3577,9 +3800,7 @@ public class Main {
     
     private boolean processSalesTransaction() {
         // Initialize shopping cart
-        java.util.List<CartItem> cart = new java.util.ArrayList<>();
-        double subtotal = 0.0;
-        double totalDiscount = 0.0;
+        Cart cart = posService.newCart();
         
         try {
             while (true) {
@@ -3593,7 +3814,7 @@ public class Main {
                 System.out.println("Transaction ID: TXN-" + System.currentTimeMillis());
                 System.out.println();
                 
-                displayCart(cart, subtotal, totalDiscount);
+                displayCart(cart);
                 System.out.println();
                 System.out.println("COMMANDS:");
                 System.out.println("• Enter PRODUCT CODE (e.g. SAMPLE001) to add item");
@@ -3614,24 +3835,15 @@ public class Main {
                         scanner.nextLine();
                         continue;
                     }
-                    if (processCheckout(cart, subtotal, totalDiscount)) {
+                    if (processCheckout(cart)) {
                         return true; // Transaction completed
                     }
                 } else if (input.equals("R")) {
                     removeItemFromCart(cart);
-                    // Recalculate totals
-                    Object[] totals = calculateCartTotals(cart);
-                    subtotal = (Double) totals[0];
-                    totalDiscount = (Double) totals[1];
                 } else if (!input.isEmpty()) {
                     // Try to add product by code
                     System.out.println("Searching for product: " + input);
-                    if (addProductToCart(cart, input)) {
-                        // Recalculate totals
-                        Object[] totals = calculateCartTotals(cart);
-                        subtotal = (Double) totals[0];
-                        totalDiscount = (Double) totals[1];
-                    }
+                    addProductToCart(cart, input);
                 } else {
                     System.out.println("Please enter a command!");
                     System.out.println("Press Enter to continue...");
@@ -4016,6 +4228,7 @@ public class Main {
             recordStockMovement(conn, productId, transferType, locationFrom, locationTo, transferQty, "MANUAL_TRANSFER");
             
             conn.commit();
+            ReportCache.getInstance().onStockChanged();
             return true;
             
         } catch (Exception e) {
@@ -4203,7 +4416,7 @@ public class Main {
     
     // ==================== POS SYSTEM SUPPORT METHODS ====================
     
-    private void displayCart(java.util.List<CartItem> cart, double subtotal, double totalDiscount) {
+    private void displayCart(Cart cart) {
         System.out.println("SHOPPING CART");
         System.out.println("================================================================================");
         System.out.printf("%-4s %-12s %-25s %-4s %-8s %-8s %-10s%n", 
@@ -4213,185 +4426,109 @@ public class Main {
         if (cart.isEmpty()) {
             System.out.println("                              Cart is empty");
         } else {
-            for (int i = 0; i < cart.size(); i++) {
-                CartItem item = cart.get(i);
-                // Calculate effective unit price after discount
-                double effectiveUnitPrice = item.unitPrice * (1 - item.discountPercent / 100.0);
+            int lineNumber = 1;
+            for (CartItem item : cart.getItems()) {
+                String name = item.getProductName();
                 System.out.printf("%-4d %-12s %-25s %-4d LKR%-6.2f %-8.1f LKR%-8.2f%n",
-                                (i + 1), item.productCode, 
-                                item.productName.length() > 25 ? item.productName.substring(0, 25) : item.productName,
-                                item.quantity, effectiveUnitPrice, item.discountPercent, item.lineTotal);
+                                lineNumber++, item.getProductCode(), 
+                                name.length() > 25 ? name.substring(0, 25) : name,
+                                item.getQuantity(), item.getEffectiveUnitPrice(), item.getDiscountPercent(), item.getLineTotal());
             }
         }
         
         System.out.println("================================================================================");
         System.out.printf("Subtotal: LKR %.2f  |  Total Discount: LKR %.2f  |  FINAL TOTAL: LKR %.2f%n", 
-                         subtotal, totalDiscount, (subtotal - totalDiscount));
+                         cart.getSubtotal(), cart.getTotalDiscount(), cart.getFinalTotal());
         System.out.println("================================================================================");
     }
     
-    private boolean addProductToCart(java.util.List<CartItem> cart, String productCode) {
-        try (Connection conn = connectionPool.getConnection()) {
-            // Get product details with stock information AND discount information
-            String query = "SELECT p.id as product_id, p.product_code, p.product_name, p.brand, " +
-                          "p.unit_price as selling_price, p.discount_amount, p.discount_percentage, " +
-                          "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
-                          "COALESCE(il.warehouse_qty, 0) as warehouse_qty, " +
-                          "COALESCE(il.shelf_capacity, 50) as shelf_capacity " +
-                          "FROM products p " +
-                          "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
-                          "WHERE p.product_code = ?";
+    private boolean addProductToCart(Cart cart, String productCode) {
+        try {
+            ProductLookup product = posService.findProduct(productCode);
+            if (product == null) {
+                System.out.println("Product with code '" + productCode + "' not found!");
+                System.out.println("Press Enter to continue...");
+                scanner.nextLine();
+                return false;
+            }
             
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, productCode);
-                ResultSet rs = stmt.executeQuery();
-                
-                if (rs.next()) {
-                    int productId = rs.getInt("product_id");
-                    String name = rs.getString("product_name");
-                    String brand = rs.getString("brand");
-                    double price = rs.getDouble("selling_price");
-                    double productDiscountAmount = rs.getDouble("discount_amount");
-                    double productDiscountPercent = rs.getDouble("discount_percentage");
-                    int shelfQty = rs.getInt("shelf_qty");
-                    int warehouseQty = rs.getInt("warehouse_qty");
-                    int totalAvailable = shelfQty + warehouseQty;
-                    
-                    // Calculate effective price after product discounts
-                    double finalPrice = price - productDiscountAmount - (price * productDiscountPercent / 100);
-                    
-                    System.out.println("\nProduct Found:");
-                    System.out.println("Name: " + name + " (" + brand + ")");
-                    System.out.println("Original Price: LKR " + String.format("%.2f", price));
-                    if (productDiscountAmount > 0 || productDiscountPercent > 0) {
-                        System.out.println("Product Discount: LKR " + String.format("%.2f", productDiscountAmount) + 
-                                         " + " + String.format("%.1f", productDiscountPercent) + "%");
-                        System.out.println("Discounted Price: LKR " + String.format("%.2f", finalPrice));
-                    }
-                    System.out.println("Available Stock: " + shelfQty + " (shelf) + " + warehouseQty + " (warehouse) = " + totalAvailable);
-                    
-                    if (totalAvailable <= 0) {
-                        System.out.println("ERROR: Product is out of stock!");
-                        System.out.println("Press Enter to continue...");
-                        scanner.nextLine();
-                        return false;
-                    }
-                    
-                    System.out.print("Enter quantity to add: ");
-                    try {
-                        int requestedQty = Integer.parseInt(scanner.nextLine().trim());
-                        
-                        if (requestedQty <= 0) {
-                            System.out.println("Invalid quantity!");
-                            return false;
-                        }
-                        
-                        if (requestedQty > totalAvailable) {
-                            System.out.println("ERROR: Insufficient stock! Available: " + totalAvailable);
-                            System.out.println("Press Enter to continue...");
-                            scanner.nextLine();
-                            return false;
-                        }
-                        
-                        // Check if product already in cart
-                        CartItem existingItem = null;
-                        for (CartItem item : cart) {
-                            if (item.productId == productId) {
-                                existingItem = item;
-                                break;
-                            }
-                        }
-                        
-                        if (existingItem != null) {
-                            int newQty = existingItem.quantity + requestedQty;
-                            if (newQty > totalAvailable) {
-                                System.out.println("ERROR: Total quantity would exceed available stock!");
-                                System.out.println("Current in cart: " + existingItem.quantity + ", Available: " + totalAvailable);
-                                System.out.println("Press Enter to continue...");
-                                scanner.nextLine();
-                                return false;
-                            }
-                            existingItem.quantity = newQty;
-                            
-                            // Update discount to include product discount if not already applied
-                            double productDiscountPercentage = 0.0;
-                            if (price > 0) {
-                                double productDiscountTotal = productDiscountAmount + (price * productDiscountPercent / 100);
-                                productDiscountPercentage = (productDiscountTotal / price) * 100;
-                            }
-                            
-                            // If current discount is less than product discount, update it
-                            if (existingItem.discountPercent < productDiscountPercentage) {
-                                existingItem.discountPercent = productDiscountPercentage;
-                                System.out.println("Applied product discount: " + String.format("%.1f", productDiscountPercentage) + "%");
-                            }
-                            
-                            existingItem.lineTotal = existingItem.quantity * existingItem.unitPrice * (1 - existingItem.discountPercent / 100);
-                        } else {
-                            // Calculate product's built-in discount percentage
-                            double productDiscountPercentage = 0.0;
-                            if (price > 0) {
-                                double productDiscountTotal = productDiscountAmount + (price * productDiscountPercent / 100);
-                                productDiscountPercentage = (productDiscountTotal / price) * 100;
-                            }
-                            
-                            // Add discount if applicable
-                            double additionalDiscountPercent = 0.0;
-                            if (productDiscountPercentage > 0) {
-                                System.out.println("Product has built-in discount: " + String.format("%.1f", productDiscountPercentage) + "%");
-                                System.out.print("Apply additional discount % (0 for none): ");
-                            } else {
-                                System.out.print("Apply discount % (0 for none): ");
-                            }
-                            try {
-                                String discInput = scanner.nextLine().trim();
-                                if (!discInput.isEmpty()) {
-                                    additionalDiscountPercent = Double.parseDouble(discInput);
-                                    if (additionalDiscountPercent < 0 || additionalDiscountPercent > 50) {
-                                        System.out.println("Invalid additional discount! Using 0%");
-                                        additionalDiscountPercent = 0.0;
-                                    }
-                                }
-                            } catch (NumberFormatException e) {
-                                additionalDiscountPercent = 0.0;
-                            }
-                            
-                            // Total discount is product discount + additional discount
-                            double totalDiscountPercent = productDiscountPercentage + additionalDiscountPercent;
-                            
-                            CartItem newItem = new CartItem();
-                            newItem.productId = productId;
-                            newItem.productCode = productCode;
-                            newItem.productName = name + " (" + brand + ")";
-                            newItem.quantity = requestedQty;
-                            newItem.unitPrice = price;
-                            newItem.discountPercent = totalDiscountPercent;
-                            newItem.lineTotal = requestedQty * price * (1 - totalDiscountPercent / 100);
-                            
-                            cart.add(newItem);
+            System.out.println("\nProduct Found:");
+            System.out.println("Name: " + product.getDisplayName());
+            System.out.println("Original Price: LKR " + String.format("%.2f", product.getPrice()));
+            if (product.hasProductDiscount()) {
+                System.out.println("Product Discount: LKR " + String.format("%.2f", product.getDiscountAmount()) + 
+                                 " + " + String.format("%.1f", product.getDiscountPercent()) + "%");
+                System.out.println("Discounted Price: LKR " + String.format("%.2f", product.getFinalPrice()));
+            }
+            System.out.println("Available Stock: " + product.getShelfQty() + " (shelf) + " + product.getWarehouseQty() +
+                               " (warehouse) = " + product.getTotalAvailable());
+            
+            if (product.getTotalAvailable() <= 0) {
+                System.out.println("ERROR: Product is out of stock!");
+                System.out.println("Press Enter to continue...");
+                scanner.nextLine();
+                return false;
+            }
+            
+            System.out.print("Enter quantity to add: ");
+            int requestedQty;
+            try {
+                requestedQty = Integer.parseInt(scanner.nextLine().trim());
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid quantity format!");
+                return false;
+            }
+            
+            // New lines may take an extra cashier discount on top of the product discount
+            double additionalDiscountPercent = 0.0;
+            CartItem existingItem = cart.findItem(product.getProductId());
+            if (existingItem == null && requestedQty > 0 && requestedQty <= product.getTotalAvailable()) {
+                if (product.getEffectiveDiscountPercent() > 0) {
+                    System.out.println("Product has built-in discount: " + String.format("%.1f", product.getEffectiveDiscountPercent()) + "%");
+                    System.out.print("Apply additional discount % (0 for none): ");
+                } else {
+                    System.out.print("Apply discount % (0 for none): ");
+                }
+                try {
+                    String discInput = scanner.nextLine().trim();
+                    if (!discInput.isEmpty()) {
+                        additionalDiscountPercent = Double.parseDouble(discInput);
+                        if (additionalDiscountPercent < 0 || additionalDiscountPercent > Cart.MAX_ADDITIONAL_DISCOUNT_PERCENT) {
+                            System.out.println("Invalid additional discount! Using 0%");
+                            additionalDiscountPercent = 0.0;
                         }
-                        
-                        System.out.println("Added " + requestedQty + " units to cart!");
-                        return true;
-                        
-                    } catch (NumberFormatException e) {
-                        System.out.println("Invalid quantity format!");
-                        return false;
                     }
-                } else {
-                    System.out.println("Product with code '" + productCode + "' not found!");
-                    System.out.println("Press Enter to continue...");
-                    scanner.nextLine();
-                    return false;
+                } catch (NumberFormatException e) {
+                    additionalDiscountPercent = 0.0;
                 }
             }
+            
+            double previousDiscount = existingItem != null ? existingItem.getDiscountPercent() : 0.0;
+            CartItem item = cart.add(product, requestedQty, additionalDiscountPercent);
+            if (existingItem != null && item.getDiscountPercent() > previousDiscount) {
+                System.out.println("Applied product discount: " + String.format("%.1f", item.getDiscountPercent()) + "%");
+            }
+            if (item.getPromotion() != null) {
+                System.out.println("Promotion applied: " + item.getPromotion().getName() +
+                                   " (-LKR " + String.format("%.2f", item.getPromotionCents() / 100.0) + ")");
+            }
+            
+            System.out.println("Added " + requestedQty + " units to cart!");
+            printBoughtTogether(cart, product.getProductId());
+            return true;
+            
+        } catch (PosException e) {
+            System.out.println("ERROR: " + e.getMessage());
+            System.out.println("Press Enter to continue...");
+            scanner.nextLine();
+            return false;
         } catch (Exception e) {
             System.out.println("Error adding product to cart: " + e.getMessage());
             return false;
         }
     }
     
-    private void removeItemFromCart(java.util.List<CartItem> cart) {
+    private void removeItemFromCart(Cart cart) {
         if (cart.isEmpty()) {
             System.out.println("Cart is empty!");
             return;
@@ -4400,33 +4537,20 @@ public class Main {
         System.out.print("Enter item number to remove (1-" + cart.size() + "): ");
         try {
             int itemNum = Integer.parseInt(scanner.nextLine().trim());
-            if (itemNum >= 1 && itemNum <= cart.size()) {
-                CartItem removed = cart.remove(itemNum - 1);
-                System.out.println("Removed: " + removed.productName);
-            } else {
-                System.out.println("Invalid item number!");
-            }
+            CartItem removed = cart.remove(itemNum);
+            System.out.println("Removed: " + removed.getProductName());
         } catch (NumberFormatException e) {
             System.out.println("Invalid input!");
+        } catch (PosException e) {
+            System.out.println(e.getMessage());
         }
     }
     
-    private Object[] calculateCartTotals(java.util.List<CartItem> cart) {
-        double subtotal = 0.0;
-        double totalDiscount = 0.0;
-        
-        for (CartItem item : cart) {
-            double itemSubtotal = item.quantity * item.unitPrice;
-            double itemDiscount = itemSubtotal * (item.discountPercent / 100);
-            subtotal += itemSubtotal;
-            totalDiscount += itemDiscount;
-        }
-        
-        return new Object[]{subtotal, totalDiscount};
-    }
-    
-    private boolean processCheckout(java.util.List<CartItem> cart, double subtotal, double totalDiscount) {
+    private boolean processCheckout(Cart cart) {
         try {
+            cart.applyPromotions();
+            double subtotal = cart.getSubtotal();
+            double totalDiscount = cart.getTotalDiscount();
             double finalTotal = subtotal - totalDiscount;
             
             System.out.println("\n" + "=".repeat(60));
@@ -4471,7 +4595,7 @@ public class Main {
                 
                 if (confirm.equals("y") || confirm.equals("yes")) {
                     // Process the transaction
-                    String billNumber = processTransaction(customerInfo, cart, subtotal, totalDiscount, finalTotal, cashReceived, change);
+                    String billNumber = processTransaction(customerInfo, cart, cashReceived);
                     
                     if (billNumber != null) {
                         System.out.println("\nTRANSACTION COMPLETED SUCCESSFULLY!");
@@ -4502,19 +4626,12 @@ public class Main {
     }
     
     private CustomerInfo getOrCreateCustomer(String phoneNumber) {
-        try (Connection conn = connectionPool.getConnection()) {
+        try {
             // Check if we have this customer in previous sales
-            String checkQuery = "SELECT customer_name, customer_email FROM sales WHERE customer_phone = ? LIMIT 1";
-            try (PreparedStatement stmt = conn.prepareStatement(checkQuery)) {
-                stmt.setString(1, phoneNumber);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        String name = rs.getString("customer_name");
-                        String email = rs.getString("customer_email");
-                        System.out.println("Returning customer: " + (name != null ? name : "Unknown"));
-                        return new CustomerInfo(name, email, phoneNumber, true);
-                    }
-                }
+            CustomerInfo returning = posService.findReturningCustomer(phoneNumber);
+            if (returning != null) {
+                System.out.println("Returning customer: " + (returning.getName() != null ? returning.getName() : "Unknown"));
+                return returning;
             }
             
             // Customer doesn't exist in previous sales, get new customer info
@@ -4536,279 +4653,45 @@ public class Main {
         return new CustomerInfo("Walk-in Customer", null, phoneNumber, false);
     }
     
-    private String processTransaction(CustomerInfo customerInfo, java.util.List<CartItem> cart, 
-                                     double subtotal, double totalDiscount, double finalTotal,
-                                     double cashReceived, double change) {
-        try (Connection conn = connectionPool.getConnection()) {
-            conn.setAutoCommit(false);
-            
-            try {
-                // Get next bill number
-                String billNumber = getNextBillNumber(conn);
-                
-                // Save transaction to database
-                int transactionId = saveTransactionToDatabase(conn, billNumber, customerInfo, subtotal, totalDiscount, finalTotal, cashReceived, change, cart);
-                
-                // Generate receipt file
-                generateReceiptFile(billNumber, customerInfo, cart, subtotal, totalDiscount, finalTotal, cashReceived, change);
-                
-                // Update stock after sale
-                updateStockAfterSale(conn, cart, billNumber);
-                
-                conn.commit();
-                System.out.println("✅ Transaction saved to database with ID: " + transactionId);
-                return billNumber;
-                
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+    private String processTransaction(CustomerInfo customerInfo, Cart cart, double cashReceived) {
+        Cashier cashier = new Cashier(currentUser.getId(), currentUser.getEmail(),
+                                      currentUser.getFullName(), currentUser.getRoleName());
+        try {
+            CheckoutResult result = posService.checkout(cart, customerInfo, cashReceived, cashier);
+            System.out.println("✅ Transaction saved to database with ID: " + result.getSaleId());
+            return result.getBillNumber();
             
         } catch (Exception e) {
             System.out.println("Transaction processing: " + e.getMessage());
             // Still generate receipt file for testing
             String billNumber = String.format("%03d", (int)(System.currentTimeMillis() % 1000));
-            generateReceiptFile(billNumber, customerInfo, cart, subtotal, totalDiscount, finalTotal, cashReceived, change);
+            double finalTotal = cart.getFinalTotal();
+            posService.writeReceipt(billNumber, customerInfo, cart.getItems(), cart.getSubtotal(), cart.getTotalDiscount(),
+                                    finalTotal, cashReceived, cashReceived - finalTotal, cashier.getFullName());
             return billNumber;
         }
     }
     
-    private int saveTransactionToDatabase(Connection conn, String billNumber, CustomerInfo customerInfo, 
-                                         double subtotal, double totalDiscount, double finalTotal,
-                                         double cashReceived, double change, java.util.List<CartItem> cart) throws Exception {
+    private void startSalesAnalytics() {
         try {
-            // Insert into sales table (actual schema uses 'sales', not 'transactions')
-            String insertSale = "INSERT INTO sales (bill_number, customer_name, customer_email, customer_phone, " +
-                               "total_amount, discount_amount, final_amount, payment_method, cashier_id) " +
-                               "VALUES (?, ?, ?, ?, ?, ?, ?, 'CASH', ?)";
-            
-            int saleId;
-            try (PreparedStatement stmt = conn.prepareStatement(insertSale, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setString(1, billNumber);
-                stmt.setString(2, customerInfo.name);
-                stmt.setString(3, customerInfo.email);
-                stmt.setString(4, customerInfo.phone);
-                stmt.setDouble(5, finalTotal);  // total_amount
-                stmt.setDouble(6, totalDiscount); // discount_amount
-                stmt.setDouble(7, finalTotal);   // final_amount
-                stmt.setInt(8, currentUser.getId()); // cashier_id
-                
-                stmt.executeUpdate();
-                
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        saleId = rs.getInt(1);
-                    } else {
-                        throw new Exception("Failed to get sale ID");
-                    }
-                }
-            }
-            
-            // Insert into sale_items table (actual schema uses 'sale_items', not 'transaction_items')
-            String insertItem = "INSERT INTO sale_items (sale_id, product_id, quantity, " +
-                               "unit_price, discount_amount, total_price) VALUES (?, ?, ?, ?, ?, ?)";
-            
-            try (PreparedStatement stmt = conn.prepareStatement(insertItem)) {
-                for (CartItem item : cart) {
-                    stmt.setInt(1, saleId);
-                    stmt.setInt(2, item.productId);
-                    stmt.setInt(3, item.quantity);
-                    stmt.setDouble(4, item.unitPrice);
-                    
-                    // Calculate discount amount for this item
-                    double itemDiscountAmount = (item.unitPrice * item.quantity * item.discountPercent) / 100.0;
-                    stmt.setDouble(5, itemDiscountAmount);
-                    stmt.setDouble(6, item.lineTotal);
-                    stmt.addBatch();
-                }
-                stmt.executeBatch();
-            }
-            
-            return saleId;
-            
-        } catch (Exception e) {
-            // Log the error but don't fail the transaction completely
-            System.out.println("⚠️ Warning: Could not save to database: " + e.getMessage());
-            System.out.println("Transaction receipt will be generated, but not stored in database.");
-            throw e; // Re-throw to trigger rollback
-        }
-    }
-    
-    private String getNextBillNumber(Connection conn) throws Exception {
-        try {
-            // Since bill_counter table doesn't exist, get the next bill number from sales table
-            String query = "SELECT COALESCE(MAX(CAST(SUBSTRING(bill_number, 1) AS UNSIGNED)), 0) + 1 as next_bill FROM sales";
-            try (PreparedStatement stmt = conn.prepareStatement(query);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    int billNum = rs.getInt("next_bill");
-                    return String.format("%03d", billNum);
-                }
-            }
+            // Every checkout, local or made by another process such as a separate POS server, reaches the report cache through the feed
+            SalesFeed.getInstance().subscribe(sale -> ReportCache.getInstance().onCheckout(
+                LocalDate.ofInstant(java.time.Instant.ofEpochMilli(sale.getSaleTimeMillis()), java.time.ZoneId.systemDefault())));
+            TopSellers.getInstance().start(this::getReportingConnection);
+            DistinctCustomers.getInstance().start(this::getReportingConnection, connectionPool);
+            SalesWindows.getInstance().start(this::getReportingConnection);
+            DAOFactory.getInstance(connectionPool).getOrderDAO().setSalesWindows(SalesWindows.getInstance());
+            BasketPairs.getInstance().start(this::getReportingConnection);
+            ReorderEngine.getInstance().start(this::getReportingConnection);
         } catch (Exception e) {
-            // If there's any issue, use timestamp-based bill number
-            System.out.println("Warning: Could not get bill number from database, using timestamp: " + e.getMessage());
-        }
-        
-        return String.format("%03d", (int)(System.currentTimeMillis() % 1000));
-    }
-    
-    private void updateStockAfterSale(Connection conn, java.util.List<CartItem> cart, String billNumber) throws Exception {
-        for (CartItem item : cart) {
-            try {
-                // Try to update inventory_locations table if it exists
-                String updateQuery = "UPDATE inventory_locations " +
-                                   "SET shelf_qty = GREATEST(0, shelf_qty - ?), " +
-                                   "warehouse_qty = GREATEST(0, warehouse_qty - GREATEST(0, ? - shelf_qty)) " +
-                                   "WHERE product_id = ?";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
-                    stmt.setInt(1, item.quantity);
-                    stmt.setInt(2, item.quantity);
-                    stmt.setInt(3, item.productId);
-                    stmt.executeUpdate();
-                }
-                
-            } catch (Exception e) {
-                // Table doesn't exist yet, just log the sale
-                System.out.println("Stock update logged: " + item.productName + " -" + item.quantity);
-            }
-        }
-    }
-    
-    private void generateReceiptFile(String billNumber, CustomerInfo customerInfo, java.util.List<CartItem> cart,
-                                   double subtotal, double totalDiscount, double finalTotal,
-                                   double cashReceived, double change) {
-        try {
-            String fileName = "receipt_" + billNumber + ".txt";
-            java.io.PrintWriter writer = new java.io.PrintWriter(new java.io.FileWriter(fileName));
-            
-            writer.println("SYOS - Store Your Outstanding Stock");
-            writer.println("=====================================");
-            writer.println("RECEIPT");
-            writer.println("=====================================");
-            writer.println("Bill Number: " + billNumber);
-            writer.println("Date: " + new java.util.Date());
-            writer.println("Cashier: " + (currentUser != null ? currentUser.getFullName() : "System Administrator"));
-            writer.println();
-            
-            // Customer info
-            writer.println("Customer: " + (customerInfo.name != null ? customerInfo.name : "Walk-in Customer"));
-            if (customerInfo.phone != null) {
-                writer.println("Phone: " + customerInfo.phone);
-            }
-            if (customerInfo.email != null) {
-                writer.println("Email: " + customerInfo.email);
-            }
-            writer.println();
-            
-            writer.println("ITEMS:");
-            writer.println("-".repeat(50));
-            
-            for (CartItem item : cart) {
-                writer.printf("%-25s x%d%n", item.productName, item.quantity);
-                writer.printf("  LKR %.2f each", item.unitPrice);
-                if (item.discountPercent > 0) {
-                    writer.printf(" (%.1f%% discount)", item.discountPercent);
-                }
-                writer.printf(" = LKR %.2f%n", item.lineTotal);
-                writer.println();
-            }
-            
-            writer.println("-".repeat(50));
-            writer.printf("Subtotal: LKR %.2f%n", subtotal);
-            writer.printf("Total Discount: LKR %.2f%n", totalDiscount);
-            writer.printf("FINAL TOTAL: LKR %.2f%n", finalTotal);
-            writer.println();
-            writer.printf("Cash Received: LKR %.2f%n", cashReceived);
-            writer.printf("Change: LKR %.2f%n", change);
-            writer.println();
-            writer.println("Thank you for shopping with SYOS!");
-            writer.println("=====================================");
-            
-            writer.close();
-            
-        } catch (Exception e) {
-            System.out.println("Error generating receipt file: " + e.getMessage());
-        }
-    }
-    
-    // Helper class for cart items
-    private static class CartItem {
-        int productId;
-        String productCode;
-        String productName;
-        int quantity;
-        double unitPrice;
-        double discountPercent;
-        double lineTotal;
-    }
-    
-    // Helper class for customer information
-    private static class CustomerInfo {
-        String name;
-        String email;
-        String phone;
-        boolean isExisting;
-        
-        CustomerInfo(String name, String email, String phone, boolean isExisting) {
-            this.name = name;
-            this.email = email;
-            this.phone = phone;
-            this.isExisting = isExisting;
+            System.out.println("Note: Live sales analytics not available: " + e.getMessage());
         }
     }
     
     private void initializeSalesTables() {
-        try (Connection conn = connectionPool.getConnection()) {
+        try {
             System.out.println("Checking and creating sales tables...");
-            
-            // Create sales table
-            String createSalesTable = "CREATE TABLE IF NOT EXISTS sales (" +
-                "id INT AUTO_INCREMENT PRIMARY KEY," +
-                "bill_number VARCHAR(50) UNIQUE NOT NULL," +
-                "customer_name VARCHAR(255)," +
-                "customer_email VARCHAR(255)," +
-                "customer_phone VARCHAR(20)," +
-                "total_amount DECIMAL(10,2) NOT NULL," +
-                "discount_amount DECIMAL(10,2) DEFAULT 0.00," +
-                "tax_amount DECIMAL(10,2) DEFAULT 0.00," +
-                "final_amount DECIMAL(10,2) NOT NULL," +
-                "payment_method ENUM('CASH', 'CARD', 'DIGITAL', 'CREDIT') DEFAULT 'CASH'," +
-                "sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                "cashier_id INT," +
-                "notes TEXT," +
-                "FOREIGN KEY (cashier_id) REFERENCES users(id) ON DELETE SET NULL," +
-                "INDEX idx_bill_number (bill_number)," +
-                "INDEX idx_sale_date (sale_date)," +
-                "INDEX idx_cashier_id (cashier_id)" +
-                ")";
-            
-            // Create sale_items table
-            String createSaleItemsTable = "CREATE TABLE IF NOT EXISTS sale_items (" +
-                "id INT AUTO_INCREMENT PRIMARY KEY," +
-                "sale_id INT NOT NULL," +
-                "product_id INT NOT NULL," +
-                "quantity INT NOT NULL," +
-                "unit_price DECIMAL(10,2) NOT NULL," +
-                "discount_amount DECIMAL(10,2) DEFAULT 0.00," +
-                "total_price DECIMAL(10,2) NOT NULL," +
-                "FOREIGN KEY (sale_id) REFERENCES sales(id) ON DELETE CASCADE," +
-                "FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE RESTRICT," +
-                "INDEX idx_sale_id (sale_id)," +
-                "INDEX idx_product_id (product_id)" +
-                ")";
-            
-            // Execute table creation
-            try (PreparedStatement stmt = conn.prepareStatement(createSalesTable)) {
-                stmt.executeUpdate();
-            }
-            try (PreparedStatement stmt = conn.prepareStatement(createSaleItemsTable)) {
-                stmt.executeUpdate();
-            }
-            
+            posService.ensureSalesTables();
             System.out.println("✓ Sales tables verified/created successfully!");
             
         } catch (Exception e) {
@@ -4961,6 +4844,7 @@ public class Main {
                                  (expiryDate != null ? " (Expires: " + expiryDate + ")" : " (No expiry)"));
             }
             rs.close();
+            ReportCache.getInstance().onStockChanged();
             
             return remainingQty == 0; // True if all required quantity was allocated
         }
@@ -5034,6 +4918,9 @@ public class Main {
                 }
             }
             rs.close();
+            if (totalItems > 0) {
+                ReportCache.getInstance().onStockChanged();
+            }
             
             System.out.println("---------------------------------------------------------------------");
             System.out.printf("TOTAL: %d items removed, LKR %.2f value lost%n", totalItems, totalValue);
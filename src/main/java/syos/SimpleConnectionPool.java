@@ -1,48 +1,31 @@
 package syos;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
-import java.io.InputStream;
 
-public class SimpleConnectionPool {
-    private String url;
-    private String username;
-    private String password;
+import com.syos.infrastructure.database.ConnectionPool;
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Former DriverManager-per-call connection source, kept for source compatibility
+ * Every connection now comes from the shared HikariCP pool
+ * @deprecated Use {@link ConnectionPool#getShared()}
+ */
+@Deprecated
+public class SimpleConnectionPool implements ConnectionProvider {
     
-    public SimpleConnectionPool() {
-        loadDatabaseConfig();
-    }
+    private final ConnectionPool delegate;
     
-    private void loadDatabaseConfig() {
-        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
-            Properties properties = new Properties();
-            if (input != null) {
-                properties.load(input);
-                this.url = properties.getProperty("db.url", "jdbc:mysql://localhost:3306/syos_db");
-                this.username = properties.getProperty("db.username", "syos_user");
-                this.password = properties.getProperty("db.password", "temp1234");
-            } else {
-                // Default values
-                this.url = "jdbc:mysql://localhost:3306/syos_db";
-                this.username = "syos_user";
-                this.password = "temp1234";
-            }
-            
-            // Load MySQL driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load database configuration: " + e.getMessage(), e);
-        }
+    public SimpleConnectionPool() {
+        this.delegate = ConnectionPool.getShared();
     }
     
+    @Override
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+        return delegate.getConnection();
     }
     
     public void close() {
-        // No connection pool to close with basic JDBC
+        // The shared pool is closed on JVM shutdown
     }
-}
\ No newline at end of file
+}
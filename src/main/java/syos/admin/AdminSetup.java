@@ -20,7 +20,7 @@ public class AdminSetup {
     public static void main(String[] args) {
         ConnectionPool connectionPool = null;
         try {
-            connectionPool = new ConnectionPool();
+            connectionPool = ConnectionPool.getShared();
             DAOFactory daoFactory = DAOFactory.getInstance(connectionPool);
             ServiceFactory serviceFactory = ServiceFactory.getInstance(daoFactory);
             
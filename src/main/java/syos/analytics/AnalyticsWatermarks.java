@@ -0,0 +1,66 @@
+package syos.analytics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Per-tracker record of the highest sale id already folded into persisted analytics,
+ * so a restart replays only newer sales
+ */
+public final class AnalyticsWatermarks {
+
+    public static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS analytics_watermarks (" +
+        "tracker VARCHAR(50) PRIMARY KEY, " +
+        "sale_id BIGINT NOT NULL, " +
+        "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+        ")";
+
+    private AnalyticsWatermarks() {
+    }
+
+    public static void ensureTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CREATE_TABLE_SQL);
+        }
+    }
+
+    /**
+     * @return The tracker's watermark, or 0 if it has never persisted one
+     */
+    public static long read(Connection conn, String tracker) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT sale_id FROM analytics_watermarks WHERE tracker = ?")) {
+            stmt.setString(1, tracker);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the tracker has ever persisted a watermark, even one of 0
+     */
+    public static boolean contains(Connection conn, String tracker) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM analytics_watermarks WHERE tracker = ?")) {
+            stmt.setString(1, tracker);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Raise the tracker's watermark; a lower value never overwrites a higher one
+     */
+    public static void write(Connection conn, String tracker, long saleId) throws SQLException {
+        String sql = "INSERT INTO analytics_watermarks (tracker, sale_id) VALUES (?, ?) " +
+                     "ON DUPLICATE KEY UPDATE sale_id = GREATEST(sale_id, VALUES(sale_id))";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, tracker);
+            stmt.setLong(2, saleId);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package syos.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * "Frequently bought together" from basket co-occurrence counts
+ * Every committed basket adds one to the count of each pair of distinct products in it, kept in
+ * sharded primitive long-keyed maps; the diagonal pair (p, p) counts the baskets holding p.
+ * History is counted once at startup on a fork-join pool, and a periodic compaction turns the
+ * counts into an immutable top-K neighbour list per product that lookups read without locking
+ * When the pair table outgrows its budget, compaction drops pairs in neither product's top-K;
+ * their counts restart from zero if they recur
+ *
+ * Configured from config.properties:
+ *   analytics.basket.topk               - neighbours kept per product (default 10)
+ *   analytics.basket.compact.seconds    - how often the neighbour lists are rebuilt (default 300)
+ *   analytics.basket.max.items          - distinct products per basket counted; larger baskets are
+ *                                         cut to this many, as they say little about affinity (default 50)
+ *   analytics.basket.max.pairs          - pair counts kept before compaction prunes (default 2000000)
+ */
+public class BasketPairs implements SalesFeed.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(BasketPairs.class);
+    private static final BasketPairs INSTANCE = new BasketPairs();
+
+    private static final int SHARDS = 16;
+    private static final int CHUNK_BASKETS = 4096;
+
+    private static final String HISTORY_SQL =
+        "SELECT sale_id, product_id FROM sale_items WHERE sale_id <= ? ORDER BY sale_id";
+
+    /**
+     * A product often bought with another
+     */
+    public static final class Neighbour {
+        private final int productId;
+        private final String productName;
+        private final long baskets;
+        private final double confidence;
+
+        Neighbour(int productId, String productName, long baskets, double confidence) {
+            this.productId = productId;
+            this.productName = productName;
+            this.baskets = baskets;
+            this.confidence = confidence;
+        }
+
+        public int getProductId() { return productId; }
+        public String getProductName() { return productName; }
+
+        /** @return Baskets holding both products */
+        public long getBaskets() { return baskets; }
+
+        /** @return The share of baskets with the looked-up product that also held this one */
+        public double getConfidence() { return confidence; }
+    }
+
+    private final int topK;
+    private final long compactSeconds;
+    private final int maxItems;
+    private final int maxPairs;
+    private final PairCounts[] shards = new PairCounts[SHARDS];
+    private final Map<Integer, String> productNames = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Neighbour[]> neighbours = Collections.emptyMap();
+    private volatile boolean ready;
+    private boolean started;
+
+    BasketPairs() {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default basket pair settings");
+        }
+        this.topK = Math.max(1, Integer.parseInt(props.getProperty("analytics.basket.topk", "10")));
+        this.compactSeconds = Math.max(1, Long.parseLong(props.getProperty("analytics.basket.compact.seconds", "300")));
+        this.maxItems = Math.max(2, Integer.parseInt(props.getProperty("analytics.basket.max.items", "50")));
+        this.maxPairs = Math.max(1, Integer.parseInt(props.getProperty("analytics.basket.max.pairs", "2000000")));
+        initShards();
+    }
+
+    BasketPairs(int topK, int maxItems, int maxPairs) {
+        this.topK = topK;
+        this.compactSeconds = 0;
+        this.maxItems = maxItems;
+        this.maxPairs = maxPairs;
+        initShards();
+    }
+
+    private void initShards() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new PairCounts(1024);
+        }
+    }
+
+    /**
+     * Get the process-wide engine
+     */
+    public static BasketPairs getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to the sales feed, count sales history on a fork-join pool in the background and
+     * then rebuild the neighbour lists periodically; later calls do nothing
+     * @param connectionProvider Source of read connections for the feed and the history scan
+     * @throws SQLException if the feed cannot start
+     */
+    public void start(ConnectionProvider connectionProvider) throws SQLException {
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+        }
+        SalesFeed feed = SalesFeed.getInstance();
+        feed.subscribe(this);
+        long buildUpTo = feed.start(connectionProvider);
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "syos-basket-pairs");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                int baskets = build(connectionProvider, buildUpTo, Runtime.getRuntime().availableProcessors());
+                compact();
+                ready = true;
+                logger.info("Basket pairs built from {} baskets in {} ms", baskets,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (SQLException | InterruptedException e) {
+                logger.warn("Could not build basket pairs from sales history: {}", e.getMessage());
+            }
+            scheduler.scheduleWithFixedDelay(this::compactQuietly, compactSeconds, compactSeconds, TimeUnit.SECONDS);
+        });
+    }
+
+    /**
+     * @return True once history has been counted and the first neighbour lists built
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void onSale(SaleEvent sale) {
+        int[] products = new int[sale.getLineCount()];
+        for (int line = 0; line < products.length; line++) {
+            products[line] = sale.getProductId(line);
+            if (sale.getProductName(line) != null) {
+                productNames.putIfAbsent(products[line], sale.getProductName(line));
+            }
+        }
+        record(products, 0, products.length);
+    }
+
+    /**
+     * Count one basket
+     * @param products Product ids, in any order and possibly repeated; the range is sorted in place
+     * @param from The basket's first index
+     * @param to The index after its last
+     */
+    void record(int[] products, int from, int to) {
+        PairCounts local = new PairCounts(16);
+        addBasket(local, products, from, to);
+        mergeIntoShards(local);
+    }
+
+    private void addBasket(PairCounts counts, int[] products, int from, int to) {
+        Arrays.sort(products, from, to);
+        int distinct = from;
+        for (int i = from; i < to && distinct - from < maxItems; i++) {
+            if (i == from || products[i] != products[i - 1]) {
+                products[distinct++] = products[i];
+            }
+        }
+        for (int i = from; i < distinct; i++) {
+            for (int j = i; j < distinct; j++) {
+                counts.add(pairKey(products[i], products[j]), 1);
+            }
+        }
+    }
+
+    /** Pack a pair into one key, smaller id first; (p, p) is the basket count of p */
+    static long pairKey(int a, int b) {
+        return a <= b ? ((long) a << 32) | (b & 0xFFFFFFFFL) : ((long) b << 32) | (a & 0xFFFFFFFFL);
+    }
+
+    private static int shardOf(long key) {
+        return (int) (PairCounts.mix(key) >>> 60);
+    }
+
+    /** Fold a batch of counts into the shared shards, taking each shard's lock once */
+    private void mergeIntoShards(PairCounts local) {
+        for (int s = 0; s < SHARDS; s++) {
+            PairCounts shard = shards[s];
+            synchronized (shard) {
+                for (int slot = 0; slot < local.capacity(); slot++) {
+                    if (local.isUsed(slot) && shardOf(local.getKey(slot)) == s) {
+                        shard.add(local.getKey(slot), local.getCount(slot));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Count every basket up to a sale id: one thread streams sale_items in sale order and cuts it
+     * into baskets, the pool counts chunks of baskets into local maps and merges them into the shards
+     * @return The number of baskets counted
+     */
+    int build(ConnectionProvider connectionProvider, long maxSaleId, int parallelism) throws SQLException, InterruptedException {
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT id, name FROM products");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                productNames.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        int maxInFlight = Math.max(1, parallelism) * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int baskets = 0;
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(HISTORY_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setLong(1, maxSaleId);
+            stmt.setFetchSize(Integer.MIN_VALUE); // stream rows instead of buffering the whole table
+            try (ResultSet rs = stmt.executeQuery()) {
+                int[] items = new int[CHUNK_BASKETS * 4];
+                int[] starts = new int[CHUNK_BASKETS + 1];
+                int basketCount = 0;
+                int itemCount = 0;
+                long currentSale = Long.MIN_VALUE;
+                boolean more = true;
+                while (more && failure.get() == null) {
+                    more = rs.next();
+                    long saleId = more ? rs.getLong(1) : Long.MIN_VALUE;
+                    if (saleId != currentSale && currentSale != Long.MIN_VALUE) {
+                        starts[++basketCount] = itemCount;
+                        baskets++;
+                    }
+                    if (basketCount == CHUNK_BASKETS || (!more && basketCount > 0)) {
+                        int[] chunkItems = items;
+                        int[] chunkStarts = starts;
+                        int chunkBaskets = basketCount;
+                        inFlight.acquire();
+                        pool.execute(() -> {
+                            try {
+                                PairCounts local = new PairCounts(chunkBaskets * 4);
+                                for (int b = 0; b < chunkBaskets; b++) {
+                                    addBasket(local, chunkItems, chunkStarts[b], chunkStarts[b + 1]);
+                                }
+                                mergeIntoShards(local);
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                        // A basket is closed before the next sale's first row is read, so chunks never split one
+                        items = new int[CHUNK_BASKETS * 4];
+                        starts = new int[CHUNK_BASKETS + 1];
+                        basketCount = 0;
+                        itemCount = 0;
+                    }
+                    if (more) {
+                        if (itemCount == items.length) {
+                            items = Arrays.copyOf(items, items.length * 2);
+                        }
+                        items[itemCount++] = rs.getInt(2);
+                        currentSale = saleId;
+                    }
+                }
+            }
+        } finally {
+            inFlight.acquire(maxInFlight);
+            pool.shutdownNow();
+        }
+
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new SQLException("Basket pair build failed: " + t, t);
+        }
+        return baskets;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            logger.warn("Could not rebuild basket neighbour lists: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild every product's top-K neighbour list from the pair counts and publish it;
+     * prune pairs outside every list if the counts are over budget
+     */
+    void compact() {
+        Map<Integer, TopNeighbours> lists = new HashMap<>();
+        Map<Integer, Long> basketCounts = new HashMap<>();
+        int pairs = 0;
+        for (PairCounts shard : shards) {
+            synchronized (shard) {
+                pairs += shard.size();
+                for (int slot = 0; slot < shard.capacity(); slot++) {
+                    if (!shard.isUsed(slot)) {
+                        continue;
+                    }
+                    long key = shard.getKey(slot);
+                    int a = (int) (key >> 32);
+                    int b = (int) key;
+                    long count = shard.getCount(slot);
+                    if (a == b) {
+                        basketCounts.put(a, count);
+                    } else {
+                        lists.computeIfAbsent(a, k -> new TopNeighbours(topK)).offer(b, count);
+                        lists.computeIfAbsent(b, k -> new TopNeighbours(topK)).offer(a, count);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Neighbour[]> index = new HashMap<>(lists.size() * 2);
+        Set<Long> kept = pairs > maxPairs ? new HashSet<>() : null;
+        for (Map.Entry<Integer, TopNeighbours> entry : lists.entrySet()) {
+            int product = entry.getKey();
+            TopNeighbours top = entry.getValue();
+            long productBaskets = basketCounts.getOrDefault(product, 0L);
+            Neighbour[] list = top.toNeighbours(productNames, productBaskets);
+            index.put(product, list);
+            if (kept != null) {
+                for (Neighbour neighbour : list) {
+                    kept.add(pairKey(product, neighbour.getProductId()));
+                }
+            }
+        }
+        neighbours = Collections.unmodifiableMap(index);
+
+        if (kept != null) {
+            int dropped = 0;
+            for (PairCounts shard : shards) {
+                synchronized (shard) {
+                    dropped += shard.retainIf(key -> (int) (key >> 32) == (int) key || kept.contains(key));
+                }
+            }
+            logger.info("Pruned {} of {} basket pairs outside every top-{} list", dropped, pairs, topK);
+        }
+    }
+
+    /**
+     * Get the products most often bought with a product, as of the last compaction
+     * @param productId The product
+     * @param limit Neighbours to return
+     * @return Up to limit neighbours, most baskets first
+     */
+    public List<Neighbour> together(int productId, int limit) {
+        Neighbour[] list = neighbours.get(productId);
+        if (list == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(list).subList(0, Math.min(limit, list.length)));
+    }
+
+    /**
+     * A product's best K neighbours, kept in small arrays; K is small, so the weakest is found by scanning
+     */
+    private static final class TopNeighbours {
+        private final int[] ids;
+        private final long[] counts;
+        private int size;
+
+        TopNeighbours(int capacity) {
+            ids = new int[capacity];
+            counts = new long[capacity];
+        }
+
+        void offer(int id, long count) {
+            if (size < ids.length) {
+                ids[size] = id;
+                counts[size++] = count;
+                return;
+            }
+            int weakest = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[weakest] || (counts[i] == counts[weakest] && ids[i] > ids[weakest])) {
+                    weakest = i;
+                }
+            }
+            if (count > counts[weakest] || (count == counts[weakest] && id < ids[weakest])) {
+                ids[weakest] = id;
+                counts[weakest] = count;
+            }
+        }
+
+        Neighbour[] toNeighbours(Map<Integer, String> names, long productBaskets) {
+            List<Neighbour> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                double confidence = productBaskets > 0 ? (double) counts[i] / productBaskets : 0.0;
+                list.add(new Neighbour(ids[i], names.get(ids[i]), counts[i], confidence));
+            }
+            list.sort((x, y) -> x.baskets != y.baskets ? Long.compare(y.baskets, x.baskets)
+                                                       : Integer.compare(x.productId, y.productId));
+            return list.toArray(new Neighbour[0]);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package syos.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Purchase totals per customer id in an open-addressing table of parallel primitive arrays,
+ * so aggregating millions of sales allocates nothing per row
+ * Not thread-safe; RfmSegmentation gives each shard its own table
+ */
+final class CustomerTotals {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] lastMillis;
+    private int[] counts;
+    private long[] cents;
+    private int size;
+
+    CustomerTotals(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        lastMillis = new long[capacity];
+        counts = new int[capacity];
+        cents = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Add one sale to a customer's totals
+     * @param customerId The customer; must not be Integer.MIN_VALUE
+     * @param saleMillis When the sale happened
+     * @param saleCents The sale's final amount
+     */
+    void add(int customerId, long saleMillis, long saleCents) {
+        int slot = slotFor(customerId);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = customerId;
+            lastMillis[slot] = saleMillis;
+            size++;
+        } else if (saleMillis > lastMillis[slot]) {
+            lastMillis[slot] = saleMillis;
+        }
+        counts[slot]++;
+        cents[slot] += saleCents;
+        if (size * 4 > keys.length * 3) {
+            grow();
+        }
+    }
+
+    private int slotFor(int customerId) {
+        int mask = keys.length - 1;
+        int slot = mix(customerId) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != customerId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Spread sequential ids across the table; also used to pick a customer's shard */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldLast = lastMillis;
+        int[] oldCounts = counts;
+        long[] oldCents = cents;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                lastMillis[slot] = oldLast[i];
+                counts[slot] = oldCounts[i];
+                cents[slot] = oldCents[i];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of slots, for iterating with {@link #isUsed(int)}
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    int getCustomerId(int slot) { return keys[slot]; }
+    long getLastMillis(int slot) { return lastMillis[slot]; }
+    int getCount(int slot) { return counts[slot]; }
+    long getCents(int slot) { return cents[slot]; }
+}
@@ -0,0 +1,384 @@
+package syos.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+import syos.dao.CustomerDAO;
+
+/**
+ * Distinct customers over any range of days, from one HyperLogLog sketch per day kept up to date
+ * from the {@link SalesFeed}
+ * A customer is the sale's customer_id where the sale is linked to one, and its normalized phone
+ * number otherwise; see {@link #customerKey}. The sketches and {@link #exactCount} use the same key
+ * Day sketches are persisted to distinct_customer_sketches and merged with the stored copy on write,
+ * so a restart only replays sales newer than the persisted watermark
+ * A range estimate merges the past days once and caches them, adding only today's sketch per query;
+ * see {@link HyperLogLog} for the error bound. {@link #exactCount} gives the exact figure from sales
+ *
+ * Configured from config.properties:
+ *   analytics.distinct.exact           - always count exactly with SQL (default false)
+ *   analytics.distinct.flush.seconds   - how often changed day sketches are persisted (default 60)
+ */
+public class DistinctCustomers implements SalesFeed.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistinctCustomers.class);
+
+    private static final DistinctCustomers INSTANCE = new DistinctCustomers();
+
+    // Sketches in the older customer_day_sketches table were keyed by phone number alone, so the
+    // customer-keyed sketches are rebuilt from a full replay into their own table
+    private static final String TRACKER = "distinct_customer_sketches";
+
+    public static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS distinct_customer_sketches (" +
+        "sale_day DATE PRIMARY KEY, " +
+        "sketch BLOB NOT NULL, " +
+        "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+        ")";
+
+    /**
+     * A distinct count with its accuracy
+     */
+    public static final class Estimate {
+        private final long count;
+        private final double standardError;
+
+        Estimate(long count, double standardError) {
+            this.count = count;
+            this.standardError = standardError;
+        }
+
+        public long getCount() { return count; }
+
+        /**
+         * @return Standard error as a fraction of the count, 0 for an exact count
+         */
+        public double getStandardError() { return standardError; }
+
+        public boolean isExact() { return standardError == 0; }
+
+        /**
+         * @return e.g. "1234" or "≈1234 (±1.6%)", the range holding about 95% of estimates
+         */
+        @Override
+        public String toString() {
+            return isExact() ? String.valueOf(count) : String.format("≈%d (±%.1f%%)", count, standardError * 200);
+        }
+    }
+
+    /** Merged sketch of the days from a start day up to yesterday */
+    private static final class PastMerge {
+        private final LocalDate today;
+        private final long version;
+        private final HyperLogLog sketch;
+
+        PastMerge(LocalDate today, long version, HyperLogLog sketch) {
+            this.today = today;
+            this.version = version;
+            this.sketch = sketch;
+        }
+    }
+
+    private final ZoneId zone;
+    private final boolean exactMode;
+    private final long flushSeconds;
+    private final TreeMap<LocalDate, HyperLogLog> days = new TreeMap<>();
+    private final Set<LocalDate> dirty = new HashSet<>();
+    private final Map<LocalDate, PastMerge> pastMerges = new HashMap<>();
+    private long pastVersion;
+    private volatile boolean ready;
+    private boolean started;
+    private ConnectionProvider writeProvider;
+
+    DistinctCustomers() {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default distinct customer settings");
+        }
+        this.zone = ZoneId.systemDefault();
+        this.exactMode = Boolean.parseBoolean(props.getProperty("analytics.distinct.exact", "false"));
+        this.flushSeconds = Math.max(1, Long.parseLong(props.getProperty("analytics.distinct.flush.seconds", "60")));
+    }
+
+    DistinctCustomers(ZoneId zone) {
+        this.zone = zone;
+        this.exactMode = false;
+        this.flushSeconds = 0;
+        this.ready = true;
+    }
+
+    /**
+     * Get the process-wide tracker
+     */
+    public static DistinctCustomers getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load persisted day sketches, subscribe to the sales feed and replay unseen sales in the background;
+     * later calls do nothing. In exact mode nothing is tracked
+     * @param readProvider Source of read connections for the feed and replay
+     * @param writeProvider Source of primary connections for persisting sketches
+     * @throws SQLException if the sketches cannot be loaded or the feed cannot start
+     */
+    public void start(ConnectionProvider readProvider, ConnectionProvider writeProvider) throws SQLException {
+        synchronized (this) {
+            if (started || exactMode) {
+                return;
+            }
+            started = true;
+            this.writeProvider = writeProvider;
+        }
+
+        long persistedWatermark;
+        try (Connection conn = writeProvider.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(CREATE_TABLE_SQL);
+            }
+            AnalyticsWatermarks.ensureTable(conn);
+            persistedWatermark = AnalyticsWatermarks.read(conn, TRACKER);
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT sale_day, sketch FROM distinct_customer_sketches");
+                 ResultSet rs = stmt.executeQuery()) {
+                synchronized (this) {
+                    while (rs.next()) {
+                        days.put(rs.getDate(1).toLocalDate(), HyperLogLog.fromBytes(rs.getBytes(2)));
+                    }
+                }
+            }
+        }
+
+        SalesFeed feed = SalesFeed.getInstance();
+        feed.subscribe(this);
+        long replayUpTo = feed.start(readProvider);
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "syos-distinct-customers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(() -> {
+            try {
+                int sales = SalesFeed.replay(readProvider, persistedWatermark, 0, replayUpTo, this);
+                ready = true;
+                logger.info("Distinct customer sketches caught up on {} sales", sales);
+            } catch (SQLException e) {
+                logger.warn("Could not replay sales into customer sketches: {}", e.getMessage());
+            }
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return True once every past sale has been counted; until then use {@link #exactCount}
+     */
+    public boolean isReady() {
+        return ready && !exactMode;
+    }
+
+    public boolean isExactMode() {
+        return exactMode;
+    }
+
+    /**
+     * Get the key a sale's customer is counted under
+     * @param customerId The sale's customer_id, or null for a sale not linked to a customer
+     * @param phone The phone number recorded on the sale
+     * @return "id:" plus the customer id, "phone:" plus the normalized phone number, or null for an anonymous sale
+     */
+    static String customerKey(Integer customerId, String phone) {
+        if (customerId != null) {
+            return "id:" + customerId;
+        }
+        String normalized = CustomerDAO.normalizePhone(phone);
+        return normalized != null ? "phone:" + normalized : null;
+    }
+
+    @Override
+    public void onSale(SaleEvent sale) {
+        String customer = customerKey(sale.getCustomerId(), sale.getCustomerPhone());
+        if (customer == null) {
+            return;
+        }
+        LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(sale.getSaleTimeMillis()), zone);
+        add(day, customer, LocalDate.now(zone));
+    }
+
+    synchronized void add(LocalDate day, String customer, LocalDate today) {
+        if (days.computeIfAbsent(day, d -> new HyperLogLog()).addHash(HyperLogLog.hash(customer))) {
+            dirty.add(day);
+            if (day.isBefore(today)) {
+                pastVersion++;
+            }
+        }
+    }
+
+    /**
+     * Estimate the distinct customers who bought on any day in a range
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     */
+    public Estimate estimate(LocalDate from, LocalDate to) {
+        return estimate(from, to, LocalDate.now(zone));
+    }
+
+    synchronized Estimate estimate(LocalDate from, LocalDate to, LocalDate today) {
+        HyperLogLog merged;
+        if (!to.isBefore(today) && !from.isAfter(today)) {
+            // Past days rarely change, so their merge is reused; only today's sketch is added per call
+            PastMerge past = pastMerges.get(from);
+            if (past == null || past.version != pastVersion || !past.today.equals(today)) {
+                past = new PastMerge(today, pastVersion, mergeDays(from, today.minusDays(1)));
+                pastMerges.put(from, past);
+            }
+            merged = past.sketch.copy();
+            HyperLogLog current = days.get(today);
+            if (current != null) {
+                merged.merge(current);
+            }
+        } else {
+            merged = mergeDays(from, to);
+        }
+        return new Estimate(merged.estimate(), merged.getStandardError());
+    }
+
+    private HyperLogLog mergeDays(LocalDate from, LocalDate to) {
+        HyperLogLog merged = new HyperLogLog();
+        if (!to.isBefore(from)) {
+            for (HyperLogLog day : days.subMap(from, true, to, true).values()) {
+                merged.merge(day);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @return The first day with a sketch, or today if there is none
+     */
+    public synchronized LocalDate getFirstDay() {
+        return days.isEmpty() ? LocalDate.now(zone) : days.firstKey();
+    }
+
+    /**
+     * Count distinct customers in sales exactly, scanning the range
+     * Phone numbers are normalized here rather than in SQL, so the count uses the sketches' keys
+     * @param from First day, inclusive, or null for every earlier sale
+     * @param to Last day, inclusive
+     */
+    public static Estimate exactCount(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        String sql = "SELECT DISTINCT customer_id, CASE WHEN customer_id IS NULL THEN customer_phone END FROM sales " +
+                     "WHERE (customer_id IS NOT NULL OR customer_phone <> '') AND sale_date >= ? AND sale_date < ?";
+        Set<String> customers = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, from != null ? Timestamp.valueOf(from.atStartOfDay()) : new Timestamp(0));
+            stmt.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int customerId = rs.getInt(1);
+                    String customer = customerKey(rs.wasNull() ? null : customerId, rs.getString(2));
+                    if (customer != null) {
+                        customers.add(customer);
+                    }
+                }
+            }
+        }
+        return new Estimate(customers.size(), 0);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Could not persist customer day sketches: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Persist changed day sketches, merging each with the stored copy so no writer loses another's customers
+     * @throws SQLException if the write fails; the days stay marked for the next flush
+     */
+    public void flush() throws SQLException {
+        // Read the watermark first: every sale at or below it is already in the sketches copied below
+        long watermark = ready ? SalesFeed.getInstance().getTailWatermark() : -1;
+        List<LocalDate> changedDays;
+        List<HyperLogLog> changedSketches = new ArrayList<>();
+        synchronized (this) {
+            changedDays = new ArrayList<>(dirty);
+            for (LocalDate day : changedDays) {
+                changedSketches.add(days.get(day).copy());
+            }
+            dirty.clear();
+        }
+        if (changedDays.isEmpty() && watermark < 0) {
+            return;
+        }
+
+        try (Connection conn = writeProvider.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int i = 0; i < changedDays.size(); i++) {
+                    writeDay(conn, changedDays.get(i), changedSketches.get(i));
+                }
+                if (watermark >= 0) {
+                    AnalyticsWatermarks.write(conn, TRACKER, watermark);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                synchronized (this) {
+                    dirty.addAll(changedDays);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void writeDay(Connection conn, LocalDate day, HyperLogLog sketch) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT sketch FROM distinct_customer_sketches WHERE sale_day = ? FOR UPDATE")) {
+            stmt.setDate(1, Date.valueOf(day));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    sketch.merge(HyperLogLog.fromBytes(rs.getBytes(1)));
+                }
+            }
+        }
+        String upsert = "INSERT INTO distinct_customer_sketches (sale_day, sketch) VALUES (?, ?) " +
+                        "ON DUPLICATE KEY UPDATE sketch = VALUES(sketch)";
+        try (PreparedStatement stmt = conn.prepareStatement(upsert)) {
+            stmt.setDate(1, Date.valueOf(day));
+            stmt.setBytes(2, sketch.toBytes());
+            stmt.executeUpdate();
+        }
+    }
+}
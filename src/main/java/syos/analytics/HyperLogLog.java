@@ -0,0 +1,200 @@
+package syos.analytics;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog distinct-count sketch
+ * With precision p the sketch has m = 2^p one-byte registers and a standard error of 1.04 / sqrt(m):
+ * 0.81% at the default p = 14, so about 95% of estimates fall within 1.6% of the true count.
+ * Small counts use linear counting and are close to exact
+ * Sketches of the same precision merge into the sketch of the union, so per-day sketches combine
+ * into any date range. Not thread-safe
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 14;
+
+    private static final byte FORMAT_DENSE = 0;
+    private static final byte FORMAT_SPARSE = 1;
+    private static final double[] INVERSE_POWERS = new double[65];
+
+    static {
+        for (int i = 0; i < INVERSE_POWERS.length; i++) {
+            INVERSE_POWERS[i] = Math.pow(2, -i);
+        }
+    }
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be 4 - 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Hash a string identifier to 64 bits: FNV-1a followed by the MurmurHash3 finalizer
+     */
+    public static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Add an already hashed value
+     * @return True if the sketch changed
+     */
+    public boolean addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The sentinel bit caps the rank when every remaining bit is zero
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fold another sketch into this one
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return The estimated number of distinct values added
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += INVERSE_POWERS[register];
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return The standard error of {@link #estimate()} as a fraction of the true count
+     */
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    /**
+     * Serialize compactly: sparse (index, rank) triples for sketches with few set registers,
+     * otherwise 6 bits per register
+     */
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        int denseBytes = (registers.length * 6 + 7) / 8;
+        if (nonZero * 3 + 4 < denseBytes) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + 4 + nonZero * 3);
+            buffer.put(FORMAT_SPARSE).put((byte) precision).putInt(nonZero);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    int packed = (i << 6) | registers[i];
+                    buffer.put((byte) (packed >>> 16)).put((byte) (packed >>> 8)).put((byte) packed);
+                }
+            }
+            return buffer.array();
+        }
+
+        byte[] bytes = new byte[2 + denseBytes];
+        bytes[0] = FORMAT_DENSE;
+        bytes[1] = (byte) precision;
+        for (int i = 0; i < registers.length; i++) {
+            int bit = i * 6;
+            int value = registers[i] & 0x3f;
+            bytes[2 + bit / 8] |= (byte) (value << (bit % 8));
+            if (bit % 8 > 2) {
+                bytes[2 + bit / 8 + 1] |= (byte) (value >>> (8 - bit % 8));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Read a sketch written by {@link #toBytes()}
+     * @throws IllegalArgumentException if the bytes are not a sketch
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < 2) {
+            throw new IllegalArgumentException("Not a HyperLogLog sketch");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[1]);
+        if (bytes[0] == FORMAT_SPARSE) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+            int count = buffer.getInt();
+            for (int n = 0; n < count; n++) {
+                int packed = ((buffer.get() & 0xff) << 16) | ((buffer.get() & 0xff) << 8) | (buffer.get() & 0xff);
+                sketch.registers[packed >>> 6] = (byte) (packed & 0x3f);
+            }
+        } else if (bytes[0] == FORMAT_DENSE) {
+            for (int i = 0; i < sketch.registers.length; i++) {
+                int bit = i * 6;
+                int value = (bytes[2 + bit / 8] & 0xff) >>> (bit % 8);
+                if (bit % 8 > 2) {
+                    value |= (bytes[2 + bit / 8 + 1] & 0xff) << (8 - bit % 8);
+                }
+                sketch.registers[i] = (byte) (value & 0x3f);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown sketch format " + bytes[0]);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,117 @@
+package syos.analytics;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Counts keyed by a long, in an open-addressing table of two primitive arrays
+ * Used by BasketPairs with a product pair packed into the key; not thread-safe
+ */
+final class PairCounts {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] counts;
+    private int size;
+
+    PairCounts(int expected) {
+        allocate(Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Add to a key's count
+     * @param key The key; must not be Long.MIN_VALUE
+     * @param delta The amount to add
+     */
+    void add(long key, long delta) {
+        int slot = slotFor(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+            counts[slot] = delta;
+            if (size * 4 > keys.length * 3) {
+                rehash(keys.length * 2);
+            }
+        } else {
+            counts[slot] += delta;
+        }
+    }
+
+    /**
+     * @return The key's count, or 0 if it has none
+     */
+    long get(long key) {
+        int slot = slotFor(key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    private int slotFor(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Spread packed product pairs across the table; the top bits also pick a key's shard */
+    static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Drop every key the filter rejects and shrink the table to fit the rest
+     * @return The number of keys dropped
+     */
+    int retainIf(LongPredicate keep) {
+        int before = size;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && !keep.test(keys[i])) {
+                keys[i] = EMPTY;
+                size--;
+            }
+        }
+        // Removing from a linear-probe table breaks probe chains, so the survivors are reinserted
+        rehash(Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1);
+        return before - size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of slots, for iterating with {@link #isUsed(int)}
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    long getKey(int slot) { return keys[slot]; }
+    long getCount(int slot) { return counts[slot]; }
+}
@@ -0,0 +1,479 @@
+package syos.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Reorder recommendations from how fast each product sells rather than a fixed fill threshold
+ * Daily demand is an exponentially weighted moving average of units sold per day, seeded from
+ * sale_items history for the whole catalog in parallel and then kept current from the {@link SalesFeed}:
+ * sales add to today's units and take from stock, and each new day folds yesterday into the average
+ * Days of cover is shelf plus warehouse stock over daily demand; products that would run out
+ * within the cover threshold are listed, soonest first, with the quantity that restores the target
+ * Stock is reloaded periodically to pick up deliveries and manual adjustments
+ *
+ * Configured from config.properties:
+ *   analytics.reorder.alpha                  - weight of the latest day in the average (default 0.3)
+ *   analytics.reorder.history.days           - days of history the average is seeded from (default 56)
+ *   analytics.reorder.cover.days             - list products with less cover than this (default 7)
+ *   analytics.reorder.target.days            - cover a suggested order restores (default 14)
+ *   analytics.reorder.stock.refresh.seconds  - how often stock and the catalog are reloaded (default 300)
+ */
+public class ReorderEngine implements SalesFeed.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReorderEngine.class);
+    private static final ReorderEngine INSTANCE = new ReorderEngine();
+
+    private static final String CATALOG_SQL =
+        "SELECT p.id, p.product_code, p.product_name, " +
+        "COALESCE(SUM(il.shelf_qty), 0), COALESCE(SUM(il.warehouse_qty), 0) " +
+        "FROM products p LEFT JOIN inventory_locations il ON il.product_id = p.id " +
+        "WHERE p.is_active = TRUE GROUP BY p.id, p.product_code, p.product_name";
+
+    private static final String DAILY_UNITS_SQL =
+        "SELECT si.product_id, DATE(s.sale_date) AS sale_day, SUM(si.quantity) " +
+        "FROM sale_items si JOIN sales s ON s.id = si.sale_id " +
+        "WHERE s.sale_date >= ? AND s.id <= ? GROUP BY si.product_id, sale_day";
+
+    /**
+     * One product to reorder
+     */
+    public static final class Recommendation {
+        private final int productId;
+        private final String productCode;
+        private final String productName;
+        private final long stock;
+        private final double dailyDemand;
+        private final double daysOfCover;
+        private final long reorderQuantity;
+
+        Recommendation(int productId, String productCode, String productName, long stock,
+                       double dailyDemand, double daysOfCover, long reorderQuantity) {
+            this.productId = productId;
+            this.productCode = productCode;
+            this.productName = productName;
+            this.stock = stock;
+            this.dailyDemand = dailyDemand;
+            this.daysOfCover = daysOfCover;
+            this.reorderQuantity = reorderQuantity;
+        }
+
+        public int getProductId() { return productId; }
+        public String getProductCode() { return productCode; }
+        public String getProductName() { return productName; }
+
+        /** @return Shelf plus warehouse units */
+        public long getStock() { return stock; }
+
+        /** @return Smoothed units sold per day, or today's units if today is already busier */
+        public double getDailyDemand() { return dailyDemand; }
+
+        public double getDaysOfCover() { return daysOfCover; }
+
+        /** @return Units that bring cover back to the target */
+        public long getReorderQuantity() { return reorderQuantity; }
+    }
+
+    /** A product's demand and stock; guarded by the engine's lock */
+    private static final class Product {
+        final int productId;
+        final String productCode;
+        final String productName;
+        long stock;
+        double smoothed;
+        long todayUnits;
+
+        Product(int productId, String productCode, String productName, long stock) {
+            this.productId = productId;
+            this.productCode = productCode;
+            this.productName = productName;
+            this.stock = stock;
+        }
+    }
+
+    private final ZoneId zone;
+    private final double alpha;
+    private final int historyDays;
+    private final double coverDays;
+    private final double targetDays;
+    private final long stockRefreshSeconds;
+    private Map<Integer, Product> products = new HashMap<>();
+    private LocalDate currentDay;
+    /** Sales up to this id are already reflected in the loaded stock */
+    private long stockSaleId = Long.MAX_VALUE;
+    /** Sales seen while stock is reloading, re-applied to the new snapshot: {sale id, product id, units} */
+    private List<long[]> salesDuringReload;
+    private ConnectionProvider connectionProvider;
+    private volatile boolean ready;
+    private boolean started;
+
+    ReorderEngine() {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default reorder settings");
+        }
+        this.zone = ZoneId.systemDefault();
+        this.alpha = Math.min(1.0, Math.max(0.01, Double.parseDouble(props.getProperty("analytics.reorder.alpha", "0.3"))));
+        this.historyDays = Math.max(1, Integer.parseInt(props.getProperty("analytics.reorder.history.days", "56")));
+        this.coverDays = Double.parseDouble(props.getProperty("analytics.reorder.cover.days", "7"));
+        this.targetDays = Double.parseDouble(props.getProperty("analytics.reorder.target.days", "14"));
+        this.stockRefreshSeconds = Math.max(1, Long.parseLong(props.getProperty("analytics.reorder.stock.refresh.seconds", "300")));
+    }
+
+    ReorderEngine(double alpha, double coverDays, double targetDays, ZoneId zone) {
+        this.zone = zone;
+        this.alpha = alpha;
+        this.historyDays = 0;
+        this.coverDays = coverDays;
+        this.targetDays = targetDays;
+        this.stockRefreshSeconds = 0;
+        this.ready = true;
+    }
+
+    /**
+     * Get the process-wide engine
+     */
+    public static ReorderEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to the sales feed and seed demand and stock in the background, then reload stock
+     * periodically; later calls do nothing
+     * @param connectionProvider Source of read connections for the feed and the seed queries
+     * @throws SQLException if the feed cannot start
+     */
+    public void start(ConnectionProvider connectionProvider) throws SQLException {
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+            this.connectionProvider = connectionProvider;
+        }
+        SalesFeed feed = SalesFeed.getInstance();
+        feed.subscribe(this);
+        long seedUpTo = feed.start(connectionProvider);
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "syos-reorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                seed(seedUpTo);
+                ready = true;
+                logger.info("Reorder engine seeded {} products in {} ms", productCount(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (SQLException e) {
+                synchronized (this) {
+                    salesDuringReload = null;
+                }
+                logger.warn("Could not seed reorder engine: {}", e.getMessage());
+            }
+            scheduler.scheduleWithFixedDelay(this::refreshStockQuietly, stockRefreshSeconds, stockRefreshSeconds,
+                                             TimeUnit.SECONDS);
+        });
+    }
+
+    /**
+     * @return True once demand has been seeded from history
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private synchronized int productCount() {
+        return products.size();
+    }
+
+    /**
+     * Load the catalog with stock, then units sold per product per day, and smooth every
+     * product's series in parallel
+     */
+    private void seed(long maxSaleId) throws SQLException {
+        LocalDate today = LocalDate.now(zone);
+        LocalDate firstDay = today.minusDays(historyDays);
+        synchronized (this) {
+            salesDuringReload = new ArrayList<>();
+        }
+        Map<Integer, Product> catalog = new HashMap<>();
+        long snapshotSaleId = loadCatalog(catalog);
+
+        Map<Integer, long[]> dailyUnits = new HashMap<>();
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(DAILY_UNITS_SQL)) {
+            stmt.setDate(1, Date.valueOf(firstDay));
+            stmt.setLong(2, maxSaleId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int day = (int) ChronoUnit.DAYS.between(firstDay, rs.getDate(2).toLocalDate());
+                    if (day >= 0 && day <= historyDays) {
+                        dailyUnits.computeIfAbsent(rs.getInt(1), k -> new long[historyDays + 1])[day] += rs.getLong(3);
+                    }
+                }
+            }
+        }
+
+        Product[] all = catalog.values().toArray(new Product[0]);
+        IntStream.range(0, all.length).parallel().forEach(i -> {
+            long[] units = dailyUnits.get(all[i].productId);
+            if (units != null) {
+                all[i].smoothed = smooth(units, historyDays, alpha);
+                all[i].todayUnits = units[historyDays];
+            }
+        });
+
+        synchronized (this) {
+            // Sales already counted live while seeding are kept on top of the history
+            for (Product product : all) {
+                Product live = products.get(product.productId);
+                if (live != null) {
+                    product.todayUnits += live.todayUnits;
+                }
+            }
+            installCatalog(catalog, snapshotSaleId);
+            currentDay = today;
+        }
+    }
+
+    /**
+     * Exponentially smooth complete days, seeding the average with their mean so a short or
+     * sparse history does not start from zero
+     * @param units Units per day, oldest first
+     * @param days How many leading entries are complete days
+     */
+    static double smooth(long[] units, int days, double alpha) {
+        if (days == 0) {
+            return 0.0;
+        }
+        double total = 0;
+        for (int day = 0; day < days; day++) {
+            total += units[day];
+        }
+        double smoothed = total / days;
+        for (int day = 0; day < days; day++) {
+            smoothed = alpha * units[day] + (1 - alpha) * smoothed;
+        }
+        return smoothed;
+    }
+
+    /**
+     * Read active products with stock, and the newest sale id, from one consistent snapshot
+     * @return The sale id up to which the stock already reflects sales
+     */
+    private long loadCatalog(Map<Integer, Product> catalog) throws SQLException {
+        try (Connection conn = connectionProvider.getConnection()) {
+            int isolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try {
+                long snapshotSaleId;
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM sales");
+                     ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    snapshotSaleId = rs.getLong(1);
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(CATALOG_SQL);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int productId = rs.getInt(1);
+                        catalog.put(productId, new Product(productId, rs.getString(2), rs.getString(3),
+                                                           rs.getLong(4) + rs.getLong(5)));
+                    }
+                }
+                conn.commit();
+                return snapshotSaleId;
+            } finally {
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(isolation);
+            }
+        }
+    }
+
+    /** Swap in a loaded catalog and replay the sales it missed; caller holds the lock */
+    private void installCatalog(Map<Integer, Product> catalog, long snapshotSaleId) {
+        for (long[] sale : salesDuringReload) {
+            Product product = catalog.get((int) sale[1]);
+            if (product != null && sale[0] > snapshotSaleId) {
+                product.stock = Math.max(0, product.stock - sale[2]);
+            }
+        }
+        salesDuringReload = null;
+        products = catalog;
+        stockSaleId = snapshotSaleId;
+    }
+
+    private void refreshStockQuietly() {
+        try {
+            refreshStock();
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                salesDuringReload = null;
+            }
+            logger.warn("Could not reload stock for reorder engine: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload stock and the catalog, keeping the demand of products already known
+     */
+    void refreshStock() throws SQLException {
+        synchronized (this) {
+            salesDuringReload = new ArrayList<>();
+        }
+        Map<Integer, Product> catalog = new HashMap<>();
+        long snapshotSaleId = loadCatalog(catalog);
+        synchronized (this) {
+            for (Product product : catalog.values()) {
+                Product known = products.get(product.productId);
+                if (known != null) {
+                    product.smoothed = known.smoothed;
+                    product.todayUnits = known.todayUnits;
+                }
+            }
+            installCatalog(catalog, snapshotSaleId);
+        }
+    }
+
+    @Override
+    public void onSale(SaleEvent sale) {
+        for (int line = 0; line < sale.getLineCount(); line++) {
+            record(sale.getSaleId(), sale.getProductId(line), sale.getQuantity(line), LocalDate.now(zone));
+        }
+    }
+
+    synchronized void record(long saleId, int productId, int units, LocalDate today) {
+        rollTo(today);
+        if (salesDuringReload != null) {
+            salesDuringReload.add(new long[] {saleId, productId, units});
+        }
+        Product product = products.get(productId);
+        if (product == null) {
+            if (salesDuringReload != null) {
+                // Seeding: keep today's units so they survive the catalog swap
+                product = new Product(productId, null, null, 0);
+                products.put(productId, product);
+            } else {
+                return;
+            }
+        }
+        product.todayUnits += units;
+        if (saleId > stockSaleId) {
+            product.stock = Math.max(0, product.stock - units);
+        }
+    }
+
+    /** Fold finished days into every product's average; caller holds the lock */
+    private void rollTo(LocalDate today) {
+        if (currentDay == null) {
+            currentDay = today;
+            return;
+        }
+        long elapsed = ChronoUnit.DAYS.between(currentDay, today);
+        if (elapsed <= 0) {
+            return;
+        }
+        double idleDecay = Math.pow(1 - alpha, elapsed - 1);
+        for (Product product : products.values()) {
+            product.smoothed = (alpha * product.todayUnits + (1 - alpha) * product.smoothed) * idleDecay;
+            product.todayUnits = 0;
+        }
+        currentDay = today;
+    }
+
+    /**
+     * Get the products that will run out within the cover threshold, soonest first
+     * @param limit Products to return
+     */
+    public List<Recommendation> recommendations(int limit) {
+        return recommendations(limit, LocalDate.now(zone));
+    }
+
+    List<Recommendation> recommendations(int limit, LocalDate today) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Product[] snapshot;
+        double[] demand;
+        long[] stock;
+        synchronized (this) {
+            rollTo(today);
+            snapshot = products.values().toArray(new Product[0]);
+            demand = new double[snapshot.length];
+            stock = new long[snapshot.length];
+            for (int i = 0; i < snapshot.length; i++) {
+                demand[i] = Math.max(snapshot[i].smoothed, snapshot[i].todayUnits);
+                stock[i] = snapshot[i].stock;
+            }
+        }
+
+        double[] cover = new double[snapshot.length];
+        int[] flagged = IntStream.range(0, snapshot.length).parallel()
+            .filter(i -> {
+                cover[i] = demand[i] > 0 ? stock[i] / demand[i] : Double.POSITIVE_INFINITY;
+                return snapshot[i].productName != null && cover[i] < coverDays;
+            })
+            .boxed()
+            .sorted((a, b) -> cover[a] != cover[b] ? Double.compare(cover[a], cover[b])
+                                                   : Double.compare(demand[b], demand[a]))
+            .limit(limit)
+            .mapToInt(Integer::intValue)
+            .toArray();
+
+        List<Recommendation> result = new ArrayList<>(flagged.length);
+        for (int i : flagged) {
+            long reorder = Math.max(0, (long) Math.ceil(demand[i] * targetDays) - stock[i]);
+            result.add(new Recommendation(snapshot[i].productId, snapshot[i].productCode, snapshot[i].productName,
+                                          stock[i], demand[i], cover[i], reorder));
+        }
+        return result;
+    }
+
+    /**
+     * Install a catalog directly, for tests
+     * @param productIds Products
+     * @param stock Shelf plus warehouse units of each
+     * @param smoothedDemand Each product's starting daily demand
+     */
+    synchronized void load(int[] productIds, long[] stock, double[] smoothedDemand, LocalDate today) {
+        Map<Integer, Product> catalog = new HashMap<>();
+        for (int i = 0; i < productIds.length; i++) {
+            Product product = new Product(productIds[i], "P" + productIds[i], "Product " + productIds[i], stock[i]);
+            product.smoothed = smoothedDemand[i];
+            catalog.put(productIds[i], product);
+        }
+        salesDuringReload = Collections.emptyList();
+        installCatalog(catalog, 0);
+        currentDay = today;
+    }
+}
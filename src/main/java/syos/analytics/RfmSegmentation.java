@@ -0,0 +1,491 @@
+package syos.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import com.syos.infrastructure.database.ConnectionPool;
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Batch job scoring every customer on recency, frequency and monetary value and
+ * writing a named segment per customer to customer_segments
+ * sales is read once through a forward-only streaming cursor; rows are handed out in chunks
+ * to a fork-join pool that aggregates them into per-shard primitive maps, scores are quintiles
+ * (1 to 5) of each measure computed in parallel, and segments are written back in batched upserts
+ * from one connection per worker
+ *
+ * Configured from config.properties:
+ *   analytics.rfm.parallelism   - worker threads; keep at or below the primary pool size (default: processors)
+ *   analytics.rfm.batch.size    - rows per upsert batch and commit (default 1000)
+ */
+public class RfmSegmentation {
+
+    public static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS customer_segments (" +
+        "customer_id INT PRIMARY KEY," +
+        "recency_days INT NOT NULL," +
+        "frequency INT NOT NULL," +
+        "monetary DECIMAL(14,2) NOT NULL," +
+        "r_score TINYINT NOT NULL," +
+        "f_score TINYINT NOT NULL," +
+        "m_score TINYINT NOT NULL," +
+        "segment VARCHAR(30) NOT NULL," +
+        "computed_at TIMESTAMP NOT NULL," +
+        "INDEX idx_customer_segments_segment (segment)" +
+        ")";
+
+    /** Segment names, indexed by {@link #segmentFor(int, int, int)} */
+    static final String[] SEGMENTS = {
+        "Champions", "Loyal", "Potential Loyalist", "New", "At Risk", "Cannot Lose", "Lost"
+    };
+
+    static final int SCORES = 5;
+
+    private static final String STREAM_SQL =
+        "SELECT customer_id, UNIX_TIMESTAMP(sale_date), ROUND(final_amount * 100) FROM sales WHERE customer_id IS NOT NULL";
+
+    private static final String UPSERT_SQL = "INSERT INTO customer_segments " +
+        "(customer_id, recency_days, frequency, monetary, r_score, f_score, m_score, segment, computed_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE recency_days = VALUES(recency_days), frequency = VALUES(frequency), " +
+        "monetary = VALUES(monetary), r_score = VALUES(r_score), f_score = VALUES(f_score), " +
+        "m_score = VALUES(m_score), segment = VALUES(segment), computed_at = VALUES(computed_at)";
+
+    private static final int CHUNK_ROWS = 16_384;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    /**
+     * Timings and memory of one run
+     */
+    public static final class Result {
+        private final long rows;
+        private final int customers;
+        private final long aggregateMillis;
+        private final long scoreMillis;
+        private final long writeMillis;
+        private final long peakHeapBytes;
+
+        Result(long rows, int customers, long aggregateMillis, long scoreMillis, long writeMillis, long peakHeapBytes) {
+            this.rows = rows;
+            this.customers = customers;
+            this.aggregateMillis = aggregateMillis;
+            this.scoreMillis = scoreMillis;
+            this.writeMillis = writeMillis;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        public long getRows() { return rows; }
+        public int getCustomers() { return customers; }
+        public long getAggregateMillis() { return aggregateMillis; }
+        public long getScoreMillis() { return scoreMillis; }
+        public long getWriteMillis() { return writeMillis; }
+        public long getTotalMillis() { return aggregateMillis + scoreMillis + writeMillis; }
+
+        /** @return The sum of each heap pool's peak during the run, an upper bound on the true peak */
+        public long getPeakHeapBytes() { return peakHeapBytes; }
+
+        @Override
+        public String toString() {
+            double millions = Math.max(rows, 1) / 1_000_000.0;
+            return String.format("RFM segmentation: %,d sales rows, %,d customers%n" +
+                                 "  stream+aggregate %,d ms, score %,d ms, write %,d ms, total %,d ms%n" +
+                                 "  per million rows: %,.0f ms, peak heap %.1f MB (%.1f MB per million rows)",
+                                 rows, customers, aggregateMillis, scoreMillis, writeMillis, getTotalMillis(),
+                                 getTotalMillis() / millions, peakHeapBytes / 1048576.0, peakHeapBytes / 1048576.0 / millions);
+        }
+    }
+
+    private final ConnectionProvider readProvider;
+    private final ConnectionProvider writeProvider;
+    private final int parallelism;
+    private final int batchSize;
+
+    /**
+     * Create a job configured from config.properties
+     * @param readProvider Source of the streaming connection, e.g. the reporting pool
+     * @param writeProvider Source of primary connections for the upserts
+     */
+    public RfmSegmentation(ConnectionProvider readProvider, ConnectionProvider writeProvider) {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default RFM segmentation settings");
+        }
+        this.readProvider = readProvider;
+        this.writeProvider = writeProvider;
+        this.parallelism = Math.max(1, Integer.parseInt(props.getProperty("analytics.rfm.parallelism",
+            String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        this.batchSize = Math.max(1, Integer.parseInt(props.getProperty("analytics.rfm.batch.size", "1000")));
+    }
+
+    /**
+     * Score every customer with sales and replace customer_segments
+     * @return Timings and memory of the run
+     * @throws SQLException if reading sales or writing segments fails; written batches stay committed
+     */
+    public Result run() throws SQLException, InterruptedException {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                memoryPool.resetPeakUsage();
+                heapPools.add(memoryPool);
+            }
+        }
+
+        try (Connection conn = writeProvider.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CREATE_TABLE_SQL);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long runStart = System.currentTimeMillis();
+            long start = System.nanoTime();
+            CustomerTotals[] shards = new CustomerTotals[Integer.highestOneBit(parallelism * 4 - 1) << 1];
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new CustomerTotals(1024);
+            }
+            long rows = stream(pool, shards);
+            long aggregated = System.nanoTime();
+
+            Scores scores = score(pool, shards, runStart);
+            long scored = System.nanoTime();
+
+            write(pool, scores, new Timestamp(runStart / 1000 * 1000));
+            long written = System.nanoTime();
+
+            long peakHeap = 0;
+            for (MemoryPoolMXBean memoryPool : heapPools) {
+                peakHeap += memoryPool.getPeakUsage().getUsed();
+            }
+            return new Result(rows, scores.size(), TimeUnit.NANOSECONDS.toMillis(aggregated - start),
+                              TimeUnit.NANOSECONDS.toMillis(scored - aggregated),
+                              TimeUnit.NANOSECONDS.toMillis(written - scored), peakHeap);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Read sales on this thread and aggregate chunks of rows on the pool, with at most
+     * two chunks per worker in flight so a slow pool holds back the cursor instead of filling the heap
+     */
+    private long stream(ForkJoinPool pool, CustomerTotals[] shards) throws SQLException, InterruptedException {
+        int maxInFlight = parallelism * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long rows = 0;
+
+        try (Connection conn = readProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(STREAM_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // stream rows instead of buffering the whole table
+            try (ResultSet rs = stmt.executeQuery()) {
+                boolean more = true;
+                while (more && failure.get() == null) {
+                    int[] ids = new int[CHUNK_ROWS];
+                    long[] millis = new long[CHUNK_ROWS];
+                    long[] cents = new long[CHUNK_ROWS];
+                    int length = 0;
+                    while (length < CHUNK_ROWS && (more = rs.next())) {
+                        ids[length] = rs.getInt(1);
+                        millis[length] = rs.getLong(2) * 1000;
+                        cents[length] = rs.getLong(3);
+                        length++;
+                    }
+                    if (length == 0) {
+                        break;
+                    }
+                    rows += length;
+                    int chunkLength = length;
+                    inFlight.acquire();
+                    pool.execute(() -> {
+                        try {
+                            aggregate(shards, ids, millis, cents, chunkLength);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+        } finally {
+            inFlight.acquire(maxInFlight);
+        }
+
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new SQLException("RFM aggregation failed: " + t, t);
+        }
+        return rows;
+    }
+
+    /**
+     * Group a chunk's rows by shard, then add each group under that shard's lock only once
+     */
+    static void aggregate(CustomerTotals[] shards, int[] ids, long[] millis, long[] cents, int length) {
+        int mask = shards.length - 1;
+        int[] starts = new int[shards.length + 1];
+        for (int i = 0; i < length; i++) {
+            starts[(CustomerTotals.mix(ids[i]) >>> 16 & mask) + 1]++;
+        }
+        for (int s = 0; s < shards.length; s++) {
+            starts[s + 1] += starts[s];
+        }
+        int[] order = new int[length];
+        int[] next = Arrays.copyOf(starts, shards.length);
+        for (int i = 0; i < length; i++) {
+            order[next[CustomerTotals.mix(ids[i]) >>> 16 & mask]++] = i;
+        }
+        for (int s = 0; s < shards.length; s++) {
+            if (starts[s] == starts[s + 1]) {
+                continue;
+            }
+            CustomerTotals shard = shards[s];
+            synchronized (shard) {
+                for (int k = starts[s]; k < starts[s + 1]; k++) {
+                    int row = order[k];
+                    shard.add(ids[row], millis[row], cents[row]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every customer's measures and scores, as parallel arrays
+     */
+    static final class Scores {
+        final int[] customerIds;
+        final int[] recencyDays;
+        final int[] frequency;
+        final long[] monetaryCents;
+        final byte[] rScores;
+        final byte[] fScores;
+        final byte[] mScores;
+        final byte[] segments;
+
+        Scores(int size) {
+            customerIds = new int[size];
+            recencyDays = new int[size];
+            frequency = new int[size];
+            monetaryCents = new long[size];
+            rScores = new byte[size];
+            fScores = new byte[size];
+            mScores = new byte[size];
+            segments = new byte[size];
+        }
+
+        int size() {
+            return customerIds.length;
+        }
+    }
+
+    static Scores score(ForkJoinPool pool, CustomerTotals[] shards, long nowMillis) throws InterruptedException {
+        int[] offsets = new int[shards.length + 1];
+        for (int s = 0; s < shards.length; s++) {
+            offsets[s + 1] = offsets[s] + shards[s].size();
+        }
+        Scores scores = new Scores(offsets[shards.length]);
+        int n = scores.size();
+
+        // Recency is scored on days since the last purchase, where fewer is better
+        long[] sortedRecency = new long[n];
+        long[] sortedFrequency = new long[n];
+        long[] sortedMonetary = new long[n];
+        invoke(pool, () -> IntStream.range(0, shards.length).parallel().forEach(s -> {
+            CustomerTotals shard = shards[s];
+            int i = offsets[s];
+            for (int slot = 0; slot < shard.capacity(); slot++) {
+                if (shard.isUsed(slot)) {
+                    scores.customerIds[i] = shard.getCustomerId(slot);
+                    scores.recencyDays[i] = (int) Math.max(0, (nowMillis - shard.getLastMillis(slot)) / DAY_MILLIS);
+                    scores.frequency[i] = shard.getCount(slot);
+                    scores.monetaryCents[i] = shard.getCents(slot);
+                    sortedRecency[i] = scores.recencyDays[i];
+                    sortedFrequency[i] = scores.frequency[i];
+                    sortedMonetary[i] = scores.monetaryCents[i];
+                    i++;
+                }
+            }
+        }));
+        invoke(pool, () -> IntStream.of(0, 1, 2).parallel().forEach(which ->
+            Arrays.sort(which == 0 ? sortedRecency : which == 1 ? sortedFrequency : sortedMonetary)));
+        invoke(pool, () -> IntStream.range(0, n).parallel().forEach(i -> {
+            int r = SCORES + 1 - quintile(sortedRecency, scores.recencyDays[i]);
+            int f = quintile(sortedFrequency, scores.frequency[i]);
+            int m = quintile(sortedMonetary, scores.monetaryCents[i]);
+            scores.rScores[i] = (byte) r;
+            scores.fScores[i] = (byte) f;
+            scores.mScores[i] = (byte) m;
+            scores.segments[i] = (byte) segmentFor(r, f, m);
+        }));
+        return scores;
+    }
+
+    private static void invoke(ForkJoinPool pool, Runnable task) throws InterruptedException {
+        try {
+            pool.submit(task).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("RFM scoring failed", e.getCause());
+        }
+    }
+
+    /**
+     * Score a value 1 to 5 by the share of values strictly below it, so equal values share a score
+     * @param sorted Every value, ascending
+     * @param value The value to score
+     */
+    static int quintile(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return 1 + (int) ((long) low * SCORES / Math.max(1, sorted.length));
+    }
+
+    /**
+     * Name a customer's segment from their scores
+     * @return An index into {@link #SEGMENTS}
+     */
+    static int segmentFor(int r, int f, int m) {
+        if (r >= 4 && f >= 4 && m >= 4) {
+            return 0; // Champions
+        }
+        if (r <= 2) {
+            return f >= 4 ? 5 : f >= 2 ? 4 : 6; // Cannot Lose, At Risk, Lost
+        }
+        if (f >= 4) {
+            return 1; // Loyal
+        }
+        if (r >= 4 && f <= 1) {
+            return 3; // New
+        }
+        return 2; // Potential Loyalist
+    }
+
+    /**
+     * Upsert every customer's segment, one slice and connection per worker, then drop
+     * segments of customers that no longer have sales
+     */
+    private void write(ForkJoinPool pool, Scores scores, Timestamp computedAt) throws SQLException, InterruptedException {
+        int n = scores.size();
+        int slice = Math.max(batchSize, (n + parallelism - 1) / parallelism);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int from = 0; from < n; from += slice) {
+            int start = from;
+            int end = Math.min(n, from + slice);
+            writers.add(pool.submit(() -> {
+                writeSlice(scores, start, end, computedAt);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<?> writer : writers) {
+                writer.cancel(true);
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        }
+
+        try (Connection conn = writeProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM customer_segments WHERE computed_at < ?")) {
+            stmt.setTimestamp(1, computedAt);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void writeSlice(Scores scores, int start, int end, Timestamp computedAt) throws SQLException {
+        try (Connection conn = writeProvider.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+                int pending = 0;
+                for (int i = start; i < end; i++) {
+                    stmt.setInt(1, scores.customerIds[i]);
+                    stmt.setInt(2, scores.recencyDays[i]);
+                    stmt.setInt(3, scores.frequency[i]);
+                    stmt.setBigDecimal(4, BigDecimal.valueOf(scores.monetaryCents[i], 2));
+                    stmt.setInt(5, scores.rScores[i]);
+                    stmt.setInt(6, scores.fScores[i]);
+                    stmt.setInt(7, scores.mScores[i]);
+                    stmt.setString(8, SEGMENTS[scores.segments[i]]);
+                    stmt.setTimestamp(9, computedAt);
+                    stmt.addBatch();
+                    if (++pending == batchSize) {
+                        stmt.executeBatch();
+                        conn.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        ConnectionPool primary = null;
+        ConnectionPool reporting = null;
+        try {
+            primary = ConnectionPool.getShared();
+            try {
+                reporting = ConnectionPool.getShared(ConnectionPool.REPORTING);
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Reporting pool unavailable (" + e.getMessage() + "), using the main pool");
+                reporting = primary;
+            }
+            ConnectionPool readPool = reporting;
+            Result result = new RfmSegmentation(readPool::getReadConnection, primary).run();
+            System.out.println(result);
+        } catch (Exception e) {
+            System.err.println("Error running RFM segmentation: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (reporting != null && reporting != primary) {
+                reporting.close();
+            }
+            if (primary != null) {
+                primary.close();
+            }
+        }
+    }
+}
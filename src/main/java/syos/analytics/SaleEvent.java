@@ -0,0 +1,45 @@
+package syos.analytics;
+
+/**
+ * A committed sale as seen by the analytics trackers
+ * Line details are held in parallel arrays, one entry per sale item; treat them as read-only
+ */
+public final class SaleEvent {
+    private final int saleId;
+    private final long saleTimeMillis;
+    private final Integer customerId;
+    private final String customerPhone;
+    private final long finalCents;
+    private final int[] productIds;
+    private final String[] productNames;
+    private final int[] quantities;
+    private final long[] lineTotalCents;
+
+    /**
+     * @param customerId The registered customer, or null
+     * @param productNames Product names for display; entries may be null
+     */
+    public SaleEvent(int saleId, long saleTimeMillis, Integer customerId, String customerPhone, long finalCents,
+                     int[] productIds, String[] productNames, int[] quantities, long[] lineTotalCents) {
+        this.saleId = saleId;
+        this.saleTimeMillis = saleTimeMillis;
+        this.customerId = customerId;
+        this.customerPhone = customerPhone;
+        this.finalCents = finalCents;
+        this.productIds = productIds;
+        this.productNames = productNames;
+        this.quantities = quantities;
+        this.lineTotalCents = lineTotalCents;
+    }
+
+    public int getSaleId() { return saleId; }
+    public long getSaleTimeMillis() { return saleTimeMillis; }
+    public Integer getCustomerId() { return customerId; }
+    public String getCustomerPhone() { return customerPhone; }
+    public long getFinalCents() { return finalCents; }
+    public int getLineCount() { return productIds.length; }
+    public int getProductId(int line) { return productIds[line]; }
+    public String getProductName(int line) { return productNames[line]; }
+    public int getQuantity(int line) { return quantities[line]; }
+    public long getLineTotalCents(int line) { return lineTotalCents[line]; }
+}
@@ -0,0 +1,283 @@
+package syos.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Stream of committed sales for the in-process analytics trackers
+ * Checkouts in this process are published directly; once started, the feed also tails the sales
+ * table for sales committed by other processes, such as a separate POS server, skipping any it
+ * has already published, so each sale reaches listeners exactly once
+ * Listeners are called in order on a single feed thread
+ *
+ * Configured from config.properties:
+ *   analytics.feed.poll.ms          - how often the sales table is tailed (default 5000)
+ *   analytics.feed.settle.seconds   - how old a sale must be before it is tailed, so a slower
+ *                                     transaction with a lower id is not skipped (default 5)
+ */
+public class SalesFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesFeed.class);
+
+    private static final SalesFeed INSTANCE = new SalesFeed();
+
+    private static final String SALES_SQL =
+        "SELECT s.id, s.sale_date, s.customer_id, s.customer_phone, s.final_amount, " +
+        "si.product_id, p.product_name, si.quantity, si.total_price " +
+        "FROM sales s " +
+        "JOIN sale_items si ON si.sale_id = s.id " +
+        "LEFT JOIN products p ON p.id = si.product_id " +
+        "WHERE s.id > ? AND s.id <= ? AND s.sale_date >= ? " +
+        "ORDER BY s.id, si.id";
+
+    /**
+     * Receives committed sales
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onSale(SaleEvent sale);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<Integer> publishedIds = ConcurrentHashMap.newKeySet();
+    private final ScheduledThreadPoolExecutor executor;
+    private final long pollMillis;
+    private final int settleSeconds;
+    private ConnectionProvider connectionProvider;
+    private volatile long startWatermark = -1;
+    private volatile long watermark;
+
+    SalesFeed() {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default sales feed settings");
+        }
+        this.pollMillis = Math.max(100, Long.parseLong(props.getProperty("analytics.feed.poll.ms", "5000")));
+        this.settleSeconds = Math.max(0, Integer.parseInt(props.getProperty("analytics.feed.settle.seconds", "5")));
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "syos-sales-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the process-wide sales feed
+     */
+    public static SalesFeed getInstance() {
+        return INSTANCE;
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publish a sale committed by this process; call after the transaction commits
+     */
+    public void publish(SaleEvent sale) {
+        if (startWatermark >= 0) {
+            publishedIds.add(sale.getSaleId());
+        }
+        executor.execute(() -> deliver(sale));
+    }
+
+    private void deliver(SaleEvent sale) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onSale(sale);
+            } catch (RuntimeException e) {
+                logger.warn("Sales listener {} failed on sale {}", listener, sale.getSaleId(), e);
+            }
+        }
+    }
+
+    /**
+     * Start tailing the sales table for sales committed by other processes; later calls do nothing
+     * @param connectionProvider Source of read connections
+     * @return The highest sale id committed before the feed started; trackers seed up to and including it
+     * @throws SQLException if the starting point cannot be read
+     */
+    public synchronized long start(ConnectionProvider connectionProvider) throws SQLException {
+        if (startWatermark >= 0) {
+            return startWatermark;
+        }
+        this.connectionProvider = connectionProvider;
+        long maxId;
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM sales");
+             ResultSet rs = stmt.executeQuery()) {
+            maxId = rs.next() ? rs.getLong(1) : 0;
+        }
+        watermark = maxId;
+        startWatermark = maxId;
+        executor.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        return maxId;
+    }
+
+    /**
+     * @return The sale id trackers seed up to, or -1 if the feed has not started
+     */
+    public long getStartWatermark() {
+        return startWatermark;
+    }
+
+    /**
+     * @return The sale id up to which every sale has been delivered, or -1 if the feed has not started
+     */
+    public long getTailWatermark() {
+        return startWatermark >= 0 ? watermark : -1;
+    }
+
+    private void poll() {
+        try (Connection conn = connectionProvider.getConnection()) {
+            long upper;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT COALESCE(MAX(id), 0) FROM sales WHERE sale_date <= NOW() - INTERVAL ? SECOND")) {
+                stmt.setInt(1, settleSeconds);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    upper = rs.next() ? rs.getLong(1) : 0;
+                }
+            }
+            if (upper <= watermark) {
+                return;
+            }
+            stream(conn, watermark, upper, 0, false, sale -> {
+                if (!publishedIds.remove(sale.getSaleId())) {
+                    deliver(sale);
+                }
+            });
+            watermark = upper;
+            publishedIds.removeIf(id -> id <= upper);
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Could not tail the sales table: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Stream historical sales to a listener, one query read row by row
+     * @param connectionProvider Source of a read connection
+     * @param fromMillis Earliest sale time to include
+     * @param maxSaleId Highest sale id to include, normally {@link #getStartWatermark()}
+     * @param listener Called for each sale, oldest first, on the calling thread
+     * @return The number of sales streamed
+     * @throws SQLException if the query fails
+     */
+    public static int replay(ConnectionProvider connectionProvider, long fromMillis, long maxSaleId, Listener listener)
+            throws SQLException {
+        return replay(connectionProvider, 0, fromMillis, maxSaleId, listener);
+    }
+
+    /**
+     * Stream the historical sales after a given sale id, e.g. those a persisted tracker has not seen
+     * @param afterSaleId Sales with this id or lower are skipped
+     * @see #replay(ConnectionProvider, long, long, Listener)
+     */
+    public static int replay(ConnectionProvider connectionProvider, long afterSaleId, long fromMillis, long maxSaleId,
+                             Listener listener) throws SQLException {
+        try (Connection conn = connectionProvider.getConnection()) {
+            return stream(conn, afterSaleId, maxSaleId, fromMillis, true, listener);
+        }
+    }
+
+    private static int stream(Connection conn, long afterId, long maxId, long fromMillis, boolean unbuffered,
+                              Listener listener) throws SQLException {
+        int sales = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(SALES_SQL)) {
+            if (unbuffered) {
+                stmt.setFetchSize(Integer.MIN_VALUE);
+            }
+            stmt.setLong(1, afterId);
+            stmt.setLong(2, maxId);
+            stmt.setTimestamp(3, new Timestamp(fromMillis));
+            try (ResultSet rs = stmt.executeQuery()) {
+                SaleBuilder current = null;
+                while (rs.next()) {
+                    int saleId = rs.getInt(1);
+                    if (current == null || current.saleId != saleId) {
+                        if (current != null) {
+                            listener.onSale(current.build());
+                            sales++;
+                        }
+                        Timestamp saleDate = rs.getTimestamp(2);
+                        int customerId = rs.getInt(3);
+                        current = new SaleBuilder(saleId, saleDate != null ? saleDate.getTime() : 0,
+                                                  rs.wasNull() ? null : customerId, rs.getString(4),
+                                                  Math.round(rs.getDouble(5) * 100));
+                    }
+                    current.add(rs.getInt(6), rs.getString(7), rs.getInt(8), Math.round(rs.getDouble(9) * 100));
+                }
+                if (current != null) {
+                    listener.onSale(current.build());
+                    sales++;
+                }
+            }
+        }
+        return sales;
+    }
+
+    /** Collects one sale's item rows while streaming */
+    private static final class SaleBuilder {
+        private final int saleId;
+        private final long saleTimeMillis;
+        private final Integer customerId;
+        private final String customerPhone;
+        private final long finalCents;
+        private final List<Object[]> lines = new ArrayList<>();
+
+        SaleBuilder(int saleId, long saleTimeMillis, Integer customerId, String customerPhone, long finalCents) {
+            this.saleId = saleId;
+            this.saleTimeMillis = saleTimeMillis;
+            this.customerId = customerId;
+            this.customerPhone = customerPhone;
+            this.finalCents = finalCents;
+        }
+
+        void add(int productId, String productName, int quantity, long lineTotalCents) {
+            lines.add(new Object[] {productId, productName, quantity, lineTotalCents});
+        }
+
+        SaleEvent build() {
+            int count = lines.size();
+            int[] productIds = new int[count];
+            String[] productNames = new String[count];
+            int[] quantities = new int[count];
+            long[] lineTotals = new long[count];
+            for (int i = 0; i < count; i++) {
+                Object[] line = lines.get(i);
+                productIds[i] = (Integer) line[0];
+                productNames[i] = (String) line[1];
+                quantities[i] = (Integer) line[2];
+                lineTotals[i] = (Long) line[3];
+            }
+            return new SaleEvent(saleId, saleTimeMillis, customerId, customerPhone, finalCents,
+                                 productIds, productNames, quantities, lineTotals);
+        }
+    }
+}
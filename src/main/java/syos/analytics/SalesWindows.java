@@ -0,0 +1,257 @@
+package syos.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+import syos.models.Order;
+
+/**
+ * Count, sum, average, min and max of bills and orders over any window of up to seven days,
+ * answered from per-minute ring buffers instead of aggregate queries
+ * Bills arrive from the {@link SalesFeed}; orders arrive as they commit from the OrderDAO the windows are attached to.
+ * An edited or deleted order cannot be backed out of a bucket, so it triggers a reload of
+ * the order buckets, during which callers should fall back to SQL
+ *
+ * Configured from config.properties:
+ *   analytics.window.orders.reload.seconds   - how often order buckets are reloaded to pick up
+ *                                              orders written by other processes (default 60)
+ */
+public class SalesWindows implements SalesFeed.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesWindows.class);
+    private static final SalesWindows INSTANCE = new SalesWindows();
+
+    /** Seven days of minutes, plus the minute in progress */
+    public static final int RETAINED_MINUTES = 7 * 24 * 60 + 1;
+
+    private static final String BILL_MINUTES_SQL =
+        "SELECT FLOOR(UNIX_TIMESTAMP(sale_date) / 60) AS minute, COUNT(*), SUM(ROUND(final_amount * 100)), " +
+        "MIN(ROUND(final_amount * 100)), MAX(ROUND(final_amount * 100)) " +
+        "FROM sales WHERE sale_date >= ? AND id <= ? GROUP BY minute";
+
+    private static final String ORDER_MINUTES_SQL =
+        "SELECT FLOOR(UNIX_TIMESTAMP(order_date) / 60) AS minute, COUNT(*), SUM(ROUND(total_amount * 100)), " +
+        "MIN(ROUND(total_amount * 100)), MAX(ROUND(total_amount * 100)), " +
+        "SUM(status IN ('DELIVERED', 'CONFIRMED')), " +
+        "SUM(CASE WHEN status IN ('DELIVERED', 'CONFIRMED') THEN ROUND(total_amount * 100) ELSE 0 END), " +
+        "MIN(CASE WHEN status IN ('DELIVERED', 'CONFIRMED') THEN ROUND(total_amount * 100) END), " +
+        "MAX(CASE WHEN status IN ('DELIVERED', 'CONFIRMED') THEN ROUND(total_amount * 100) END) " +
+        "FROM orders WHERE order_date >= ? GROUP BY minute";
+
+    private final WindowedAggregate bills = new WindowedAggregate(RETAINED_MINUTES);
+    private final long orderReloadSeconds;
+    private volatile WindowedAggregate orders = new WindowedAggregate(RETAINED_MINUTES);
+    private volatile WindowedAggregate confirmedOrders = new WindowedAggregate(RETAINED_MINUTES);
+    private volatile boolean billsReady;
+    private volatile boolean ordersReady;
+    private boolean started;
+    private boolean ordersLoading;
+    private boolean ordersChanged;
+    private ConnectionProvider connectionProvider;
+    private ScheduledExecutorService scheduler;
+
+    SalesWindows() {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default sales window settings");
+        }
+        this.orderReloadSeconds = Math.max(1, Long.parseLong(props.getProperty("analytics.window.orders.reload.seconds", "60")));
+    }
+
+    /**
+     * Get the process-wide windows
+     */
+    public static SalesWindows getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to the sales feed and load the last seven days of bills and orders in the background;
+     * later calls do nothing
+     * @param connectionProvider Source of read connections for the feed and the reload queries
+     * @throws SQLException if the feed cannot start
+     */
+    public void start(ConnectionProvider connectionProvider) throws SQLException {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+            this.connectionProvider = connectionProvider;
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "syos-sales-windows");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler = executor;
+        }
+
+        SalesFeed feed = SalesFeed.getInstance();
+        feed.subscribe(this);
+        long loadUpTo = feed.start(connectionProvider);
+
+        executor.execute(() -> {
+            try {
+                loadBills(loadUpTo);
+                billsReady = true;
+            } catch (SQLException e) {
+                logger.warn("Could not load bill windows from sales history: {}", e.getMessage());
+            }
+        });
+        executor.scheduleWithFixedDelay(this::reloadOrders, 0, orderReloadSeconds, TimeUnit.SECONDS);
+    }
+
+    private void loadBills(long maxSaleId) throws SQLException {
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(BILL_MINUTES_SQL)) {
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis() - RETAINED_MINUTES * WindowedAggregate.MINUTE));
+            stmt.setLong(2, maxSaleId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    bills.add(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild both order windows from the orders table and swap them in; an order committed
+     * while the query runs marks the result stale and queues another reload
+     */
+    private void reloadOrders() {
+        synchronized (this) {
+            ordersLoading = true;
+            ordersChanged = false;
+        }
+        WindowedAggregate all = new WindowedAggregate(RETAINED_MINUTES);
+        WindowedAggregate confirmed = new WindowedAggregate(RETAINED_MINUTES);
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ORDER_MINUTES_SQL)) {
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis() - RETAINED_MINUTES * WindowedAggregate.MINUTE));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long minute = rs.getLong(1);
+                    all.add(minute, rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+                    confirmed.add(minute, rs.getLong(6), rs.getLong(7), rs.getLong(8), rs.getLong(9));
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                ordersLoading = false;
+                ordersReady = false;
+            }
+            logger.debug("Could not load order windows: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            orders = all;
+            confirmedOrders = confirmed;
+            ordersLoading = false;
+            ordersReady = !ordersChanged;
+            if (ordersChanged) {
+                scheduler.execute(this::reloadOrders);
+            }
+        }
+    }
+
+    @Override
+    public void onSale(SaleEvent sale) {
+        bills.record(Math.min(sale.getSaleTimeMillis(), System.currentTimeMillis()), sale.getFinalCents());
+    }
+
+    /**
+     * Count a committed new order
+     * @param orderDateMillis The order date
+     * @param totalCents The order total
+     * @param status The order status
+     */
+    public synchronized void onOrderCreated(long orderDateMillis, long totalCents, Order.OrderStatus status) {
+        if (ordersLoading) {
+            ordersChanged = true;
+            ordersReady = false;
+            return;
+        }
+        long time = Math.min(orderDateMillis, System.currentTimeMillis());
+        orders.record(time, totalCents);
+        if (status == Order.OrderStatus.CONFIRMED || status == Order.OrderStatus.DELIVERED) {
+            confirmedOrders.record(time, totalCents);
+        }
+    }
+
+    /**
+     * An order was edited, deleted or changed status; reload the order windows
+     */
+    public synchronized void onOrdersChanged() {
+        ordersReady = false;
+        if (ordersLoading) {
+            ordersChanged = true;
+        } else if (scheduler != null) {
+            scheduler.execute(this::reloadOrders);
+        }
+    }
+
+    /**
+     * @return True once the last seven days of bills are loaded
+     */
+    public boolean isBillsReady() {
+        return billsReady;
+    }
+
+    /**
+     * @return True while the order windows match the committed orders of this process
+     */
+    public boolean isOrdersReady() {
+        return ordersReady;
+    }
+
+    /**
+     * @return True if a window starting at fromMillis can be answered from memory
+     */
+    public boolean covers(long fromMillis) {
+        return bills.covers(fromMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Bill totals for the trailing window ending now
+     * @param window Up to seven days
+     */
+    public WindowedAggregate.Stats bills(Duration window) {
+        return bills.last((int) Math.min(window.toMinutes(), RETAINED_MINUTES), System.currentTimeMillis());
+    }
+
+    /**
+     * Bill totals between two times, resolved to the minute
+     */
+    public WindowedAggregate.Stats bills(long fromMillis, long toMillis) {
+        return bills.between(fromMillis, toMillis);
+    }
+
+    /**
+     * Order totals between two times, resolved to the minute
+     * @param confirmedOnly Count only confirmed and delivered orders
+     */
+    public WindowedAggregate.Stats orders(long fromMillis, long toMillis, boolean confirmedOnly) {
+        return (confirmedOnly ? confirmedOrders : orders).between(fromMillis, toMillis);
+    }
+}
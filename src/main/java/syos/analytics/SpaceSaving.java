@@ -0,0 +1,147 @@
+package syos.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters sketch over weighted int keys
+ * Monitors at most a fixed number of keys; a new key arriving when the sketch is full replaces
+ * the smallest counter and inherits its count as overestimation error. Any key whose true weight
+ * exceeds total / capacity is guaranteed to be monitored
+ * Counters sit in an indexed min-heap, so an update is O(log capacity). Not thread-safe
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final int[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final long[] revenues;
+    private final Map<Integer, Integer> positions;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.revenues = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Count an occurrence of a key
+     * @param key The key, e.g. a product id
+     * @param weight Units to add, e.g. quantity sold
+     * @param revenue Revenue to attribute to the key, carried alongside the count
+     */
+    public void offer(int key, long weight, long revenue) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            revenues[position] += revenue;
+            siftDown(position);
+        } else if (size < capacity) {
+            int slot = size++;
+            keys[slot] = key;
+            counts[slot] = weight;
+            errors[slot] = 0;
+            revenues[slot] = revenue;
+            positions.put(key, slot);
+            siftUp(slot);
+        } else {
+            // Replace the minimum: the newcomer may have been seen up to min times while unmonitored
+            positions.remove(keys[0]);
+            long min = counts[0];
+            keys[0] = key;
+            counts[0] = min + weight;
+            errors[0] = min;
+            revenues[0] = revenue;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        long revenue = revenues[a];
+        revenues[a] = revenues[b];
+        revenues[b] = revenue;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+
+    public void clear() {
+        positions.clear();
+        size = 0;
+        total = 0;
+    }
+
+    /**
+     * @return Keys currently monitored; index with {@link #getKey(int)} and friends
+     */
+    public int size() { return size; }
+    public int getKey(int index) { return keys[index]; }
+    public long getCount(int index) { return counts[index]; }
+    public long getError(int index) { return errors[index]; }
+    public long getRevenue(int index) { return revenues[index]; }
+
+    /**
+     * @return The most weight a key that is not monitored can have been offered; 0 while the sketch
+     *         has room, since until then every key offered is monitored
+     */
+    public long getMinCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /**
+     * @return The total weight offered, monitored or not
+     */
+    public long getTotal() { return total; }
+}
@@ -0,0 +1,301 @@
+package syos.analytics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Rolling top-selling products by units sold, answered from memory
+ * Sales from the {@link SalesFeed} are counted into one Space-Saving sketch per minute for the
+ * last hour and per local hour for the last seven days; a window's top-N merges its buckets
+ * Counts are exact while a bucket sees no more distinct products than the sketch capacity and
+ * otherwise overestimate by at most the reported error. When merging, a product missing from a
+ * full bucket is charged that bucket's smallest count, which it may have sold there unmonitored,
+ * as both count and error; revenue only sums what the buckets monitored
+ *
+ * Configured from config.properties:
+ *   analytics.topk.capacity   - products monitored per bucket (default 256)
+ */
+public class TopSellers implements SalesFeed.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopSellers.class);
+
+    private static final TopSellers INSTANCE = new TopSellers();
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final int MINUTE_BUCKETS = 60;
+    private static final int HOUR_BUCKETS = 7 * 24;
+
+    /**
+     * A rolling time window
+     */
+    public enum Window {
+        LAST_HOUR("last hour"),
+        TODAY("today"),
+        LAST_7_DAYS("last 7 days");
+
+        private final String label;
+
+        Window(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * One product's sales in a window
+     */
+    public static final class Entry {
+        private final int productId;
+        private final String productName;
+        private final long quantity;
+        private final long revenueCents;
+        private final long error;
+
+        Entry(int productId, String productName, long quantity, long revenueCents, long error) {
+            this.productId = productId;
+            this.productName = productName;
+            this.quantity = quantity;
+            this.revenueCents = revenueCents;
+            this.error = error;
+        }
+
+        public int getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public long getQuantity() { return quantity; }
+        public long getRevenueCents() { return revenueCents; }
+
+        /**
+         * @return How far the quantity may overstate the true figure; 0 when exact
+         */
+        public long getError() { return error; }
+    }
+
+    private final ZoneId zone;
+    private final long[] minuteKeys = new long[MINUTE_BUCKETS];
+    private final SpaceSaving[] minuteSketches = new SpaceSaving[MINUTE_BUCKETS];
+    private final long[] hourKeys = new long[HOUR_BUCKETS];
+    private final SpaceSaving[] hourSketches = new SpaceSaving[HOUR_BUCKETS];
+    private final Map<Integer, String> productNames = new ConcurrentHashMap<>();
+    private volatile boolean started;
+    private volatile boolean seeded;
+
+    TopSellers() {
+        this(loadCapacity(), ZoneId.systemDefault());
+    }
+
+    TopSellers(int capacity, ZoneId zone) {
+        this.zone = zone;
+        Arrays.fill(minuteKeys, Long.MIN_VALUE);
+        Arrays.fill(hourKeys, Long.MIN_VALUE);
+        for (int i = 0; i < MINUTE_BUCKETS; i++) {
+            minuteSketches[i] = new SpaceSaving(capacity);
+        }
+        for (int i = 0; i < HOUR_BUCKETS; i++) {
+            hourSketches[i] = new SpaceSaving(capacity);
+        }
+    }
+
+    private static int loadCapacity() {
+        Properties props = new Properties();
+        try (InputStream input = TopSellers.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default top sellers settings");
+        }
+        return Math.max(1, Integer.parseInt(props.getProperty("analytics.topk.capacity", "256")));
+    }
+
+    /**
+     * Get the process-wide tracker
+     */
+    public static TopSellers getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to the sales feed and seed the last seven days from sale_items in the background;
+     * later calls do nothing
+     * @param connectionProvider Source of read connections for the feed and the seed query
+     * @throws SQLException if the feed cannot start
+     */
+    public void start(ConnectionProvider connectionProvider) throws SQLException {
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+        }
+        SalesFeed feed = SalesFeed.getInstance();
+        feed.subscribe(this);
+        long seedUpTo = feed.start(connectionProvider);
+
+        Thread seeder = new Thread(() -> {
+            long from = System.currentTimeMillis() - HOUR_BUCKETS * HOUR;
+            try {
+                int sales = SalesFeed.replay(connectionProvider, from, seedUpTo, this);
+                seeded = true;
+                logger.info("Top sellers seeded from {} sales", sales);
+            } catch (SQLException e) {
+                logger.warn("Could not seed top sellers from sales history: {}", e.getMessage());
+            }
+        }, "syos-top-sellers-seed");
+        seeder.setDaemon(true);
+        seeder.start();
+    }
+
+    /**
+     * @return True once history has been loaded, so results cover the whole window
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    @Override
+    public void onSale(SaleEvent sale) {
+        record(sale, System.currentTimeMillis());
+    }
+
+    synchronized void record(SaleEvent sale, long nowMillis) {
+        long time = Math.min(sale.getSaleTimeMillis(), nowMillis);
+        SpaceSaving minute = null;
+        long minuteKey = Math.floorDiv(time, MINUTE);
+        if (minuteKey > Math.floorDiv(nowMillis, MINUTE) - MINUTE_BUCKETS) {
+            minute = bucket(minuteKeys, minuteSketches, minuteKey);
+        }
+        SpaceSaving hour = null;
+        long hourKey = hourKey(time);
+        if (hourKey > hourKey(nowMillis) - HOUR_BUCKETS) {
+            hour = bucket(hourKeys, hourSketches, hourKey);
+        }
+        if (minute == null && hour == null) {
+            return;
+        }
+
+        for (int line = 0; line < sale.getLineCount(); line++) {
+            int productId = sale.getProductId(line);
+            if (sale.getProductName(line) != null) {
+                productNames.putIfAbsent(productId, sale.getProductName(line));
+            }
+            if (minute != null) {
+                minute.offer(productId, sale.getQuantity(line), sale.getLineTotalCents(line));
+            }
+            if (hour != null) {
+                hour.offer(productId, sale.getQuantity(line), sale.getLineTotalCents(line));
+            }
+        }
+    }
+
+    /** Get the ring slot for a bucket key, recycling the slot if it holds an older bucket */
+    private static SpaceSaving bucket(long[] keys, SpaceSaving[] sketches, long key) {
+        int slot = (int) Math.floorMod(key, (long) keys.length);
+        if (keys[slot] != key) {
+            if (keys[slot] > key) {
+                return null;
+            }
+            keys[slot] = key;
+            sketches[slot].clear();
+        }
+        return sketches[slot];
+    }
+
+    /** Hours since the epoch in local time, so hour buckets line up with local midnight */
+    private long hourKey(long millis) {
+        long offset = zone.getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(millis + offset, HOUR);
+    }
+
+    /**
+     * Get the best-selling products in a window
+     * @param window The window
+     * @param limit Products to return
+     * @return Up to limit products by units sold, highest first
+     */
+    public List<Entry> top(Window window, int limit) {
+        return top(window, limit, System.currentTimeMillis());
+    }
+
+    synchronized List<Entry> top(Window window, int limit, long nowMillis) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Map<Integer, long[]> totals = new HashMap<>();
+        if (window == Window.LAST_HOUR) {
+            long newest = Math.floorDiv(nowMillis, MINUTE);
+            merge(totals, minuteKeys, minuteSketches, newest - MINUTE_BUCKETS + 1, newest);
+        } else {
+            long newest = hourKey(nowMillis);
+            long oldest = window == Window.TODAY
+                          ? hourKey(LocalDate.ofInstant(Instant.ofEpochMilli(nowMillis), zone).atStartOfDay(zone)
+                                             .toInstant().toEpochMilli())
+                          : newest - HOUR_BUCKETS + 1;
+            merge(totals, hourKeys, hourSketches, oldest, newest);
+        }
+
+        PriorityQueue<Map.Entry<Integer, long[]>> best =
+            new PriorityQueue<>((a, b) -> Long.compare(a.getValue()[0], b.getValue()[0]));
+        for (Map.Entry<Integer, long[]> total : totals.entrySet()) {
+            best.add(total);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Entry> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            Map.Entry<Integer, long[]> total = best.poll();
+            long[] sums = total.getValue();
+            result.add(new Entry(total.getKey(), productNames.get(total.getKey()), sums[0], sums[1], sums[2]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static void merge(Map<Integer, long[]> totals, long[] keys, SpaceSaving[] sketches, long oldest, long newest) {
+        // sums[3] holds the smallest counts of the buckets the product was monitored in, so the
+        // smallest counts of all full buckets less that is what it may have sold unmonitored
+        long unmonitored = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] < oldest || keys[slot] > newest) {
+                continue;
+            }
+            SpaceSaving sketch = sketches[slot];
+            long minCount = sketch.getMinCount();
+            unmonitored += minCount;
+            for (int i = 0; i < sketch.size(); i++) {
+                long[] sums = totals.computeIfAbsent(sketch.getKey(i), k -> new long[4]);
+                sums[0] += sketch.getCount(i);
+                sums[1] += sketch.getRevenue(i);
+                sums[2] += sketch.getError(i);
+                sums[3] += minCount;
+            }
+        }
+        for (long[] sums : totals.values()) {
+            long missed = unmonitored - sums[3];
+            sums[0] += missed;
+            sums[2] += missed;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package syos.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Count, sum, min and max of amounts in cents over a sliding time window, kept per minute
+ * in a ring of primitive arrays; any window inside the retained span is answered by
+ * scanning at most one slot per minute, without touching the database
+ * Amounts older than the retained span are dropped as newer minutes reuse their slots
+ */
+public final class WindowedAggregate {
+
+    static final long MINUTE = 60_000L;
+
+    /**
+     * Totals over one window
+     */
+    public static final class Stats {
+        private final long count;
+        private final long sumCents;
+        private final long minCents;
+        private final long maxCents;
+
+        Stats(long count, long sumCents, long minCents, long maxCents) {
+            this.count = count;
+            this.sumCents = sumCents;
+            this.minCents = count > 0 ? minCents : 0;
+            this.maxCents = count > 0 ? maxCents : 0;
+        }
+
+        public long getCount() { return count; }
+        public long getSumCents() { return sumCents; }
+
+        /** @return The smallest amount, or 0 if the window is empty */
+        public long getMinCents() { return minCents; }
+
+        /** @return The largest amount, or 0 if the window is empty */
+        public long getMaxCents() { return maxCents; }
+
+        /** @return The mean amount rounded half-up, or 0 if the window is empty */
+        public long getAverageCents() {
+            return count == 0 ? 0 : Math.floorDiv(2 * sumCents + count, 2 * count);
+        }
+    }
+
+    private final long[] minutes;
+    private final long[] counts;
+    private final long[] sums;
+    private final long[] mins;
+    private final long[] maxs;
+    private long newestMinute = Long.MIN_VALUE;
+
+    /**
+     * @param retainedMinutes How many minutes back a window may reach
+     */
+    public WindowedAggregate(int retainedMinutes) {
+        int slots = Math.max(1, retainedMinutes);
+        minutes = new long[slots];
+        counts = new long[slots];
+        sums = new long[slots];
+        mins = new long[slots];
+        maxs = new long[slots];
+        Arrays.fill(minutes, Long.MIN_VALUE);
+    }
+
+    /**
+     * @return The number of minutes a window may reach back
+     */
+    public int getRetainedMinutes() {
+        return minutes.length;
+    }
+
+    /**
+     * Add one amount
+     * @param timeMillis When it happened
+     * @param cents The amount
+     */
+    public void record(long timeMillis, long cents) {
+        add(Math.floorDiv(timeMillis, MINUTE), 1, cents, cents, cents);
+    }
+
+    /**
+     * Add the totals of a whole minute, e.g. from a GROUP BY query when rehydrating
+     * @param epochMinute Minutes since the epoch
+     * @param count Amounts in the minute
+     * @param sumCents Their sum
+     * @param minCents The smallest
+     * @param maxCents The largest
+     */
+    public synchronized void add(long epochMinute, long count, long sumCents, long minCents, long maxCents) {
+        if (count <= 0 || (newestMinute != Long.MIN_VALUE && epochMinute <= newestMinute - minutes.length)) {
+            return;
+        }
+        int slot = (int) Math.floorMod(epochMinute, (long) minutes.length);
+        if (minutes[slot] != epochMinute) {
+            if (minutes[slot] > epochMinute) {
+                return;
+            }
+            minutes[slot] = epochMinute;
+            counts[slot] = 0;
+            sums[slot] = 0;
+            mins[slot] = Long.MAX_VALUE;
+            maxs[slot] = Long.MIN_VALUE;
+        }
+        counts[slot] += count;
+        sums[slot] += sumCents;
+        mins[slot] = Math.min(mins[slot], minCents);
+        maxs[slot] = Math.max(maxs[slot], maxCents);
+        newestMinute = Math.max(newestMinute, epochMinute);
+    }
+
+    /**
+     * Totals for the trailing window ending now
+     * @param windowMinutes The window length, at most {@link #getRetainedMinutes()}
+     * @param nowMillis The current time
+     */
+    public Stats last(int windowMinutes, long nowMillis) {
+        long newest = Math.floorDiv(nowMillis, MINUTE);
+        return sumMinutes(newest - windowMinutes + 1, newest);
+    }
+
+    /**
+     * Totals from one time to another, both resolved to their whole minute
+     * @param fromMillis The start, inclusive
+     * @param toMillis The end, inclusive
+     */
+    public Stats between(long fromMillis, long toMillis) {
+        return sumMinutes(Math.floorDiv(fromMillis, MINUTE), Math.floorDiv(toMillis, MINUTE));
+    }
+
+    private synchronized Stats sumMinutes(long fromMinute, long toMinute) {
+        long count = 0;
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long first = Math.max(fromMinute, toMinute - minutes.length + 1);
+        for (long minute = first; minute <= toMinute; minute++) {
+            int slot = (int) Math.floorMod(minute, (long) minutes.length);
+            if (minutes[slot] != minute) {
+                continue;
+            }
+            count += counts[slot];
+            sum += sums[slot];
+            min = Math.min(min, mins[slot]);
+            max = Math.max(max, maxs[slot]);
+        }
+        return new Stats(count, sum, min, max);
+    }
+
+    /**
+     * @return True if a window starting at fromMillis lies inside the retained span as of nowMillis
+     */
+    public boolean covers(long fromMillis, long nowMillis) {
+        return Math.floorDiv(fromMillis, MINUTE) > Math.floorDiv(nowMillis, MINUTE) - minutes.length;
+    }
+}
@@ -0,0 +1,108 @@
+package syos.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import syos.pos.CartPricing;
+import syos.pos.Money;
+
+/**
+ * Compares re-totalling a basket in floating point on every change, as the till did before
+ * carts priced in cents, with the running totals kept by {@link CartPricing}
+ * Each operation changes one line's quantity and reads subtotal, discount and final total
+ * Allocation per operation is reported where the JVM exposes per-thread allocation counters
+ * Usage: CartPricingBenchmark [lines] [operations] [rounds]
+ */
+public class CartPricingBenchmark {
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        double[] prices = new double[lines];
+        double[] discounts = new double[lines];
+        int[] quantities = new int[lines];
+        CartPricing pricing = new CartPricing();
+        for (int i = 0; i < lines; i++) {
+            prices[i] = 50 + (i * 37 % 2000) / 4.0;
+            discounts[i] = i % 4 == 0 ? 12.5 : 0.0;
+            quantities[i] = 1 + i % 3;
+            pricing.addLine(Money.toCents(prices[i]), quantities[i], Money.toRate(discounts[i]));
+        }
+
+        System.out.println("CART PRICING BENCHMARK");
+        System.out.println("─".repeat(70));
+        System.out.printf("Basket lines: %d, operations per round: %,d, rounds: %d (first %d are warm-up)%n%n",
+                          lines, operations, rounds, rounds / 2);
+
+        long doubleNanos = 0;
+        long centsNanos = 0;
+        long doubleBytes = 0;
+        long centsBytes = 0;
+        double doubleChecksum = 0;
+        long centsChecksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int op = 0; op < operations; op++) {
+                int line = op % lines;
+                quantities[line] = 1 + (quantities[line] + op) % 5;
+                Object[] totals = calculateTotals(prices, quantities, discounts);
+                doubleChecksum += (Double) totals[2];
+            }
+            long doubleElapsed = System.nanoTime() - start;
+            long doubleAllocated = allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            for (int op = 0; op < operations; op++) {
+                int line = op % lines;
+                pricing.updateLine(line, 1 + (pricing.getQuantity(line) + op) % 5, pricing.getRate(line));
+                centsChecksum += pricing.getSubtotalCents() - pricing.getTotalDiscountCents() + pricing.getFinalTotalCents();
+            }
+            long centsElapsed = System.nanoTime() - start;
+            long centsAllocated = allocatedBytes() - allocated;
+
+            if (round >= rounds / 2) {
+                doubleNanos += doubleElapsed;
+                centsNanos += centsElapsed;
+                doubleBytes += doubleAllocated;
+                centsBytes += centsAllocated;
+            }
+        }
+
+        long measured = (long) operations * (rounds - rounds / 2);
+        System.out.printf("%-34s %12s %14s%n", "", "ns/op", "bytes/op");
+        System.out.printf("%-34s %12.1f %14s%n", "Floating-point re-total", (double) doubleNanos / measured,
+                          perOp(doubleBytes, measured));
+        System.out.printf("%-34s %12.1f %14s%n", "Fixed-point running totals", (double) centsNanos / measured,
+                          perOp(centsBytes, measured));
+        System.out.printf("%nSpeed-up: %.1fx (checksums %.2f / %d)%n",
+                          (double) doubleNanos / Math.max(1, centsNanos), doubleChecksum, centsChecksum);
+    }
+
+    /** The floating-point totals the till recomputed for every cart display and checkout */
+    private static Object[] calculateTotals(double[] prices, int[] quantities, double[] discounts) {
+        double subtotal = 0.0;
+        double totalDiscount = 0.0;
+        for (int i = 0; i < prices.length; i++) {
+            double lineSubtotal = quantities[i] * prices[i];
+            subtotal += lineSubtotal;
+            totalDiscount += lineSubtotal * (discounts[i] / 100);
+        }
+        return new Object[] {subtotal, totalDiscount, subtotal - totalDiscount};
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static String perOp(long bytes, long operations) {
+        return allocatedBytes() < 0 ? "n/a" : String.format("%.1f", (double) bytes / operations);
+    }
+}
@@ -0,0 +1,82 @@
+package syos.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import com.syos.infrastructure.database.ConnectionPool;
+import com.syos.infrastructure.database.DatabaseConfig;
+
+/**
+ * Compares per-operation latency of a DriverManager connection per call (the old
+ * SimpleConnectionPool behaviour) against the shared warmed HikariCP pool
+ * Each operation borrows a connection, runs SELECT 1 and releases it
+ * Usage: ConnectionBenchmark [operations]
+ */
+public class ConnectionBenchmark {
+
+    private interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        DatabaseConfig config = new DatabaseConfig();
+        Class.forName(config.getDriverClassName());
+
+        System.out.println("CONNECTION ESTABLISHMENT BENCHMARK");
+        System.out.println("─".repeat(70));
+        System.out.printf("Operations per run: %d (borrow + SELECT 1 + release)%n%n", operations);
+        System.out.printf("%-28s %10s %10s %10s %10s%n", "Source", "avg (us)", "p50 (us)", "p99 (us)", "ops/s");
+
+        long[] direct = run(operations,
+            () -> DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword()));
+        print("DriverManager per call", direct);
+
+        ConnectionPool pool = ConnectionPool.getShared();
+        try {
+            long[] pooled = run(operations, pool::getConnection);
+            print("Shared HikariCP pool", pooled);
+            System.out.printf("%nSpeed-up (avg): %.1fx%n", average(direct) / Math.max(1.0, average(pooled)));
+        } finally {
+            pool.close();
+        }
+    }
+
+    private static long[] run(int operations, ConnectionSource source) throws SQLException {
+        // One untimed round to load classes and JIT the path
+        for (int i = 0; i < Math.min(20, operations); i++) {
+            execute(source);
+        }
+        long[] samples = new long[operations];
+        for (int i = 0; i < operations; i++) {
+            long start = System.nanoTime();
+            execute(source);
+            samples[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static void execute(ConnectionSource source) throws SQLException {
+        try (Connection connection = source.get();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1");
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+        }
+    }
+
+    private static double average(long[] samples) {
+        return Arrays.stream(samples).average().orElse(0);
+    }
+
+    private static void print(String name, long[] samples) {
+        double avg = average(samples);
+        System.out.printf("%-28s %10.0f %10d %10d %10.0f%n", name, avg,
+                          samples[samples.length / 2], samples[(int) Math.min(samples.length - 1, Math.ceil(samples.length * 0.99) - 1)],
+                          avg > 0 ? 1_000_000.0 / avg : 0);
+    }
+}
@@ -0,0 +1,62 @@
+package syos.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import syos.services.PasswordHashingService;
+
+/**
+ * Measures password hashing throughput at several PBKDF2 cost settings
+ * Usage: PasswordHashBenchmark [hashesPerCost] [iterations ...]
+ */
+public class PasswordHashBenchmark {
+
+    private static final int[] DEFAULT_COSTS = {10_000, 50_000, 100_000, 210_000, 600_000};
+
+    public static void main(String[] args) {
+        int hashesPerCost = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int[] costs = DEFAULT_COSTS;
+        if (args.length > 1) {
+            costs = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                costs[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.println("PASSWORD HASH BENCHMARK");
+        System.out.println("─".repeat(60));
+        System.out.printf("Threads: %d, hashes per cost: %d%n%n", threads, hashesPerCost);
+        System.out.printf("%-12s %14s %14s %14s%n", "Iterations", "Single (ms)", "Pool hash/s", "Verify hash/s");
+
+        try (PasswordHashingService hasher = new PasswordHashingService(DEFAULT_COSTS[0], threads, hashesPerCost)) {
+            for (int cost : costs) {
+                // Warm up the JIT on this cost
+                hasher.hashNow("Warmup1!", cost);
+
+                long start = System.nanoTime();
+                String sample = hasher.hashNow("Benchmark1!", cost);
+                double singleMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+                List<CompletableFuture<?>> futures = new ArrayList<>(hashesPerCost);
+                start = System.nanoTime();
+                for (int i = 0; i < hashesPerCost; i++) {
+                    futures.add(hasher.hash("Benchmark" + i + "!", cost));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+                double hashRate = hashesPerCost / ((System.nanoTime() - start) / 1_000_000_000.0);
+
+                futures.clear();
+                start = System.nanoTime();
+                for (int i = 0; i < hashesPerCost; i++) {
+                    futures.add(hasher.verify("Benchmark1!", sample, null));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+                double verifyRate = hashesPerCost / ((System.nanoTime() - start) / 1_000_000_000.0);
+
+                System.out.printf("%-12d %14.2f %14.1f %14.1f%n", cost, singleMillis, hashRate, verifyRate);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package syos.benchmark;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.TreeMap;
+
+import syos.dao.ProductDAO;
+import syos.models.Product;
+
+/**
+ * Compares name-based row mapping (the previous ProductDAO mapper) with the compiled,
+ * index-based mapper now used by ProductDAO, over an in-memory result set
+ * The fake result set resolves labels the way the MySQL driver does, through a
+ * case-insensitive map lookup per getter, so the difference is the per-cell lookup cost
+ * Usage: RowMapperBenchmark [rows] [rounds]
+ */
+public class RowMapperBenchmark {
+
+    private static final String[] COLUMNS = {
+        "id", "product_code", "product_name", "description", "category_id", "brand",
+        "manufacturer", "unit_price", "reorder_level", "barcode", "unit_of_measure",
+        "is_active", "is_taxable", "tax_rate", "created_at", "updated_at"
+    };
+
+    /** Exposes the DAO's protected mappers */
+    private static final class BenchmarkProductDAO extends ProductDAO {
+        BenchmarkProductDAO() {
+            super(null);
+        }
+
+        Product mapCompiled(ResultSet resultSet, int[] columns) throws SQLException {
+            return getRowMapper().map(resultSet, columns);
+        }
+
+        int[] resolve(String sql, ResultSet resultSet) throws SQLException {
+            return getRowMapper().indicesFor(sql, resultSet);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Object[][] data = generateRows(rows);
+        BenchmarkProductDAO dao = new BenchmarkProductDAO();
+        String sql = "SELECT id, product_code, ... FROM products";
+
+        System.out.println("ROW MAPPING BENCHMARK (products, " + COLUMNS.length + " columns)");
+        System.out.println("─".repeat(70));
+        System.out.printf("Rows per round: %,d, rounds: %d (first %d rounds are warm-up)%n%n", rows, rounds, rounds / 2);
+
+        long nameNanos = 0;
+        long indexNanos = 0;
+        long checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            ResultSet byName = fakeResultSet(data);
+            while (byName.next()) {
+                checksum += mapByName(byName).getId();
+            }
+            long nameElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ResultSet byIndex = fakeResultSet(data);
+            int[] columns = dao.resolve(sql, byIndex);
+            while (byIndex.next()) {
+                checksum += dao.mapCompiled(byIndex, columns).getId();
+            }
+            long indexElapsed = System.nanoTime() - start;
+
+            if (round >= rounds / 2) {
+                nameNanos += nameElapsed;
+                indexNanos += indexElapsed;
+            }
+        }
+
+        long measuredRows = (long) rows * (rounds - rounds / 2);
+        System.out.printf("%-28s %12.1f ns/row%n", "Column name lookup", (double) nameNanos / measuredRows);
+        System.out.printf("%-28s %12.1f ns/row%n", "Compiled column index", (double) indexNanos / measuredRows);
+        System.out.printf("%nSpeed-up: %.2fx (checksum %d)%n", (double) nameNanos / Math.max(1, indexNanos), checksum);
+    }
+
+    /** The name-based mapping ProductDAO used before it had a compiled mapper */
+    private static Product mapByName(ResultSet resultSet) throws SQLException {
+        Product product = new Product();
+        product.setId(resultSet.getInt("id"));
+        product.setProductCode(resultSet.getString("product_code"));
+        product.setProductName(resultSet.getString("product_name"));
+        product.setDescription(resultSet.getString("description"));
+        product.setCategoryId(resultSet.getObject("category_id", Integer.class));
+        product.setBrand(resultSet.getString("brand"));
+        product.setManufacturer(resultSet.getString("manufacturer"));
+        product.setUnitPrice(resultSet.getBigDecimal("unit_price"));
+        product.setReorderLevel(resultSet.getObject("reorder_level", Integer.class));
+        product.setBarcode(resultSet.getString("barcode"));
+        product.setUnitOfMeasure(resultSet.getString("unit_of_measure"));
+        product.setActive(resultSet.getBoolean("is_active"));
+        product.setTaxable(resultSet.getBoolean("is_taxable"));
+        product.setTaxRate(resultSet.getBigDecimal("tax_rate"));
+        Timestamp createdAt = resultSet.getTimestamp("created_at");
+        if (createdAt != null) {
+            product.setCreatedAt(createdAt.toLocalDateTime());
+        }
+        Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+        if (updatedAt != null) {
+            product.setUpdatedAt(updatedAt.toLocalDateTime());
+        }
+        return product;
+    }
+
+    private static Object[][] generateRows(int rows) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Object[][] data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[] {
+                i + 1, "P" + i, "Product " + i, "Description " + i, i % 20 + 1,
+                "Brand", "Maker", BigDecimal.valueOf(100 + i % 500, 2), 10, "B" + i, "each",
+                Boolean.TRUE, Boolean.FALSE, BigDecimal.ZERO, now, i % 3 == 0 ? null : now
+            };
+        }
+        return data;
+    }
+
+    private static ResultSet fakeResultSet(Object[][] data) {
+        Map<String, Integer> labels = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            labels.put(COLUMNS[i], i + 1);
+        }
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+            (proxy, method, args) -> {
+                if ("getColumnCount".equals(method.getName())) {
+                    return COLUMNS.length;
+                }
+                return COLUMNS[(Integer) args[0] - 1];
+            });
+
+        int[] cursor = { -1 };
+        boolean[] wasNull = { false };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+            (proxy, method, args) -> {
+                String name = method.getName();
+                if ("next".equals(name)) {
+                    return ++cursor[0] < data.length;
+                }
+                if ("getMetaData".equals(name)) {
+                    return metaData;
+                }
+                if ("wasNull".equals(name)) {
+                    return wasNull[0];
+                }
+                if ("findColumn".equals(name)) {
+                    return labels.get((String) args[0]);
+                }
+                int column = args[0] instanceof String ? labels.get((String) args[0]) : (Integer) args[0];
+                Object value = data[cursor[0]][column - 1];
+                wasNull[0] = value == null;
+                return convert(method, value);
+            });
+    }
+
+    private static Object convert(Method method, Object value) {
+        switch (method.getName()) {
+            case "getInt":
+                return value == null ? 0 : (Integer) value;
+            case "getBoolean":
+                return value != null && (Boolean) value;
+            default:
+                return value;
+        }
+    }
+}
@@ -24,7 +24,7 @@ public class AuthenticationCLI {
         this.scanner = new Scanner(System.in);
         
         // Initialize connection pool
-        ConnectionPool connectionPool = new ConnectionPool();
+        ConnectionPool connectionPool = ConnectionPool.getShared();
         
         // Initialize services
         DAOFactory daoFactory = DAOFactory.getInstance(connectionPool);
@@ -184,7 +184,7 @@ public class AuthenticationCLI {
             }
             
             // Get role name from roleId
-            DAOFactory daoFactory = DAOFactory.getInstance(new ConnectionPool());
+            DAOFactory daoFactory = DAOFactory.getInstance(ConnectionPool.getShared());
             Role role = daoFactory.getRoleDAO().findById(currentUser.getRoleId()).orElse(null);
             
             if (role != null) {
@@ -379,7 +379,7 @@ public class AuthenticationCLI {
     private void handleUserManagement() {
         System.out.println("\n=== USER MANAGEMENT ===");
         try {
-            DAOFactory daoFactory = DAOFactory.getInstance(new ConnectionPool());
+            DAOFactory daoFactory = DAOFactory.getInstance(ConnectionPool.getShared());
             java.util.List<User> users = daoFactory.getUserDAO().findAll();
             
             System.out.println("All Users in System:");
@@ -506,7 +506,7 @@ public class AuthenticationCLI {
                 User newUser = result.getUser();
                 
                 // Get the role ID
-                DAOFactory daoFactory = DAOFactory.getInstance(new ConnectionPool());
+                DAOFactory daoFactory = DAOFactory.getInstance(ConnectionPool.getShared());
                 Role role = daoFactory.getRoleDAO().findByName(roleName);
                 
                 if (role != null) {
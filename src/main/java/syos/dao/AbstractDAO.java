@@ -11,6 +11,14 @@ import java.util.Optional;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.cache.CacheInvalidationLog;
+import syos.dao.cache.EntityCache;
+import syos.dao.cache.EntityCacheRegistry;
+import syos.dao.mapping.CompiledRowMapper;
+import syos.dao.mapping.Projection;
+import syos.dao.metrics.QueryMetrics;
+import syos.dao.metrics.QueryTimer;
+
 /**
  * Abstract base DAO implementation providing common database operations
  * @param <T> The entity type
@@ -20,10 +28,27 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
     
     protected final ConnectionPool connectionPool;
     protected final String tableName;
+    private final String cacheName;
+    private final EntityCache<ID, T> entityCache;
+    private final boolean distributedCache;
+    
+    /**
+     * A DAO call that writes; see {@link AbstractDAO#inWriteTransaction(WriteAction)}
+     */
+    @FunctionalInterface
+    protected interface WriteAction<R> {
+        R run() throws DatabaseException;
+    }
     
     protected AbstractDAO(ConnectionPool connectionPool, String tableName) {
         this.connectionPool = connectionPool;
         this.tableName = tableName;
+        this.cacheName = getClass().getSimpleName();
+        this.entityCache = EntityCacheRegistry.getInstance().cacheFor(cacheName);
+        this.distributedCache = entityCache != null && EntityCacheRegistry.getInstance().isDistributed(cacheName);
+        if (distributedCache && connectionPool != null) {
+            CacheInvalidationLog.ensureStarted(connectionPool);
+        }
     }
     
     /**
@@ -80,6 +105,16 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
      */
     protected abstract T mapResultSetToEntity(ResultSet resultSet) throws SQLException;
     
+    /**
+     * Get an index-based row mapper for this DAO's entity
+     * When present, the query methods below map rows through it with column indices
+     * resolved once per SQL string instead of calling {@link #mapResultSetToEntity(ResultSet)}
+     * @return The compiled mapper, or null to map by column name
+     */
+    protected CompiledRowMapper<T> getRowMapper() {
+        return null;
+    }
+    
     /**
      * Get the ID from an entity
      * @param entity The entity
@@ -94,19 +129,179 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
      */
     protected abstract void setEntityId(T entity, ID id);
     
+    /**
+     * Get a connection for one DAO call
+     * Inside a {@link TransactionTemplate} scope this is the scope's shared connection,
+     * whose close() is a no-op; otherwise a connection borrowed from the pool
+     * @return A connection to close when the call completes
+     * @throws SQLException if no connection can be obtained
+     */
+    protected Connection getConnection() throws SQLException {
+        return UnitOfWork.connectionFor(connectionPool);
+    }
+    
+    /**
+     * Get a connection for a list or report query that may be answered by a read replica
+     * Point lookups, existence checks and anything feeding a write should use {@link #getConnection()};
+     * inside a transaction, or right after this thread wrote, this returns the primary anyway
+     * @return A connection to close when the call completes
+     * @throws SQLException if no connection can be obtained
+     */
+    protected Connection getReadConnection() throws SQLException {
+        UnitOfWork unitOfWork = UnitOfWork.current(connectionPool);
+        if (unitOfWork != null) {
+            return unitOfWork.getConnection();
+        }
+        return connectionPool.getReadConnection();
+    }
+    
+    /**
+     * Keep this thread's reads on the primary for the read-your-writes window,
+     * counted from commit when the write is part of a transaction
+     */
+    private void recordWrite() {
+        connectionPool.recordWrite();
+        UnitOfWork unitOfWork = UnitOfWork.current(connectionPool);
+        if (unitOfWork != null) {
+            unitOfWork.afterCommit(connectionPool::recordWrite);
+        }
+    }
+    
+    /**
+     * Get this DAO's entity cache
+     * @return The cache, or null if none is configured for this DAO
+     */
+    protected EntityCache<ID, T> getEntityCache() {
+        return entityCache;
+    }
+    
+    /**
+     * Copy an entity so that no two callers share the instance held in a cache
+     * DAOs with a configured cache override this; without a cache the entity is returned as is
+     * @param entity The entity
+     * @return A copy the caller may modify
+     */
+    protected T copyEntity(T entity) {
+        return entity;
+    }
+    
+    /**
+     * Read through one of this DAO's caches, handing the caller its own copy of the entity
+     * The loaded entity is copied before it is cached as well, so setters called on the result
+     * can never leak into the cache ahead of a commit
+     * @param cache The cache
+     * @param key The cache key
+     * @param loader Loads the entity on a miss
+     * @return A copy of the entity, or empty if there is none
+     * @throws DatabaseException if the loader fails
+     */
+    protected <K> Optional<T> findCached(EntityCache<K, T> cache, K key,
+                                         EntityCache.Loader<K, T, DatabaseException> loader) throws DatabaseException {
+        return cache.get(key, k -> {
+            T loaded = loader.load(k);
+            return loaded != null ? copyEntity(loaded) : null;
+        }).map(this::copyEntity);
+    }
+    
+    /**
+     * Run a write so that its cache_invalidations row commits or rolls back with it
+     * Only DAOs with a distributed cache need this; other writes run as before
+     * @param action The write
+     * @return The write's result
+     * @throws DatabaseException if the write fails
+     */
+    protected <R> R inWriteTransaction(WriteAction<R> action) throws DatabaseException {
+        if (!distributedCache || UnitOfWork.current(connectionPool) != null) {
+            return action.run();
+        }
+        return new TransactionTemplate(connectionPool).execute(unitOfWork -> action.run());
+    }
+    
+    /**
+     * Evict one entity after it was written, and tell other JVMs if the cache is distributed
+     * Inside a transaction the local eviction is repeated after commit, so a concurrent reader
+     * cannot re-cache the old row between the write and the commit
+     * @param id The written entity's ID
+     * @throws SQLException if the invalidation cannot be published
+     */
+    protected void invalidateCached(ID id) throws SQLException {
+        if (entityCache == null || id == null) {
+            return;
+        }
+        entityCache.invalidate(id);
+        publishInvalidation(String.valueOf(id));
+        UnitOfWork unitOfWork = UnitOfWork.current(connectionPool);
+        if (unitOfWork != null) {
+            unitOfWork.afterCommit(() -> entityCache.invalidate(id));
+        }
+    }
+    
+    /**
+     * Evict every cached entity, for writes whose affected rows are not known
+     * @throws SQLException if the invalidation cannot be published
+     */
+    protected void invalidateAllCached() throws SQLException {
+        if (entityCache == null) {
+            return;
+        }
+        entityCache.invalidateAll();
+        publishInvalidation(null);
+        UnitOfWork unitOfWork = UnitOfWork.current(connectionPool);
+        if (unitOfWork != null) {
+            unitOfWork.afterCommit(entityCache::invalidateAll);
+        }
+    }
+    
+    private void publishInvalidation(String entityKey) throws SQLException {
+        if (distributedCache) {
+            try (Connection connection = getConnection()) {
+                CacheInvalidationLog.publish(connection, cacheName, entityKey);
+            }
+        }
+    }
+    
+    /**
+     * Resolve column indices for a result set, if this DAO has a compiled mapper
+     * @return The indices to pass to {@link #mapRow(ResultSet, int[])}, or null
+     */
+    private int[] resolveColumns(String sql, ResultSet resultSet) throws SQLException {
+        CompiledRowMapper<T> rowMapper = getRowMapper();
+        return rowMapper != null ? rowMapper.indicesFor(sql, resultSet) : null;
+    }
+    
+    private T mapRow(ResultSet resultSet, int[] columns) throws SQLException {
+        return columns != null ? getRowMapper().map(resultSet, columns) : mapResultSetToEntity(resultSet);
+    }
+    
+    /**
+     * Start timing a call for the query metrics, tagged with this DAO's class and the operation code
+     * @param operation The operation code, matching the one used for DatabaseException
+     * @param sql The SQL being executed
+     * @return A timer that must be stopped in a finally block
+     */
+    protected QueryTimer startTimer(String operation, String sql) {
+        return QueryMetrics.getInstance().start(getClass(), operation, sql);
+    }
+    
     @Override
     public T create(T entity) throws DatabaseException {
+        return inWriteTransaction(() -> doCreate(entity));
+    }
+    
+    private T doCreate(T entity) throws DatabaseException {
         if (entity == null) {
             throw new DatabaseException("Entity cannot be null", "NULL_ENTITY", "CREATE");
         }
         
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("CREATE", getInsertSQL());
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(getInsertSQL(), Statement.RETURN_GENERATED_KEYS)) {
             
             setInsertParameters(statement, entity);
             
             int affectedRows = statement.executeUpdate();
             if (affectedRows == 0) {
+                timer.failed();
                 throw new DatabaseException("Creating entity failed, no rows affected", "NO_ROWS_AFFECTED", "CREATE");
             }
             
@@ -127,14 +322,20 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
                     }
                     
                     setEntityId(entity, generatedId);
+                    recordWrite();
+                    invalidateCached(generatedId);
                     return entity;
                 } else {
+                    timer.failed();
                     throw new DatabaseException("Creating entity failed, no ID obtained", "NO_ID_GENERATED", "CREATE");
                 }
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to create entity: " + e.getMessage(), e, e.getSQLState(), "CREATE");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -144,20 +345,32 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
             return Optional.empty();
         }
         
-        try (Connection connection = connectionPool.getConnection();
+        // Reads inside a transaction may see uncommitted rows, so they bypass the cache
+        if (entityCache != null && UnitOfWork.current(connectionPool) == null) {
+            return findCached(entityCache, id, this::loadById);
+        }
+        return Optional.ofNullable(loadById(id));
+    }
+    
+    private T loadById(ID id) throws DatabaseException {
+        QueryTimer timer = startTimer("FIND_BY_ID", getSelectByIdSQL());
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(getSelectByIdSQL())) {
             
             statement.setObject(1, id);
             
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
-                    return Optional.of(mapResultSetToEntity(resultSet));
+                    return mapRow(resultSet, resolveColumns(getSelectByIdSQL(), resultSet));
                 }
-                return Optional.empty();
+                return null;
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to find entity by ID: " + e.getMessage(), e, e.getSQLState(), "FIND_BY_ID");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -165,16 +378,21 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
     public List<T> findAll() throws DatabaseException {
         List<T> entities = new ArrayList<>();
         
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("FIND_ALL", getSelectAllSQL());
+        try (Connection connection = getReadConnection();
              PreparedStatement statement = connection.prepareStatement(getSelectAllSQL());
              ResultSet resultSet = statement.executeQuery()) {
             
+            int[] columns = resolveColumns(getSelectAllSQL(), resultSet);
             while (resultSet.next()) {
-                entities.add(mapResultSetToEntity(resultSet));
+                entities.add(mapRow(resultSet, columns));
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to find all entities: " + e.getMessage(), e, e.getSQLState(), "FIND_ALL");
+        } finally {
+            timer.stop();
         }
         
         return entities;
@@ -182,6 +400,10 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
     
     @Override
     public T update(T entity) throws DatabaseException {
+        return inWriteTransaction(() -> doUpdate(entity));
+    }
+    
+    private T doUpdate(T entity) throws DatabaseException {
         if (entity == null) {
             throw new DatabaseException("Entity cannot be null", "NULL_ENTITY", "UPDATE");
         }
@@ -191,39 +413,60 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
             throw new DatabaseException("Entity ID cannot be null for update", "NULL_ID", "UPDATE");
         }
         
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("UPDATE", getUpdateSQL());
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(getUpdateSQL())) {
             
             setUpdateParameters(statement, entity);
             
             int affectedRows = statement.executeUpdate();
+            recordWrite();
+            invalidateCached(id);
             if (affectedRows == 0) {
+                timer.failed();
                 throw new DatabaseException("Entity not found for update", "ENTITY_NOT_FOUND", "UPDATE");
             }
             
             return entity;
             
         } catch (SQLException e) {
+            timer.failed();
+            // The row's state is uncertain after a failed write, so the next read goes to the database
+            if (entityCache != null) {
+                entityCache.invalidate(id);
+            }
             throw new DatabaseException("Failed to update entity: " + e.getMessage(), e, e.getSQLState(), "UPDATE");
+        } finally {
+            timer.stop();
         }
     }
     
     @Override
     public boolean deleteById(ID id) throws DatabaseException {
+        return inWriteTransaction(() -> doDeleteById(id));
+    }
+    
+    private boolean doDeleteById(ID id) throws DatabaseException {
         if (id == null) {
             return false;
         }
         
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("DELETE", getDeleteByIdSQL());
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(getDeleteByIdSQL())) {
             
             statement.setObject(1, id);
             
             int affectedRows = statement.executeUpdate();
+            recordWrite();
+            invalidateCached(id);
             return affectedRows > 0;
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to delete entity by ID: " + e.getMessage(), e, e.getSQLState(), "DELETE");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -246,7 +489,8 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
     public long count() throws DatabaseException {
         String sql = "SELECT COUNT(*) FROM " + tableName;
         
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("COUNT", sql);
+        try (Connection connection = getReadConnection();
              PreparedStatement statement = connection.prepareStatement(sql);
              ResultSet resultSet = statement.executeQuery()) {
             
@@ -256,7 +500,10 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
             return 0;
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to count entities: " + e.getMessage(), e, e.getSQLState(), "COUNT");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -269,20 +516,25 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
         String sql = getSelectAllSQL() + " LIMIT ? OFFSET ?";
         List<T> entities = new ArrayList<>();
         
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("FIND_PAGINATED", sql);
+        try (Connection connection = getReadConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             statement.setInt(1, limit);
             statement.setInt(2, offset);
             
             try (ResultSet resultSet = statement.executeQuery()) {
+                int[] columns = resolveColumns(sql, resultSet);
                 while (resultSet.next()) {
-                    entities.add(mapResultSetToEntity(resultSet));
+                    entities.add(mapRow(resultSet, columns));
                 }
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to find entities with pagination: " + e.getMessage(), e, e.getSQLState(), "FIND_PAGINATED");
+        } finally {
+            timer.stop();
         }
         
         return entities;
@@ -298,7 +550,8 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
     protected List<T> executeQuery(String sql, Object... parameters) throws DatabaseException {
         List<T> entities = new ArrayList<>();
         
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("QUERY", sql);
+        try (Connection connection = getReadConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             for (int i = 0; i < parameters.length; i++) {
@@ -306,13 +559,17 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
             }
             
             try (ResultSet resultSet = statement.executeQuery()) {
+                int[] columns = resolveColumns(sql, resultSet);
                 while (resultSet.next()) {
-                    entities.add(mapResultSetToEntity(resultSet));
+                    entities.add(mapRow(resultSet, columns));
                 }
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to execute query: " + e.getMessage(), e, e.getSQLState(), "QUERY");
+        } finally {
+            timer.stop();
         }
         
         return entities;
@@ -326,7 +583,8 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
      * @throws DatabaseException if query fails
      */
     protected Optional<T> executeQueryForSingleResult(String sql, Object... parameters) throws DatabaseException {
-        try (Connection connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("QUERY_SINGLE", sql);
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             for (int i = 0; i < parameters.length; i++) {
@@ -335,16 +593,57 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
             
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
-                    return Optional.of(mapResultSetToEntity(resultSet));
+                    return Optional.of(mapRow(resultSet, resolveColumns(sql, resultSet)));
                 }
                 return Optional.empty();
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to execute query for single result: " + e.getMessage(), e, e.getSQLState(), "QUERY_SINGLE");
+        } finally {
+            timer.stop();
         }
     }
     
+    /**
+     * Select only a projection's columns from this DAO's table and map them into value objects
+     * Use for list screens and reports that do not need the full entity
+     * @param projection The columns to select and how to map them
+     * @param clause Optional WHERE / ORDER BY / LIMIT clause, or an empty string
+     * @param parameters The clause parameters
+     * @return The projected rows
+     * @throws DatabaseException if the query fails
+     */
+    protected <P> List<P> findProjected(Projection<P> projection, String clause, Object... parameters) throws DatabaseException {
+        String sql = "SELECT " + projection.getSelectList() + " FROM " + tableName +
+                     (clause == null || clause.isEmpty() ? "" : " " + clause);
+        List<P> rows = new ArrayList<>();
+        
+        QueryTimer timer = startTimer("PROJECTION", sql);
+        try (Connection connection = getReadConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(projection.map(resultSet));
+                }
+            }
+            
+        } catch (SQLException e) {
+            timer.failed();
+            throw new DatabaseException("Failed to execute projection query: " + e.getMessage(), e, e.getSQLState(), "PROJECTION");
+        } finally {
+            timer.stop();
+        }
+        
+        return rows;
+    }
+    
     /**
      * Execute an update/delete query
      * @param sql The SQL statement
@@ -353,17 +652,45 @@ public abstract class AbstractDAO<T, ID> implements BaseDAO<T, ID> {
      * @throws DatabaseException if execution fails
      */
     protected int executeUpdate(String sql, Object... parameters) throws DatabaseException {
-        try (Connection connection = connectionPool.getConnection();
+        return inWriteTransaction(() -> doExecuteUpdate(null, sql, parameters));
+    }
+    
+    /**
+     * Execute an update that touches a single known entity
+     * Only that entity is evicted from the cache instead of the whole cache
+     * @param id The ID of the entity the statement changes
+     * @param sql The SQL statement
+     * @param parameters The statement parameters
+     * @return Number of affected rows
+     * @throws DatabaseException if execution fails
+     */
+    protected int executeUpdateById(ID id, String sql, Object... parameters) throws DatabaseException {
+        return inWriteTransaction(() -> doExecuteUpdate(id, sql, parameters));
+    }
+    
+    private int doExecuteUpdate(ID id, String sql, Object... parameters) throws DatabaseException {
+        QueryTimer timer = startTimer("UPDATE_QUERY", sql);
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             for (int i = 0; i < parameters.length; i++) {
                 statement.setObject(i + 1, parameters[i]);
             }
             
-            return statement.executeUpdate();
+            int affectedRows = statement.executeUpdate();
+            recordWrite();
+            if (id != null) {
+                invalidateCached(id);
+            } else {
+                invalidateAllCached();
+            }
+            return affectedRows;
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to execute update: " + e.getMessage(), e, e.getSQLState(), "UPDATE_QUERY");
+        } finally {
+            timer.stop();
         }
     }
 }
\ No newline at end of file
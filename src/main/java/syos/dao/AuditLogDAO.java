@@ -1,12 +1,19 @@
 package syos.dao;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.mapping.Columns;
+import syos.dao.mapping.Projection;
+import syos.dao.metrics.QueryTimer;
+import syos.dao.projection.AuditLogSummary;
 import syos.models.AuditLog;
 
 /**
@@ -14,6 +21,12 @@ import syos.models.AuditLog;
  */
 public class AuditLogDAO extends AbstractDAO<AuditLog, Integer> {
     
+    private static final Projection<AuditLogSummary> SUMMARY = Projection.of(
+        (resultSet, columns) -> new AuditLogSummary(resultSet.getInt(columns[0]), resultSet.getString(columns[1]),
+                                                    resultSet.getString(columns[2]), Columns.getInteger(resultSet, columns[3]),
+                                                    Columns.getInteger(resultSet, columns[4]), Columns.getLocalDateTime(resultSet, columns[5])),
+        "id", "table_name", "operation", "record_id", "user_id", "timestamp");
+    
     public AuditLogDAO(ConnectionPool connectionPool) {
         super(connectionPool, "audit_logs");
     }
@@ -111,4 +124,95 @@ public class AuditLogDAO extends AbstractDAO<AuditLog, Integer> {
         String sql = getSelectAllSQL() + " WHERE table_name = ? AND record_id = ? ORDER BY timestamp DESC";
         return executeQuery(sql, tableName, recordId);
     }
+    
+    /**
+     * Find audit logs by table name within a time range
+     * Bounding the timestamp lets MySQL prune the query to the month partitions it covers
+     * @param tableName The audited table
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     */
+    public List<AuditLog> findByTableName(String tableName, LocalDateTime from, LocalDateTime to) throws DatabaseException {
+        String sql = getSelectAllSQL() + " WHERE table_name = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp DESC";
+        return executeQuery(sql, tableName, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+    
+    /**
+     * Find audit logs by user ID within a time range
+     * @param userId The acting user
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     */
+    public List<AuditLog> findByUserId(Integer userId, LocalDateTime from, LocalDateTime to) throws DatabaseException {
+        String sql = getSelectAllSQL() + " WHERE user_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp DESC";
+        return executeQuery(sql, userId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+    
+    /**
+     * Find audit logs for a specific record within a time range
+     * @param tableName The audited table
+     * @param recordId The audited record
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     */
+    public List<AuditLog> findByRecord(String tableName, String recordId, LocalDateTime from, LocalDateTime to) throws DatabaseException {
+        String sql = getSelectAllSQL() + " WHERE table_name = ? AND record_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp DESC";
+        return executeQuery(sql, tableName, recordId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+    
+    /**
+     * List audit entries for a table within a time range without their old/new value payloads
+     * @param tableName The audited table
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     */
+    public List<AuditLogSummary> findSummariesByTableName(String tableName, LocalDateTime from, LocalDateTime to) throws DatabaseException {
+        return findProjected(SUMMARY, "WHERE table_name = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp DESC",
+                             tableName, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+    
+    /**
+     * Insert several audit logs with a single multi-row INSERT
+     * Rows keep the timestamp recorded on the event rather than the insert time
+     * @param auditLogs The audit logs to insert
+     * @return Number of rows inserted
+     * @throws DatabaseException if the insert fails
+     */
+    public int createBatch(List<AuditLog> auditLogs) throws DatabaseException {
+        if (auditLogs == null || auditLogs.isEmpty()) {
+            return 0;
+        }
+        
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO audit_logs (table_name, operation, record_id, old_values, new_values, user_id, ip_address, user_agent, timestamp) VALUES ");
+        for (int i = 0; i < auditLogs.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        
+        QueryTimer timer = startTimer("CREATE_BATCH", sql.toString());
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            
+            int index = 1;
+            for (AuditLog auditLog : auditLogs) {
+                LocalDateTime timestamp = auditLog.getTimestamp() != null ? auditLog.getTimestamp() : LocalDateTime.now();
+                statement.setString(index++, auditLog.getTableName());
+                statement.setString(index++, auditLog.getOperation());
+                statement.setObject(index++, auditLog.getRecordId());
+                statement.setString(index++, auditLog.getOldValues());
+                statement.setString(index++, auditLog.getNewValues());
+                statement.setObject(index++, auditLog.getUserId());
+                statement.setString(index++, auditLog.getIpAddress());
+                statement.setString(index++, auditLog.getUserAgent());
+                statement.setTimestamp(index++, Timestamp.valueOf(timestamp));
+            }
+            return statement.executeUpdate();
+            
+        } catch (SQLException e) {
+            timer.failed();
+            throw new DatabaseException("Failed to insert audit log batch: " + e.getMessage(), e, e.getSQLState(), "CREATE_BATCH");
+        } finally {
+            timer.stop();
+        }
+    }
 }
\ No newline at end of file
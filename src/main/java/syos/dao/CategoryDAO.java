@@ -83,4 +83,9 @@ public class CategoryDAO extends AbstractDAO<Category, Integer> {
     protected void setEntityId(Category category, Integer id) {
         category.setId(id);
     }
+    
+    @Override
+    protected Category copyEntity(Category category) {
+        return new Category(category);
+    }
 }
\ No newline at end of file
@@ -3,16 +3,45 @@ package syos.dao;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Optional;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.cache.EntityCache;
+import syos.dao.cache.EntityCacheRegistry;
+import syos.dao.mapping.Columns;
+import syos.dao.mapping.CompiledRowMapper;
 import syos.models.Customer;
 
 /**
- * DAO implementation for Customer entity (stub)
+ * DAO implementation for Customer entity
+ * Customers are identified at the till by phone number; phone and email are unique and indexed
  */
 public class CustomerDAO extends AbstractDAO<Customer, Integer> {
     
+    /** Customer registry DDL; phone_number and email lookups are served by their unique indexes */
+    public static final String CREATE_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS customers (" +
+        "id INT AUTO_INCREMENT PRIMARY KEY," +
+        "customer_code VARCHAR(20) NOT NULL," +
+        "first_name VARCHAR(50) NOT NULL," +
+        "last_name VARCHAR(50) NOT NULL DEFAULT ''," +
+        "email VARCHAR(100) NULL," +
+        "phone_number VARCHAR(20) NULL," +
+        "is_active BOOLEAN DEFAULT TRUE," +
+        "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+        "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP," +
+        "UNIQUE KEY uk_customers_code (customer_code)," +
+        "UNIQUE KEY uk_customers_phone (phone_number)," +
+        "UNIQUE KEY uk_customers_email (email)" +
+        ")";
+    
+    private static final CompiledRowMapper<Customer> ROW_MAPPER = CompiledRowMapper.of(CustomerDAO::readRow,
+        "id", "customer_code", "first_name", "last_name", "email", "phone_number");
+    
+    /** Phone number lookups, including unknown numbers, configured as dao.cache.CustomerDAO.byPhone.* */
+    private final EntityCache<String, Customer> phoneCache = EntityCacheRegistry.getInstance().cacheFor("CustomerDAO.byPhone");
+    
     public CustomerDAO(ConnectionPool connectionPool) {
         super(connectionPool, "customers");
     }
@@ -63,14 +92,117 @@ public class CustomerDAO extends AbstractDAO<Customer, Integer> {
     
     @Override
     protected Customer mapResultSetToEntity(ResultSet resultSet) throws SQLException {
-        Customer customer = new Customer();
-        customer.setId(resultSet.getInt("id"));
-        customer.setCustomerCode(resultSet.getString("customer_code"));
-        customer.setFirstName(resultSet.getString("first_name"));
-        customer.setLastName(resultSet.getString("last_name"));
-        customer.setEmail(resultSet.getString("email"));
-        customer.setPhoneNumber(resultSet.getString("phone_number"));
-        return customer;
+        return ROW_MAPPER.map(resultSet);
+    }
+    
+    @Override
+    protected CompiledRowMapper<Customer> getRowMapper() {
+        return ROW_MAPPER;
+    }
+    
+    /**
+     * Rows backfilled from sales history may carry names and numbers the model's setters reject,
+     * so rows are mapped through the unvalidated constructor
+     */
+    private static Customer readRow(ResultSet resultSet, int[] columns) throws SQLException {
+        return new Customer(Columns.getInteger(resultSet, columns[0]), Columns.getString(resultSet, columns[1]),
+                            Columns.getString(resultSet, columns[2]), Columns.getString(resultSet, columns[3]),
+                            Columns.getString(resultSet, columns[4]), Columns.getString(resultSet, columns[5]),
+                            null, null, null, null, null, null, true, null, null);
+    }
+    
+    @Override
+    protected void invalidateCached(Integer id) throws SQLException {
+        super.invalidateCached(id);
+        invalidatePhoneCache();
+    }
+    
+    @Override
+    protected void invalidateAllCached() throws SQLException {
+        super.invalidateAllCached();
+        invalidatePhoneCache();
+    }
+    
+    /**
+     * The old phone number of a changed customer is not known here, so all phone lookups are dropped
+     */
+    private void invalidatePhoneCache() {
+        if (phoneCache == null) {
+            return;
+        }
+        phoneCache.invalidateAll();
+        UnitOfWork unitOfWork = UnitOfWork.current(connectionPool);
+        if (unitOfWork != null) {
+            unitOfWork.afterCommit(phoneCache::invalidateAll);
+        }
+    }
+    
+    /**
+     * Drop one phone number from the lookup cache, e.g. after checkout registered it on its own connection
+     * @param phoneNumber The phone number
+     */
+    public void invalidatePhone(String phoneNumber) {
+        String phone = normalizePhone(phoneNumber);
+        if (phoneCache != null && phone != null) {
+            phoneCache.invalidate(phone);
+        }
+    }
+    
+    /**
+     * Find a customer by phone number through the in-memory phone cache
+     * @param phoneNumber The phone number as entered at the till
+     * @return Optional containing the customer if registered
+     * @throws DatabaseException if query fails
+     */
+    public Optional<Customer> findByPhoneNumber(String phoneNumber) throws DatabaseException {
+        String phone = normalizePhone(phoneNumber);
+        if (phone == null) {
+            return Optional.empty();
+        }
+        
+        String sql = getSelectAllSQL() + " WHERE phone_number = ?";
+        if (phoneCache != null && UnitOfWork.current(connectionPool) == null) {
+            return findCached(phoneCache, phone, p -> executeQueryForSingleResult(sql, p).orElse(null));
+        }
+        return executeQueryForSingleResult(sql, phone);
+    }
+    
+    /**
+     * Find a customer by email address
+     * @param email The email address
+     * @return Optional containing the customer if registered
+     * @throws DatabaseException if query fails
+     */
+    public Optional<Customer> findByEmail(String email) throws DatabaseException {
+        if (email == null || email.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        return executeQueryForSingleResult(getSelectAllSQL() + " WHERE email = ?", email.trim());
+    }
+    
+    /**
+     * Normalize a phone number the way it is stored: no spaces, dashes, dots or brackets,
+     * so 077-123 4567 and 0771234567 are the same customer
+     * @return The normalized number, or null if blank
+     */
+    public static String normalizePhone(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        String phone = phoneNumber.replaceAll("[\\s\\-().]", "");
+        return phone.isEmpty() ? null : phone;
+    }
+    
+    /**
+     * Derive the customer code for a phone number, e.g. CUST-0771234567
+     * Unique because phone numbers are; numbers over 15 characters keep their last 15
+     */
+    public static String customerCodeFor(String phoneNumber) {
+        String phone = normalizePhone(phoneNumber);
+        if (phone == null) {
+            throw new IllegalArgumentException("Phone number cannot be null or empty");
+        }
+        return "CUST-" + (phone.length() > 15 ? phone.substring(phone.length() - 15) : phone);
     }
     
     @Override
@@ -82,4 +214,9 @@ public class CustomerDAO extends AbstractDAO<Customer, Integer> {
     protected void setEntityId(Customer customer, Integer id) {
         customer.setId(id);
     }
+    
+    @Override
+    protected Customer copyEntity(Customer customer) {
+        return new Customer(customer);
+    }
 }
\ No newline at end of file
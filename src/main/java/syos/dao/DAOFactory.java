@@ -2,6 +2,9 @@ package syos.dao;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.audit.AsyncAuditWriter;
+import syos.dao.audit.AuditPartitionManager;
+
 /**
  * Factory class for creating and managing DAO instances
  * Implements Singleton pattern and provides centralized DAO management
@@ -23,6 +26,9 @@ public class DAOFactory {
     private TransactionDAO transactionDAO;
     private InventoryDAO inventoryDAO;
     private AuditLogDAO auditLogDAO;
+    private AsyncAuditWriter auditWriter;
+    private AuditPartitionManager auditPartitionManager;
+    private TransactionTemplate transactionTemplate;
     
     private DAOFactory(ConnectionPool connectionPool) {
         this.connectionPool = connectionPool;
@@ -148,10 +154,54 @@ public class DAOFactory {
         return auditLogDAO;
     }
     
+    /**
+     * Get a transaction template whose scope is shared by every DAO from this factory
+     * @return TransactionTemplate instance
+     */
+    public TransactionTemplate getTransactionTemplate() {
+        if (transactionTemplate == null) {
+            transactionTemplate = new TransactionTemplate(connectionPool);
+        }
+        return transactionTemplate;
+    }
+    
+    /**
+     * Get the shared asynchronous audit writer, started on first use
+     * @return AsyncAuditWriter instance
+     */
+    public synchronized AsyncAuditWriter getAuditWriter() {
+        if (auditWriter == null) {
+            auditWriter = new AsyncAuditWriter(getAuditLogDAO());
+            auditWriter.start();
+        }
+        return auditWriter;
+    }
+    
+    /**
+     * Get the audit partition manager; its DDL runs only when called explicitly
+     * @return AuditPartitionManager instance
+     */
+    public synchronized AuditPartitionManager getAuditPartitionManager() {
+        if (auditPartitionManager == null) {
+            auditPartitionManager = new AuditPartitionManager(connectionPool);
+        }
+        return auditPartitionManager;
+    }
+    
     /**
      * Close all DAO resources (if needed in the future)
      */
     public void close() {
+        // Flush queued audit events before the DAOs go away
+        if (auditWriter != null) {
+            auditWriter.close();
+            auditWriter = null;
+        }
+        if (auditPartitionManager != null) {
+            auditPartitionManager.close();
+            auditPartitionManager = null;
+        }
+        
         // Reset all DAO instances
         userDAO = null;
         roleDAO = null;
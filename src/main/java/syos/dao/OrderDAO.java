@@ -1,16 +1,25 @@
 package syos.dao;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.analytics.SalesWindows;
+import syos.analytics.WindowedAggregate;
+import syos.dao.mapping.Columns;
+import syos.dao.mapping.CompiledRowMapper;
+import syos.dao.mapping.Projection;
+import syos.dao.metrics.QueryTimer;
+import syos.dao.projection.OrderSummary;
 import syos.models.Order;
 import syos.models.OrderItem;
 
@@ -19,13 +28,34 @@ import syos.models.OrderItem;
  */
 public class OrderDAO extends AbstractDAO<Order, Integer> {
     
+    private static final CompiledRowMapper<Order> ROW_MAPPER = CompiledRowMapper.of(OrderDAO::readRow,
+        "id", "order_number", "customer_id", "status", "subtotal", "tax_amount",
+        "discount_amount", "total_amount", "user_id", "notes", "order_date",
+        "created_at", "updated_at");
+    
+    private static final Projection<OrderSummary> SUMMARY = Projection.of(
+        (resultSet, columns) -> new OrderSummary(resultSet.getInt(columns[0]), resultSet.getString(columns[1]),
+                                                 resultSet.getString(columns[2]), resultSet.getLong(columns[3]),
+                                                 Columns.getLocalDateTime(resultSet, columns[4])),
+        "id", "order_number", "status", "ROUND(total_amount * 100)", "order_date");
+    
     private final OrderItemDAO orderItemDAO;
+    private volatile SalesWindows salesWindows;
     
     public OrderDAO(ConnectionPool connectionPool) {
         super(connectionPool, "orders");
         this.orderItemDAO = new OrderItemDAO(connectionPool);
     }
     
+    /**
+     * Keep in-memory order windows current with this DAO's writes and answer recent date ranges from them
+     * Writes reach the windows after they commit; without windows every statistic is queried
+     * @param salesWindows The windows, or null to detach them
+     */
+    public void setSalesWindows(SalesWindows salesWindows) {
+        this.salesWindows = salesWindows;
+    }
+    
     @Override
     protected String getInsertSQL() {
         return "INSERT INTO orders (order_number, customer_id, status, subtotal, " +
@@ -58,6 +88,63 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
         return "DELETE FROM orders WHERE id = ?";
     }
     
+    @Override
+    public Order create(Order order) throws DatabaseException {
+        Order created = super.create(order);
+        long orderDateMillis = toMillis(order.getOrderDate() != null ? order.getOrderDate() : LocalDateTime.now());
+        long totalCents = order.getTotalAmount() != null
+                          ? order.getTotalAmount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact()
+                          : 0;
+        Order.OrderStatus status = order.getStatus();
+        SalesWindows windows = salesWindows;
+        if (windows != null) {
+            afterCommit(() -> windows.onOrderCreated(orderDateMillis, totalCents, status));
+        }
+        return created;
+    }
+    
+    @Override
+    public Order update(Order order) throws DatabaseException {
+        Order updated = super.update(order);
+        ordersChanged();
+        return updated;
+    }
+    
+    @Override
+    public boolean deleteById(Integer id) throws DatabaseException {
+        boolean deleted = super.deleteById(id);
+        if (deleted) {
+            ordersChanged();
+        }
+        return deleted;
+    }
+    
+    /**
+     * Tell the windows, once the write commits, that an existing order changed and cannot be patched in place
+     */
+    private void ordersChanged() {
+        SalesWindows windows = salesWindows;
+        if (windows != null) {
+            afterCommit(windows::onOrdersChanged);
+        }
+    }
+    
+    /**
+     * Run an action once the current transaction commits, or now if there is none
+     */
+    private void afterCommit(Runnable action) {
+        UnitOfWork unitOfWork = UnitOfWork.current(connectionPool);
+        if (unitOfWork != null) {
+            unitOfWork.afterCommit(action);
+        } else {
+            action.run();
+        }
+    }
+    
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
     @Override
     protected void setInsertParameters(PreparedStatement statement, Order order) throws SQLException {
         statement.setString(1, order.getOrderNumber());
@@ -100,43 +187,34 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
     
     @Override
     protected Order mapResultSetToEntity(ResultSet resultSet) throws SQLException {
+        return ROW_MAPPER.map(resultSet);
+    }
+    
+    @Override
+    protected CompiledRowMapper<Order> getRowMapper() {
+        return ROW_MAPPER;
+    }
+    
+    private static Order readRow(ResultSet resultSet, int[] columns) throws SQLException {
         Order order = new Order();
-        order.setId(resultSet.getInt("id"));
-        order.setOrderNumber(resultSet.getString("order_number"));
-        
-        Integer customerId = resultSet.getObject("customer_id", Integer.class);
-        order.setCustomerId(customerId);
-        
-        String statusStr = resultSet.getString("status");
-        if (statusStr != null) {
-            order.setStatus(Order.OrderStatus.valueOf(statusStr));
-        }
-        
-        order.setSubtotal(resultSet.getBigDecimal("subtotal"));
-        order.setTaxAmount(resultSet.getBigDecimal("tax_amount"));
-        order.setDiscountAmount(resultSet.getBigDecimal("discount_amount"));
-        order.setTotalAmount(resultSet.getBigDecimal("total_amount"));
-        
-        Integer userId = resultSet.getObject("user_id", Integer.class);
-        order.setUserId(userId);
-        
-        order.setNotes(resultSet.getString("notes"));
-        
-        Timestamp orderDate = resultSet.getTimestamp("order_date");
-        if (orderDate != null) {
-            order.setOrderDate(orderDate.toLocalDateTime());
-        }
+        order.setId(Columns.getInt(resultSet, columns[0]));
+        order.setOrderNumber(Columns.getString(resultSet, columns[1]));
+        order.setCustomerId(Columns.getInteger(resultSet, columns[2]));
         
-        Timestamp createdAt = resultSet.getTimestamp("created_at");
-        if (createdAt != null) {
-            order.setCreatedAt(createdAt.toLocalDateTime());
-        }
-        
-        Timestamp updatedAt = resultSet.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            order.setUpdatedAt(updatedAt.toLocalDateTime());
+        String status = Columns.getString(resultSet, columns[3]);
+        if (status != null) {
+            order.setStatus(Order.OrderStatus.valueOf(status));
         }
         
+        order.setSubtotal(Columns.getBigDecimal(resultSet, columns[4]));
+        order.setTaxAmount(Columns.getBigDecimal(resultSet, columns[5]));
+        order.setDiscountAmount(Columns.getBigDecimal(resultSet, columns[6]));
+        order.setTotalAmount(Columns.getBigDecimal(resultSet, columns[7]));
+        order.setUserId(Columns.getInteger(resultSet, columns[8]));
+        order.setNotes(Columns.getString(resultSet, columns[9]));
+        order.setOrderDate(Columns.getLocalDateTime(resultSet, columns[10]));
+        order.setCreatedAt(Columns.getLocalDateTime(resultSet, columns[11]));
+        order.setUpdatedAt(Columns.getLocalDateTime(resultSet, columns[12]));
         return order;
     }
     
@@ -279,6 +357,21 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
         }
     }
     
+    /**
+     * Find number, status, total and date of the orders in a date range, newest first
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Lightweight order summaries
+     * @throws DatabaseException if query fails
+     */
+    public List<OrderSummary> findOrderSummaries(LocalDateTime startDate, LocalDateTime endDate) throws DatabaseException {
+        if (startDate == null || endDate == null) {
+            throw new DatabaseException("Both dates are required for an order summary", "INVALID_DATE_RANGE", "PROJECTION");
+        }
+        return findProjected(SUMMARY, "WHERE order_date BETWEEN ? AND ? ORDER BY order_date DESC",
+                             Timestamp.valueOf(startDate), Timestamp.valueOf(endDate));
+    }
+    
     /**
      * Find orders within total amount range
      * @param minAmount Minimum total amount (inclusive)
@@ -317,7 +410,8 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
         
         String sql = "SELECT COUNT(*) FROM orders WHERE order_number = ?";
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("CHECK_ORDER_NUMBER", sql);
+        try (var connection = getConnection();
              var statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, orderNumber.trim().toUpperCase());
@@ -327,7 +421,10 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to check order number existence: " + e.getMessage(), e, e.getSQLState(), "CHECK_ORDER_NUMBER");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -344,23 +441,35 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
         }
         
         String sql = "UPDATE orders SET status = ?, updated_at = NOW() WHERE id = ?";
-        return executeUpdate(sql, newStatus.name(), orderId) > 0;
+        boolean updated = executeUpdate(sql, newStatus.name(), orderId) > 0;
+        if (updated) {
+            ordersChanged();
+        }
+        return updated;
     }
     
     /**
      * Calculate total sales amount for a date range
      * @param startDate Start date (inclusive)
      * @param endDate End date (inclusive)
-     * @return Total sales amount
+     * @return Total sales amount; resolved to the minute when answered from the in-memory order windows
      * @throws DatabaseException if query fails
      */
     public BigDecimal calculateTotalSales(LocalDateTime startDate, LocalDateTime endDate) throws DatabaseException {
+        WindowedAggregate.Stats recent = endDate != null ? recentOrders(startDate, endDate, true) : null;
+        if (recent != null) {
+            return BigDecimal.valueOf(recent.getSumCents(), 2);
+        }
+        
         StringBuilder sql = new StringBuilder("SELECT COALESCE(SUM(total_amount), 0) FROM orders WHERE status IN ('DELIVERED', 'CONFIRMED')");
         
         if (startDate != null && endDate != null) {
             sql.append(" AND order_date BETWEEN ? AND ?");
-            
-            try (var connection = connectionPool.getConnection();
+        }
+        
+        QueryTimer timer = startTimer("CALCULATE_SALES", sql.toString());
+        if (startDate != null && endDate != null) {
+            try (var connection = getReadConnection();
                  var statement = connection.prepareStatement(sql.toString())) {
                 
                 statement.setTimestamp(1, Timestamp.valueOf(startDate));
@@ -371,17 +480,23 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
                 }
                 
             } catch (SQLException e) {
+                timer.failed();
                 throw new DatabaseException("Failed to calculate total sales: " + e.getMessage(), e, e.getSQLState(), "CALCULATE_SALES");
+            } finally {
+                timer.stop();
             }
         } else {
-            try (var connection = connectionPool.getConnection();
+            try (var connection = getReadConnection();
                  var statement = connection.prepareStatement(sql.toString());
                  var resultSet = statement.executeQuery()) {
                 
                 return resultSet.next() ? resultSet.getBigDecimal(1) : BigDecimal.ZERO;
                 
             } catch (SQLException e) {
+                timer.failed();
                 throw new DatabaseException("Failed to calculate total sales: " + e.getMessage(), e, e.getSQLState(), "CALCULATE_SALES");
+            } finally {
+                timer.stop();
             }
         }
     }
@@ -390,10 +505,20 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
      * Get order statistics for a date range
      * @param startDate Start date (inclusive)
      * @param endDate End date (inclusive)
-     * @return Array containing [totalOrders, totalSales, averageOrderValue]
+     * @return Array containing [totalOrders, totalSales, averageOrderValue]; resolved to the minute
+     *         when answered from the in-memory order windows
      * @throws DatabaseException if query fails
      */
     public Object[] getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) throws DatabaseException {
+        WindowedAggregate.Stats recent = recentOrders(startDate, endDate, false);
+        if (recent != null) {
+            return new Object[] {
+                recent.getCount(),
+                BigDecimal.valueOf(recent.getSumCents(), 2),
+                BigDecimal.valueOf(recent.getAverageCents(), 2)
+            };
+        }
+        
         StringBuilder sql = new StringBuilder("SELECT COUNT(*), COALESCE(SUM(total_amount), 0), COALESCE(AVG(total_amount), 0) FROM orders WHERE 1=1");
         
         if (startDate != null) {
@@ -403,7 +528,8 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
             sql.append(" AND order_date <= ?");
         }
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("ORDER_STATISTICS", sql.toString());
+        try (var connection = getReadConnection();
              var statement = connection.prepareStatement(sql.toString())) {
             
             int paramIndex = 1;
@@ -426,7 +552,25 @@ public class OrderDAO extends AbstractDAO<Order, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to get order statistics: " + e.getMessage(), e, e.getSQLState(), "ORDER_STATISTICS");
+        } finally {
+            timer.stop();
+        }
+    }
+    
+    /**
+     * Answer a range from the in-memory order windows when it lies within the last seven days;
+     * inside a transaction the query runs instead, so it sees the transaction's own orders
+     * @return The totals, or null if the range needs a query
+     */
+    private WindowedAggregate.Stats recentOrders(LocalDateTime startDate, LocalDateTime endDate, boolean confirmedOnly) {
+        SalesWindows windows = salesWindows;
+        if (startDate == null || windows == null || !windows.isOrdersReady() || !windows.covers(toMillis(startDate))
+                || UnitOfWork.current(connectionPool) != null) {
+            return null;
         }
+        long to = endDate != null ? toMillis(endDate) : System.currentTimeMillis();
+        return windows.orders(toMillis(startDate), to, confirmedOnly);
     }
 }
\ No newline at end of file
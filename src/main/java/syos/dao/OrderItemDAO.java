@@ -4,11 +4,13 @@ import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.util.List;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.mapping.Columns;
+import syos.dao.mapping.CompiledRowMapper;
+import syos.dao.metrics.QueryTimer;
 import syos.models.OrderItem;
 
 /**
@@ -16,6 +18,10 @@ import syos.models.OrderItem;
  */
 public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
     
+    private static final CompiledRowMapper<OrderItem> ROW_MAPPER = CompiledRowMapper.of(OrderItemDAO::readRow,
+        "id", "order_id", "product_id", "batch_id", "quantity", "unit_price",
+        "subtotal", "tax_rate", "tax_amount", "discount_amount", "created_at", "updated_at");
+    
     public OrderItemDAO(ConnectionPool connectionPool) {
         super(connectionPool, "order_items");
     }
@@ -81,35 +87,28 @@ public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
     
     @Override
     protected OrderItem mapResultSetToEntity(ResultSet resultSet) throws SQLException {
+        return ROW_MAPPER.map(resultSet);
+    }
+    
+    @Override
+    protected CompiledRowMapper<OrderItem> getRowMapper() {
+        return ROW_MAPPER;
+    }
+    
+    private static OrderItem readRow(ResultSet resultSet, int[] columns) throws SQLException {
         OrderItem orderItem = new OrderItem();
-        orderItem.setId(resultSet.getInt("id"));
-        
-        Integer orderId = resultSet.getObject("order_id", Integer.class);
-        orderItem.setOrderId(orderId);
-        
-        Integer productId = resultSet.getObject("product_id", Integer.class);
-        orderItem.setProductId(productId);
-        
-        Integer batchId = resultSet.getObject("batch_id", Integer.class);
-        orderItem.setBatchId(batchId);
-        
-        orderItem.setQuantity(resultSet.getInt("quantity"));
-        orderItem.setUnitPrice(resultSet.getBigDecimal("unit_price"));
-        orderItem.setSubtotal(resultSet.getBigDecimal("subtotal"));
-        orderItem.setTaxRate(resultSet.getBigDecimal("tax_rate"));
-        orderItem.setTaxAmount(resultSet.getBigDecimal("tax_amount"));
-        orderItem.setDiscountAmount(resultSet.getBigDecimal("discount_amount"));
-        
-        Timestamp createdAt = resultSet.getTimestamp("created_at");
-        if (createdAt != null) {
-            orderItem.setCreatedAt(createdAt.toLocalDateTime());
-        }
-        
-        Timestamp updatedAt = resultSet.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            orderItem.setUpdatedAt(updatedAt.toLocalDateTime());
-        }
-        
+        orderItem.setId(Columns.getInt(resultSet, columns[0]));
+        orderItem.setOrderId(Columns.getInteger(resultSet, columns[1]));
+        orderItem.setProductId(Columns.getInteger(resultSet, columns[2]));
+        orderItem.setBatchId(Columns.getInteger(resultSet, columns[3]));
+        orderItem.setQuantity(Columns.getInt(resultSet, columns[4]));
+        orderItem.setUnitPrice(Columns.getBigDecimal(resultSet, columns[5]));
+        orderItem.setSubtotal(Columns.getBigDecimal(resultSet, columns[6]));
+        orderItem.setTaxRate(Columns.getBigDecimal(resultSet, columns[7]));
+        orderItem.setTaxAmount(Columns.getBigDecimal(resultSet, columns[8]));
+        orderItem.setDiscountAmount(Columns.getBigDecimal(resultSet, columns[9]));
+        orderItem.setCreatedAt(Columns.getLocalDateTime(resultSet, columns[10]));
+        orderItem.setUpdatedAt(Columns.getLocalDateTime(resultSet, columns[11]));
         return orderItem;
     }
     
@@ -200,7 +199,8 @@ public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
                     "INNER JOIN orders o ON oi.order_id = o.id " +
                     "WHERE oi.product_id = ? AND o.status IN ('DELIVERED', 'CONFIRMED')";
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("TOTAL_QUANTITY_SOLD", sql);
+        try (var connection = getReadConnection();
              var statement = connection.prepareStatement(sql)) {
             
             statement.setInt(1, productId);
@@ -210,7 +210,10 @@ public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to get total quantity sold: " + e.getMessage(), e, e.getSQLState(), "TOTAL_QUANTITY_SOLD");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -229,7 +232,8 @@ public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
                     "INNER JOIN orders o ON oi.order_id = o.id " +
                     "WHERE oi.product_id = ? AND o.status IN ('DELIVERED', 'CONFIRMED')";
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("TOTAL_REVENUE", sql);
+        try (var connection = getReadConnection();
              var statement = connection.prepareStatement(sql)) {
             
             statement.setInt(1, productId);
@@ -239,7 +243,10 @@ public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to get total revenue: " + e.getMessage(), e, e.getSQLState(), "TOTAL_REVENUE");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -263,7 +270,8 @@ public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
                     "ORDER BY total_quantity DESC " +
                     "LIMIT ?";
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("TOP_SELLING_PRODUCTS", sql);
+        try (var connection = getReadConnection();
              var statement = connection.prepareStatement(sql)) {
             
             statement.setInt(1, limit);
@@ -281,7 +289,10 @@ public class OrderItemDAO extends AbstractDAO<OrderItem, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to get top selling products: " + e.getMessage(), e, e.getSQLState(), "TOP_SELLING_PRODUCTS");
+        } finally {
+            timer.stop();
         }
     }
 }
\ No newline at end of file
@@ -4,12 +4,18 @@ import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.cache.EntityCache;
+import syos.dao.cache.EntityCacheRegistry;
+import syos.dao.mapping.Columns;
+import syos.dao.mapping.CompiledRowMapper;
+import syos.dao.mapping.Projection;
+import syos.dao.metrics.QueryTimer;
+import syos.dao.projection.ProductSummary;
 import syos.models.Product;
 
 /**
@@ -17,6 +23,20 @@ import syos.models.Product;
  */
 public class ProductDAO extends AbstractDAO<Product, Integer> {
     
+    /** Reads rows by index; the column order here is the index order used by the reader */
+    private static final CompiledRowMapper<Product> ROW_MAPPER = CompiledRowMapper.of(ProductDAO::readRow,
+        "id", "product_code", "product_name", "description", "category_id", "brand",
+        "manufacturer", "unit_price", "reorder_level", "barcode", "unit_of_measure",
+        "is_active", "is_taxable", "tax_rate", "created_at", "updated_at");
+    
+    private static final Projection<ProductSummary> SUMMARY = Projection.of(
+        (resultSet, columns) -> new ProductSummary(resultSet.getInt(columns[0]), resultSet.getString(columns[1]),
+                                                   resultSet.getString(columns[2]), resultSet.getLong(columns[3])),
+        "id", "product_code", "product_name", "ROUND(unit_price * 100)");
+    
+    /** Product code lookups, including unknown codes, configured as dao.cache.ProductDAO.byCode.* */
+    private final EntityCache<String, Product> codeCache = EntityCacheRegistry.getInstance().cacheFor("ProductDAO.byCode");
+    
     public ProductDAO(ConnectionPool connectionPool) {
         super(connectionPool, "products");
     }
@@ -91,38 +111,58 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
     
     @Override
     protected Product mapResultSetToEntity(ResultSet resultSet) throws SQLException {
-        Product product = new Product();
-        product.setId(resultSet.getInt("id"));
-        product.setProductCode(resultSet.getString("product_code"));
-        product.setProductName(resultSet.getString("product_name"));
-        product.setDescription(resultSet.getString("description"));
-        
-        Integer categoryId = resultSet.getObject("category_id", Integer.class);
-        product.setCategoryId(categoryId);
-        
-        product.setBrand(resultSet.getString("brand"));
-        product.setManufacturer(resultSet.getString("manufacturer"));
-        product.setUnitPrice(resultSet.getBigDecimal("unit_price"));
-        
-        Integer reorderLevel = resultSet.getObject("reorder_level", Integer.class);
-        product.setReorderLevel(reorderLevel);
-        
-        product.setBarcode(resultSet.getString("barcode"));
-        product.setUnitOfMeasure(resultSet.getString("unit_of_measure"));
-        product.setActive(resultSet.getBoolean("is_active"));
-        product.setTaxable(resultSet.getBoolean("is_taxable"));
-        product.setTaxRate(resultSet.getBigDecimal("tax_rate"));
-        
-        Timestamp createdAt = resultSet.getTimestamp("created_at");
-        if (createdAt != null) {
-            product.setCreatedAt(createdAt.toLocalDateTime());
+        return ROW_MAPPER.map(resultSet);
+    }
+    
+    @Override
+    protected CompiledRowMapper<Product> getRowMapper() {
+        return ROW_MAPPER;
+    }
+    
+    @Override
+    protected void invalidateCached(Integer id) throws SQLException {
+        super.invalidateCached(id);
+        invalidateCodeCache();
+    }
+    
+    @Override
+    protected void invalidateAllCached() throws SQLException {
+        super.invalidateAllCached();
+        invalidateCodeCache();
+    }
+    
+    /**
+     * The code of a changed product is not known here, so all code lookups are dropped
+     */
+    private void invalidateCodeCache() {
+        if (codeCache == null) {
+            return;
         }
-        
-        Timestamp updatedAt = resultSet.getTimestamp("updated_at");
-        if (updatedAt != null) {
-            product.setUpdatedAt(updatedAt.toLocalDateTime());
+        codeCache.invalidateAll();
+        UnitOfWork unitOfWork = UnitOfWork.current(connectionPool);
+        if (unitOfWork != null) {
+            unitOfWork.afterCommit(codeCache::invalidateAll);
         }
-        
+    }
+    
+    private static Product readRow(ResultSet resultSet, int[] columns) throws SQLException {
+        Product product = new Product();
+        product.setId(Columns.getInt(resultSet, columns[0]));
+        product.setProductCode(Columns.getString(resultSet, columns[1]));
+        product.setProductName(Columns.getString(resultSet, columns[2]));
+        product.setDescription(Columns.getString(resultSet, columns[3]));
+        product.setCategoryId(Columns.getInteger(resultSet, columns[4]));
+        product.setBrand(Columns.getString(resultSet, columns[5]));
+        product.setManufacturer(Columns.getString(resultSet, columns[6]));
+        product.setUnitPrice(Columns.getBigDecimal(resultSet, columns[7]));
+        product.setReorderLevel(Columns.getInteger(resultSet, columns[8]));
+        product.setBarcode(Columns.getString(resultSet, columns[9]));
+        product.setUnitOfMeasure(Columns.getString(resultSet, columns[10]));
+        product.setActive(Columns.getBoolean(resultSet, columns[11]));
+        product.setTaxable(Columns.getBoolean(resultSet, columns[12]));
+        product.setTaxRate(Columns.getBigDecimal(resultSet, columns[13]));
+        product.setCreatedAt(Columns.getLocalDateTime(resultSet, columns[14]));
+        product.setUpdatedAt(Columns.getLocalDateTime(resultSet, columns[15]));
         return product;
     }
     
@@ -136,6 +176,11 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
         product.setId(id);
     }
     
+    @Override
+    protected Product copyEntity(Product product) {
+        return new Product(product);
+    }
+    
     // Custom query methods
     
     /**
@@ -150,7 +195,11 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
         }
         
         String sql = getSelectAllSQL() + " WHERE product_code = ?";
-        return executeQueryForSingleResult(sql, productCode.trim().toUpperCase());
+        String code = productCode.trim().toUpperCase();
+        if (codeCache != null && UnitOfWork.current(connectionPool) == null) {
+            return findCached(codeCache, code, c -> executeQueryForSingleResult(sql, c).orElse(null));
+        }
+        return executeQueryForSingleResult(sql, code);
     }
     
     /**
@@ -193,6 +242,28 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
         return executeQuery(sql);
     }
     
+    /**
+     * Find code, name and price of all active products, ordered by name
+     * @return Lightweight summaries of active products
+     * @throws DatabaseException if query fails
+     */
+    public List<ProductSummary> findActiveProductSummaries() throws DatabaseException {
+        return findProjected(SUMMARY, "WHERE is_active = true ORDER BY product_name");
+    }
+    
+    /**
+     * Find code, name and price of the active products in a category, ordered by name
+     * @param categoryId The category ID
+     * @return Lightweight summaries of the category's active products
+     * @throws DatabaseException if query fails
+     */
+    public List<ProductSummary> findProductSummariesByCategory(Integer categoryId) throws DatabaseException {
+        if (categoryId == null) {
+            return List.of();
+        }
+        return findProjected(SUMMARY, "WHERE category_id = ? AND is_active = true ORDER BY product_name", categoryId);
+    }
+    
     /**
      * Find products that need reordering
      * @return List of products below reorder level
@@ -283,7 +354,8 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
         
         String sql = "SELECT COUNT(*) FROM products WHERE product_code = ?";
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("CHECK_PRODUCT_CODE", sql);
+        try (var connection = getConnection();
              var statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, productCode.trim().toUpperCase());
@@ -293,7 +365,10 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to check product code existence: " + e.getMessage(), e, e.getSQLState(), "CHECK_PRODUCT_CODE");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -310,7 +385,7 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
         }
         
         String sql = "UPDATE products SET unit_price = ?, updated_at = NOW() WHERE id = ?";
-        return executeUpdate(sql, newPrice, productId) > 0;
+        return executeUpdateById(productId, sql, newPrice, productId) > 0;
     }
     
     /**
@@ -325,7 +400,7 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
         }
         
         String sql = "UPDATE products SET is_active = true, updated_at = NOW() WHERE id = ?";
-        return executeUpdate(sql, productId) > 0;
+        return executeUpdateById(productId, sql, productId) > 0;
     }
     
     /**
@@ -340,6 +415,6 @@ public class ProductDAO extends AbstractDAO<Product, Integer> {
         }
         
         String sql = "UPDATE products SET is_active = false, updated_at = NOW() WHERE id = ?";
-        return executeUpdate(sql, productId) > 0;
+        return executeUpdateById(productId, sql, productId) > 0;
     }
 }
\ No newline at end of file
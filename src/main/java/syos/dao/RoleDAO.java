@@ -88,6 +88,11 @@ public class RoleDAO extends AbstractDAO<Role, Integer> {
         role.setId(id);
     }
     
+    @Override
+    protected Role copyEntity(Role role) {
+        return new Role(role);
+    }
+    
     /**
      * Find role by name
      * @param roleName The role name to search for
@@ -0,0 +1,17 @@
+package syos.dao;
+
+/**
+ * Work executed inside a {@link TransactionTemplate} scope
+ * @param <R> The result type
+ */
+@FunctionalInterface
+public interface TransactionCallback<R> {
+    
+    /**
+     * Run the work; DAOs called from here share the unit of work's connection
+     * @param unitOfWork The active unit of work
+     * @return The result handed back to the caller
+     * @throws Exception to roll the scope back
+     */
+    R doInTransaction(UnitOfWork unitOfWork) throws Exception;
+}
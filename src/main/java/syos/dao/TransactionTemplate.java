@@ -0,0 +1,177 @@
+package syos.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Runs several DAO calls as one transaction on one connection
+ *
+ *   transactionTemplate.execute(uow -> {
+ *       orderDAO.create(order);
+ *       orderItemDAO.create(item);
+ *       inventoryDAO.update(stock);
+ *       return order;
+ *   });
+ *
+ * The connection is borrowed once, bound to the calling thread, committed once on success
+ * and rolled back on any exception. A nested call on the same thread joins the outer scope;
+ * if it fails, the whole scope rolls back and the outer execute() throws even when the outer
+ * callback caught the nested failure.
+ * Work handed to other threads (e.g. the asynchronous audit writer) is not part of the scope.
+ */
+public class TransactionTemplate {
+    
+    /**
+     * Callback variant without a result
+     */
+    @FunctionalInterface
+    public interface TransactionAction {
+        void doInTransaction(UnitOfWork unitOfWork) throws Exception;
+    }
+    
+    private final ConnectionProvider connectionProvider;
+    private final int isolationLevel;
+    
+    public TransactionTemplate(ConnectionProvider connectionProvider) {
+        this(connectionProvider, -1);
+    }
+    
+    /**
+     * @param connectionProvider The provider the participating DAOs are built on
+     * @param isolationLevel A java.sql.Connection TRANSACTION_* level, or -1 for the pool default
+     */
+    public TransactionTemplate(ConnectionProvider connectionProvider, int isolationLevel) {
+        this.connectionProvider = connectionProvider;
+        this.isolationLevel = isolationLevel;
+    }
+    
+    /**
+     * Run work in a transaction without returning a result
+     * @param action The work to run
+     * @throws DatabaseException if the work or the commit fails; the transaction is rolled back
+     */
+    public void run(TransactionAction action) throws DatabaseException {
+        execute(unitOfWork -> {
+            action.doInTransaction(unitOfWork);
+            return null;
+        });
+    }
+    
+    /**
+     * Run work in a transaction and return its result
+     * @param callback The work to run
+     * @return The callback's result
+     * @throws DatabaseException if the work, a nested scope or the commit fails; the transaction is rolled back
+     */
+    public <R> R execute(TransactionCallback<R> callback) throws DatabaseException {
+        UnitOfWork existing = UnitOfWork.current(connectionProvider);
+        if (existing != null) {
+            return joinExisting(existing, callback);
+        }
+        
+        Connection connection;
+        try {
+            connection = connectionProvider.getConnection();
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to begin transaction: " + e.getMessage(), e, e.getSQLState(), "BEGIN");
+        }
+        
+        UnitOfWork unitOfWork = new UnitOfWork(connectionProvider, connection);
+        UnitOfWork previous = null;
+        boolean bound = false;
+        boolean autoCommit = true;
+        int previousIsolation = -1;
+        try {
+            autoCommit = connection.getAutoCommit();
+            if (isolationLevel >= 0) {
+                previousIsolation = connection.getTransactionIsolation();
+                connection.setTransactionIsolation(isolationLevel);
+            }
+            connection.setAutoCommit(false);
+            
+            previous = UnitOfWork.bind(unitOfWork);
+            bound = true;
+            
+            R result;
+            try {
+                result = callback.doInTransaction(unitOfWork);
+            } catch (Exception e) {
+                rollbackQuietly(connection, e);
+                throw asDatabaseException(e);
+            } catch (Error e) {
+                rollbackQuietly(connection, e);
+                throw e;
+            }
+            
+            if (unitOfWork.isRollbackOnly()) {
+                connection.rollback();
+                if (unitOfWork.isNestedScopeFailed()) {
+                    throw new DatabaseException("Transaction rolled back because a nested scope failed",
+                                                "ROLLBACK_ONLY", "COMMIT");
+                }
+                return result;
+            }
+            connection.commit();
+            
+            for (Runnable action : unitOfWork.getAfterCommitActions()) {
+                action.run();
+            }
+            return result;
+            
+        } catch (SQLException e) {
+            rollbackQuietly(connection, e);
+            throw new DatabaseException("Transaction failed: " + e.getMessage(), e, e.getSQLState(), "COMMIT");
+        } finally {
+            if (bound) {
+                UnitOfWork.restore(previous);
+            }
+            release(connection, autoCommit, previousIsolation);
+        }
+    }
+    
+    private <R> R joinExisting(UnitOfWork existing, TransactionCallback<R> callback) throws DatabaseException {
+        try {
+            return callback.doInTransaction(existing);
+        } catch (Exception e) {
+            existing.nestedScopeFailed();
+            throw asDatabaseException(e);
+        }
+    }
+    
+    private static DatabaseException asDatabaseException(Exception e) {
+        if (e instanceof DatabaseException) {
+            return (DatabaseException) e;
+        }
+        if (e instanceof SQLException) {
+            SQLException sqlException = (SQLException) e;
+            return new DatabaseException("Transaction failed: " + e.getMessage(), e, sqlException.getSQLState(), "TRANSACTION");
+        }
+        return new DatabaseException("Transaction failed: " + e.getMessage(), e, "TRANSACTION_FAILED", "TRANSACTION");
+    }
+    
+    private static void rollbackQuietly(Connection connection, Throwable cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+    
+    private static void release(Connection connection, boolean autoCommit, int previousIsolation) {
+        try {
+            if (previousIsolation >= 0) {
+                connection.setTransactionIsolation(previousIsolation);
+            }
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            // The pool resets connection state on return
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Nothing more to release
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package syos.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * A single database transaction bound to the current thread
+ * While a unit of work is active, every DAO built on the same connection provider
+ * borrows its one connection instead of going to the pool, and nothing is committed
+ * until {@link TransactionTemplate} commits or rolls back the whole scope
+ */
+public class UnitOfWork {
+    
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+    
+    private final ConnectionProvider provider;
+    private final Connection connection;
+    private final Connection boundConnection;
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+    private boolean rollbackOnly;
+    private boolean nestedScopeFailed;
+    
+    UnitOfWork(ConnectionProvider provider, Connection connection) {
+        this.provider = provider;
+        this.connection = connection;
+        this.boundConnection = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new BoundConnectionHandler(connection));
+    }
+    
+    /**
+     * Get the unit of work active on this thread for a connection provider
+     * @param provider The connection provider the DAO is built on
+     * @return The active unit of work, or null if none is bound
+     */
+    public static UnitOfWork current(ConnectionProvider provider) {
+        UnitOfWork unitOfWork = CURRENT.get();
+        return unitOfWork != null && unitOfWork.provider == provider ? unitOfWork : null;
+    }
+    
+    /**
+     * Check whether any unit of work is active on this thread
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+    
+    /**
+     * Get a connection for a DAO call: the bound one inside a unit of work, a pooled one otherwise
+     * The bound connection ignores close(), so DAOs can keep using try-with-resources
+     * @param provider The connection provider the DAO is built on
+     * @return A connection that the caller must close
+     * @throws SQLException if no connection can be obtained
+     */
+    public static Connection connectionFor(ConnectionProvider provider) throws SQLException {
+        UnitOfWork unitOfWork = current(provider);
+        return unitOfWork != null ? unitOfWork.getConnection() : provider.getConnection();
+    }
+    
+    static UnitOfWork bind(UnitOfWork unitOfWork) {
+        UnitOfWork previous = CURRENT.get();
+        CURRENT.set(unitOfWork);
+        return previous;
+    }
+    
+    static void restore(UnitOfWork previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+    
+    /**
+     * Get the transaction's connection; closing it has no effect
+     */
+    public Connection getConnection() {
+        return boundConnection;
+    }
+    
+    /**
+     * Mark the scope so it rolls back instead of committing when the callback returns
+     */
+    public void setRollbackOnly() {
+        this.rollbackOnly = true;
+    }
+    
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+    
+    /**
+     * Mark the scope rollback-only because a joined scope failed, so a caller that catches
+     * the failure and carries on cannot end up with a silent rollback
+     */
+    void nestedScopeFailed() {
+        this.rollbackOnly = true;
+        this.nestedScopeFailed = true;
+    }
+    
+    boolean isNestedScopeFailed() {
+        return nestedScopeFailed;
+    }
+    
+    /**
+     * Run an action once the scope has committed, e.g. to evict caches or publish events
+     * Actions are discarded on rollback
+     * @param action The action to run
+     */
+    public void afterCommit(Runnable action) {
+        afterCommitActions.add(action);
+    }
+    
+    Connection getPhysicalConnection() {
+        return connection;
+    }
+    
+    List<Runnable> getAfterCommitActions() {
+        return afterCommitActions;
+    }
+    
+    /**
+     * Keeps DAOs from closing or committing the shared connection
+     */
+    private static final class BoundConnectionHandler implements InvocationHandler {
+        
+        private final Connection target;
+        
+        BoundConnectionHandler(Connection target) {
+            this.target = target;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                    return null;
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        throw new SQLException("Transaction is managed by TransactionTemplate; use setRollbackOnly()");
+                    }
+                    break;
+                case "setAutoCommit":
+                    if (Boolean.TRUE.equals(args[0])) {
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
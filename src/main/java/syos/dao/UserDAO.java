@@ -9,6 +9,7 @@ import java.util.Optional;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.metrics.QueryTimer;
 import syos.models.User;
 
 /**
@@ -117,6 +118,11 @@ public class UserDAO extends AbstractDAO<User, Integer> {
         user.setId(id);
     }
     
+    @Override
+    protected User copyEntity(User user) {
+        return new User(user);
+    }
+    
     // Custom query methods
     
     /**
@@ -187,7 +193,8 @@ public class UserDAO extends AbstractDAO<User, Integer> {
         
         String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("CHECK_USERNAME", sql);
+        try (var connection = getConnection();
              var statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, username);
@@ -197,7 +204,10 @@ public class UserDAO extends AbstractDAO<User, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to check username existence: " + e.getMessage(), e, e.getSQLState(), "CHECK_USERNAME");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -214,7 +224,8 @@ public class UserDAO extends AbstractDAO<User, Integer> {
         
         String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
         
-        try (var connection = connectionPool.getConnection();
+        QueryTimer timer = startTimer("CHECK_EMAIL", sql);
+        try (var connection = getConnection();
              var statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, email);
@@ -224,7 +235,10 @@ public class UserDAO extends AbstractDAO<User, Integer> {
             }
             
         } catch (SQLException e) {
+            timer.failed();
             throw new DatabaseException("Failed to check email existence: " + e.getMessage(), e, e.getSQLState(), "CHECK_EMAIL");
+        } finally {
+            timer.stop();
         }
     }
     
@@ -240,7 +254,7 @@ public class UserDAO extends AbstractDAO<User, Integer> {
         }
         
         String sql = "UPDATE users SET is_active = true, updated_at = NOW() WHERE id = ?";
-        return executeUpdate(sql, userId) > 0;
+        return executeUpdateById(userId, sql, userId) > 0;
     }
     
     /**
@@ -255,7 +269,7 @@ public class UserDAO extends AbstractDAO<User, Integer> {
         }
         
         String sql = "UPDATE users SET is_active = false, updated_at = NOW() WHERE id = ?";
-        return executeUpdate(sql, userId) > 0;
+        return executeUpdateById(userId, sql, userId) > 0;
     }
     
     /**
@@ -271,7 +285,42 @@ public class UserDAO extends AbstractDAO<User, Integer> {
         }
         
         String sql = "UPDATE users SET password_hash = ?, updated_at = NOW() WHERE id = ?";
-        return executeUpdate(sql, newPasswordHash, userId) > 0;
+        return executeUpdateById(userId, sql, newPasswordHash, userId) > 0;
+    }
+    
+    /**
+     * Replace a password hash only if it still matches the expected value,
+     * so a background rehash cannot overwrite a concurrent password change
+     * @param userId The user ID
+     * @param expectedHash The hash the new value was derived from
+     * @param newPasswordHash The new password hash
+     * @return true if the hash was replaced, false if it changed in the meantime
+     * @throws DatabaseException if update fails
+     */
+    public boolean replacePasswordHash(Integer userId, String expectedHash, String newPasswordHash)
+            throws DatabaseException {
+        if (userId == null || expectedHash == null || newPasswordHash == null) {
+            return false;
+        }
+        
+        String sql = "UPDATE users SET password_hash = ?, salt = NULL, updated_at = NOW() " +
+                     "WHERE id = ? AND password_hash = ?";
+        return executeUpdateById(userId, sql, newPasswordHash, userId, expectedHash) > 0;
+    }
+    
+    /**
+     * Record a successful login without rewriting the rest of the row
+     * @param userId The user ID
+     * @return true if the user was updated, false if not found
+     * @throws DatabaseException if update fails
+     */
+    public boolean updateLastLogin(Integer userId) throws DatabaseException {
+        if (userId == null) {
+            return false;
+        }
+        
+        String sql = "UPDATE users SET last_login = NOW() WHERE id = ?";
+        return executeUpdateById(userId, sql, userId) > 0;
     }
     
     /**
@@ -0,0 +1,278 @@
+package syos.dao.audit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import syos.dao.AuditLogDAO;
+import syos.dao.DatabaseException;
+import syos.models.AuditLog;
+
+/**
+ * Asynchronous audit log writer
+ * Callers enqueue AuditLog records into a lock-free ring buffer and return immediately;
+ * a background thread drains the buffer and writes multi-row batches through AuditLogDAO
+ *
+ * Configured from config.properties:
+ *   audit.buffer.capacity     - ring buffer slots, rounded up to a power of two (default 8192)
+ *   audit.batch.size          - maximum rows per INSERT (default 200)
+ *   audit.flush.interval.ms   - how long the writer waits for a partial batch to fill (default 200)
+ *   audit.backpressure        - BLOCK, DROP or SPILL when the buffer is full (default SPILL)
+ *   audit.spill.file          - local file for spilled and failed events (default logs/audit-spill.log)
+ */
+public class AsyncAuditWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncAuditWriter.class);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AuditLogDAO auditLogDAO;
+    private final AuditRingBuffer<AuditLog> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BackpressurePolicy backpressurePolicy;
+    private final AuditSpillFile spillFile;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    /**
+     * Create a writer configured from config.properties
+     * @param auditLogDAO The DAO used for batch inserts
+     */
+    public AsyncAuditWriter(AuditLogDAO auditLogDAO) {
+        this(auditLogDAO, loadProperties());
+    }
+
+    private AsyncAuditWriter(AuditLogDAO auditLogDAO, Properties props) {
+        this(auditLogDAO,
+            Integer.parseInt(props.getProperty("audit.buffer.capacity", "8192")),
+            Integer.parseInt(props.getProperty("audit.batch.size", "200")),
+            Long.parseLong(props.getProperty("audit.flush.interval.ms", "200")),
+            BackpressurePolicy.valueOf(props.getProperty("audit.backpressure", "SPILL").trim().toUpperCase()),
+            Paths.get(props.getProperty("audit.spill.file", "logs/audit-spill.log")));
+    }
+
+    /**
+     * Create a writer with explicit settings
+     * @param auditLogDAO The DAO used for batch inserts
+     * @param capacity The ring buffer capacity
+     * @param batchSize The maximum rows per INSERT
+     * @param flushIntervalMillis How long to wait for a partial batch to fill
+     * @param backpressurePolicy What to do when the buffer is full
+     * @param spillPath The local spill file
+     */
+    public AsyncAuditWriter(AuditLogDAO auditLogDAO, int capacity, int batchSize, long flushIntervalMillis,
+                            BackpressurePolicy backpressurePolicy, Path spillPath) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.auditLogDAO = auditLogDAO;
+        this.buffer = new AuditRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.backpressurePolicy = backpressurePolicy;
+        this.spillFile = new AuditSpillFile(spillPath);
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+
+        try (InputStream input = AsyncAuditWriter.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default audit writer settings");
+        }
+        return props;
+    }
+
+    /**
+     * Start the background writer thread; events spilled by a previous run are replayed first
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runWriter, "syos-audit-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+        logger.info("Audit writer started (capacity={}, batchSize={}, backpressure={})",
+            buffer.getCapacity(), batchSize, backpressurePolicy);
+    }
+
+    /**
+     * Enqueue an audit event for asynchronous writing
+     * @param auditLog The event; its timestamp is set to now if missing
+     * @return true if the event was queued or spilled, false if it was dropped
+     */
+    public boolean submit(AuditLog auditLog) {
+        if (auditLog.getTimestamp() == null) {
+            auditLog.setTimestamp(LocalDateTime.now());
+        }
+
+        if (running && buffer.offer(auditLog)) {
+            enqueued.increment();
+            if (buffer.size() == batchSize) {
+                LockSupport.unpark(writerThread);
+            }
+            return true;
+        }
+        return handleFull(auditLog);
+    }
+
+    private boolean handleFull(AuditLog auditLog) {
+        if (running && backpressurePolicy == BackpressurePolicy.BLOCK) {
+            Thread thread = writerThread;
+            while (running) {
+                LockSupport.unpark(thread);
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (buffer.offer(auditLog)) {
+                    enqueued.increment();
+                    return true;
+                }
+            }
+        }
+
+        if (backpressurePolicy == BackpressurePolicy.DROP) {
+            dropped.increment();
+            return false;
+        }
+        return spill(Collections.singletonList(auditLog));
+    }
+
+    private boolean spill(List<AuditLog> auditLogs) {
+        try {
+            spillFile.append(auditLogs);
+            spilled.add(auditLogs.size());
+            return true;
+        } catch (IOException e) {
+            dropped.add(auditLogs.size());
+            logger.error("Failed to spill {} audit events to {}: {}", auditLogs.size(), spillFile.getPath(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void runWriter() {
+        replaySpillFile();
+
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            batch.clear();
+            int drained = buffer.drainTo(batch, batchSize);
+            if (drained > 0) {
+                writeBatch(batch);
+            }
+            if (drained < batchSize && running) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    private void replaySpillFile() {
+        List<AuditLog> spilledLogs;
+        try {
+            spilledLogs = spillFile.takeAll();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to read audit spill file {}: {}", spillFile.getPath(), e.getMessage());
+            return;
+        }
+        if (spilledLogs.isEmpty()) {
+            return;
+        }
+
+        logger.info("Replaying {} spilled audit events", spilledLogs.size());
+        for (int from = 0; from < spilledLogs.size(); from += batchSize) {
+            writeBatch(spilledLogs.subList(from, Math.min(from + batchSize, spilledLogs.size())));
+        }
+    }
+
+    private void writeBatch(List<AuditLog> batch) {
+        try {
+            auditLogDAO.createBatch(batch);
+            written.add(batch.size());
+        } catch (DatabaseException | RuntimeException e) {
+            failedBatches.increment();
+            logger.error("Failed to write {} audit events, spilling to {}: {}", batch.size(), spillFile.getPath(), e.getMessage());
+            spill(new ArrayList<>(batch));
+        }
+    }
+
+    /**
+     * Stop accepting events, flush everything queued and stop the writer thread
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = writerThread;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything the writer could not flush in time goes to the spill file
+        List<AuditLog> remaining = new ArrayList<>();
+        buffer.drainTo(remaining, Integer.MAX_VALUE);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+        }
+        logger.info("Audit writer stopped (written={}, spilled={}, dropped={})", getWrittenCount(), getSpilledCount(), getDroppedCount());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getQueuedCount() {
+        return buffer.size();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+}
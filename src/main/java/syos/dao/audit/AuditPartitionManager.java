@@ -0,0 +1,426 @@
+package syos.dao.audit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionPool;
+
+import syos.dao.DatabaseException;
+
+/**
+ * Manages month-based RANGE partitioning of the audit_logs table
+ * Each calendar month lives in its own partition (p202403, ...) plus a catch-all pmax,
+ * so timestamp-bounded queries touch only the months they cover and retention removes
+ * whole partitions instead of running row-by-row DELETEs
+ * All of this is DDL, so it only runs when asked: DatabaseSetup or this class's main method
+ * partition the table and enforce retention, and the optional {@link #start()} job only keeps an
+ * already partitioned table current
+ *
+ * Usage: AuditPartitionManager (partitions audit_logs if needed, adds future months, applies retention)
+ *
+ * Configured from config.properties:
+ *   audit.partition.months.ahead     - future months kept pre-created (default 3)
+ *   audit.retention.months           - months of audit history kept online (default 24)
+ *   audit.retention.mode             - ARCHIVE moves expired months to audit_logs_archive_YYYYMM, DROP deletes them (default ARCHIVE)
+ *   audit.maintenance.interval.hours - how often the {@link #start()} job runs (default 24)
+ */
+public class AuditPartitionManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+    private static final String TABLE_NAME = "audit_logs";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    /** What happens to partitions older than the retention window */
+    public enum RetentionMode {
+        ARCHIVE, DROP
+    }
+
+    /** How ARCHIVE retention treats one expired partition, given what an interrupted earlier run left behind */
+    enum ArchiveStep {
+        /** Swap the partition into the archive table, then drop it */
+        EXCHANGE,
+        /** An earlier run already swapped the rows out; only the empty partition is left to drop */
+        DROP_ONLY,
+        /** Both hold rows, so neither a swap nor a drop is safe */
+        CONFLICT
+    }
+
+    private final ConnectionPool connectionPool;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final RetentionMode retentionMode;
+    private final long maintenanceIntervalHours;
+    private ScheduledExecutorService scheduler;
+
+    public AuditPartitionManager(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default audit partition settings");
+        }
+
+        this.monthsAhead = Integer.parseInt(props.getProperty("audit.partition.months.ahead", "3"));
+        this.retentionMonths = Integer.parseInt(props.getProperty("audit.retention.months", "24"));
+        this.retentionMode = RetentionMode.valueOf(props.getProperty("audit.retention.mode", "ARCHIVE").trim().toUpperCase());
+        this.maintenanceIntervalHours = Long.parseLong(props.getProperty("audit.maintenance.interval.hours", "24"));
+    }
+
+    /**
+     * Get the partition name holding a month
+     * @param month The calendar month
+     * @return The partition name, e.g. p202403
+     */
+    public static String partitionName(YearMonth month) {
+        return "p" + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Parse a month partition name
+     * @param partitionName The partition name
+     * @return The month, or null for pmax or foreign names
+     */
+    static YearMonth parsePartitionMonth(String partitionName) {
+        if (partitionName == null || !partitionName.matches("p\\d{6}")) {
+            return null;
+        }
+        return YearMonth.parse(partitionName.substring(1), PARTITION_SUFFIX);
+    }
+
+    static String partitionDefinition(YearMonth month) {
+        LocalDate upperBound = month.plusMonths(1).atDay(1);
+        return "PARTITION " + partitionName(month) +
+               " VALUES LESS THAN (UNIX_TIMESTAMP('" + upperBound + " 00:00:00'))";
+    }
+
+    /**
+     * Get the month partitions that fall outside the retention window, oldest first
+     * @param partitions The table's partition names in boundary order
+     * @param now The current month
+     * @param retentionMonths Months kept, counting the current one
+     * @return The partitions to archive or drop; pmax and foreign names are never selected
+     */
+    static List<String> expiredPartitions(List<String> partitions, YearMonth now, int retentionMonths) {
+        YearMonth oldestKept = now.minusMonths(retentionMonths - 1L);
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            YearMonth month = parsePartitionMonth(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Decide how to archive an expired partition
+     * @param partitionHasRows Whether the partition still holds rows
+     * @param archiveHasRows Whether its archive table already holds rows
+     * @return The step to run
+     */
+    static ArchiveStep archiveStep(boolean partitionHasRows, boolean archiveHasRows) {
+        if (!archiveHasRows) {
+            return ArchiveStep.EXCHANGE;
+        }
+        return partitionHasRows ? ArchiveStep.CONFLICT : ArchiveStep.DROP_ONLY;
+    }
+
+    /**
+     * Get the months that still need their own partition split out of pmax
+     * @param partitions The table's partition names
+     * @param now The current month
+     * @param monthsAhead Future months to keep pre-created
+     * @return The missing months after the newest existing one, in order
+     */
+    static List<YearMonth> missingMonths(List<String> partitions, YearMonth now, int monthsAhead) {
+        YearMonth newest = null;
+        for (String partition : partitions) {
+            YearMonth month = parsePartitionMonth(partition);
+            if (month != null && (newest == null || month.isAfter(newest))) {
+                newest = month;
+            }
+        }
+
+        List<YearMonth> missing = new ArrayList<>();
+        YearMonth last = now.plusMonths(monthsAhead);
+        for (YearMonth month = newest != null ? newest.plusMonths(1) : now; !month.isAfter(last); month = month.plusMonths(1)) {
+            missing.add(month);
+        }
+        return missing;
+    }
+
+    /**
+     * Keep an already partitioned table current every audit.maintenance.interval.hours on a daemon thread
+     * The first run waits one interval; the job never converts an unpartitioned table
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "syos-audit-partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (!isPartitioned()) {
+                    logger.warn("{} is not partitioned; run DatabaseSetup or AuditPartitionManager to convert it", TABLE_NAME);
+                    return;
+                }
+                ensureFuturePartitions();
+                applyRetention();
+            } catch (DatabaseException e) {
+                logger.error("Audit partition maintenance failed: {}", e.getMessage());
+            }
+        }, maintenanceIntervalHours, maintenanceIntervalHours, TimeUnit.HOURS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Partition the table if needed, pre-create future months and enforce retention
+     * @return Number of expired partitions archived or dropped
+     * @throws DatabaseException if any DDL fails
+     */
+    public synchronized int runMaintenance() throws DatabaseException {
+        ensurePartitioned();
+        ensureFuturePartitions();
+        return applyRetention();
+    }
+
+    /**
+     * Check whether audit_logs is already range partitioned
+     * @throws DatabaseException if the catalog query fails
+     */
+    public boolean isPartitioned() throws DatabaseException {
+        return !listPartitions().isEmpty();
+    }
+
+    /**
+     * Get the partition names of audit_logs in boundary order
+     * @return The partition names, empty if the table is not partitioned
+     * @throws DatabaseException if the catalog query fails
+     */
+    public List<String> listPartitions() throws DatabaseException {
+        try (Connection connection = connectionPool.getConnection()) {
+            return listPartitions(connection, TABLE_NAME);
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to list audit partitions: " + e.getMessage(), e, e.getSQLState(), "LIST_PARTITIONS");
+        }
+    }
+
+    private List<String> listPartitions(Connection connection, String tableName) throws SQLException {
+        String sql = "SELECT partition_name FROM information_schema.partitions " +
+                     "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL " +
+                     "ORDER BY partition_ordinal_position";
+
+        List<String> partitions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, tableName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    partitions.add(resultSet.getString(1));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Convert audit_logs into a month range-partitioned table
+     * MySQL requires the partitioning column in every unique key and does not allow foreign keys on
+     * partitioned tables, so the primary key becomes (id, timestamp) and the user_id foreign key is dropped
+     * @throws DatabaseException if the migration fails
+     */
+    public void ensurePartitioned() throws DatabaseException {
+        if (isPartitioned()) {
+            return;
+        }
+
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            for (String foreignKey : findForeignKeys(connection)) {
+                statement.executeUpdate("ALTER TABLE " + TABLE_NAME + " DROP FOREIGN KEY " + foreignKey);
+            }
+
+            statement.executeUpdate("UPDATE " + TABLE_NAME + " SET timestamp = CURRENT_TIMESTAMP WHERE timestamp IS NULL");
+            statement.executeUpdate("ALTER TABLE " + TABLE_NAME +
+                " MODIFY timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP," +
+                " DROP PRIMARY KEY, ADD PRIMARY KEY (id, timestamp)," +
+                " ADD INDEX idx_audit_user_time (user_id, timestamp)," +
+                " ADD INDEX idx_audit_record_time (table_name, record_id, timestamp)");
+
+            YearMonth first = YearMonth.now();
+            try (ResultSet resultSet = statement.executeQuery("SELECT MIN(timestamp) FROM " + TABLE_NAME)) {
+                if (resultSet.next() && resultSet.getTimestamp(1) != null) {
+                    first = YearMonth.from(resultSet.getTimestamp(1).toLocalDateTime());
+                }
+            }
+
+            StringBuilder ddl = new StringBuilder("ALTER TABLE " + TABLE_NAME +
+                " PARTITION BY RANGE (UNIX_TIMESTAMP(timestamp)) (");
+            YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+            for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                ddl.append(partitionDefinition(month)).append(", ");
+            }
+            ddl.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+            statement.executeUpdate(ddl.toString());
+
+            logger.info("Partitioned {} by month from {} to {}", TABLE_NAME, first, last);
+
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to partition audit logs: " + e.getMessage(), e, e.getSQLState(), "PARTITION_TABLE");
+        }
+    }
+
+    private List<String> findForeignKeys(Connection connection) throws SQLException {
+        String sql = "SELECT constraint_name FROM information_schema.referential_constraints " +
+                     "WHERE constraint_schema = DATABASE() AND table_name = ?";
+        List<String> foreignKeys = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, TABLE_NAME);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    foreignKeys.add(resultSet.getString(1));
+                }
+            }
+        }
+        return foreignKeys;
+    }
+
+    /**
+     * Split pmax so every month up to audit.partition.months.ahead has its own partition
+     * @return Number of partitions added
+     * @throws DatabaseException if the reorganization fails
+     */
+    public int ensureFuturePartitions() throws DatabaseException {
+        List<YearMonth> missing = missingMonths(listPartitions(), YearMonth.now(), monthsAhead);
+        if (missing.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder ddl = new StringBuilder("ALTER TABLE " + TABLE_NAME +
+            " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (");
+        for (YearMonth month : missing) {
+            ddl.append(partitionDefinition(month)).append(", ");
+        }
+        ddl.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(ddl.toString());
+            logger.info("Added {} audit partitions through {}", missing.size(), partitionName(missing.get(missing.size() - 1)));
+            return missing.size();
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to add audit partitions: " + e.getMessage(), e, e.getSQLState(), "ADD_PARTITIONS");
+        }
+    }
+
+    /**
+     * Archive or drop every month partition older than the retention window
+     * Archiving swaps the partition into an empty audit_logs_archive_YYYYMM table with
+     * EXCHANGE PARTITION, which moves the data without copying rows. A re-run after the swap
+     * succeeded but the drop did not finds a filled archive and an empty partition, and only drops it
+     * @return Number of partitions removed from audit_logs
+     * @throws DatabaseException if any DDL fails
+     */
+    public int applyRetention() throws DatabaseException {
+        int removed = 0;
+
+        for (String partition : expiredPartitions(listPartitions(), YearMonth.now(), retentionMonths)) {
+            YearMonth month = parsePartitionMonth(partition);
+            try (Connection connection = connectionPool.getConnection();
+                 Statement statement = connection.createStatement()) {
+
+                if (retentionMode == RetentionMode.ARCHIVE) {
+                    String archiveTable = TABLE_NAME + "_archive_" + month.format(PARTITION_SUFFIX);
+                    statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + archiveTable + " LIKE " + TABLE_NAME);
+                    if (!listPartitions(connection, archiveTable).isEmpty()) {
+                        statement.executeUpdate("ALTER TABLE " + archiveTable + " REMOVE PARTITIONING");
+                    }
+                    ArchiveStep step = archiveStep(hasRows(statement, TABLE_NAME + " PARTITION (" + partition + ")"),
+                                                   hasRows(statement, archiveTable));
+                    if (step == ArchiveStep.CONFLICT) {
+                        throw new DatabaseException("Cannot archive audit partition " + partition + ": " + archiveTable +
+                                                    " already holds rows", "ARCHIVE_NOT_EMPTY", "EXPIRE_PARTITION");
+                    }
+                    if (step == ArchiveStep.EXCHANGE) {
+                        statement.executeUpdate("ALTER TABLE " + TABLE_NAME + " EXCHANGE PARTITION " + partition +
+                                                " WITH TABLE " + archiveTable);
+                    }
+                }
+                statement.executeUpdate("ALTER TABLE " + TABLE_NAME + " DROP PARTITION " + partition);
+                removed++;
+                logger.info("{} audit partition {}", retentionMode == RetentionMode.ARCHIVE ? "Archived" : "Dropped", partition);
+
+            } catch (SQLException e) {
+                throw new DatabaseException("Failed to expire audit partition " + partition + ": " + e.getMessage(),
+                                            e, e.getSQLState(), "EXPIRE_PARTITION");
+            }
+        }
+        return removed;
+    }
+
+    private static boolean hasRows(Statement statement, String from) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT 1 FROM " + from + " LIMIT 1")) {
+            return resultSet.next();
+        }
+    }
+
+    public int getRetentionMonths() {
+        return retentionMonths;
+    }
+
+    public RetentionMode getRetentionMode() {
+        return retentionMode;
+    }
+
+    public static void main(String[] args) {
+        ConnectionPool connectionPool = null;
+        try {
+            connectionPool = ConnectionPool.getShared();
+            AuditPartitionManager manager = new AuditPartitionManager(connectionPool);
+            int expired = manager.runMaintenance();
+            System.out.println("✓ Audit partitions: " + manager.listPartitions());
+            System.out.println("✓ " + expired + " expired partitions " +
+                               (manager.getRetentionMode() == RetentionMode.ARCHIVE ? "archived" : "dropped"));
+        } catch (Exception e) {
+            System.err.println("Error maintaining audit partitions: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (connectionPool != null) {
+                connectionPool.close();
+            }
+        }
+    }
+}
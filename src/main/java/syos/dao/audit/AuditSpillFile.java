@@ -0,0 +1,150 @@
+package syos.dao.audit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import syos.models.AuditLog;
+
+/**
+ * Local append-only file for audit events that could not be queued or written
+ * One event per line, tab separated, with tabs, newlines and backslashes escaped
+ */
+public class AuditSpillFile {
+
+    private static final String NULL_MARKER = "\\N";
+
+    private final Path path;
+
+    public AuditSpillFile(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Append events to the spill file
+     * @param auditLogs The events to append
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void append(List<AuditLog> auditLogs) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (AuditLog auditLog : auditLogs) {
+                writer.write(toLine(auditLog));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Read and remove every spilled event
+     * The file is renamed before reading so events spilled concurrently land in a fresh file
+     * @return The spilled events, oldest first
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized List<AuditLog> takeAll() throws IOException {
+        List<AuditLog> auditLogs = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return auditLogs;
+        }
+
+        Path replay = path.resolveSibling(path.getFileName() + ".replay");
+        Files.move(path, replay, StandardCopyOption.REPLACE_EXISTING);
+        try (BufferedReader reader = Files.newBufferedReader(replay, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    auditLogs.add(fromLine(line));
+                }
+            }
+        }
+        Files.delete(replay);
+        return auditLogs;
+    }
+
+    static String toLine(AuditLog auditLog) {
+        return String.join("\t",
+            escape(auditLog.getTableName()),
+            escape(auditLog.getOperation()),
+            escape(auditLog.getRecordId()),
+            escape(auditLog.getOldValues()),
+            escape(auditLog.getNewValues()),
+            escape(auditLog.getUserId()),
+            escape(auditLog.getIpAddress()),
+            escape(auditLog.getUserAgent()),
+            escape(auditLog.getTimestamp()));
+    }
+
+    static AuditLog fromLine(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 9) {
+            throw new IllegalArgumentException("Malformed audit spill line: " + line);
+        }
+        String recordId = unescape(fields[2]);
+        String userId = unescape(fields[5]);
+        String timestamp = unescape(fields[8]);
+
+        return new AuditLog(null, unescape(fields[0]), unescape(fields[1]),
+            recordId != null ? Integer.valueOf(recordId) : null,
+            unescape(fields[3]), unescape(fields[4]),
+            userId != null ? Integer.valueOf(userId) : null,
+            unescape(fields[6]), unescape(fields[7]),
+            timestamp != null ? LocalDateTime.parse(timestamp) : null);
+    }
+
+    private static String escape(Object value) {
+        if (value == null) {
+            return NULL_MARKER;
+        }
+        String text = value.toString();
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String field) {
+        if (NULL_MARKER.equals(field)) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                switch (next) {
+                    case 't': sb.append('\t'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    default: sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package syos.dao.audit;
+
+/**
+ * What the audit writer does when its ring buffer is full
+ */
+public enum BackpressurePolicy {
+    /** Wait until the background writer frees a slot */
+    BLOCK,
+    /** Discard the event and count it as dropped */
+    DROP,
+    /** Append the event to the local spill file; it is replayed on the next start */
+    SPILL
+}
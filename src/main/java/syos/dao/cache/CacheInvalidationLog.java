@@ -0,0 +1,330 @@
+package syos.dao.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Keeps entity caches coherent across SYOS JVMs through the cache_invalidations table
+ *
+ * A DAO write inserts a (cache_name, entity_key) row in the same transaction as the change.
+ * Every JVM polls the table by ascending id and evicts the named keys from its local caches,
+ * so a committed change reaches the other hosts within one poll interval, without a broker.
+ *
+ * Auto-increment ids can commit out of order, so ids skipped over while polling are kept as
+ * gaps and re-checked until they appear or time out. If the poller loses track of gaps or
+ * cannot reach the database for longer than the silence limit, it clears every cache
+ * instead of risking a missed eviction.
+ *
+ * Configured from config.properties:
+ *   cache.invalidation.enabled            - publish and poll at all (default true)
+ *   cache.invalidation.poll.interval.ms   - delay between polls (default 200)
+ *   cache.invalidation.batch.size         - rows read per poll (default 500)
+ *   cache.invalidation.gap.timeout.ms     - how long a skipped id is waited for (default 10000)
+ *   cache.invalidation.max.silence.ms     - failed-poll time after which all caches are cleared (default 5000)
+ *   cache.invalidation.retention.minutes  - age after which rows are purged (default 60)
+ */
+public class CacheInvalidationLog implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationLog.class);
+    
+    /** Identifies this JVM's own rows, which were already evicted locally */
+    static final String ORIGIN = ManagementFactory.getRuntimeMXBean().getName() + "/" +
+                                 UUID.randomUUID().toString().substring(0, 8);
+    
+    public static final String CREATE_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS cache_invalidations (" +
+        "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+        "cache_name VARCHAR(64) NOT NULL, " +
+        "entity_key VARCHAR(128) NULL, " +
+        "origin VARCHAR(128) NOT NULL, " +
+        "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+        "INDEX idx_cache_invalidations_created (created_at))";
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO cache_invalidations (cache_name, entity_key, origin) VALUES (?, ?, ?)";
+    private static final int MAX_TRACKED_GAPS = 1000;
+    private static final long PURGE_INTERVAL_MS = 60_000;
+    
+    private static CacheInvalidationLog instance;
+    
+    private final ConnectionProvider connectionProvider;
+    private final EntityCacheRegistry registry;
+    private final boolean enabled;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final long gapTimeoutMs;
+    private final long maxSilenceMs;
+    private final long retentionMinutes;
+    
+    /** Missing ids below the high-water mark, with the time they stop being waited for */
+    private final LinkedHashMap<Long, Long> gaps = new LinkedHashMap<>();
+    private long lastSeenId = -1;
+    private long lastSuccessfulPoll;
+    private long lastPurge;
+    private boolean clearedForSilence;
+    private ScheduledExecutorService scheduler;
+    
+    public CacheInvalidationLog(ConnectionProvider connectionProvider) {
+        this(connectionProvider, EntityCacheRegistry.getInstance());
+    }
+    
+    CacheInvalidationLog(ConnectionProvider connectionProvider, EntityCacheRegistry registry) {
+        this.connectionProvider = connectionProvider;
+        this.registry = registry;
+        
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default cache invalidation settings");
+        }
+        
+        this.enabled = Boolean.parseBoolean(props.getProperty("cache.invalidation.enabled", "true"));
+        this.pollIntervalMs = Long.parseLong(props.getProperty("cache.invalidation.poll.interval.ms", "200"));
+        this.batchSize = Integer.parseInt(props.getProperty("cache.invalidation.batch.size", "500"));
+        this.gapTimeoutMs = Long.parseLong(props.getProperty("cache.invalidation.gap.timeout.ms", "10000"));
+        this.maxSilenceMs = Long.parseLong(props.getProperty("cache.invalidation.max.silence.ms", "5000"));
+        this.retentionMinutes = Long.parseLong(props.getProperty("cache.invalidation.retention.minutes", "60"));
+    }
+    
+    /**
+     * Start the process-wide poller on first use
+     * @param connectionProvider The provider used for polling
+     * @return The running log
+     */
+    public static synchronized CacheInvalidationLog ensureStarted(ConnectionProvider connectionProvider) {
+        if (instance == null) {
+            instance = new CacheInvalidationLog(connectionProvider);
+            instance.start();
+        }
+        return instance;
+    }
+    
+    /**
+     * Record that a cached entity changed, on the connection performing the change
+     * @param connection The connection of the writing transaction
+     * @param cacheName The cache holding the entity, e.g. ProductDAO
+     * @param entityKey The entity key, or null when the whole cache must be dropped
+     * @throws SQLException if the row cannot be written
+     */
+    public static void publish(Connection connection, String cacheName, String entityKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setString(1, cacheName);
+            statement.setString(2, entityKey);
+            statement.setString(3, ORIGIN);
+            statement.executeUpdate();
+        }
+    }
+    
+    /**
+     * Publish from code that writes with raw JDBC, evicting from this JVM's caches as well, since the
+     * poller skips rows of its own origin; a failure to publish is logged rather than failing the write,
+     * leaving other hosts to catch up through their cache TTL
+     */
+    public static void publishQuietly(Connection connection, String cacheName, Object entityKey) {
+        String key = entityKey != null ? String.valueOf(entityKey) : null;
+        EntityCacheRegistry.getInstance().invalidate(cacheName, key);
+        try {
+            publish(connection, cacheName, key);
+        } catch (SQLException e) {
+            logger.warn("Could not publish cache invalidation for {}[{}]: {}", cacheName, entityKey, e.getMessage());
+        }
+    }
+    
+    /**
+     * Create the change-log table if needed
+     * @throws SQLException if the DDL fails
+     */
+    public void ensureTable() throws SQLException {
+        try (Connection connection = connectionProvider.getConnection()) {
+            ensureTableOn(connection);
+        }
+    }
+    
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "syos-cache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                pollOnce();
+            } catch (SQLException e) {
+                logger.debug("Cache invalidation poll failed: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                logger.error("Cache invalidation poll failed", e);
+            }
+        }, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    /**
+     * Read new change-log rows and evict the keys they name
+     * @return Number of rows applied
+     * @throws SQLException if the table cannot be read
+     */
+    public int pollOnce() throws SQLException {
+        return pollOnce(System.currentTimeMillis());
+    }
+    
+    /** Poll as of a given time, so tests can step past gap and silence deadlines */
+    synchronized int pollOnce(long now) throws SQLException {
+        try (Connection connection = connectionProvider.getConnection()) {
+            if (lastSeenId < 0) {
+                ensureTableOn(connection);
+                lastSeenId = readMaxId(connection);
+                lastSuccessfulPoll = now;
+                return 0;
+            }
+            
+            int applied = applyNewRows(connection, now);
+            lastSuccessfulPoll = now;
+            clearedForSilence = false;
+            
+            if (now - lastPurge > PURGE_INTERVAL_MS) {
+                lastPurge = now;
+                purge(connection);
+            }
+            return applied;
+        } catch (SQLException e) {
+            if (lastSeenId >= 0 && !clearedForSilence && now - lastSuccessfulPoll > maxSilenceMs) {
+                // Changes made meanwhile cannot be seen, so nothing cached can be trusted
+                logger.warn("Cache invalidation poller has failed for {} ms, clearing all caches", now - lastSuccessfulPoll);
+                registry.invalidateAll();
+                clearedForSilence = true;
+            }
+            throw e;
+        }
+    }
+    
+    private int applyNewRows(Connection connection, long now) throws SQLException {
+        expireGaps(now);
+        
+        StringBuilder sql = new StringBuilder("SELECT id, cache_name, entity_key, origin FROM cache_invalidations WHERE id > ?");
+        if (!gaps.isEmpty()) {
+            sql.append(" OR id IN (");
+            for (int i = 0; i < gaps.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        
+        int applied = 0;
+        long highWater = lastSeenId;
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            statement.setLong(index++, lastSeenId);
+            for (Long gap : gaps.keySet()) {
+                statement.setLong(index++, gap);
+            }
+            statement.setInt(index, batchSize + gaps.size());
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long id = resultSet.getLong(1);
+                    if (id <= lastSeenId) {
+                        gaps.remove(id);
+                    } else {
+                        for (long missing = highWater + 1; missing < id; missing++) {
+                            trackGap(missing, now);
+                        }
+                        highWater = id;
+                    }
+                    if (!ORIGIN.equals(resultSet.getString(4))) {
+                        registry.invalidate(resultSet.getString(2), resultSet.getString(3));
+                    }
+                    applied++;
+                }
+            }
+        }
+        lastSeenId = highWater;
+        return applied;
+    }
+    
+    private void trackGap(long id, long now) {
+        if (gaps.size() >= MAX_TRACKED_GAPS) {
+            logger.warn("Too many unresolved cache invalidation ids, clearing all caches");
+            registry.invalidateAll();
+            gaps.clear();
+            return;
+        }
+        gaps.put(id, now + gapTimeoutMs);
+    }
+    
+    private void expireGaps(long now) {
+        // Insertion order is deadline order, so stop at the first gap still being waited for
+        Iterator<Map.Entry<Long, Long>> iterator = gaps.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue() <= now) {
+            iterator.remove();
+        }
+    }
+    
+    private void ensureTableOn(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE_SQL);
+        }
+    }
+    
+    private long readMaxId(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM cache_invalidations")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+    
+    private void purge(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM cache_invalidations WHERE created_at < NOW(3) - INTERVAL ? MINUTE LIMIT 10000")) {
+            statement.setLong(1, retentionMinutes);
+            int purged = statement.executeUpdate();
+            if (purged > 0) {
+                logger.debug("Purged {} cache invalidation rows", purged);
+            }
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public synchronized long getLastSeenId() {
+        return lastSeenId;
+    }
+    
+    public synchronized int getPendingGapCount() {
+        return gaps.size();
+    }
+}
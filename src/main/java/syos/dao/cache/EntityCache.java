@@ -0,0 +1,410 @@
+package syos.dao.cache;
+
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded entity cache with W-TinyLFU eviction, time-to-live and negative caching
+ *
+ * New entries enter a small LRU admission window (1% of the capacity). Entries leaving the
+ * window compete with the least recently used entry of the main space, and only the one that
+ * the frequency sketch says is accessed more often stays. The main space is a segmented LRU:
+ * entries hit again while on probation are promoted to the protected segment (80%).
+ * This keeps frequently read rows resident while a one-off scan cannot flush them.
+ *
+ * Misses are cached as absent for a shorter TTL so repeated lookups of unknown keys
+ * (a mistyped product code, say) stop reaching the database.
+ * @param <K> The key type
+ * @param <V> The entity type
+ */
+public class EntityCache<K, V> {
+    
+    /**
+     * Loads a value on a cache miss
+     * @param <K> The key type
+     * @param <V> The value type
+     * @param <E> The exception the loader may throw
+     */
+    @FunctionalInterface
+    public interface Loader<K, V, E extends Exception> {
+        
+        /**
+         * @return The value, or null if there is none (cached as absent)
+         */
+        V load(K key) throws E;
+    }
+    
+    private static final Object ABSENT = new Object();
+    
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    
+    private final String name;
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final HashMap<K, Node<K>> data;
+    private final FrequencySketch sketch;
+    private final AccessQueue<K> window = new AccessQueue<>();
+    private final AccessQueue<K> probation = new AccessQueue<>();
+    private final AccessQueue<K> protectedSegment = new AccessQueue<>();
+    private long invalidationCount;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    /**
+     * @param name Name used in reports, normally the DAO class name
+     * @param maximumSize Maximum number of entries, including cached misses
+     * @param ttlSeconds Time to live of a loaded entity
+     * @param negativeTtlSeconds Time to live of a cached miss, 0 to disable negative caching
+     */
+    public EntityCache(String name, int maximumSize, long ttlSeconds, long negativeTtlSeconds) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (int) ((maximumSize - windowMaximum) * 0.8);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.data = new HashMap<>(Math.min(maximumSize, 1 << 16) * 4 / 3 + 1);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+    
+    /**
+     * Get a value, loading and caching it on a miss
+     * The loader runs outside the cache lock; if the key is invalidated while it runs,
+     * the loaded value is returned but not cached
+     * @param key The key
+     * @param loader Loads the value from the database
+     * @return The value, or empty if the loader found none
+     * @throws E if the loader fails
+     */
+    public <E extends Exception> Optional<V> get(K key, Loader<K, V, E> loader) throws E {
+        long generation;
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            Node<K> node = data.get(key);
+            if (node != null) {
+                if (node.expiresAt - System.nanoTime() > 0) {
+                    onHit(node);
+                    if (node.value == ABSENT) {
+                        negativeHits.increment();
+                        return Optional.empty();
+                    }
+                    hits.increment();
+                    @SuppressWarnings("unchecked")
+                    V value = (V) node.value;
+                    return Optional.of(value);
+                }
+                removeNode(node);
+                expirations.increment();
+            }
+            misses.increment();
+            generation = invalidationCount;
+        } finally {
+            lock.unlock();
+        }
+        
+        V loaded = loader.load(key);
+        if (loaded != null || negativeTtlNanos > 0) {
+            lock.lock();
+            try {
+                if (generation == invalidationCount) {
+                    put(key, loaded != null ? loaded : ABSENT, loaded != null ? ttlNanos : negativeTtlNanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return Optional.ofNullable(loaded);
+    }
+    
+    /**
+     * Drop one key, including a cached miss for it
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidationCount++;
+            Node<K> node = data.get(key);
+            if (node != null) {
+                removeNode(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+    
+    /**
+     * Drop the entry whose key prints as the given text, for evictions received from other JVMs
+     * @param keyText The key as produced by String.valueOf
+     */
+    public void invalidateByKeyText(String keyText) {
+        lock.lock();
+        try {
+            invalidationCount++;
+            Node<K> match = null;
+            for (Node<K> node : data.values()) {
+                if (keyText.equals(String.valueOf(node.key))) {
+                    match = node;
+                    break;
+                }
+            }
+            if (match != null) {
+                removeNode(match);
+            }
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+    
+    /**
+     * Drop every entry
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidationCount++;
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+    
+    private void onHit(Node<K> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToFront(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedSegment.addFirst(node);
+                if (protectedSegment.size > protectedMaximum) {
+                    Node<K> demoted = protectedSegment.removeLast();
+                    demoted.queue = PROBATION;
+                    probation.addFirst(demoted);
+                }
+                break;
+            default:
+                protectedSegment.moveToFront(node);
+                break;
+        }
+    }
+    
+    private void put(K key, Object value, long ttl) {
+        long expiresAt = System.nanoTime() + ttl;
+        Node<K> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            node.expiresAt = expiresAt;
+            return;
+        }
+        node = new Node<>(key, value, expiresAt);
+        data.put(key, node);
+        window.addFirst(node);
+        
+        while (window.size > windowMaximum) {
+            Node<K> candidate = window.removeLast();
+            candidate.queue = PROBATION;
+            if (data.size() <= maximumSize) {
+                probation.addFirst(candidate);
+                continue;
+            }
+            Node<K> victim = probation.last() != null ? probation.last() : protectedSegment.last();
+            if (victim != null && sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                removeNode(victim);
+                probation.addFirst(candidate);
+            } else {
+                data.remove(candidate.key);
+            }
+            evictions.increment();
+        }
+    }
+    
+    private void removeNode(Node<K> node) {
+        data.remove(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedSegment.remove(node);
+                break;
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return data.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getNegativeHits() {
+        return negativeHits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    public long getExpirations() {
+        return expirations.sum();
+    }
+    
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+    
+    /**
+     * Get the share of lookups answered from the cache, cached misses included
+     * @return The hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long served = hits.sum() + negativeHits.sum();
+        long total = served + misses.sum();
+        return total > 0 ? (double) served / total : 0.0;
+    }
+    
+    /**
+     * Reset the counters; cached entries are kept
+     */
+    public void resetStats() {
+        hits.reset();
+        negativeHits.reset();
+        misses.reset();
+        evictions.reset();
+        expirations.reset();
+        invalidations.reset();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "%s{size=%d/%d, hitRatio=%.1f%%, hits=%d, negativeHits=%d, misses=%d, evictions=%d, expirations=%d, invalidations=%d}",
+            name, size(), maximumSize, getHitRatio() * 100, getHits(), getNegativeHits(), getMisses(),
+            getEvictions(), getExpirations(), getInvalidations()
+        );
+    }
+    
+    private static final class Node<K> {
+        final K key;
+        Object value;
+        long expiresAt;
+        int queue = WINDOW;
+        Node<K> prev;
+        Node<K> next;
+        
+        Node(K key, Object value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    /**
+     * Intrusive doubly linked LRU list, most recently used first
+     */
+    private static final class AccessQueue<K> {
+        private Node<K> head;
+        private Node<K> tail;
+        int size;
+        
+        void addFirst(Node<K> node) {
+            node.prev = null;
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            } else {
+                tail = node;
+            }
+            head = node;
+            size++;
+        }
+        
+        void remove(Node<K> node) {
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            } else {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+        
+        Node<K> removeLast() {
+            Node<K> node = tail;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+        
+        Node<K> last() {
+            return tail;
+        }
+        
+        void moveToFront(Node<K> node) {
+            if (head != node) {
+                remove(node);
+                addFirst(node);
+            }
+        }
+        
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+}
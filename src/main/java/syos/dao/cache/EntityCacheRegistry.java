@@ -0,0 +1,137 @@
+package syos.dao.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of DAO entity caches
+ * Caches are opt-in: a DAO gets one only when its size is configured, and every instance
+ * of the same DAO class shares it so invalidations from one are seen by all
+ *
+ * Configured from config.properties:
+ *   dao.cache.enabled                       - master switch (default true)
+ *   dao.cache.<name>.size                   - maximum entries; 0 or unset disables the cache
+ *   dao.cache.<name>.ttl.seconds            - lifetime of a cached entity (default 300)
+ *   dao.cache.<name>.negative.ttl.seconds   - lifetime of a cached miss, 0 disables (default 30)
+ *   dao.cache.<name>.distributed            - publish writes to other JVMs through {@link CacheInvalidationLog} (default false)
+ * where <name> is the DAO class name, e.g. dao.cache.ProductDAO.size=5000
+ */
+public class EntityCacheRegistry {
+    
+    private static final EntityCacheRegistry INSTANCE = new EntityCacheRegistry();
+    
+    private final Properties properties = new Properties();
+    private final ConcurrentHashMap<String, EntityCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    
+    EntityCacheRegistry() {
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, DAO entity caches are disabled");
+        }
+        this.enabled = Boolean.parseBoolean(properties.getProperty("dao.cache.enabled", "true"));
+    }
+    
+    public static EntityCacheRegistry getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Get the shared cache for a name, creating it from configuration on first use
+     * @param name The cache name, normally the DAO class name
+     * @return The cache, or null if caching is not configured for this name
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> EntityCache<K, V> cacheFor(String name) {
+        EntityCache<?, ?> existing = caches.get(name);
+        if (existing != null) {
+            return (EntityCache<K, V>) existing;
+        }
+        if (!enabled) {
+            return null;
+        }
+        int size = Integer.parseInt(properties.getProperty("dao.cache." + name + ".size", "0"));
+        if (size <= 0) {
+            return null;
+        }
+        long ttl = Long.parseLong(properties.getProperty("dao.cache." + name + ".ttl.seconds", "300"));
+        long negativeTtl = Long.parseLong(properties.getProperty("dao.cache." + name + ".negative.ttl.seconds", "30"));
+        return (EntityCache<K, V>) caches.computeIfAbsent(name, n -> new EntityCache<>(n, size, ttl, negativeTtl));
+    }
+    
+    /**
+     * Check whether a cache's evictions are shared with other JVMs
+     * @param name The cache name
+     */
+    public boolean isDistributed(String name) {
+        return Boolean.parseBoolean(properties.getProperty("dao.cache." + name + ".distributed", "false"));
+    }
+    
+    /**
+     * Evict an entity by its key as text, as published by another JVM or written with raw JDBC in this one
+     * Caches named "<name>.<suffix>" hold secondary lookups of the same entities and are cleared with it
+     * @param name The cache name, e.g. ProductDAO
+     * @param entityKey The key as text, or null to clear the cache
+     */
+    public void invalidate(String name, String entityKey) {
+        EntityCache<?, ?> cache = caches.get(name);
+        if (cache != null) {
+            if (entityKey == null) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidateByKeyText(entityKey);
+            }
+        }
+        String prefix = name + ".";
+        for (Map.Entry<String, EntityCache<?, ?>> entry : caches.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                entry.getValue().invalidateAll();
+            }
+        }
+    }
+    
+    /**
+     * Register a cache created outside configuration, replacing any cache of the same name
+     */
+    public void register(EntityCache<?, ?> cache) {
+        caches.put(cache.getName(), cache);
+    }
+    
+    /**
+     * Get all caches, lowest hit ratio first
+     */
+    public List<EntityCache<?, ?>> getCaches() {
+        List<EntityCache<?, ?>> result = new ArrayList<>(caches.values());
+        result.sort(Comparator.comparingDouble(EntityCache::getHitRatio));
+        return result;
+    }
+    
+    /**
+     * Drop every entry of every cache
+     */
+    public void invalidateAll() {
+        for (EntityCache<?, ?> cache : caches.values()) {
+            cache.invalidateAll();
+        }
+    }
+    
+    /**
+     * Build a printable report of all caches
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder("DAO entity caches:");
+        for (EntityCache<?, ?> cache : getCaches()) {
+            sb.append(System.lineSeparator()).append("  ").append(cache);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package syos.dao.cache;
+
+/**
+ * Count-min sketch of recent access frequency with 4-bit saturating counters
+ * All counters are halved once the number of increments reaches ten times the width,
+ * so the sketch tracks recent popularity rather than all-time totals (TinyLFU aging)
+ */
+final class FrequencySketch {
+    
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0xc6a4a793, 0x85ebca6b, 0x27d4eb2f };
+    
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+    
+    /**
+     * @param expectedSize The number of entries the owning cache holds
+     */
+    FrequencySketch(int expectedSize) {
+        int width = Integer.highestOneBit(Math.max(16, expectedSize - 1) << 1);
+        this.counters = new byte[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+    
+    /**
+     * Record one access
+     * @param hash The key's hash code
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (counters[row][index] < MAX_COUNT) {
+                counters[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+    
+    /**
+     * Estimate how often a key was accessed recently
+     * @param hash The key's hash code
+     * @return The estimated count, 0 - 15
+     */
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[row][indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+    
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return h & mask;
+    }
+    
+    private void reset() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) (row[i] >>> 1);
+            }
+        }
+        additions >>>= 1;
+    }
+}
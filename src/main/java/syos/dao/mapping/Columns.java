@@ -0,0 +1,46 @@
+package syos.dao.mapping;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Null-safe positional getters for {@link CompiledRowMapper} readers
+ */
+public final class Columns {
+    
+    private Columns() {
+    }
+    
+    public static int getInt(ResultSet resultSet, int index) throws SQLException {
+        return resultSet.getInt(index);
+    }
+    
+    public static Integer getInteger(ResultSet resultSet, int index) throws SQLException {
+        int value = resultSet.getInt(index);
+        return resultSet.wasNull() ? null : value;
+    }
+    
+    public static long getLong(ResultSet resultSet, int index) throws SQLException {
+        return resultSet.getLong(index);
+    }
+    
+    public static boolean getBoolean(ResultSet resultSet, int index) throws SQLException {
+        return resultSet.getBoolean(index);
+    }
+    
+    public static String getString(ResultSet resultSet, int index) throws SQLException {
+        return resultSet.getString(index);
+    }
+    
+    public static BigDecimal getBigDecimal(ResultSet resultSet, int index) throws SQLException {
+        return resultSet.getBigDecimal(index);
+    }
+    
+    public static LocalDateTime getLocalDateTime(ResultSet resultSet, int index) throws SQLException {
+        Timestamp timestamp = resultSet.getTimestamp(index);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
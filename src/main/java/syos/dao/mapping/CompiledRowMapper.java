@@ -0,0 +1,130 @@
+package syos.dao.mapping;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps result set rows by column index instead of column name
+ * The declared column names are resolved against a result set's metadata once per SQL string,
+ * and the resulting index array is cached, so each row is read with positional getters only.
+ * A declared column missing from the result set fails the query, as a by-name getter would
+ * @param <T> The mapped type
+ */
+public final class CompiledRowMapper<T> {
+    
+    /** Statements beyond this are resolved on every call instead of being cached */
+    static final int MAX_CACHED_STATEMENTS = 256;
+    
+    /**
+     * Reads one row using pre-resolved column indices
+     * @param <T> The mapped type
+     */
+    @FunctionalInterface
+    public interface RowReader<T> {
+        
+        /**
+         * @param resultSet The result set positioned at a row
+         * @param columns One JDBC index per declared column, in declaration order
+         */
+        T read(ResultSet resultSet, int[] columns) throws SQLException;
+    }
+    
+    private final String[] columnNames;
+    private final RowReader<T> reader;
+    private final ConcurrentHashMap<String, int[]> indicesBySql = new ConcurrentHashMap<>();
+    
+    private CompiledRowMapper(RowReader<T> reader, String... columnNames) {
+        this.reader = reader;
+        this.columnNames = columnNames.clone();
+    }
+    
+    /**
+     * Create a mapper
+     * @param reader Reads a row given the resolved indices
+     * @param columnNames The column labels the reader uses, in the order it indexes them
+     * @return The mapper
+     */
+    public static <T> CompiledRowMapper<T> of(RowReader<T> reader, String... columnNames) {
+        return new CompiledRowMapper<>(reader, columnNames);
+    }
+    
+    /**
+     * Get the column indices for a result set produced by a statement, resolving them on first use
+     * @param sql The SQL that produced the result set, used as the cache key
+     * @param resultSet The result set
+     * @return The index array to pass to {@link #map(ResultSet, int[])}
+     * @throws SQLException if the metadata cannot be read or lacks a declared column
+     */
+    public int[] indicesFor(String sql, ResultSet resultSet) throws SQLException {
+        int[] indices = indicesBySql.get(sql);
+        if (indices != null) {
+            return indices;
+        }
+        indices = resolve(resultSet.getMetaData());
+        if (indicesBySql.size() < MAX_CACHED_STATEMENTS) {
+            indicesBySql.putIfAbsent(sql, indices);
+        }
+        return indices;
+    }
+    
+    /**
+     * Resolve the declared columns against result set metadata
+     * Labels are matched case-insensitively; undeclared result columns are ignored
+     * @param metaData The result set metadata
+     * @return One JDBC index per declared column
+     * @throws SQLException if the metadata cannot be read or lacks a declared column
+     */
+    public int[] resolve(ResultSetMetaData metaData) throws SQLException {
+        int[] indices = new int[columnNames.length];
+        int columnCount = metaData.getColumnCount();
+        for (int column = 1; column <= columnCount; column++) {
+            String label = metaData.getColumnLabel(column);
+            for (int i = 0; i < columnNames.length; i++) {
+                if (indices[i] == 0 && columnNames[i].equalsIgnoreCase(label)) {
+                    indices[i] = column;
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] == 0) {
+                throw new SQLException("Column '" + columnNames[i] + "' not found in result set for " + this, "S0022");
+            }
+        }
+        return indices;
+    }
+    
+    /**
+     * Map the current row
+     * @param resultSet The result set positioned at a row
+     * @param indices Indices from {@link #indicesFor(String, ResultSet)}
+     * @return The mapped row
+     * @throws SQLException if a column cannot be read
+     */
+    public T map(ResultSet resultSet, int[] indices) throws SQLException {
+        return reader.read(resultSet, indices);
+    }
+    
+    /**
+     * Map the current row, resolving indices from the result set itself
+     * Slower than the cached path; intended for one-off rows
+     */
+    public T map(ResultSet resultSet) throws SQLException {
+        return reader.read(resultSet, resolve(resultSet.getMetaData()));
+    }
+    
+    /**
+     * Get the number of statements whose indices are cached
+     */
+    public int getCachedStatementCount() {
+        return indicesBySql.size();
+    }
+    
+    @Override
+    public String toString() {
+        return "CompiledRowMapper" + Arrays.toString(columnNames);
+    }
+}
@@ -0,0 +1,56 @@
+package syos.dao.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A fixed select list mapped straight into a lightweight value object
+ * Because the query selects exactly the declared columns in order, the reader's
+ * indices are simply 1..n and no metadata lookup is needed
+ * @param <P> The projected type
+ */
+public final class Projection<P> {
+    
+    private final String selectList;
+    private final int[] columns;
+    private final CompiledRowMapper.RowReader<P> reader;
+    
+    private Projection(CompiledRowMapper.RowReader<P> reader, String... columnExpressions) {
+        if (columnExpressions.length == 0) {
+            throw new IllegalArgumentException("A projection needs at least one column");
+        }
+        this.reader = reader;
+        this.selectList = String.join(", ", columnExpressions);
+        this.columns = new int[columnExpressions.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = i + 1;
+        }
+    }
+    
+    /**
+     * Create a projection
+     * @param reader Reads a row; columns[i] is the index of the i-th expression
+     * @param columnExpressions Column names or SQL expressions, e.g. "ROUND(unit_price * 100)"
+     * @return The projection
+     */
+    public static <P> Projection<P> of(CompiledRowMapper.RowReader<P> reader, String... columnExpressions) {
+        return new Projection<>(reader, columnExpressions);
+    }
+    
+    /**
+     * Get the comma-separated select list
+     */
+    public String getSelectList() {
+        return selectList;
+    }
+    
+    /**
+     * Map the current row
+     * @param resultSet A result set produced by selecting {@link #getSelectList()}
+     * @return The projected row
+     * @throws SQLException if a column cannot be read
+     */
+    public P map(ResultSet resultSet) throws SQLException {
+        return reader.read(resultSet, columns);
+    }
+}
@@ -0,0 +1,104 @@
+package syos.dao.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets
+ * Bucket i counts samples in [2^(i-1), 2^i) microseconds, bucket 0 counts sub-microsecond samples
+ */
+public class LatencyHistogram {
+
+    /** 2^26 us is roughly 67 seconds; anything slower lands in the last bucket */
+    static final int BUCKET_COUNT = 28;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Record a single latency sample
+     * @param nanos The elapsed time in nanoseconds
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucketFor(nanos));
+    }
+
+    /**
+     * Get the bucket index for a latency
+     * @param nanos The elapsed time in nanoseconds
+     * @return The bucket index
+     */
+    static int bucketFor(long nanos) {
+        long micros = nanos / 1_000;
+        if (micros <= 0) {
+            return 0;
+        }
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Get the upper bound of a bucket
+     * @param bucket The bucket index
+     * @return The exclusive upper bound in microseconds
+     */
+    static long upperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    /**
+     * Get the total number of recorded samples
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Estimate a percentile from the bucket counts
+     * @param percentile The percentile between 0 and 100
+     * @return The bucket upper bound in microseconds containing the percentile, 0 if empty
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return upperBoundMicros(i);
+            }
+        }
+        return upperBoundMicros(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Get a copy of the raw bucket counts
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Reset all buckets to zero
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package syos.dao.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram for one DAO operation
+ * All updates are lock-free so recording never blocks a query thread
+ */
+public class OperationMetrics {
+
+    private final String daoName;
+    private final String operation;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public OperationMetrics(String daoName, String operation) {
+        this.daoName = daoName;
+        this.operation = operation;
+    }
+
+    void record(long nanos, boolean failed, boolean slow) {
+        calls.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+        if (slow) {
+            slowCalls.increment();
+        }
+    }
+
+    public String getDaoName() {
+        return daoName;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getSlowCalls() {
+        return slowCalls.sum();
+    }
+
+    public double getAverageMicros() {
+        long count = calls.sum();
+        return count > 0 ? totalNanos.sum() / 1_000.0 / count : 0;
+    }
+
+    public long getMaxMicros() {
+        return maxNanos.get() / 1_000;
+    }
+
+    public long getPercentileMicros(double percentile) {
+        return histogram.getPercentileMicros(percentile);
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    void reset() {
+        calls.reset();
+        errors.reset();
+        slowCalls.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        histogram.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%s.%s{calls=%d, errors=%d, slow=%d, avg=%.1fus, p50<=%dus, p99<=%dus, max=%dus}",
+            daoName, operation, getCalls(), getErrors(), getSlowCalls(), getAverageMicros(),
+            getPercentileMicros(50), getPercentileMicros(99), getMaxMicros()
+        );
+    }
+}
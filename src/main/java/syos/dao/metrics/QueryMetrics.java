@@ -0,0 +1,178 @@
+package syos.dao.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of per-DAO, per-operation query metrics with a sampled slow-query log
+ * Operations are tagged with the same codes DatabaseException uses (FIND_BY_ID, QUERY, CALCULATE_SALES, ...)
+ *
+ * Configured from config.properties:
+ *   dao.metrics.enabled            - record metrics at all (default true)
+ *   dao.slow.query.threshold.ms    - latency at or above which a call is slow (default 250)
+ *   dao.slow.query.sample.rate     - fraction of slow calls written to the log, 0.0 - 1.0 (default 1.0)
+ */
+public class QueryMetrics {
+
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("syos.dao.SlowQuery");
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    private final ClassValue<ConcurrentHashMap<String, OperationMetrics>> byDao =
+        new ClassValue<ConcurrentHashMap<String, OperationMetrics>>() {
+            @Override
+            protected ConcurrentHashMap<String, OperationMetrics> computeValue(Class<?> type) {
+                ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+                allDaos.put(type.getSimpleName(), operations);
+                return operations;
+            }
+        };
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, OperationMetrics>> allDaos = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+    private volatile long slowQueryThresholdNanos;
+    private volatile double slowQuerySampleRate;
+
+    QueryMetrics() {
+        loadConfiguration();
+    }
+
+    /**
+     * Get the process-wide metrics registry
+     */
+    public static QueryMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private void loadConfiguration() {
+        Properties props = new Properties();
+
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default query metrics settings");
+        }
+
+        this.enabled = Boolean.parseBoolean(props.getProperty("dao.metrics.enabled", "true"));
+        setSlowQueryThresholdMillis(Long.parseLong(props.getProperty("dao.slow.query.threshold.ms", "250")));
+        setSlowQuerySampleRate(Double.parseDouble(props.getProperty("dao.slow.query.sample.rate", "1.0")));
+    }
+
+    /**
+     * Start timing a DAO call
+     * @param daoClass The concrete DAO class issuing the call
+     * @param operation The operation code
+     * @param sql The SQL being executed, used only by the slow-query log
+     * @return A timer that must be stopped when the call completes
+     */
+    public QueryTimer start(Class<?> daoClass, String operation, String sql) {
+        if (!enabled) {
+            return QueryTimer.DISABLED;
+        }
+        return new QueryTimer(this, getOrCreate(daoClass, operation), sql, System.nanoTime());
+    }
+
+    void record(OperationMetrics metrics, String sql, long nanos, boolean failed) {
+        boolean slow = nanos >= slowQueryThresholdNanos;
+        metrics.record(nanos, failed, slow);
+
+        if (slow && SLOW_QUERY_LOG.isWarnEnabled()) {
+            double rate = slowQuerySampleRate;
+            if (rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate)) {
+                SLOW_QUERY_LOG.warn("Slow query {}.{} took {} ms{}: {}",
+                    metrics.getDaoName(), metrics.getOperation(), nanos / 1_000_000,
+                    failed ? " (failed)" : "", sql);
+            }
+        }
+    }
+
+    private OperationMetrics getOrCreate(Class<?> daoClass, String operation) {
+        ConcurrentHashMap<String, OperationMetrics> operations = byDao.get(daoClass);
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(operation,
+                op -> new OperationMetrics(daoClass.getSimpleName(), op));
+        }
+        return metrics;
+    }
+
+    /**
+     * Get metrics for one DAO operation
+     * @param daoName The DAO simple class name, e.g. ProductDAO
+     * @param operation The operation code
+     * @return The metrics, or null if the operation has never been recorded
+     */
+    public OperationMetrics getMetrics(String daoName, String operation) {
+        ConcurrentHashMap<String, OperationMetrics> operations = allDaos.get(daoName);
+        return operations != null ? operations.get(operation) : null;
+    }
+
+    /**
+     * Get all recorded operations, slowest total time first
+     */
+    public List<OperationMetrics> getAllMetrics() {
+        List<OperationMetrics> result = new ArrayList<>();
+        for (ConcurrentHashMap<String, OperationMetrics> operations : allDaos.values()) {
+            result.addAll(operations.values());
+        }
+        result.sort(Comparator.comparingDouble(
+            (OperationMetrics m) -> m.getAverageMicros() * m.getCalls()).reversed());
+        return result;
+    }
+
+    /**
+     * Build a printable report of all recorded operations
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder("DAO query metrics:");
+        for (OperationMetrics metrics : getAllMetrics()) {
+            sb.append(System.lineSeparator()).append("  ").append(metrics);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reset every recorded counter and histogram
+     */
+    public void reset() {
+        for (ConcurrentHashMap<String, OperationMetrics> operations : allDaos.values()) {
+            for (OperationMetrics metrics : operations.values()) {
+                metrics.reset();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdNanos / 1_000_000;
+    }
+
+    public void setSlowQueryThresholdMillis(long thresholdMillis) {
+        this.slowQueryThresholdNanos = Math.max(0, thresholdMillis) * 1_000_000;
+    }
+
+    public double getSlowQuerySampleRate() {
+        return slowQuerySampleRate;
+    }
+
+    public void setSlowQuerySampleRate(double sampleRate) {
+        this.slowQuerySampleRate = Math.min(Math.max(sampleRate, 0.0), 1.0);
+    }
+}
@@ -0,0 +1,44 @@
+package syos.dao.metrics;
+
+/**
+ * Times a single DAO call and reports it to {@link QueryMetrics} when stopped
+ */
+public class QueryTimer {
+
+    /** Shared no-op timer returned while metrics are disabled */
+    static final QueryTimer DISABLED = new QueryTimer(null, null, null, 0);
+
+    private final QueryMetrics metrics;
+    private final OperationMetrics operation;
+    private final String sql;
+    private final long startNanos;
+    private boolean failed;
+    private boolean stopped;
+
+    QueryTimer(QueryMetrics metrics, OperationMetrics operation, String sql, long startNanos) {
+        this.metrics = metrics;
+        this.operation = operation;
+        this.sql = sql;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Mark the timed call as failed
+     */
+    public void failed() {
+        if (metrics != null) {
+            failed = true;
+        }
+    }
+
+    /**
+     * Stop the timer and record the sample; subsequent calls are ignored
+     */
+    public void stop() {
+        if (stopped || metrics == null) {
+            return;
+        }
+        stopped = true;
+        metrics.record(operation, sql, System.nanoTime() - startNanos, failed);
+    }
+}
@@ -0,0 +1,56 @@
+package syos.dao.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable audit row for audit trail listings
+ * Leaves out the old_values/new_values payloads, which are only needed when drilling into one entry
+ */
+public final class AuditLogSummary {
+    
+    private final int id;
+    private final String tableName;
+    private final String operation;
+    private final Integer recordId;
+    private final Integer userId;
+    private final LocalDateTime timestamp;
+    
+    public AuditLogSummary(int id, String tableName, String operation, Integer recordId, Integer userId, LocalDateTime timestamp) {
+        this.id = id;
+        this.tableName = tableName;
+        this.operation = operation;
+        this.recordId = recordId;
+        this.userId = userId;
+        this.timestamp = timestamp;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    public Integer getRecordId() {
+        return recordId;
+    }
+    
+    public Integer getUserId() {
+        return userId;
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        return "AuditLogSummary{id=" + id + ", table='" + tableName + "', operation=" + operation +
+               ", recordId=" + recordId + ", userId=" + userId + ", timestamp=" + timestamp + "}";
+    }
+}
@@ -0,0 +1,53 @@
+package syos.dao.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable order row for order lists: number, status, total and date only
+ */
+public final class OrderSummary {
+    
+    private final int id;
+    private final String orderNumber;
+    private final String status;
+    private final long totalCents;
+    private final LocalDateTime orderDate;
+    
+    public OrderSummary(int id, String orderNumber, String status, long totalCents, LocalDateTime orderDate) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.status = status;
+        this.totalCents = totalCents;
+        this.orderDate = orderDate;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public long getTotalCents() {
+        return totalCents;
+    }
+    
+    public double getTotal() {
+        return totalCents / 100.0;
+    }
+    
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+    
+    @Override
+    public String toString() {
+        return "OrderSummary{id=" + id + ", number='" + orderNumber + "', status=" + status +
+               ", totalCents=" + totalCents + ", date=" + orderDate + "}";
+    }
+}
@@ -0,0 +1,46 @@
+package syos.dao.projection;
+
+/**
+ * Immutable product row for pick lists and catalogue screens
+ * Carries the price as whole cents instead of the full Product entity
+ */
+public final class ProductSummary {
+    
+    private final int id;
+    private final String productCode;
+    private final String productName;
+    private final long unitPriceCents;
+    
+    public ProductSummary(int id, String productCode, String productName, long unitPriceCents) {
+        this.id = id;
+        this.productCode = productCode;
+        this.productName = productName;
+        this.unitPriceCents = unitPriceCents;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getProductCode() {
+        return productCode;
+    }
+    
+    public String getProductName() {
+        return productName;
+    }
+    
+    public long getUnitPriceCents() {
+        return unitPriceCents;
+    }
+    
+    public double getUnitPrice() {
+        return unitPriceCents / 100.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ProductSummary{id=%d, code='%s', name='%s', price=%d.%02d}",
+                             id, productCode, productName, unitPriceCents / 100, Math.abs(unitPriceCents % 100));
+    }
+}
@@ -13,7 +13,7 @@ public class AddSaltColumn {
     public static void main(String[] args) {
         ConnectionPool connectionPool = null;
         try {
-            connectionPool = new ConnectionPool();
+            connectionPool = ConnectionPool.getShared();
             
             try (Connection conn = connectionPool.getConnection();
                  Statement stmt = conn.createStatement()) {
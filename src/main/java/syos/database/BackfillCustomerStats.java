@@ -0,0 +1,138 @@
+package syos.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.syos.infrastructure.database.ConnectionPool;
+
+import syos.pos.CustomerStats;
+import syos.pos.PosService;
+
+/**
+ * Builds customer_stats from sales history, splitting customers into id ranges rebuilt in parallel
+ * Each range is recomputed from scratch in its own transaction, so the backfill is safe to re-run
+ * and to run while tills are open; run BackfillCustomers first so older sales carry a customer_id.
+ * Reports read customer_stats only after a run has finished, including on a fresh install
+ *
+ * Usage: BackfillCustomerStats [threads] (default: one per processor, at most the pool size)
+ */
+public class BackfillCustomerStats {
+
+    private static final int CHUNK_SIZE = 2000;
+
+    private final ConnectionPool connectionPool;
+    private final int threads;
+
+    public BackfillCustomerStats(ConnectionPool connectionPool, int threads) {
+        this.connectionPool = connectionPool;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Rebuild every customer's totals
+     * @throws SQLException if a range fails; completed ranges stay committed
+     */
+    public void migrate() throws SQLException, InterruptedException {
+        new PosService(connectionPool).ensureSalesTables();
+
+        int minId;
+        int maxId;
+        long lastSaleId;
+        try (Connection conn = connectionPool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(customer_id), MAX(customer_id), COALESCE(MAX(id), 0) FROM sales")) {
+            rs.next();
+            minId = rs.getInt(1);
+            maxId = rs.getInt(2);
+            boolean linked = !rs.wasNull();
+            lastSaleId = rs.getLong(3);
+            if (!linked) {
+                markBackfilled(lastSaleId);
+                System.out.println("✓ No sales are linked to customers; nothing to backfill");
+                return;
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "syos-backfill-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger rows = new AtomicInteger();
+        List<Future<?>> ranges = new ArrayList<>();
+        try {
+            for (long from = minId; from <= maxId; from += CHUNK_SIZE) {
+                int fromId = (int) from;
+                int toId = (int) Math.min(maxId, from + CHUNK_SIZE - 1);
+                ranges.add(executor.submit(() -> {
+                    rows.addAndGet(rebuild(fromId, toId));
+                    return null;
+                }));
+            }
+            for (Future<?> range : ranges) {
+                range.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<?> range : ranges) {
+                range.cancel(true);
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        markBackfilled(lastSaleId);
+        System.out.println("✓ Rebuilt customer stats for ids " + minId + ".." + maxId + " in " + ranges.size() +
+                           " ranges on " + threads + " threads (" + rows.get() + " rows changed)");
+    }
+
+    private void markBackfilled(long lastSaleId) throws SQLException {
+        try (Connection conn = connectionPool.getConnection()) {
+            CustomerStats.markBackfilled(conn, lastSaleId);
+        }
+    }
+
+    private int rebuild(int fromId, int toId) throws SQLException {
+        try (Connection conn = connectionPool.getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try {
+                int changed = CustomerStats.rebuildRange(conn, fromId, toId);
+                conn.commit();
+                return changed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        ConnectionPool connectionPool = null;
+        try {
+            connectionPool = ConnectionPool.getShared();
+            int threads = args.length > 0
+                          ? Integer.parseInt(args[0])
+                          : Math.min(Runtime.getRuntime().availableProcessors(), connectionPool.getStats().getMaxPoolSize());
+            new BackfillCustomerStats(connectionPool, threads).migrate();
+        } catch (Exception e) {
+            System.err.println("Error backfilling customer stats: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (connectionPool != null) {
+                connectionPool.close();
+            }
+        }
+    }
+}
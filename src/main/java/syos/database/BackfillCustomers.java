@@ -0,0 +1,249 @@
+package syos.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.syos.infrastructure.database.ConnectionPool;
+
+import syos.dao.CustomerDAO;
+import syos.pos.PosService;
+
+/**
+ * Moves customer identity out of sales history into the customers registry
+ * Creates one customer per distinct phone number in sales, named after that number's most recent sale,
+ * then sets sales.customer_id; safe to re-run, as registered numbers and linked sales are skipped
+ */
+public class BackfillCustomers {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int LINK_CHUNK_SIZE = 5000;
+
+    private final ConnectionPool connectionPool;
+
+    public BackfillCustomers(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Run every step of the migration
+     * @throws SQLException if a step fails; completed batches stay committed
+     */
+    public void migrate() throws SQLException {
+        new PosService(connectionPool).ensureSalesTables();
+        try (Connection conn = connectionPool.getConnection()) {
+            upgradeLegacyTable(conn);
+            Map<String, String[]> seen = collectCustomersFromSales(conn);
+            System.out.println("✓ Found " + seen.size() + " distinct customer phone numbers in sales");
+            System.out.println("✓ Registered " + registerMissing(conn, seen) + " new customers");
+            System.out.println("✓ Linked " + linkSales(conn, loadPhoneIds(conn)) + " sales to customers");
+        }
+    }
+
+    /**
+     * Older setup scripts created customers with a phone column and no unique phone/email indexes
+     */
+    private void upgradeLegacyTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!hasColumn(conn, "customers", "phone_number") && hasColumn(conn, "customers", "phone")) {
+                stmt.executeUpdate("ALTER TABLE customers CHANGE phone phone_number VARCHAR(20) NULL");
+                System.out.println("✓ Renamed customers.phone to phone_number");
+            }
+            addUniqueIndex(stmt, conn, "uk_customers_phone", "phone_number");
+            addUniqueIndex(stmt, conn, "uk_customers_email", "email");
+        }
+    }
+
+    private void addUniqueIndex(Statement stmt, Connection conn, String indexName, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'customers' AND COLUMN_NAME = ? AND NON_UNIQUE = 0";
+        try (PreparedStatement check = conn.prepareStatement(sql)) {
+            check.setString(1, column);
+            try (ResultSet rs = check.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        try {
+            stmt.executeUpdate("ALTER TABLE customers ADD UNIQUE KEY " + indexName + " (" + column + ")");
+            System.out.println("✓ Added unique index on customers." + column);
+        } catch (SQLException e) {
+            System.err.println("Warning: Could not add unique index on customers." + column +
+                               " (resolve duplicate values and re-run): " + e.getMessage());
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Read sales newest first, keeping the name and email of each phone number's latest sale
+     * @return Normalized phone number to {name, email}
+     */
+    private Map<String, String[]> collectCustomersFromSales(Connection conn) throws SQLException {
+        Map<String, String[]> customers = new LinkedHashMap<>();
+        String sql = "SELECT customer_name, customer_email, customer_phone FROM sales " +
+                     "WHERE customer_phone IS NOT NULL AND customer_phone <> '' ORDER BY id DESC";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // stream rows instead of buffering the whole table
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String phone = CustomerDAO.normalizePhone(rs.getString("customer_phone"));
+                    if (phone != null && !customers.containsKey(phone)) {
+                        customers.put(phone, new String[] {rs.getString("customer_name"), rs.getString("customer_email")});
+                    }
+                }
+            }
+        }
+        return customers;
+    }
+
+    private int registerMissing(Connection conn, Map<String, String[]> seen) throws SQLException {
+        Map<String, Integer> registered = loadPhoneIds(conn);
+        Set<String> emails = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT email FROM customers WHERE email IS NOT NULL")) {
+            while (rs.next()) {
+                emails.add(rs.getString(1).toLowerCase(Locale.ROOT));
+            }
+        }
+
+        String insert = "INSERT IGNORE INTO customers (customer_code, first_name, last_name, email, phone_number) " +
+                        "VALUES (?, ?, ?, ?, ?)";
+        int inserted = 0;
+        int pending = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+            for (Map.Entry<String, String[]> entry : seen.entrySet()) {
+                String phone = entry.getKey();
+                if (registered.containsKey(phone)) {
+                    continue;
+                }
+                String name = entry.getValue()[0] != null ? entry.getValue()[0].trim() : "";
+                if (name.isEmpty() || name.equalsIgnoreCase("Walk-in Customer")) {
+                    name = "Customer";
+                }
+                int space = name.indexOf(' ');
+                String email = entry.getValue()[1] != null ? entry.getValue()[1].trim() : "";
+                // Email is unique; only the first number seen with an address keeps it
+                if (email.isEmpty() || !emails.add(email.toLowerCase(Locale.ROOT))) {
+                    email = null;
+                }
+
+                stmt.setString(1, CustomerDAO.customerCodeFor(phone));
+                stmt.setString(2, truncate(space > 0 ? name.substring(0, space) : name, 50));
+                stmt.setString(3, truncate(space > 0 ? name.substring(space + 1).trim() : "", 50));
+                stmt.setString(4, email);
+                stmt.setString(5, phone);
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    inserted += countUpdated(stmt.executeBatch());
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                inserted += countUpdated(stmt.executeBatch());
+            }
+        }
+        return inserted;
+    }
+
+    private static String truncate(String value, int length) {
+        return value.length() > length ? value.substring(0, length) : value;
+    }
+
+    private static int countUpdated(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return total;
+    }
+
+    private Map<String, Integer> loadPhoneIds(Connection conn) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, phone_number FROM customers WHERE phone_number IS NOT NULL")) {
+            while (rs.next()) {
+                ids.put(rs.getString("phone_number"), rs.getInt("id"));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Set sales.customer_id in primary-key chunks, committing each chunk so the
+     * migration never holds locks on the whole sales table
+     */
+    private int linkSales(Connection conn, Map<String, Integer> phoneIds) throws SQLException {
+        String select = "SELECT id, customer_phone FROM sales " +
+                        "WHERE id > ? AND customer_id IS NULL AND customer_phone IS NOT NULL ORDER BY id LIMIT " + LINK_CHUNK_SIZE;
+        String update = "UPDATE sales SET customer_id = ? WHERE id = ?";
+        int linked = 0;
+        int lastId = 0;
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement selectStmt = conn.prepareStatement(select);
+             PreparedStatement updateStmt = conn.prepareStatement(update)) {
+            while (true) {
+                selectStmt.setInt(1, lastId);
+                int rows = 0;
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastId = rs.getInt("id");
+                        Integer customerId = phoneIds.get(CustomerDAO.normalizePhone(rs.getString("customer_phone")));
+                        if (customerId != null) {
+                            updateStmt.setInt(1, customerId);
+                            updateStmt.setInt(2, lastId);
+                            updateStmt.addBatch();
+                        }
+                    }
+                }
+                if (rows == 0) {
+                    break;
+                }
+                linked += countUpdated(updateStmt.executeBatch());
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return linked;
+    }
+
+    public static void main(String[] args) {
+        ConnectionPool connectionPool = null;
+        try {
+            connectionPool = ConnectionPool.getShared();
+            new BackfillCustomers(connectionPool).migrate();
+        } catch (Exception e) {
+            System.err.println("Error backfilling customers: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (connectionPool != null) {
+                connectionPool.close();
+            }
+        }
+    }
+}
@@ -41,6 +41,13 @@ public class Category {
         this.updatedAt = updatedAt;
     }
 
+    // Copy constructor, for handing out cached categories
+    public Category(Category other) {
+        this(other.id, other.categoryCode, other.categoryName, other.description, other.parentCategoryId,
+             other.isActive, other.createdAt, other.updatedAt);
+        this.parentCategory = other.parentCategory != null ? new Category(other.parentCategory) : null;
+    }
+
     // Getters and Setters
     public Integer getId() {
         return id;
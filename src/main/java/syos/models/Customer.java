@@ -64,6 +64,13 @@ public class Customer {
         this.updatedAt = updatedAt;
     }
 
+    // Copy constructor, for handing out cached customers
+    public Customer(Customer other) {
+        this(other.id, other.customerCode, other.firstName, other.lastName, other.email, other.phoneNumber,
+             other.address, other.city, other.postalCode, other.country, other.dateOfBirth, other.gender,
+             other.isActive, other.createdAt, other.updatedAt);
+    }
+
     // Getters and Setters
     public Integer getId() {
         return id;
@@ -62,6 +62,14 @@ public class Product {
         this.updatedAt = updatedAt;
     }
 
+    // Copy constructor, for handing out cached products
+    public Product(Product other) {
+        this(other.id, other.productCode, other.productName, other.description, other.categoryId, other.brand,
+             other.manufacturer, other.unitPrice, other.reorderLevel, other.barcode, other.unitOfMeasure,
+             other.isActive, other.isTaxable, other.taxRate, other.createdAt, other.updatedAt);
+        this.category = other.category != null ? new Category(other.category) : null;
+    }
+
     // Getters and Setters
     public Integer getId() {
         return id;
@@ -31,6 +31,11 @@ public class Role {
         this.updatedAt = updatedAt;
     }
 
+    // Copy constructor, for handing out cached roles
+    public Role(Role other) {
+        this(other.id, other.roleName, other.description, other.createdAt, other.updatedAt);
+    }
+
     // Getters and Setters
     public Integer getId() {
         return id;
@@ -67,6 +67,15 @@ public class User {
         this.updatedAt = updatedAt;
     }
 
+    // Copy constructor, for handing out cached users
+    public User(User other) {
+        this(other.id, other.userCode, other.username, other.email, other.passwordHash, other.firstName,
+             other.lastName, other.phone, other.roleId, other.isActive, other.lastLogin,
+             other.createdAt, other.updatedAt);
+        this.salt = other.salt;
+        this.role = other.role != null ? new Role(other.role) : null;
+    }
+
     // Getters and Setters with validation
     public Integer getId() {
         return id;
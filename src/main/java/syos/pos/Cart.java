@@ -0,0 +1,176 @@
+package syos.pos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shopping cart for one POS session
+ * Totals are kept in cents by a {@link CartPricing} that tracks the lines as they change
+ * Not thread-safe; each terminal session owns its own cart
+ */
+public class Cart {
+
+    /** Largest extra discount a cashier may add on top of the product discount */
+    public static final double MAX_ADDITIONAL_DISCOUNT_PERCENT = 50.0;
+
+    private final List<CartItem> items = new ArrayList<>();
+    private final CartPricing pricing = new CartPricing();
+    private final PromotionEngine promotions;
+
+    public Cart() {
+        this(null);
+    }
+
+    /**
+     * @param promotions Promotions to apply as lines change, or null for none
+     */
+    public Cart(PromotionEngine promotions) {
+        this.promotions = promotions;
+    }
+
+    /**
+     * Find the cart line for a product
+     * @return The line, or null if the product is not in the cart
+     */
+    public CartItem findItem(int productId) {
+        int index = indexOf(productId);
+        return index < 0 ? null : items.get(index);
+    }
+
+    private int indexOf(int productId) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getProductId() == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add a product to the cart, merging with an existing line
+     * An existing line keeps its discount unless the product discount is now higher;
+     * a new line gets the product discount plus the additional discount
+     * @param product The looked-up product
+     * @param quantity Units to add
+     * @param additionalDiscountPercent Extra cashier discount, 0 - 50
+     * @return The updated or new cart line
+     * @throws PosException if the quantity is invalid or exceeds available stock
+     */
+    public CartItem add(ProductLookup product, int quantity, double additionalDiscountPercent) throws PosException {
+        if (quantity <= 0) {
+            throw new PosException("Invalid quantity!");
+        }
+        int available = product.getTotalAvailable();
+        if (available <= 0) {
+            throw new PosException("Product is out of stock!");
+        }
+        if (quantity > available) {
+            throw new PosException("Insufficient stock! Available: " + available);
+        }
+
+        double productDiscountPercent = product.getEffectiveDiscountPercent();
+        int existingIndex = indexOf(product.getProductId());
+        if (existingIndex >= 0) {
+            CartItem existing = items.get(existingIndex);
+            int newQty = existing.getQuantity() + quantity;
+            if (newQty > available) {
+                throw new PosException("Total quantity would exceed available stock! Current in cart: " +
+                                       existing.getQuantity() + ", Available: " + available);
+            }
+            existing.setQuantity(newQty);
+            if (existing.getDiscountPercent() < productDiscountPercent) {
+                existing.setDiscountPercent(productDiscountPercent);
+            }
+            pricing.updateLine(existingIndex, existing.getQuantity(), existing.getDiscountRate());
+            applyPromotion(existingIndex, System.currentTimeMillis());
+            return existing;
+        }
+
+        if (additionalDiscountPercent < 0 || additionalDiscountPercent > MAX_ADDITIONAL_DISCOUNT_PERCENT) {
+            additionalDiscountPercent = 0.0;
+        }
+        CartItem item = new CartItem(product.getProductId(), product.getProductCode(), product.getDisplayName(),
+                                     quantity, product.getPrice(), productDiscountPercent + additionalDiscountPercent,
+                                     product.getCategoryId());
+        items.add(item);
+        applyPromotion(pricing.addLine(item.getUnitPriceCents(), item.getQuantity(), item.getDiscountRate()),
+                       System.currentTimeMillis());
+        return item;
+    }
+
+    /**
+     * Re-evaluate promotions for every line in one pass, e.g. before checkout in case one started or ended
+     */
+    public void applyPromotions() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < items.size(); i++) {
+            applyPromotion(i, now);
+        }
+    }
+
+    private void applyPromotion(int index, long nowMillis) {
+        if (promotions == null) {
+            return;
+        }
+        CartItem item = items.get(index);
+        Promotion best = promotions.bestFor(item.getProductId(), item.getCategoryId(),
+                                            item.getUnitPriceCents(), item.getQuantity(), nowMillis);
+        long cents = best != null ? best.discountCents(item.getUnitPriceCents(), item.getQuantity()) : 0;
+        long applied = pricing.setPromotionDiscount(index, cents);
+        item.setPromotion(applied > 0 ? best : null, applied);
+    }
+
+    /**
+     * Remove a cart line by its 1-based position
+     * @throws PosException if the position is out of range
+     */
+    public CartItem remove(int lineNumber) throws PosException {
+        if (lineNumber < 1 || lineNumber > items.size()) {
+            throw new PosException("Invalid item number!");
+        }
+        pricing.removeLine(lineNumber - 1);
+        return items.remove(lineNumber - 1);
+    }
+
+    public void clear() {
+        items.clear();
+        pricing.clear();
+    }
+
+    public List<CartItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public long getSubtotalCents() {
+        return pricing.getSubtotalCents();
+    }
+
+    public long getTotalDiscountCents() {
+        return pricing.getTotalDiscountCents();
+    }
+
+    public long getFinalTotalCents() {
+        return pricing.getFinalTotalCents();
+    }
+
+    public double getSubtotal() {
+        return Money.toAmount(pricing.getSubtotalCents());
+    }
+
+    public double getTotalDiscount() {
+        return Money.toAmount(pricing.getTotalDiscountCents());
+    }
+
+    public double getFinalTotal() {
+        return Money.toAmount(pricing.getFinalTotalCents());
+    }
+}
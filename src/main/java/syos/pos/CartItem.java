@@ -0,0 +1,92 @@
+package syos.pos;
+
+/**
+ * A single line in a POS cart
+ * Amounts are held in cents and priced with the same rounding as {@link CartPricing},
+ * so a line's figures always agree with the cart totals
+ */
+public class CartItem {
+    private final int productId;
+    private final String productCode;
+    private final String productName;
+    private int quantity;
+    private final long unitPriceCents;
+    private double discountPercent;
+    private int discountRate;
+    private long discountCents;
+    private final int categoryId;
+    private Promotion promotion;
+    private long promotionCents;
+
+    public CartItem(int productId, String productCode, String productName, int quantity,
+                    double unitPrice, double discountPercent) {
+        this(productId, productCode, productName, quantity, unitPrice, discountPercent, 0);
+    }
+
+    public CartItem(int productId, String productCode, String productName, int quantity,
+                    double unitPrice, double discountPercent, int categoryId) {
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.productCode = productCode;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.unitPriceCents = Money.toCents(unitPrice);
+        this.discountPercent = discountPercent;
+        this.discountRate = Money.toRate(discountPercent);
+        recalculate();
+    }
+
+    void setQuantity(int quantity) {
+        this.quantity = quantity;
+        recalculate();
+    }
+
+    void setDiscountPercent(double discountPercent) {
+        this.discountPercent = discountPercent;
+        this.discountRate = Money.toRate(discountPercent);
+        recalculate();
+    }
+
+    void setPromotion(Promotion promotion, long promotionCents) {
+        this.promotion = promotion;
+        this.promotionCents = promotionCents;
+    }
+
+    private void recalculate() {
+        this.discountCents = Money.discountCents(unitPriceCents * quantity, discountRate);
+    }
+
+    public int getProductId() { return productId; }
+    public String getProductCode() { return productCode; }
+    public String getProductName() { return productName; }
+    public int getQuantity() { return quantity; }
+    public double getUnitPrice() { return Money.toAmount(unitPriceCents); }
+    public double getDiscountPercent() { return discountPercent; }
+    public double getLineTotal() { return Money.toAmount(getLineTotalCents()); }
+
+    public long getUnitPriceCents() { return unitPriceCents; }
+    public int getDiscountRate() { return discountRate; }
+    public int getCategoryId() { return categoryId; }
+    public long getDiscountCents() { return discountCents + promotionCents; }
+    public long getLineTotalCents() { return unitPriceCents * quantity - discountCents - promotionCents; }
+
+    /**
+     * @return The promotion applied to this line, or null if none
+     */
+    public Promotion getPromotion() { return promotion; }
+    public long getPromotionCents() { return promotionCents; }
+
+    /**
+     * Get the unit price after this line's discount, for display
+     */
+    public double getEffectiveUnitPrice() {
+        return quantity > 0 ? Money.toAmount(getLineTotalCents()) / quantity : getUnitPrice();
+    }
+
+    /**
+     * Get the discount amount for the whole line, including any promotion
+     */
+    public double getDiscountAmount() {
+        return Money.toAmount(getDiscountCents());
+    }
+}
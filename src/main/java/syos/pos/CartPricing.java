@@ -0,0 +1,170 @@
+package syos.pos;
+
+import java.util.Arrays;
+
+/**
+ * Cart line prices and running totals in cents, held in parallel primitive arrays
+ * Adding, changing or removing a line adjusts the totals by that line's difference, so reading
+ * totals is constant time and nothing is allocated except when the arrays grow
+ * Every figure is whole cents and each line's discount is rounded once, so line totals
+ * always add up to the cart total exactly as they are stored in DECIMAL(10,2) columns
+ * Not thread-safe; owned by a {@link Cart}
+ */
+public class CartPricing {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] unitCents = new long[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int[] rates = new int[INITIAL_CAPACITY];
+    private long[] discountCents = new long[INITIAL_CAPACITY];
+    private long[] promotionCents = new long[INITIAL_CAPACITY];
+    private int lineCount;
+
+    private long subtotalCents;
+    private long totalDiscountCents;
+
+    /**
+     * Append a line
+     * @param unitPriceCents Unit price in cents
+     * @param quantity Units
+     * @param rate Discount rate in millionths, see {@link Money#toRate(double)}
+     * @return The new line's 0-based index
+     */
+    public int addLine(long unitPriceCents, int quantity, int rate) {
+        if (lineCount == unitCents.length) {
+            grow();
+        }
+        int index = lineCount++;
+        unitCents[index] = unitPriceCents;
+        quantities[index] = 0;
+        rates[index] = 0;
+        discountCents[index] = 0;
+        promotionCents[index] = 0;
+        updateLine(index, quantity, rate);
+        return index;
+    }
+
+    /**
+     * Change a line's quantity and discount rate
+     * Its promotion discount is kept, capped to the new line amount
+     */
+    public void updateLine(int index, int quantity, int rate) {
+        checkIndex(index);
+        long gross = unitCents[index] * quantity;
+        long discount = Money.discountCents(gross, rate);
+        subtotalCents += gross - unitCents[index] * quantities[index];
+        totalDiscountCents += discount - discountCents[index];
+        quantities[index] = quantity;
+        rates[index] = rate;
+        discountCents[index] = discount;
+        setPromotionDiscount(index, promotionCents[index]);
+    }
+
+    /**
+     * Set a line's promotion discount, taken after its rate discount
+     * @param cents The promotion discount in cents; capped so the line never goes below zero
+     * @return The discount actually applied
+     */
+    public long setPromotionDiscount(int index, long cents) {
+        checkIndex(index);
+        long applied = Math.max(0, Math.min(cents, unitCents[index] * quantities[index] - discountCents[index]));
+        totalDiscountCents += applied - promotionCents[index];
+        promotionCents[index] = applied;
+        return applied;
+    }
+
+    /**
+     * Remove a line; later lines move down one index
+     */
+    public void removeLine(int index) {
+        checkIndex(index);
+        subtotalCents -= unitCents[index] * quantities[index];
+        totalDiscountCents -= discountCents[index] + promotionCents[index];
+        int tail = lineCount - index - 1;
+        System.arraycopy(unitCents, index + 1, unitCents, index, tail);
+        System.arraycopy(quantities, index + 1, quantities, index, tail);
+        System.arraycopy(rates, index + 1, rates, index, tail);
+        System.arraycopy(discountCents, index + 1, discountCents, index, tail);
+        System.arraycopy(promotionCents, index + 1, promotionCents, index, tail);
+        lineCount--;
+    }
+
+    /**
+     * Remove every line, keeping the arrays for the next basket
+     */
+    public void clear() {
+        lineCount = 0;
+        subtotalCents = 0;
+        totalDiscountCents = 0;
+    }
+
+    private void grow() {
+        int capacity = unitCents.length * 2;
+        unitCents = Arrays.copyOf(unitCents, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        rates = Arrays.copyOf(rates, capacity);
+        discountCents = Arrays.copyOf(discountCents, capacity);
+        promotionCents = Arrays.copyOf(promotionCents, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + lineCount);
+        }
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public long getUnitPriceCents(int index) {
+        checkIndex(index);
+        return unitCents[index];
+    }
+
+    public int getQuantity(int index) {
+        checkIndex(index);
+        return quantities[index];
+    }
+
+    public int getRate(int index) {
+        checkIndex(index);
+        return rates[index];
+    }
+
+    public long getLineGrossCents(int index) {
+        checkIndex(index);
+        return unitCents[index] * quantities[index];
+    }
+
+    /**
+     * @return The line's rate and promotion discounts together
+     */
+    public long getLineDiscountCents(int index) {
+        checkIndex(index);
+        return discountCents[index] + promotionCents[index];
+    }
+
+    public long getLinePromotionCents(int index) {
+        checkIndex(index);
+        return promotionCents[index];
+    }
+
+    public long getLineTotalCents(int index) {
+        checkIndex(index);
+        return unitCents[index] * quantities[index] - discountCents[index] - promotionCents[index];
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    public long getTotalDiscountCents() {
+        return totalDiscountCents;
+    }
+
+    public long getFinalTotalCents() {
+        return subtotalCents - totalDiscountCents;
+    }
+}
@@ -0,0 +1,23 @@
+package syos.pos;
+
+/**
+ * The user operating a POS session
+ */
+public class Cashier {
+    private final int id;
+    private final String email;
+    private final String fullName;
+    private final String roleName;
+
+    public Cashier(int id, String email, String fullName, String roleName) {
+        this.id = id;
+        this.email = email;
+        this.fullName = fullName;
+        this.roleName = roleName;
+    }
+
+    public int getId() { return id; }
+    public String getEmail() { return email; }
+    public String getFullName() { return fullName; }
+    public String getRoleName() { return roleName; }
+}
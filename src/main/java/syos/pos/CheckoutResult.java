@@ -0,0 +1,26 @@
+package syos.pos;
+
+/**
+ * Outcome of a completed checkout
+ */
+public class CheckoutResult {
+    private final int saleId;
+    private final String billNumber;
+    private final double finalTotal;
+    private final double cashReceived;
+    private final double change;
+
+    public CheckoutResult(int saleId, String billNumber, double finalTotal, double cashReceived, double change) {
+        this.saleId = saleId;
+        this.billNumber = billNumber;
+        this.finalTotal = finalTotal;
+        this.cashReceived = cashReceived;
+        this.change = change;
+    }
+
+    public int getSaleId() { return saleId; }
+    public String getBillNumber() { return billNumber; }
+    public double getFinalTotal() { return finalTotal; }
+    public double getCashReceived() { return cashReceived; }
+    public double getChange() { return change; }
+}
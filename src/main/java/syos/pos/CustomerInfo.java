@@ -0,0 +1,31 @@
+package syos.pos;
+
+/**
+ * Customer details captured at checkout
+ */
+public class CustomerInfo {
+    private final String name;
+    private final String email;
+    private final String phone;
+    private final boolean existing;
+    private final Integer customerId;
+
+    public CustomerInfo(String name, String email, String phone, boolean existing) {
+        this(name, email, phone, existing, null);
+    }
+
+    public CustomerInfo(String name, String email, String phone, boolean existing, Integer customerId) {
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.existing = existing;
+        this.customerId = customerId;
+    }
+
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getPhone() { return phone; }
+    public boolean isExisting() { return existing; }
+    /** The customers.id of a registered customer, or null for one first seen at this checkout */
+    public Integer getCustomerId() { return customerId; }
+}
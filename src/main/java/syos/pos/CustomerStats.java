@@ -0,0 +1,99 @@
+package syos.pos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import syos.analytics.AnalyticsWatermarks;
+
+/**
+ * Running purchase totals per registered customer, kept in customer_stats
+ * Checkout adds each sale inside its own transaction, so the table always agrees with sales;
+ * the total_spent index makes "top customers" an index read instead of a scan of all sales.
+ * Sales older than the table only count once BackfillCustomerStats has run, which it records
+ * as a watermark; until then readers must not treat the totals as complete
+ */
+public final class CustomerStats {
+
+    public static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS customer_stats (" +
+        "customer_id INT PRIMARY KEY," +
+        "transaction_count INT NOT NULL DEFAULT 0," +
+        "total_spent DECIMAL(14,2) NOT NULL DEFAULT 0.00," +
+        "first_purchase_at TIMESTAMP NULL," +
+        "last_purchase_at TIMESTAMP NULL," +
+        "INDEX idx_customer_stats_total_spent (total_spent)" +
+        ")";
+
+    /**
+     * Rebuild the rows of one customer id range from sales; a locking read under REPEATABLE READ
+     * holds off checkouts in the range until the chunk commits, so none is counted twice or lost
+     */
+    private static final String REBUILD_RANGE_SQL = "INSERT INTO customer_stats " +
+        "(customer_id, transaction_count, total_spent, first_purchase_at, last_purchase_at) " +
+        "SELECT customer_id, COUNT(*), SUM(final_amount), MIN(sale_date), MAX(sale_date) FROM sales " +
+        "WHERE customer_id BETWEEN ? AND ? GROUP BY customer_id " +
+        "ON DUPLICATE KEY UPDATE transaction_count = VALUES(transaction_count), total_spent = VALUES(total_spent), " +
+        "first_purchase_at = VALUES(first_purchase_at), last_purchase_at = VALUES(last_purchase_at)";
+
+    /** Watermark tracker written when a backfill has rebuilt every customer's totals */
+    public static final String BACKFILL_TRACKER = "customer_stats_backfill";
+
+    private static final String RECORD_SQL = "INSERT INTO customer_stats " +
+        "(customer_id, transaction_count, total_spent, first_purchase_at, last_purchase_at) " +
+        "VALUES (?, 1, ?, NOW(), NOW()) " +
+        "ON DUPLICATE KEY UPDATE transaction_count = transaction_count + 1, " +
+        "total_spent = total_spent + VALUES(total_spent), " +
+        "first_purchase_at = COALESCE(first_purchase_at, VALUES(first_purchase_at)), " +
+        "last_purchase_at = VALUES(last_purchase_at)";
+
+    private CustomerStats() {
+    }
+
+    public static void ensureTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CREATE_TABLE_SQL);
+        }
+    }
+
+    /**
+     * @return Whether a backfill has completed, so the totals cover all sales and not just recent ones
+     */
+    public static boolean isBackfilled(Connection conn) throws SQLException {
+        return AnalyticsWatermarks.contains(conn, BACKFILL_TRACKER);
+    }
+
+    /**
+     * Record that every range has been rebuilt from sales up to lastSaleId
+     */
+    public static void markBackfilled(Connection conn, long lastSaleId) throws SQLException {
+        AnalyticsWatermarks.ensureTable(conn);
+        AnalyticsWatermarks.write(conn, BACKFILL_TRACKER, lastSaleId);
+    }
+
+    /**
+     * Add one sale to a customer's totals; call on the checkout's connection before it commits
+     * @param conn The sale's transaction
+     * @param customerId The customer
+     * @param finalCents The sale's final amount
+     */
+    public static void recordPurchase(Connection conn, int customerId, long finalCents) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(RECORD_SQL)) {
+            stmt.setInt(1, customerId);
+            stmt.setBigDecimal(2, Money.toDecimal(finalCents));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recompute the totals of every customer with an id in [fromId, toId] from sales
+     * @return Rows changed, as reported by the driver
+     */
+    public static int rebuildRange(Connection conn, int fromId, int toId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(REBUILD_RANGE_SQL)) {
+            stmt.setInt(1, fromId);
+            stmt.setInt(2, toId);
+            return stmt.executeUpdate();
+        }
+    }
+}
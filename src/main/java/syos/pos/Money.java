@@ -0,0 +1,56 @@
+package syos.pos;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between LKR amounts and whole cents, the unit carts price in
+ * Cent amounts map one-to-one onto DECIMAL(10,2) columns, so what a cart shows is what is stored
+ */
+public final class Money {
+
+    /** A discount rate covering the whole price, in millionths */
+    public static final int FULL_RATE = 1_000_000;
+
+    private Money() {
+    }
+
+    /**
+     * Convert an amount to cents, rounding half away from zero like MySQL does for DECIMAL(10,2)
+     */
+    public static long toCents(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert cents to an amount; exact to two decimal places
+     */
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Convert cents to a DECIMAL(10,2) parameter value
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Convert a discount percentage to a rate in millionths of the price, clamped to 0 - 100%
+     * Millionths keep discounts derived from fixed amounts (10 off 30 is 33.3333%) accurate to the cent
+     */
+    public static int toRate(double discountPercent) {
+        long rate = Math.round(discountPercent * (FULL_RATE / 100));
+        return (int) Math.max(0, Math.min(FULL_RATE, rate));
+    }
+
+    /**
+     * Get the discount on an amount, rounded half up to the cent
+     * @param grossCents A non-negative amount in cents
+     * @param rate Discount rate in millionths, see {@link #toRate(double)}
+     */
+    public static long discountCents(long grossCents, int rate) {
+        return (grossCents * rate + FULL_RATE / 2) / FULL_RATE;
+    }
+}
@@ -0,0 +1,17 @@
+package syos.pos;
+
+/**
+ * A POS operation was rejected, e.g. insufficient stock or cash
+ * The message is safe to show to the cashier
+ */
+public class PosException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public PosException(String message) {
+        super(message);
+    }
+
+    public PosException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
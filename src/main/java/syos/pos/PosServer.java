@@ -0,0 +1,248 @@
+package syos.pos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionPool;
+
+/**
+ * Headless POS server hosting many terminal sessions in one JVM over a line-based TCP protocol
+ * Each session runs on its own virtual thread when the JDK provides them (Java 21+),
+ * otherwise on a bounded platform thread pool; all sessions share one PosService and ConnectionPool
+ *
+ * Configured from config.properties:
+ *   pos.server.port             - listening port (default 7070)
+ *   pos.server.bind.address     - bind address (default 127.0.0.1)
+ *   pos.server.max.sessions     - concurrent sessions; further terminals are refused (default 64)
+ *   pos.server.idle.timeout.ms  - idle session timeout (default 1800000)
+ */
+public class PosServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PosServer.class);
+
+    private final PosService posService;
+    private final int port;
+    private final InetAddress bindAddress;
+    private final int maxSessions;
+    private final int idleTimeoutMillis;
+    private final Semaphore sessionPermits;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final Set<PosSession> sessions = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService sessionExecutor;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private volatile boolean running;
+    private boolean virtualThreads;
+
+    public PosServer(PosService posService, int port, InetAddress bindAddress, int maxSessions, int idleTimeoutMillis) {
+        this.posService = posService;
+        this.port = port;
+        this.bindAddress = bindAddress;
+        this.maxSessions = maxSessions;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.sessionPermits = new Semaphore(maxSessions);
+    }
+
+    /**
+     * Create the per-session executor: virtual-thread-per-task where available, else a bounded pool
+     */
+    private ExecutorService createSessionExecutor() {
+        try {
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualThreads = true;
+            return (ExecutorService) executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Pre-21 JDK, or virtual threads still in preview
+            virtualThreads = false;
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(maxSessions, r -> {
+                Thread thread = new Thread(r, "syos-pos-session-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Bind the server socket and start accepting terminals
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket(port, 50, bindAddress);
+        sessionExecutor = createSessionExecutor();
+        running = true;
+
+        acceptThread = new Thread(this::acceptLoop, "syos-pos-acceptor");
+        acceptThread.start();
+        logger.info("POS server listening on {}:{} (maxSessions={}, virtualThreads={})",
+                    bindAddress.getHostAddress(), getPort(), maxSessions, virtualThreads);
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                break; // server socket closed
+            } catch (IOException e) {
+                logger.warn("Failed to accept POS terminal: {}", e.getMessage());
+                continue;
+            }
+
+            if (!sessionPermits.tryAcquire()) {
+                refuse(socket, "ERR Server busy, all " + maxSessions + " sessions in use");
+                continue;
+            }
+            try {
+                socket.setSoTimeout(idleTimeoutMillis);
+                socket.setTcpNoDelay(true);
+                PosSession session = new PosSession(socket, posService);
+                sessions.add(session);
+                try {
+                    sessionExecutor.execute(() -> {
+                        activeSessions.incrementAndGet();
+                        try {
+                            session.run();
+                        } finally {
+                            sessions.remove(session);
+                            activeSessions.decrementAndGet();
+                            sessionPermits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    sessions.remove(session);
+                    throw e;
+                }
+            } catch (IOException | RejectedExecutionException e) {
+                sessionPermits.release();
+                refuse(socket, "ERR Server unavailable");
+            }
+        }
+    }
+
+    private static void refuse(Socket socket, String message) {
+        try (Socket s = socket;
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            out.println(message);
+        } catch (IOException e) {
+            // Terminal already gone
+        }
+    }
+
+    /**
+     * Get the bound port, useful when started on port 0
+     */
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stop accepting terminals, disconnect open sessions and wait briefly for their threads to finish
+     * A request already being handled completes; its reply is lost if the terminal is gone
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.warn("Error closing POS server socket: {}", e.getMessage());
+        }
+        try {
+            // Once the acceptor has exited no new session can register behind the sweep below
+            acceptThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (PosSession session : sessions) {
+            session.close();
+        }
+        sessionExecutor.shutdown();
+        try {
+            if (!sessionExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                sessionExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            sessionExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("POS server stopped");
+    }
+
+    /**
+     * Block until the server is closed
+     */
+    public void awaitTermination() throws InterruptedException {
+        Thread thread = acceptThread;
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    public static void main(String[] args) {
+        Properties props = new Properties();
+        try (InputStream input = PosServer.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default POS server settings");
+        }
+
+        ConnectionPool connectionPool = ConnectionPool.getShared();
+        try {
+            PosService posService = new PosService(connectionPool);
+            posService.ensureSalesTables();
+
+            PosServer server = new PosServer(posService,
+                Integer.parseInt(props.getProperty("pos.server.port", "7070")),
+                InetAddress.getByName(props.getProperty("pos.server.bind.address", "127.0.0.1")),
+                Integer.parseInt(props.getProperty("pos.server.max.sessions", "64")),
+                Integer.parseInt(props.getProperty("pos.server.idle.timeout.ms", "1800000")));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "syos-pos-shutdown"));
+
+            server.start();
+            server.awaitTermination();
+
+        } catch (Exception e) {
+            System.err.println("Failed to start POS server: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            connectionPool.close();
+        }
+    }
+}
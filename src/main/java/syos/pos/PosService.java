@@ -0,0 +1,628 @@
+package syos.pos;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import com.syos.infrastructure.database.ConnectionPool;
+import com.syos.infrastructure.database.ConnectionProvider;
+
+import syos.analytics.SaleEvent;
+import syos.analytics.SalesFeed;
+import syos.dao.CustomerDAO;
+import syos.dao.DatabaseException;
+import syos.dao.ProductDAO;
+import syos.dao.TransactionTemplate;
+import syos.models.Customer;
+import syos.models.Product;
+import syos.services.PasswordHashingService;
+
+/**
+ * Product lookup, customer lookup and checkout for POS terminals
+ * Stateless and thread-safe: every call borrows its own connection, so one instance
+ * serves the interactive console and every session of the POS server
+ */
+public class PosService {
+
+    /**
+     * Single-row counter holding the last bill number issued
+     * Incrementing it inside the checkout transaction locks the row until commit, so concurrent
+     * tills take consecutive numbers and a rolled-back sale gives its number back
+     */
+    static final String CREATE_BILL_COUNTER_SQL = "CREATE TABLE IF NOT EXISTS bill_counter (" +
+        "id TINYINT PRIMARY KEY," +
+        "last_bill INT NOT NULL" +
+        ")";
+
+    /** Start the counter after the highest bill already issued; does nothing once the row exists */
+    private static final String SEED_BILL_COUNTER_SQL =
+        "INSERT IGNORE INTO bill_counter (id, last_bill) " +
+        "SELECT 1, COALESCE(MAX(CAST(bill_number AS UNSIGNED)), 0) FROM sales";
+
+    private static final String NEXT_BILL_SQL =
+        "UPDATE bill_counter SET last_bill = LAST_INSERT_ID(last_bill + 1) WHERE id = 1";
+
+    /** MySQL error code for a missing table */
+    private static final int ER_NO_SUCH_TABLE = 1146;
+
+    /** MySQL error code for a missing column, e.g. a customers table that predates phone_number */
+    private static final int ER_BAD_FIELD_ERROR = 1054;
+
+    private final ConnectionProvider connectionProvider;
+    private final PasswordHashingService passwordHasher;
+    private final CustomerDAO customerDAO;
+    private final ProductDAO productDAO;
+    private final PromotionEngine promotionEngine;
+
+    public PosService(ConnectionProvider connectionProvider) {
+        this(connectionProvider, PasswordHashingService.getInstance());
+    }
+
+    public PosService(ConnectionProvider connectionProvider, PasswordHashingService passwordHasher) {
+        this.connectionProvider = connectionProvider;
+        this.passwordHasher = passwordHasher;
+        this.customerDAO = connectionProvider instanceof ConnectionPool
+                           ? new CustomerDAO((ConnectionPool) connectionProvider) : null;
+        this.productDAO = connectionProvider instanceof ConnectionPool
+                          ? new ProductDAO((ConnectionPool) connectionProvider) : null;
+        this.promotionEngine = new PromotionEngine(connectionProvider);
+    }
+
+    /**
+     * Create an empty cart priced with the current promotions
+     * The first cart loads the promotion rules and starts their reload schedule
+     */
+    public Cart newCart() {
+        promotionEngine.start();
+        return new Cart(promotionEngine);
+    }
+
+    public PromotionEngine getPromotionEngine() {
+        return promotionEngine;
+    }
+
+    /**
+     * Create the sales and sale_items tables if they do not exist
+     * @throws SQLException if the DDL fails
+     */
+    public void ensureSalesTables() throws SQLException {
+        String createSalesTable = "CREATE TABLE IF NOT EXISTS sales (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY," +
+            "bill_number VARCHAR(50) UNIQUE NOT NULL," +
+            "customer_name VARCHAR(255)," +
+            "customer_email VARCHAR(255)," +
+            "customer_phone VARCHAR(20)," +
+            "customer_id INT NULL," +
+            "total_amount DECIMAL(10,2) NOT NULL," +
+            "discount_amount DECIMAL(10,2) DEFAULT 0.00," +
+            "tax_amount DECIMAL(10,2) DEFAULT 0.00," +
+            "final_amount DECIMAL(10,2) NOT NULL," +
+            "payment_method ENUM('CASH', 'CARD', 'DIGITAL', 'CREDIT') DEFAULT 'CASH'," +
+            "sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+            "cashier_id INT," +
+            "notes TEXT," +
+            "FOREIGN KEY (cashier_id) REFERENCES users(id) ON DELETE SET NULL," +
+            "INDEX idx_bill_number (bill_number)," +
+            "INDEX idx_sale_date (sale_date)," +
+            "INDEX idx_cashier_id (cashier_id)," +
+            "INDEX idx_customer_id (customer_id)" +
+            ")";
+
+        String createSaleItemsTable = "CREATE TABLE IF NOT EXISTS sale_items (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY," +
+            "sale_id INT NOT NULL," +
+            "product_id INT NOT NULL," +
+            "quantity INT NOT NULL," +
+            "unit_price DECIMAL(10,2) NOT NULL," +
+            "discount_amount DECIMAL(10,2) DEFAULT 0.00," +
+            "total_price DECIMAL(10,2) NOT NULL," +
+            "FOREIGN KEY (sale_id) REFERENCES sales(id) ON DELETE CASCADE," +
+            "FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE RESTRICT," +
+            "INDEX idx_sale_id (sale_id)," +
+            "INDEX idx_product_id (product_id)" +
+            ")";
+
+        try (Connection conn = connectionProvider.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CustomerDAO.CREATE_TABLE_SQL);
+            stmt.executeUpdate(createSalesTable);
+            stmt.executeUpdate(createSaleItemsTable);
+            stmt.executeUpdate(PromotionEngine.CREATE_TABLE_SQL);
+            stmt.executeUpdate(CustomerStats.CREATE_TABLE_SQL);
+            stmt.executeUpdate(CREATE_BILL_COUNTER_SQL);
+            stmt.executeUpdate(SEED_BILL_COUNTER_SQL);
+            if (!hasColumn(conn, "sales", "customer_id")) {
+                stmt.executeUpdate("ALTER TABLE sales ADD COLUMN customer_id INT NULL AFTER customer_phone, " +
+                                   "ADD INDEX idx_customer_id (customer_id)");
+            }
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Authenticate a cashier for a headless session
+     * Accepts PBKDF2 and legacy salted SHA-256 hashes through the hashing service, and the
+     * Base64-encoded passwords written by older console builds
+     * @return The cashier, or null if the credentials are invalid
+     * @throws Exception if the lookup or hashing fails
+     */
+    public Cashier authenticateCashier(String email, String password) throws Exception {
+        String sql = "SELECT u.id, u.email, u.first_name, u.last_name, u.password_hash, u.salt, r.role_name " +
+                     "FROM users u LEFT JOIN roles r ON u.role_id = r.id " +
+                     "WHERE u.email = ? AND u.is_active = true";
+
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, email);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                String storedHash = rs.getString("password_hash");
+                boolean valid = passwordHasher.verify(password, storedHash, rs.getString("salt")).get().matches()
+                                || matchesLegacyEncoding(password, storedHash);
+                if (!valid) {
+                    return null;
+                }
+
+                String lastName = rs.getString("last_name");
+                return new Cashier(rs.getInt("id"), rs.getString("email"),
+                                   rs.getString("first_name") + (lastName != null ? " " + lastName : ""),
+                                   rs.getString("role_name") != null ? rs.getString("role_name") : "USER");
+            }
+        }
+    }
+
+    private boolean matchesLegacyEncoding(String password, String storedHash) {
+        if (storedHash == null || PasswordHashingService.isPbkdf2Hash(storedHash)) {
+            return false;
+        }
+        try {
+            return password.equals(new String(Base64.getDecoder().decode(storedHash)));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Look up a product with price, discount and stock information
+     * The product itself comes from the ProductDAO code cache, so unknown codes and repeat scans
+     * skip the catalog query; discounts and stock change often and are read by primary key
+     * @param productCode The scanned product code
+     * @return The product, or null if no product has that code
+     * @throws SQLException if the query fails
+     */
+    public ProductLookup findProduct(String productCode) throws SQLException {
+        if (productDAO == null) {
+            return findProductBySql(productCode);
+        }
+        Product product;
+        try {
+            product = productDAO.findByProductCode(productCode).orElse(null);
+        } catch (DatabaseException e) {
+            throw new SQLException(e.getMessage(), e.getErrorCode(), e);
+        }
+        if (product == null) {
+            return null;
+        }
+
+        String query = "SELECT p.discount_amount, p.discount_percentage, " +
+                       "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
+                       "COALESCE(il.warehouse_qty, 0) as warehouse_qty " +
+                       "FROM products p " +
+                       "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                       "WHERE p.id = ?";
+
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, product.getId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new ProductLookup(
+                    product.getId(),
+                    product.getProductCode(),
+                    product.getProductName(),
+                    product.getBrand(),
+                    product.getUnitPrice() != null ? product.getUnitPrice().doubleValue() : 0.0,
+                    rs.getDouble("discount_amount"),
+                    rs.getDouble("discount_percentage"),
+                    rs.getInt("shelf_qty"),
+                    rs.getInt("warehouse_qty"),
+                    product.getCategoryId() != null ? product.getCategoryId() : 0);
+            }
+        }
+    }
+
+    /**
+     * Legacy lookup for connection sources without DAO support
+     */
+    private ProductLookup findProductBySql(String productCode) throws SQLException {
+        String query = "SELECT p.id as product_id, p.product_code, p.product_name, p.brand, " +
+                       "p.unit_price as selling_price, p.discount_amount, p.discount_percentage, p.category_id, " +
+                       "COALESCE(il.shelf_qty, 0) as shelf_qty, " +
+                       "COALESCE(il.warehouse_qty, 0) as warehouse_qty " +
+                       "FROM products p " +
+                       "LEFT JOIN inventory_locations il ON p.id = il.product_id " +
+                       "WHERE p.product_code = ?";
+
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, productCode);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new ProductLookup(
+                    rs.getInt("product_id"),
+                    productCode,
+                    rs.getString("product_name"),
+                    rs.getString("brand"),
+                    rs.getDouble("selling_price"),
+                    rs.getDouble("discount_amount"),
+                    rs.getDouble("discount_percentage"),
+                    rs.getInt("shelf_qty"),
+                    rs.getInt("warehouse_qty"),
+                    rs.getInt("category_id"));
+            }
+        }
+    }
+
+    /**
+     * Find a returning customer by phone number in the customer registry
+     * Served from the in-memory phone cache when possible, otherwise by the unique phone_number index
+     * @return The customer, or null if the phone number has not been seen before
+     * @throws SQLException if the query fails
+     */
+    public CustomerInfo findReturningCustomer(String phoneNumber) throws SQLException {
+        if (customerDAO == null) {
+            return findReturningCustomerInSales(phoneNumber);
+        }
+        try {
+            Customer customer = customerDAO.findByPhoneNumber(phoneNumber).orElse(null);
+            if (customer == null) {
+                return null;
+            }
+            String name = (customer.getFirstName() + " " + customer.getLastName()).trim();
+            return new CustomerInfo(name, customer.getEmail(), customer.getPhoneNumber(), true, customer.getId());
+        } catch (DatabaseException e) {
+            throw new SQLException(e.getMessage(), e.getErrorCode(), e);
+        }
+    }
+
+    /**
+     * Legacy lookup for connection sources without DAO support; scans sales history
+     */
+    private CustomerInfo findReturningCustomerInSales(String phoneNumber) throws SQLException {
+        String checkQuery = "SELECT customer_name, customer_email FROM sales WHERE customer_phone = ? LIMIT 1";
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(checkQuery)) {
+
+            stmt.setString(1, phoneNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new CustomerInfo(rs.getString("customer_name"), rs.getString("customer_email"), phoneNumber, true);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validate payment, then record the sale, register a new customer, deduct stock and update
+     * the customer's totals in one unit of work; the receipt is written once it has committed
+     * @param cart The cart to check out
+     * @param customer The customer
+     * @param cashReceived Cash tendered
+     * @param cashier The cashier recording the sale
+     * @return The checkout result
+     * @throws PosException if the cart is empty or the cash is insufficient
+     * @throws SQLException if the sale cannot be saved; nothing is committed
+     */
+    public CheckoutResult checkout(Cart cart, CustomerInfo customer, double cashReceived, Cashier cashier)
+            throws PosException, SQLException {
+        if (cart.isEmpty()) {
+            throw new PosException("Cannot checkout with empty cart!");
+        }
+        cart.applyPromotions();
+        long finalCents = cart.getFinalTotalCents();
+        long cashCents = Money.toCents(cashReceived);
+        if (cashCents < finalCents) {
+            throw new PosException("Insufficient cash! Need LKR " + String.format("%.2f", Money.toAmount(finalCents - cashCents)) + " more.");
+        }
+        double subtotal = cart.getSubtotal();
+        double totalDiscount = cart.getTotalDiscount();
+        double finalTotal = cart.getFinalTotal();
+        double change = Money.toAmount(cashCents - finalCents);
+
+        CheckoutResult result;
+        try {
+            result = new TransactionTemplate(connectionProvider).execute(unitOfWork -> {
+                Connection conn = unitOfWork.getConnection();
+                Integer customerId = resolveCustomerId(conn, customer);
+                String billNumber = nextBillNumber(conn);
+                int saleId = saveSale(conn, billNumber, customer, customerId, cart, cashier.getId());
+
+                updateStockAfterSale(conn, cart.getItems());
+                if (customerId != null) {
+                    CustomerStats.recordPurchase(conn, customerId, finalCents);
+                }
+
+                SaleEvent sale = toSaleEvent(saleId, customerId, customer, cart);
+                unitOfWork.afterCommit(() -> {
+                    SalesFeed.getInstance().publish(sale);
+                    if (customerDAO != null && customer.getCustomerId() == null) {
+                        customerDAO.invalidatePhone(customer.getPhone());
+                    }
+                });
+                return new CheckoutResult(saleId, billNumber, finalTotal, cashReceived, change);
+            });
+        } catch (DatabaseException e) {
+            throw e.getCause() instanceof SQLException
+                  ? (SQLException) e.getCause() : new SQLException(e.getMessage(), e.getErrorCode(), e);
+        }
+
+        writeReceipt(result.getBillNumber(), customer, cart.getItems(), subtotal, totalDiscount, finalTotal,
+                     cashReceived, change, cashier.getFullName());
+        return result;
+    }
+
+    private static SaleEvent toSaleEvent(int saleId, Integer customerId, CustomerInfo customer, Cart cart) {
+        List<CartItem> items = cart.getItems();
+        int[] productIds = new int[items.size()];
+        String[] productNames = new String[items.size()];
+        int[] quantities = new int[items.size()];
+        long[] lineTotals = new long[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            productIds[i] = item.getProductId();
+            productNames[i] = item.getProductName();
+            quantities[i] = item.getQuantity();
+            lineTotals[i] = item.getLineTotalCents();
+        }
+        return new SaleEvent(saleId, System.currentTimeMillis(), customerId, customer.getPhone(),
+                             cart.getFinalTotalCents(), productIds, productNames, quantities, lineTotals);
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        return "23000".equals(e.getSQLState()) && e.getErrorCode() == 1062;
+    }
+
+    /**
+     * Get the customers.id for the sale, registering a customer first seen at this checkout
+     * @return The id, or null for a sale without a phone number or a store without the customer registry
+     */
+    private Integer resolveCustomerId(Connection conn, CustomerInfo customer) throws SQLException {
+        if (customer.getCustomerId() != null) {
+            return customer.getCustomerId();
+        }
+        String phone = CustomerDAO.normalizePhone(customer.getPhone());
+        if (phone == null || customerDAO == null) {
+            return null;
+        }
+
+        try {
+            Integer existing = findCustomerId(conn, "phone_number", phone);
+            if (existing != null) {
+                return existing;
+            }
+
+            // Email is unique too; an address already registered to another number is not copied
+            String email = customer.getEmail();
+            if (email != null && (email.trim().isEmpty() || findCustomerId(conn, "email", email.trim()) != null)) {
+                email = null;
+            }
+            String name = customer.getName() != null ? customer.getName().trim() : "";
+            int space = name.indexOf(' ');
+            Customer registered = new Customer(CustomerDAO.customerCodeFor(phone),
+                space > 0 ? name.substring(0, space) : (name.isEmpty() ? "Customer" : name),
+                space > 0 ? name.substring(space + 1).trim() : "",
+                email != null ? email.trim() : null, phone);
+            try {
+                // Runs as a plain statement on the checkout's unit of work, not as a nested scope, so the
+                // registration commits or rolls back with the sale and a duplicate key leaves the sale usable
+                return customerDAO.create(registered).getId();
+            } catch (DatabaseException e) {
+                if (!(e.getCause() instanceof SQLException)) {
+                    throw new SQLException(e.getMessage(), e.getErrorCode(), e);
+                }
+                SQLException cause = (SQLException) e.getCause();
+                // Another till registered this number first; a locking read sees its committed row
+                if (isDuplicateKey(cause)) {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "SELECT id FROM customers WHERE phone_number = ? LOCK IN SHARE MODE")) {
+                        stmt.setString(1, phone);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            return rs.next() ? rs.getInt(1) : null;
+                        }
+                    }
+                }
+                throw cause;
+            }
+        } catch (SQLException e) {
+            // Stores whose customers table predates the registry still record the sale
+            if (e.getErrorCode() == ER_NO_SUCH_TABLE || e.getErrorCode() == ER_BAD_FIELD_ERROR) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static Integer findCustomerId(Connection conn, String column, String value) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM customers WHERE " + column + " = ?")) {
+            stmt.setString(1, value);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private int saveSale(Connection conn, String billNumber, CustomerInfo customer, Integer customerId, Cart cart,
+                         int cashierId) throws SQLException {
+        String insertSale = "INSERT INTO sales (bill_number, customer_name, customer_email, customer_phone, customer_id, " +
+                            "total_amount, discount_amount, final_amount, payment_method, cashier_id) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'CASH', ?)";
+
+        int saleId;
+        try (PreparedStatement stmt = conn.prepareStatement(insertSale, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, billNumber);
+            stmt.setString(2, customer.getName());
+            stmt.setString(3, customer.getEmail());
+            stmt.setString(4, customer.getPhone());
+            stmt.setObject(5, customerId);
+            stmt.setBigDecimal(6, Money.toDecimal(cart.getFinalTotalCents()));
+            stmt.setBigDecimal(7, Money.toDecimal(cart.getTotalDiscountCents()));
+            stmt.setBigDecimal(8, Money.toDecimal(cart.getFinalTotalCents()));
+            stmt.setInt(9, cashierId);
+            stmt.executeUpdate();
+
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("Failed to get sale ID");
+                }
+                saleId = rs.getInt(1);
+            }
+        }
+
+        String insertItem = "INSERT INTO sale_items (sale_id, product_id, quantity, " +
+                            "unit_price, discount_amount, total_price) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(insertItem)) {
+            for (CartItem item : cart.getItems()) {
+                stmt.setInt(1, saleId);
+                stmt.setInt(2, item.getProductId());
+                stmt.setInt(3, item.getQuantity());
+                stmt.setBigDecimal(4, Money.toDecimal(item.getUnitPriceCents()));
+                stmt.setBigDecimal(5, Money.toDecimal(item.getDiscountCents()));
+                stmt.setBigDecimal(6, Money.toDecimal(item.getLineTotalCents()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return saleId;
+    }
+
+    /**
+     * Take the next bill number from the locked counter row
+     * Seeds the counter row if it is missing; the table itself comes from {@link #ensureSalesTables()},
+     * since DDL here would implicitly commit the open sale
+     */
+    private static String nextBillNumber(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (stmt.executeUpdate(NEXT_BILL_SQL) == 0) {
+                stmt.executeUpdate(SEED_BILL_COUNTER_SQL);
+                stmt.executeUpdate(NEXT_BILL_SQL);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+                if (!rs.next()) {
+                    throw new SQLException("Failed to allocate a bill number");
+                }
+                return String.format("%03d", rs.getLong(1));
+            }
+        }
+    }
+
+    private void updateStockAfterSale(Connection conn, List<CartItem> items) throws SQLException {
+        String updateQuery = "UPDATE inventory_locations " +
+                             "SET shelf_qty = GREATEST(0, shelf_qty - ?), " +
+                             "warehouse_qty = GREATEST(0, warehouse_qty - GREATEST(0, ? - shelf_qty)) " +
+                             "WHERE product_id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
+            for (CartItem item : items) {
+                stmt.setInt(1, item.getQuantity());
+                stmt.setInt(2, item.getQuantity());
+                stmt.setInt(3, item.getProductId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            // Stores that have not set up inventory_locations yet still record the sale
+            if (e.getErrorCode() != ER_NO_SUCH_TABLE) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Write a text receipt to receipt_&lt;billNumber&gt;.txt
+     * @return true if the receipt was written
+     */
+    public boolean writeReceipt(String billNumber, CustomerInfo customer, List<CartItem> items,
+                                double subtotal, double totalDiscount, double finalTotal,
+                                double cashReceived, double change, String cashierName) {
+        String fileName = "receipt_" + billNumber + ".txt";
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            writer.println("SYOS - Store Your Outstanding Stock");
+            writer.println("=====================================");
+            writer.println("RECEIPT");
+            writer.println("=====================================");
+            writer.println("Bill Number: " + billNumber);
+            writer.println("Date: " + new Date());
+            writer.println("Cashier: " + (cashierName != null ? cashierName : "System Administrator"));
+            writer.println();
+
+            writer.println("Customer: " + (customer.getName() != null ? customer.getName() : "Walk-in Customer"));
+            if (customer.getPhone() != null) {
+                writer.println("Phone: " + customer.getPhone());
+            }
+            if (customer.getEmail() != null) {
+                writer.println("Email: " + customer.getEmail());
+            }
+            writer.println();
+
+            writer.println("ITEMS:");
+            writer.println("-".repeat(50));
+            for (CartItem item : items) {
+                writer.printf("%-25s x%d%n", item.getProductName(), item.getQuantity());
+                writer.printf("  LKR %.2f each", item.getUnitPrice());
+                if (item.getDiscountPercent() > 0) {
+                    writer.printf(" (%.1f%% discount)", item.getDiscountPercent());
+                }
+                writer.printf(" = LKR %.2f%n", item.getLineTotal());
+                if (item.getPromotion() != null) {
+                    writer.printf("  Promotion: %s (-LKR %.2f)%n", item.getPromotion().getName(),
+                                  Money.toAmount(item.getPromotionCents()));
+                }
+                writer.println();
+            }
+
+            writer.println("-".repeat(50));
+            writer.printf("Subtotal: LKR %.2f%n", subtotal);
+            writer.printf("Total Discount: LKR %.2f%n", totalDiscount);
+            writer.printf("FINAL TOTAL: LKR %.2f%n", finalTotal);
+            writer.println();
+            writer.printf("Cash Received: LKR %.2f%n", cashReceived);
+            writer.printf("Change: LKR %.2f%n", change);
+            writer.println();
+            writer.println("Thank you for shopping with SYOS!");
+            writer.println("=====================================");
+            return true;
+
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package syos.pos;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One POS terminal connected to the POS server
+ * Speaks a line-based protocol; every request gets exactly one final OK or ERR line,
+ * CART additionally sends one ITEM line per cart line before its OK
+ *
+ *   LOGIN email password         authenticate the cashier
+ *   SCAN code [qty] [discount%]  add a product to the cart (qty defaults to 1)
+ *   REMOVE line                  remove a cart line by number
+ *   CART                         list the cart
+ *   CUSTOMER phone [name]        set the customer for checkout
+ *   CHECKOUT cash                pay cash and complete the sale
+ *   CANCEL                       empty the cart
+ *   QUIT                         close the session
+ */
+public class PosSession implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PosSession.class);
+
+    private final Socket socket;
+    private final PosService posService;
+    private final Cart cart;
+    private Cashier cashier;
+    private CustomerInfo customer;
+
+    public PosSession(Socket socket, PosService posService) {
+        this.socket = socket;
+        this.posService = posService;
+        this.cart = posService.newCart();
+    }
+
+    @Override
+    public void run() {
+        String remote = String.valueOf(socket.getRemoteSocketAddress());
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+            out.println("OK SYOS POS ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!handle(line.trim(), out)) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            logger.info("POS session {} timed out", remote);
+        } catch (IOException e) {
+            logger.warn("POS session {} closed: {}", remote, e.getMessage());
+        }
+        logger.info("POS session {} ended", remote);
+    }
+
+    /**
+     * Disconnect the terminal; a session blocked waiting for input ends at once
+     */
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Handle one request line
+     * @return false when the session should end
+     */
+    boolean handle(String line, PrintWriter out) {
+        if (line.isEmpty()) {
+            return true;
+        }
+        String[] parts = line.split("\\s+");
+        String command = parts[0].toUpperCase();
+
+        try {
+            switch (command) {
+                case "QUIT":
+                    out.println("OK BYE");
+                    return false;
+                case "HELP":
+                    out.println("OK LOGIN SCAN REMOVE CART CUSTOMER CHECKOUT CANCEL QUIT");
+                    return true;
+                case "LOGIN":
+                    login(parts, out);
+                    return true;
+                default:
+                    break;
+            }
+
+            if (cashier == null) {
+                out.println("ERR Login required");
+                return true;
+            }
+
+            switch (command) {
+                case "SCAN":
+                    scan(parts, out);
+                    break;
+                case "REMOVE":
+                    CartItem removed = cart.remove(parseInt(parts, 1, "line number"));
+                    out.println("OK REMOVED " + removed.getProductCode() + " " + totals());
+                    break;
+                case "CART":
+                    listCart(out);
+                    break;
+                case "CUSTOMER":
+                    setCustomer(parts, out);
+                    break;
+                case "CHECKOUT":
+                    checkout(parts, out);
+                    break;
+                case "CANCEL":
+                    cart.clear();
+                    customer = null;
+                    out.println("OK CANCELLED");
+                    break;
+                default:
+                    out.println("ERR Unknown command: " + parts[0]);
+            }
+        } catch (PosException e) {
+            out.println("ERR " + e.getMessage());
+        } catch (SQLException e) {
+            logger.error("POS session database error: {}", e.getMessage());
+            out.println("ERR Database error: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("POS session error", e);
+            out.println("ERR " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void login(String[] parts, PrintWriter out) throws Exception {
+        if (parts.length < 3) {
+            throw new PosException("Usage: LOGIN email password");
+        }
+        Cashier authenticated = posService.authenticateCashier(parts[1].toLowerCase(), parts[2]);
+        if (authenticated == null) {
+            out.println("ERR Invalid credentials");
+            return;
+        }
+        cashier = authenticated;
+        out.println("OK WELCOME " + cashier.getFullName());
+    }
+
+    private void scan(String[] parts, PrintWriter out) throws PosException, SQLException {
+        if (parts.length < 2) {
+            throw new PosException("Usage: SCAN code [qty] [discount%]");
+        }
+        int quantity = parts.length > 2 ? parseInt(parts, 2, "quantity") : 1;
+        double discount = parts.length > 3 ? parseDouble(parts, 3, "discount") : 0.0;
+
+        ProductLookup product = posService.findProduct(parts[1].toUpperCase());
+        if (product == null) {
+            throw new PosException("Product with code '" + parts[1] + "' not found!");
+        }
+        CartItem item = cart.add(product, quantity, discount);
+        out.printf("OK ADDED %s %d %.2f %s%n", item.getProductCode(), item.getQuantity(), item.getLineTotal(), totals());
+    }
+
+    private void listCart(PrintWriter out) {
+        int lineNumber = 1;
+        for (CartItem item : cart.getItems()) {
+            out.printf("ITEM %d %s %d %.2f %.1f %.2f %s%n", lineNumber++, item.getProductCode(), item.getQuantity(),
+                       item.getUnitPrice(), item.getDiscountPercent(), item.getLineTotal(), item.getProductName());
+        }
+        out.println("OK " + totals());
+    }
+
+    private void setCustomer(String[] parts, PrintWriter out) throws PosException, SQLException {
+        if (parts.length < 2) {
+            throw new PosException("Usage: CUSTOMER phone [name]");
+        }
+        String phone = parts[1];
+        CustomerInfo returning = posService.findReturningCustomer(phone);
+        if (returning != null) {
+            customer = returning;
+            out.println("OK RETURNING " + (returning.getName() != null ? returning.getName() : "Unknown"));
+            return;
+        }
+        String name = parts.length > 2 ? String.join(" ", Arrays.copyOfRange(parts, 2, parts.length)) : "Walk-in Customer";
+        customer = new CustomerInfo(name, null, phone, false);
+        out.println("OK NEW " + name);
+    }
+
+    private void checkout(String[] parts, PrintWriter out) throws PosException, SQLException {
+        if (customer == null) {
+            throw new PosException("Phone number is required! Use CUSTOMER phone [name]");
+        }
+        double cash = parseDouble(parts, 1, "cash amount");
+        CheckoutResult result = posService.checkout(cart, customer, cash, cashier);
+        cart.clear();
+        customer = null;
+        out.printf("OK BILL %s %.2f %.2f %.2f%n", result.getBillNumber(), result.getFinalTotal(),
+                   result.getCashReceived(), result.getChange());
+    }
+
+    private String totals() {
+        return String.format("TOTAL %.2f %.2f %.2f", cart.getSubtotal(), cart.getTotalDiscount(), cart.getFinalTotal());
+    }
+
+    private static int parseInt(String[] parts, int index, String name) throws PosException {
+        try {
+            return Integer.parseInt(parts[index]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new PosException("Invalid " + name);
+        }
+    }
+
+    private static double parseDouble(String[] parts, int index, String name) throws PosException {
+        try {
+            return Double.parseDouble(parts[index]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new PosException("Invalid " + name);
+        }
+    }
+}
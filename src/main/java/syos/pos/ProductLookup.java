@@ -0,0 +1,84 @@
+package syos.pos;
+
+/**
+ * Product price, discount and stock details for a scanned product code
+ */
+public class ProductLookup {
+    private final int productId;
+    private final String productCode;
+    private final String productName;
+    private final String brand;
+    private final double price;
+    private final double discountAmount;
+    private final double discountPercent;
+    private final int shelfQty;
+    private final int warehouseQty;
+    private final int categoryId;
+
+    public ProductLookup(int productId, String productCode, String productName, String brand, double price,
+                         double discountAmount, double discountPercent, int shelfQty, int warehouseQty) {
+        this(productId, productCode, productName, brand, price, discountAmount, discountPercent, shelfQty, warehouseQty, 0);
+    }
+
+    /**
+     * @param categoryId The product's category for category-wide promotions, or 0 if it has none
+     */
+    public ProductLookup(int productId, String productCode, String productName, String brand, double price,
+                         double discountAmount, double discountPercent, int shelfQty, int warehouseQty,
+                         int categoryId) {
+        this.productId = productId;
+        this.productCode = productCode;
+        this.productName = productName;
+        this.brand = brand;
+        this.price = price;
+        this.discountAmount = discountAmount;
+        this.discountPercent = discountPercent;
+        this.shelfQty = shelfQty;
+        this.warehouseQty = warehouseQty;
+        this.categoryId = categoryId;
+    }
+
+    public int getProductId() { return productId; }
+    public String getProductCode() { return productCode; }
+    public String getProductName() { return productName; }
+    public String getBrand() { return brand; }
+    public double getPrice() { return price; }
+    public double getDiscountAmount() { return discountAmount; }
+    public double getDiscountPercent() { return discountPercent; }
+    public int getShelfQty() { return shelfQty; }
+    public int getWarehouseQty() { return warehouseQty; }
+    public int getCategoryId() { return categoryId; }
+
+    public int getTotalAvailable() {
+        return shelfQty + warehouseQty;
+    }
+
+    public boolean hasProductDiscount() {
+        return discountAmount > 0 || discountPercent > 0;
+    }
+
+    /**
+     * Get the price after the product's own discounts
+     */
+    public double getFinalPrice() {
+        return price - discountAmount - (price * discountPercent / 100);
+    }
+
+    /**
+     * Get the product's built-in discounts expressed as one percentage of the price
+     */
+    public double getEffectiveDiscountPercent() {
+        if (price <= 0) {
+            return 0.0;
+        }
+        double discountTotal = discountAmount + (price * discountPercent / 100);
+        return (discountTotal / price) * 100;
+    }
+
+    /**
+     * Get the display name used on carts and receipts
+     */
+    public String getDisplayName() {
+        return productName + " (" + brand + ")";
+    }
+}
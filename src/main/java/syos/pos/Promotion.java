@@ -0,0 +1,94 @@
+package syos.pos;
+
+/**
+ * One promotion rule, targeting either a product or a whole category for a period of time
+ * Immutable; loaded from the promotions table by {@link PromotionEngine}
+ */
+public class Promotion {
+
+    /**
+     * How a promotion discounts a cart line
+     */
+    public enum Type {
+        /** A percentage off every unit */
+        PERCENT,
+        /** A fixed amount off every unit */
+        AMOUNT,
+        /** For every buy + free units, the free units cost nothing */
+        BUY_X_GET_Y
+    }
+
+    private final int id;
+    private final String name;
+    private final Type type;
+    private final int productId;
+    private final int categoryId;
+    private final int rate;
+    private final long amountCents;
+    private final int buyQuantity;
+    private final int freeQuantity;
+    private final long startsAtMillis;
+    private final long endsAtMillis;
+
+    /**
+     * @param productId Targeted product, or 0 for a category promotion
+     * @param categoryId Targeted category, or 0 for a product promotion
+     * @param rate PERCENT discount in millionths, see {@link Money#toRate(double)}
+     * @param amountCents AMOUNT discount per unit in cents
+     * @param buyQuantity BUY_X_GET_Y units paid for
+     * @param freeQuantity BUY_X_GET_Y units given free
+     * @param startsAtMillis Start time, or Long.MIN_VALUE if already running
+     * @param endsAtMillis End time (exclusive), or Long.MAX_VALUE if open-ended
+     */
+    public Promotion(int id, String name, Type type, int productId, int categoryId, int rate, long amountCents,
+                     int buyQuantity, int freeQuantity, long startsAtMillis, long endsAtMillis) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.rate = rate;
+        this.amountCents = amountCents;
+        this.buyQuantity = buyQuantity;
+        this.freeQuantity = freeQuantity;
+        this.startsAtMillis = startsAtMillis;
+        this.endsAtMillis = endsAtMillis;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public Type getType() { return type; }
+    public int getProductId() { return productId; }
+    public int getCategoryId() { return categoryId; }
+    public long getStartsAtMillis() { return startsAtMillis; }
+    public long getEndsAtMillis() { return endsAtMillis; }
+
+    public boolean isActiveAt(long millis) {
+        return millis >= startsAtMillis && millis < endsAtMillis;
+    }
+
+    /**
+     * Get this promotion's discount on a cart line
+     * @param unitCents Unit price in cents
+     * @param quantity Units on the line
+     * @return The discount in cents, never more than the line's gross amount
+     */
+    public long discountCents(long unitCents, int quantity) {
+        switch (type) {
+            case PERCENT:
+                return Money.discountCents(unitCents * quantity, rate);
+            case AMOUNT:
+                return Math.min(amountCents, unitCents) * quantity;
+            case BUY_X_GET_Y:
+                int group = buyQuantity + freeQuantity;
+                return group <= 0 || freeQuantity <= 0 ? 0 : (long) (quantity / group) * freeQuantity * unitCents;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
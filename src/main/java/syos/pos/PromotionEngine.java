@@ -0,0 +1,346 @@
+package syos.pos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * In-memory index of promotion rules, so pricing a scan never queries the database
+ * A category promotion also covers that category's subcategories
+ * Rules are reloaded from the promotions table on a fixed interval; between reloads the index
+ * is rebuilt from the loaded rules whenever one starts or ends, so scheduled promotions switch
+ * on and off on time without a query
+ * Lookups read an immutable snapshot and are safe from any thread
+ *
+ * Configured from config.properties:
+ *   promotions.enabled          - apply promotions at all (default true)
+ *   promotions.reload.seconds   - how often rules are re-read, picking up edits (default 300)
+ */
+public class PromotionEngine implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromotionEngine.class);
+
+    /** Guards against a parent_category_id cycle */
+    private static final int MAX_CATEGORY_DEPTH = 8;
+
+    /** MySQL error code for a missing table */
+    private static final int ER_NO_SUCH_TABLE = 1146;
+
+    public static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS promotions (" +
+        "id INT AUTO_INCREMENT PRIMARY KEY, " +
+        "promotion_name VARCHAR(100) NOT NULL, " +
+        "promotion_type ENUM('PERCENT', 'AMOUNT', 'BUY_X_GET_Y') NOT NULL, " +
+        "product_id INT NULL, " +
+        "category_id INT NULL, " +
+        "discount_percentage DECIMAL(5,2) NOT NULL DEFAULT 0, " +
+        "discount_amount DECIMAL(10,2) NOT NULL DEFAULT 0, " +
+        "buy_quantity INT NOT NULL DEFAULT 0, " +
+        "free_quantity INT NOT NULL DEFAULT 0, " +
+        "starts_at DATETIME NULL, " +
+        "ends_at DATETIME NULL, " +
+        "is_active BOOLEAN NOT NULL DEFAULT TRUE, " +
+        "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+        "INDEX idx_promotions_window (is_active, ends_at)" +
+        ")";
+
+    private static final String LOAD_SQL =
+        "SELECT id, promotion_name, promotion_type, product_id, category_id, discount_percentage, " +
+        "discount_amount, buy_quantity, free_quantity, starts_at, ends_at FROM promotions " +
+        "WHERE is_active = TRUE AND (ends_at IS NULL OR ends_at > NOW())";
+
+    /**
+     * The rules in force between two rule boundaries
+     */
+    private static final class Index {
+        private static final Index EMPTY = new Index(Collections.emptyMap(), Collections.emptyMap(), Long.MAX_VALUE);
+
+        private final Map<Integer, Promotion[]> byProduct;
+        private final Map<Integer, Promotion[]> byCategory;
+        private final long validUntilMillis;
+
+        Index(Map<Integer, Promotion[]> byProduct, Map<Integer, Promotion[]> byCategory, long validUntilMillis) {
+            this.byProduct = byProduct;
+            this.byCategory = byCategory;
+            this.validUntilMillis = validUntilMillis;
+        }
+    }
+
+    private final ConnectionProvider connectionProvider;
+    private final boolean enabled;
+    private final long reloadSeconds;
+    private final Object lock = new Object();
+    private volatile List<Promotion> rules = Collections.emptyList();
+    private volatile Map<Integer, List<Integer>> subcategories = Collections.emptyMap();
+    private volatile Index index = Index.EMPTY;
+    private ScheduledThreadPoolExecutor scheduler;
+    private ScheduledFuture<?> boundaryTask;
+    private boolean missingTableLogged;
+
+    /**
+     * Create an engine configured from config.properties; rules load on {@link #start()}
+     * @param connectionProvider Source of connections for reloading rules
+     */
+    public PromotionEngine(ConnectionProvider connectionProvider) {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default promotion settings");
+        }
+        this.connectionProvider = connectionProvider;
+        this.enabled = Boolean.parseBoolean(props.getProperty("promotions.enabled", "true"));
+        this.reloadSeconds = Math.max(1, Long.parseLong(props.getProperty("promotions.reload.seconds", "300")));
+    }
+
+    /**
+     * Create an engine over a fixed rule set, without a database or background threads
+     */
+    PromotionEngine(List<Promotion> rules, long nowMillis) {
+        this.connectionProvider = null;
+        this.enabled = true;
+        this.reloadSeconds = 0;
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        reindex(nowMillis);
+    }
+
+    /**
+     * Load the rules and start the reload schedule; later calls do nothing
+     */
+    public void start() {
+        synchronized (lock) {
+            if (!enabled || scheduler != null || connectionProvider == null) {
+                return;
+            }
+            scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "syos-promotions");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        refresh();
+        scheduler.scheduleWithFixedDelay(this::refresh, reloadSeconds, reloadSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Re-read the rules now; on failure the previous rules stay in force
+     */
+    public void refresh() {
+        try {
+            List<Promotion> loaded = Collections.unmodifiableList(load());
+            Map<Integer, List<Integer>> children = loaded.isEmpty() ? Collections.emptyMap() : loadSubcategories();
+            synchronized (lock) {
+                rules = loaded;
+                subcategories = children;
+                reindex(System.currentTimeMillis());
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not reload promotions, keeping {} loaded rules: {}", rules.size(), e.getMessage());
+        }
+    }
+
+    private List<Promotion> load() throws SQLException {
+        List<Promotion> loaded = new ArrayList<>();
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LOAD_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Timestamp startsAt = rs.getTimestamp("starts_at");
+                Timestamp endsAt = rs.getTimestamp("ends_at");
+                loaded.add(new Promotion(
+                    rs.getInt("id"),
+                    rs.getString("promotion_name"),
+                    Promotion.Type.valueOf(rs.getString("promotion_type")),
+                    rs.getInt("product_id"),
+                    rs.getInt("category_id"),
+                    Money.toRate(rs.getDouble("discount_percentage")),
+                    Money.toCents(rs.getDouble("discount_amount")),
+                    rs.getInt("buy_quantity"),
+                    rs.getInt("free_quantity"),
+                    startsAt != null ? startsAt.getTime() : Long.MIN_VALUE,
+                    endsAt != null ? endsAt.getTime() : Long.MAX_VALUE));
+            }
+        } catch (SQLException e) {
+            // Stores that have not created the table yet simply run without promotions
+            if (e.getErrorCode() == ER_NO_SUCH_TABLE) {
+                synchronized (lock) {
+                    if (!missingTableLogged) {
+                        logger.info("No promotions table; promotions are disabled until it is created");
+                        missingTableLogged = true;
+                    }
+                }
+                return loaded;
+            }
+            throw e;
+        }
+        return loaded;
+    }
+
+    private Map<Integer, List<Integer>> loadSubcategories() throws SQLException {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id, parent_category_id FROM categories WHERE parent_category_id IS NOT NULL");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                children.computeIfAbsent(rs.getInt("parent_category_id"), k -> new ArrayList<>()).add(rs.getInt("id"));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Index the rules active at the given time and schedule the next rebuild for the nearest boundary
+     */
+    private void reindex(long nowMillis) {
+        synchronized (lock) {
+            Map<Integer, List<Promotion>> byProduct = new HashMap<>();
+            Map<Integer, List<Promotion>> byCategory = new HashMap<>();
+            long nextBoundary = Long.MAX_VALUE;
+            for (Promotion rule : rules) {
+                if (rule.getStartsAtMillis() > nowMillis) {
+                    nextBoundary = Math.min(nextBoundary, rule.getStartsAtMillis());
+                } else if (rule.isActiveAt(nowMillis)) {
+                    nextBoundary = Math.min(nextBoundary, rule.getEndsAtMillis());
+                    if (rule.getProductId() > 0) {
+                        byProduct.computeIfAbsent(rule.getProductId(), k -> new ArrayList<>()).add(rule);
+                    } else if (rule.getCategoryId() > 0) {
+                        indexCategory(byCategory, rule.getCategoryId(), rule, 0);
+                    }
+                }
+            }
+            index = new Index(toArrays(byProduct), toArrays(byCategory), nextBoundary);
+            scheduleBoundary(nextBoundary, nowMillis);
+        }
+    }
+
+    private void indexCategory(Map<Integer, List<Promotion>> byCategory, int categoryId, Promotion rule, int depth) {
+        byCategory.computeIfAbsent(categoryId, k -> new ArrayList<>()).add(rule);
+        List<Integer> children = subcategories.get(categoryId);
+        if (children != null && depth < MAX_CATEGORY_DEPTH) {
+            for (int child : children) {
+                indexCategory(byCategory, child, rule, depth + 1);
+            }
+        }
+    }
+
+    private static Map<Integer, Promotion[]> toArrays(Map<Integer, List<Promotion>> grouped) {
+        Map<Integer, Promotion[]> arrays = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<Integer, List<Promotion>> entry : grouped.entrySet()) {
+            arrays.put(entry.getKey(), entry.getValue().toArray(new Promotion[0]));
+        }
+        return arrays;
+    }
+
+    private void scheduleBoundary(long boundaryMillis, long nowMillis) {
+        synchronized (lock) {
+            if (scheduler == null || scheduler.isShutdown()) {
+                return;
+            }
+            if (boundaryTask != null) {
+                boundaryTask.cancel(false);
+                boundaryTask = null;
+            }
+            if (boundaryMillis != Long.MAX_VALUE) {
+                boundaryTask = scheduler.schedule(() -> reindex(System.currentTimeMillis()),
+                                                  Math.max(0, boundaryMillis - nowMillis), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Find the promotion giving the largest discount on a cart line
+     * Product and category promotions compete; only the best one applies
+     * @param productId The product
+     * @param categoryId The product's category, or 0 if unknown
+     * @param unitCents Unit price in cents
+     * @param quantity Units on the line
+     * @return The best promotion, or null if none applies
+     */
+    public Promotion bestFor(int productId, int categoryId, long unitCents, int quantity) {
+        return bestFor(productId, categoryId, unitCents, quantity, System.currentTimeMillis());
+    }
+
+    Promotion bestFor(int productId, int categoryId, long unitCents, int quantity, long nowMillis) {
+        if (!enabled) {
+            return null;
+        }
+        Index current = index;
+        if (nowMillis >= current.validUntilMillis) {
+            // The boundary task has not run yet; rebuild here so an expired promotion is never applied
+            synchronized (lock) {
+                if (nowMillis >= index.validUntilMillis) {
+                    reindex(nowMillis);
+                }
+                current = index;
+            }
+        }
+        Promotion best = null;
+        long bestCents = 0;
+        Promotion[] candidates = current.byProduct.get(productId);
+        for (int pass = 0; pass < 2; pass++) {
+            if (candidates != null) {
+                for (Promotion candidate : candidates) {
+                    long cents = candidate.discountCents(unitCents, quantity);
+                    if (cents > bestCents) {
+                        best = candidate;
+                        bestCents = cents;
+                    }
+                }
+            }
+            candidates = categoryId > 0 ? current.byCategory.get(categoryId) : null;
+        }
+        return best;
+    }
+
+    /**
+     * @return The number of promotions in force right now
+     */
+    public int getActiveCount() {
+        Index current = index;
+        int count = 0;
+        for (Promotion[] rules : current.byProduct.values()) {
+            count += rules.length;
+        }
+        for (Promotion[] rules : current.byCategory.values()) {
+            count += rules.length;
+        }
+        return count;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stop reloading; the last loaded rules stay usable
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+    }
+}
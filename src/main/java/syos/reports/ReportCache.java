@@ -0,0 +1,280 @@
+package syos.reports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of rendered report results, keyed by report name and parameters
+ * Entries expire after a TTL and are dropped early when a domain event changes the data they show:
+ * a checkout invalidates customer views and the sales views whose range includes the sale's day,
+ * and a stock write invalidates inventory views. Stock sold at the till shows up in inventory
+ * views when they expire, so a busy till does not keep emptying them
+ * Reports with a failed section are never cached
+ *
+ * Configured from config.properties:
+ *   report.cache.enabled       - cache report results at all (default true)
+ *   report.cache.ttl.seconds   - how long a result may be shown before it is re-run (default 300)
+ */
+public class ReportCache {
+
+    private static final ReportCache INSTANCE = new ReportCache();
+
+    /**
+     * The data a report reads, used to decide which events invalidate it
+     */
+    public enum Topic {
+        SALES,
+        CUSTOMERS,
+        INVENTORY
+    }
+
+    /**
+     * A report's section results and when they were produced
+     */
+    public static final class CachedReport {
+        private final List<ReportEngine.SectionResult> results;
+        private final Set<Topic> topics;
+        private final LocalDate salesThrough;
+        private final long createdMillis;
+        private final boolean fromCache;
+
+        CachedReport(List<ReportEngine.SectionResult> results, Set<Topic> topics, LocalDate salesThrough,
+                     long createdMillis, boolean fromCache) {
+            this.results = results;
+            this.topics = topics;
+            this.salesThrough = salesThrough;
+            this.createdMillis = createdMillis;
+            this.fromCache = fromCache;
+        }
+
+        public List<ReportEngine.SectionResult> getResults() {
+            return results;
+        }
+
+        public long getCreatedMillis() {
+            return createdMillis;
+        }
+
+        /**
+         * @return True if this result was served from the cache rather than run for this request
+         */
+        public boolean isFromCache() {
+            return fromCache;
+        }
+
+        public long getAgeMillis() {
+            return Math.max(0, System.currentTimeMillis() - createdMillis);
+        }
+
+        /**
+         * @return A short stamp such as "generated just now" or "cached 2m 05s ago"
+         */
+        public String describeAge() {
+            if (!fromCache) {
+                return "generated just now";
+            }
+            long seconds = getAgeMillis() / 1000;
+            return seconds < 60
+                   ? "cached " + seconds + "s ago"
+                   : String.format("cached %dm %02ds ago", seconds / 60, seconds % 60);
+        }
+
+        /** Whether a sale on the given day can change this report */
+        boolean showsSalesOn(LocalDate day) {
+            return topics.contains(Topic.SALES) && (salesThrough == null || !salesThrough.isBefore(day));
+        }
+
+        CachedReport served() {
+            return new CachedReport(results, topics, salesThrough, createdMillis, true);
+        }
+    }
+
+    private final Map<String, CachedReport> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(Topic.values().length);
+    private volatile boolean enabled;
+    private volatile long ttlMillis;
+
+    ReportCache() {
+        loadConfiguration();
+    }
+
+    /**
+     * Get the process-wide report cache
+     */
+    public static ReportCache getInstance() {
+        return INSTANCE;
+    }
+
+    private void loadConfiguration() {
+        Properties props = new Properties();
+
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default report cache settings");
+        }
+
+        this.enabled = Boolean.parseBoolean(props.getProperty("report.cache.enabled", "true"));
+        setTtlSeconds(Long.parseLong(props.getProperty("report.cache.ttl.seconds", "300")));
+    }
+
+    /**
+     * Build a cache key from a report name and its parameters
+     * Date-relative reports should include the date so they roll over at midnight
+     */
+    public static String key(String report, Object... parameters) {
+        StringBuilder key = new StringBuilder(report);
+        for (Object parameter : parameters) {
+            key.append('|').append(parameter);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get a report's results, running it only if there is no fresh cached copy
+     * @param key The report key, see {@link #key(String, Object...)}
+     * @param forceRefresh Run the report even if a cached copy exists
+     * @param report Runs the report
+     * @param topics The data the report reads
+     * @return The results with their age
+     */
+    public CachedReport get(String key, boolean forceRefresh, Supplier<List<ReportEngine.SectionResult>> report, Topic... topics) {
+        return get(key, forceRefresh, null, report, topics);
+    }
+
+    /**
+     * Get a report's results, running it only if there is no fresh cached copy
+     * @param key The report key, see {@link #key(String, Object...)}
+     * @param forceRefresh Run the report even if a cached copy exists
+     * @param salesThrough The last day of sales the report shows, or null if its range runs up to now
+     * @param report Runs the report
+     * @param topics The data the report reads
+     * @return The results with their age
+     */
+    public CachedReport get(String key, boolean forceRefresh, LocalDate salesThrough,
+                            Supplier<List<ReportEngine.SectionResult>> report, Topic... topics) {
+        Set<Topic> topicSet = topics.length == 0 ? EnumSet.noneOf(Topic.class) : EnumSet.of(topics[0], topics);
+        if (enabled && !forceRefresh) {
+            CachedReport cached = entries.get(key);
+            if (cached != null && cached.getAgeMillis() < ttlMillis) {
+                return cached.served();
+            }
+        }
+
+        // An event during the run means the result may already be stale, so it is shown but not kept
+        long[] before = snapshotGenerations(topicSet);
+        long now = System.currentTimeMillis();
+        List<ReportEngine.SectionResult> results = Collections.unmodifiableList(report.get());
+        CachedReport fresh = new CachedReport(results, topicSet, salesThrough, now, false);
+
+        if (enabled && ReportEngine.allSucceeded(results) && sameGenerations(topicSet, before)) {
+            entries.put(key, fresh);
+            if (!sameGenerations(topicSet, before)) {
+                entries.remove(key, fresh);
+            }
+            removeExpired();
+        } else {
+            entries.remove(key);
+        }
+        return fresh;
+    }
+
+    private long[] snapshotGenerations(Set<Topic> topics) {
+        long[] snapshot = new long[Topic.values().length];
+        for (Topic topic : topics) {
+            snapshot[topic.ordinal()] = generations.get(topic.ordinal());
+        }
+        return snapshot;
+    }
+
+    private boolean sameGenerations(Set<Topic> topics, long[] snapshot) {
+        for (Topic topic : topics) {
+            if (generations.get(topic.ordinal()) != snapshot[topic.ordinal()]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drop every cached report that reads the given data
+     */
+    public void invalidate(Topic topic) {
+        generations.incrementAndGet(topic.ordinal());
+        entries.values().removeIf(entry -> entry.topics.contains(topic));
+    }
+
+    /**
+     * A sale was committed today; see {@link #onCheckout(LocalDate)}
+     */
+    public void onCheckout() {
+        onCheckout(LocalDate.now());
+    }
+
+    /**
+     * A sale was committed: customer figures and the sales views covering its day changed,
+     * while reports on periods that ended earlier stay cached
+     * @param saleDay The local day of the sale
+     */
+    public void onCheckout(LocalDate saleDay) {
+        generations.incrementAndGet(Topic.SALES.ordinal());
+        entries.values().removeIf(entry -> entry.showsSalesOn(saleDay));
+        invalidate(Topic.CUSTOMERS);
+    }
+
+    /**
+     * Shelf or warehouse stock changed outside a checkout, e.g. a transfer, new stock or a write-off
+     */
+    public void onStockChanged() {
+        invalidate(Topic.INVENTORY);
+    }
+
+    /**
+     * Drop every cached report
+     */
+    public void clear() {
+        for (Topic topic : Topic.values()) {
+            generations.incrementAndGet(topic.ordinal());
+        }
+        entries.clear();
+    }
+
+    private void removeExpired() {
+        entries.values().removeIf(entry -> entry.getAgeMillis() >= ttlMillis);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            entries.clear();
+        }
+    }
+
+    public long getTtlSeconds() {
+        return ttlMillis / 1000;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlMillis = Math.max(0, ttlSeconds) * 1000;
+    }
+}
@@ -0,0 +1,289 @@
+package syos.reports;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * Runs the independent sections of a report concurrently, each on its own pooled connection,
+ * and prints their output in the order the sections were added
+ * A section that fails or overruns its timeout is replaced by a warning line; the others still print
+ *
+ * Configured from config.properties:
+ *   report.engine.parallelism          - sections run at once; keep at or below the reporting pool size (default 4)
+ *   report.engine.section.timeout.ms   - time a section may run once started (default 30000)
+ */
+public class ReportEngine implements AutoCloseable {
+
+    /** How often a caller re-checks a section that is still queued behind others */
+    private static final long QUEUE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ConnectionProvider connectionProvider;
+    private final ThreadPoolExecutor executor;
+    private final long sectionTimeoutMillis;
+
+    /**
+     * One report section: queries the database and prints its part of the report
+     */
+    @FunctionalInterface
+    public interface Section {
+        void render(Connection connection, PrintStream out) throws SQLException;
+    }
+
+    /**
+     * The outcome of one section
+     */
+    public static final class SectionResult {
+        private final String name;
+        private final String output;
+        private final String error;
+        private final long elapsedMillis;
+
+        SectionResult(String name, String output, String error, long elapsedMillis) {
+            this.name = name;
+            this.output = output;
+            this.error = error;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Everything the section printed, possibly partial if it failed, empty if it timed out
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        /**
+         * @return Why the section did not complete, or null if it succeeded
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    /**
+     * An ordered list of sections to run together
+     */
+    public final class Report {
+        private final List<String> names = new ArrayList<>();
+        private final List<Section> sections = new ArrayList<>();
+
+        private Report() {
+        }
+
+        /**
+         * Add a section; output keeps the order sections are added in
+         * @param name The section name used in warnings
+         * @param section The section
+         * @return This report
+         */
+        public Report section(String name, Section section) {
+            names.add(name);
+            sections.add(section);
+            return this;
+        }
+
+        /**
+         * Run every section and wait for all of them
+         * @return One result per section, in order
+         */
+        public List<SectionResult> run() {
+            List<Future<SectionResult>> futures = new ArrayList<>(sections.size());
+            List<AtomicLong> startTimes = new ArrayList<>(sections.size());
+            for (int i = 0; i < sections.size(); i++) {
+                String name = names.get(i);
+                Section section = sections.get(i);
+                AtomicLong started = new AtomicLong();
+                startTimes.add(started);
+                futures.add(executor.submit(() -> execute(name, section, started)));
+            }
+
+            List<SectionResult> results = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(await(names.get(i), futures.get(i), startTimes.get(i)));
+            }
+            return results;
+        }
+
+        /**
+         * Run every section and print the results in order
+         * @param out Where to print
+         * @return The results, in order
+         */
+        public List<SectionResult> print(PrintStream out) {
+            List<SectionResult> results = run();
+            ReportEngine.print(results, out);
+            return results;
+        }
+    }
+
+    /**
+     * Print section results in order, with a warning in place of each failed section
+     * @param results The results of {@link Report#run()}
+     * @param out Where to print
+     */
+    public static void print(List<SectionResult> results, PrintStream out) {
+        for (SectionResult result : results) {
+            out.print(result.getOutput());
+            if (!result.isSuccess()) {
+                out.println("⚠️ " + result.getName() + " unavailable: " + result.getError());
+            }
+        }
+    }
+
+    /**
+     * @return True if every section completed
+     */
+    public static boolean allSucceeded(List<SectionResult> results) {
+        for (SectionResult result : results) {
+            if (!result.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create an engine configured from config.properties
+     * @param connectionProvider Source of one connection per running section
+     */
+    public ReportEngine(ConnectionProvider connectionProvider) {
+        this(connectionProvider, loadProperties());
+    }
+
+    private ReportEngine(ConnectionProvider connectionProvider, Properties props) {
+        this(connectionProvider,
+             Integer.parseInt(props.getProperty("report.engine.parallelism", "4")),
+             Long.parseLong(props.getProperty("report.engine.section.timeout.ms", "30000")));
+    }
+
+    /**
+     * @param connectionProvider Source of one connection per running section
+     * @param parallelism Maximum sections running at once
+     * @param sectionTimeoutMillis Time a section may run once started
+     */
+    public ReportEngine(ConnectionProvider connectionProvider, int parallelism, long sectionTimeoutMillis) {
+        this.connectionProvider = connectionProvider;
+        this.sectionTimeoutMillis = sectionTimeoutMillis;
+
+        int threads = Math.max(1, parallelism);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "syos-report-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+
+        try (InputStream input = ReportEngine.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default report engine settings");
+        }
+        return props;
+    }
+
+    /**
+     * Start a new report
+     */
+    public Report report() {
+        return new Report();
+    }
+
+    private SectionResult execute(String name, Section section, AtomicLong started) {
+        long start = System.nanoTime();
+        started.set(start);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        String error = null;
+
+        try (Connection connection = connectionProvider.getConnection()) {
+            applyNetworkTimeout(connection);
+            section.render(connection, out);
+        } catch (SQLException | RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+
+        out.flush();
+        return new SectionResult(name, buffer.toString(StandardCharsets.UTF_8), error,
+                                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Bound blocking socket reads by the section timeout, so a timed-out section's query
+     * does not keep its connection and thread busy; the pool resets the timeout on return
+     */
+    private void applyNetworkTimeout(Connection connection) {
+        try {
+            connection.setNetworkTimeout(Runnable::run, (int) Math.min(sectionTimeoutMillis, Integer.MAX_VALUE));
+        } catch (SQLException | AbstractMethodError e) {
+            // Driver without network timeouts; the caller-side timeout still applies
+        }
+    }
+
+    private SectionResult await(String name, Future<SectionResult> future, AtomicLong started) {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMillis);
+        while (true) {
+            long begun = started.get();
+            long waitNanos = begun == 0 ? QUEUE_POLL_NANOS : begun + timeoutNanos - System.nanoTime();
+            if (begun != 0 && waitNanos <= 0) {
+                future.cancel(true);
+                return new SectionResult(name, "", "timed out after " + sectionTimeoutMillis + " ms", sectionTimeoutMillis);
+            }
+            try {
+                return future.get(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Still queued or still running; re-check against the section's own start time
+            } catch (ExecutionException e) {
+                return new SectionResult(name, "", String.valueOf(e.getCause()), 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                return new SectionResult(name, "", "interrupted", 0);
+            }
+        }
+    }
+
+    /**
+     * Stop the worker threads; running sections are interrupted
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -1,19 +1,22 @@
 package syos.services;
 
-import java.security.MessageDigest;
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 import syos.dao.AuditLogDAO;
 import syos.dao.DAOFactory;
 import syos.dao.RoleDAO;
 import syos.dao.UserDAO;
+import syos.dao.audit.AsyncAuditWriter;
 import syos.models.AuditAction;
+import syos.models.AuditLog;
 import syos.models.Role;
 import syos.models.User;
 
@@ -26,6 +29,8 @@ public class AuthenticationService extends AbstractService {
     private final UserDAO userDAO;
     private final RoleDAO roleDAO;
     private final AuditLogDAO auditLogDAO;
+    private final AsyncAuditWriter auditWriter;
+    private final PasswordHashingService passwordHasher;
     
     // Active sessions: sessionToken -> UserSession
     private final Map<String, UserSession> activeSessions;
@@ -42,11 +47,16 @@ public class AuthenticationService extends AbstractService {
     // Session timeout in minutes
     private static final int SESSION_TIMEOUT_MINUTES = 30;
     
+    // Upper bound on waiting for a password hashing worker
+    private static final int PASSWORD_HASH_TIMEOUT_SECONDS = 30;
+    
     public AuthenticationService(DAOFactory daoFactory) {
         super(daoFactory);
         this.userDAO = daoFactory.getUserDAO();
         this.roleDAO = daoFactory.getRoleDAO();
         this.auditLogDAO = daoFactory.getAuditLogDAO();
+        this.auditWriter = daoFactory.getAuditWriter();
+        this.passwordHasher = PasswordHashingService.getInstance();
         this.activeSessions = new HashMap<>();
     }
     
@@ -99,16 +109,15 @@ public class AuthenticationService extends AbstractService {
                 throw new ServiceException("Default USER role not found");
             }
             
-            // Hash password
-            String salt = generateSalt();
-            String hashedPassword = hashPassword(password, salt);
+            // Hash password (PBKDF2, salt embedded in the hash)
+            String hashedPassword = awaitPasswordTask(passwordHasher.hash(password));
             
             // Create user
             User newUser = new User();
             newUser.setUsername(username);
             newUser.setEmail(email);
             newUser.setPasswordHash(hashedPassword);
-            newUser.setSalt(salt);
+            newUser.setSalt(null);
             newUser.setFirstName(firstName);
             newUser.setLastName(lastName);
             newUser.setPhone(phone);
@@ -162,15 +171,22 @@ public class AuthenticationService extends AbstractService {
             }
             
             // Verify password
-            if (!verifyPassword(password, user.getPasswordHash(), user.getSalt())) {
+            PasswordHashingService.VerificationResult verification = awaitPasswordTask(
+                passwordHasher.verify(password, user.getPasswordHash(), user.getSalt()));
+            if (!verification.matches()) {
                 logAuditEvent(user.getId(), AuditAction.USER_LOGIN_FAILED, 
                             "Login failed: Invalid password - " + email);
                 return new LoginResult(false, "Invalid credentials", null, null);
             }
             
+            // Upgrade legacy or under-cost hashes in the background
+            if (verification.isRehashNeeded()) {
+                rehashPassword(user, password);
+            }
+            
             // Update last login
             user.setLastLoginAt(LocalDateTime.now());
-            userDAO.update(user);
+            userDAO.updateLastLogin(user.getId());
             
             // Create session
             String sessionToken = createSession(user);
@@ -258,19 +274,18 @@ public class AuthenticationService extends AbstractService {
             }
             
             // Verify current password
-            if (!verifyPassword(currentPassword, user.getPasswordHash(), user.getSalt())) {
+            if (!awaitPasswordTask(passwordHasher.verify(currentPassword, user.getPasswordHash(), user.getSalt())).matches()) {
                 logAuditEvent(userId, AuditAction.USER_PASSWORD_CHANGE_FAILED, 
                             "Password change failed: Invalid current password");
                 return false;
             }
             
-            // Generate new salt and hash
-            String newSalt = generateSalt();
-            String newHashedPassword = hashPassword(newPassword, newSalt);
+            // Hash the new password
+            String newHashedPassword = awaitPasswordTask(passwordHasher.hash(newPassword));
             
             // Update user
             user.setPasswordHash(newHashedPassword);
-            user.setSalt(newSalt);
+            user.setSalt(null);
             user.setUpdatedAt(LocalDateTime.now());
             
             userDAO.update(user);
@@ -393,28 +408,32 @@ public class AuthenticationService extends AbstractService {
         return new ValidationResult(true, null);
     }
     
-    private String generateSalt() {
-        SecureRandom random = new SecureRandom();
-        byte[] salt = new byte[16];
-        random.nextBytes(salt);
-        return Base64.getEncoder().encodeToString(salt);
-    }
-    
-    private String hashPassword(String password, String salt) throws ServiceException {
+    private <T> T awaitPasswordTask(CompletableFuture<T> task) throws ServiceException {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            // Simply concatenate password and salt string, then hash
-            String combined = password + salt;
-            byte[] hashedPassword = md.digest(combined.getBytes("UTF-8"));
-            return Base64.getEncoder().encodeToString(hashedPassword);
-        } catch (Exception e) {
-            throw new ServiceException("Failed to hash password", e);
+            return task.get(PASSWORD_HASH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while hashing password", "PASSWORD_HASH_FAILED", "HASH", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ServiceException("Failed to hash password", "PASSWORD_HASH_FAILED", "HASH", e);
         }
     }
     
-    private boolean verifyPassword(String password, String hashedPassword, String salt) throws ServiceException {
-        String newHash = hashPassword(password, salt);
-        return newHash.equals(hashedPassword);
+    private void rehashPassword(User user, String password) {
+        String previousHash = user.getPasswordHash();
+        passwordHasher.hash(password).thenAcceptAsync(newHash -> {
+            try {
+                // Conditional on the old hash, so a password changed meanwhile is kept
+                if (userDAO.replacePasswordHash(user.getId(), previousHash, newHash)) {
+                    logger.info("Upgraded password hash for user ID: {}", user.getId());
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to upgrade password hash for user ID {}: {}", user.getId(), e.getMessage());
+            }
+        }).exceptionally(e -> {
+            logger.warn("Skipped password hash upgrade for user ID {}: {}", user.getId(), e.getMessage());
+            return null;
+        });
     }
     
     private String createSession(User user) {
@@ -431,14 +450,34 @@ public class AuthenticationService extends AbstractService {
     
     private void logAuditEvent(Integer userId, AuditAction action, String details) {
         try {
-            // Temporarily disabled audit logging to avoid issues
             logger.info("Audit: User {} - {} - {}", userId, action, details);
+            
+            // Queued for the background writer so login/logout never wait on the insert
+            AuditLog auditLog = new AuditLog("users", toAuditOperation(action), userId, userId);
+            auditLog.setNewValues(action.name() + ": " + details);
+            auditWriter.submit(auditLog);
         } catch (Exception e) {
             // Log error but don't throw - audit logging shouldn't break functionality
             logger.error("Failed to log audit event: {}", e.getMessage());
         }
     }
     
+    private AuditLog.Operation toAuditOperation(AuditAction action) {
+        switch (action) {
+            case USER_LOGIN_SUCCESS:
+            case USER_LOGIN_FAILED:
+                return AuditLog.Operation.LOGIN;
+            case USER_LOGOUT:
+            case USER_SESSION_EXPIRED:
+                return AuditLog.Operation.LOGOUT;
+            case USER_REGISTRATION_SUCCESS:
+            case USER_REGISTRATION_FAILED:
+                return AuditLog.Operation.INSERT;
+            default:
+                return AuditLog.Operation.UPDATE;
+        }
+    }
+    
     // Inner classes for results
     
     public static class RegistrationResult {
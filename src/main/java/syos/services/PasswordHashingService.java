@@ -0,0 +1,287 @@
+package syos.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Password hashing on a dedicated bounded worker pool
+ * Hashes use PBKDF2-HMAC-SHA256 and are stored self-describing as
+ * pbkdf2-sha256$iterations$salt$hash, so the cost can be raised without invalidating
+ * existing passwords; verify() reports when a stored hash should be upgraded
+ *
+ * Configured from config.properties:
+ *   password.hash.iterations      - PBKDF2 iterations for new hashes (default 210000)
+ *   password.hash.threads         - worker threads (default: available processors)
+ *   password.hash.queue.capacity  - hash requests allowed to wait; beyond this requests fail fast (default 64)
+ */
+public class PasswordHashingService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    public static final String PBKDF2_PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_LENGTH_BITS = 256;
+
+    private static volatile PasswordHashingService instance;
+
+    private final int iterations;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Result of verifying a password against a stored hash
+     */
+    public static class VerificationResult {
+        private final boolean matches;
+        private final boolean rehashNeeded;
+
+        public VerificationResult(boolean matches, boolean rehashNeeded) {
+            this.matches = matches;
+            this.rehashNeeded = rehashNeeded;
+        }
+
+        public boolean matches() { return matches; }
+        public boolean isRehashNeeded() { return matches && rehashNeeded; }
+    }
+
+    /**
+     * Get the process-wide hashing service configured from config.properties
+     */
+    public static PasswordHashingService getInstance() {
+        if (instance == null) {
+            synchronized (PasswordHashingService.class) {
+                if (instance == null) {
+                    instance = new PasswordHashingService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private PasswordHashingService() {
+        this(loadProperties());
+    }
+
+    private PasswordHashingService(Properties props) {
+        this(Integer.parseInt(props.getProperty("password.hash.iterations", "210000")),
+             Integer.parseInt(props.getProperty("password.hash.threads",
+                                                String.valueOf(Runtime.getRuntime().availableProcessors()))),
+             Integer.parseInt(props.getProperty("password.hash.queue.capacity", "64")));
+    }
+
+    /**
+     * Create a hashing service with explicit settings
+     * @param iterations PBKDF2 iterations for new hashes
+     * @param threads Worker threads
+     * @param queueCapacity Requests allowed to wait for a worker
+     */
+    public PasswordHashingService(int iterations, int threads, int queueCapacity) {
+        if (iterations <= 0 || threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Iterations, threads and queue capacity must be positive");
+        }
+        this.iterations = iterations;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread thread = new Thread(r, "syos-password-hasher-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+
+        try (InputStream input = PasswordHashingService.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load config.properties, using default password hashing settings");
+        }
+        return props;
+    }
+
+    /**
+     * Hash a password at the configured cost
+     * @param password The plain password
+     * @return A future completing with the encoded hash, or failing with
+     *         RejectedExecutionException when the worker queue is full
+     */
+    public CompletableFuture<String> hash(String password) {
+        return hash(password, iterations);
+    }
+
+    /**
+     * Hash a password at an explicit cost
+     * @param password The plain password
+     * @param hashIterations PBKDF2 iterations
+     * @return A future completing with the encoded hash
+     */
+    public CompletableFuture<String> hash(String password, int hashIterations) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashNow(password, hashIterations), executor);
+        } catch (RejectedExecutionException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Verify a password against a stored hash
+     * Accepts PBKDF2 hashes and the legacy Base64 SHA-256(password + salt) format
+     * @param password The plain password
+     * @param storedHash The stored hash
+     * @param legacySalt The users.salt column, only used for legacy hashes
+     * @return A future completing with whether the password matches and whether the hash is outdated
+     */
+    public CompletableFuture<VerificationResult> verify(String password, String storedHash, String legacySalt) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verifyNow(password, storedHash, legacySalt), executor);
+        } catch (RejectedExecutionException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Hash a password on the calling thread
+     * @param password The plain password
+     * @param hashIterations PBKDF2 iterations
+     * @return The encoded hash
+     */
+    public String hashNow(String password, int hashIterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        secureRandom.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, hashIterations, KEY_LENGTH_BITS);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PBKDF2_PREFIX + "$" + hashIterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Verify a password on the calling thread
+     * @param password The plain password
+     * @param storedHash The stored hash
+     * @param legacySalt The users.salt column, only used for legacy hashes
+     * @return The verification result
+     */
+    public VerificationResult verifyNow(String password, String storedHash, String legacySalt) {
+        if (password == null || storedHash == null) {
+            return new VerificationResult(false, false);
+        }
+
+        if (isPbkdf2Hash(storedHash)) {
+            String[] parts = storedHash.split("\\$");
+            if (parts.length != 4) {
+                return new VerificationResult(false, false);
+            }
+            try {
+                int storedIterations = Integer.parseInt(parts[1]);
+                byte[] salt = Base64.getDecoder().decode(parts[2]);
+                byte[] expected = Base64.getDecoder().decode(parts[3]);
+                byte[] actual = pbkdf2(password, salt, storedIterations, expected.length * 8);
+                return new VerificationResult(MessageDigest.isEqual(expected, actual), storedIterations < iterations);
+            } catch (IllegalArgumentException e) {
+                return new VerificationResult(false, false);
+            }
+        }
+
+        if (legacySalt == null) {
+            return new VerificationResult(false, false);
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] expected = Base64.getDecoder().decode(storedHash);
+            byte[] actual = md.digest((password + legacySalt).getBytes(StandardCharsets.UTF_8));
+            return new VerificationResult(MessageDigest.isEqual(expected, actual), true);
+        } catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+            return new VerificationResult(false, false);
+        }
+    }
+
+    /**
+     * Check whether a stored hash should be replaced at the next successful login
+     */
+    public boolean needsRehash(String storedHash) {
+        if (!isPbkdf2Hash(storedHash)) {
+            return true;
+        }
+        String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Check whether a stored hash is in the PBKDF2 format
+     */
+    public static boolean isPbkdf2Hash(String storedHash) {
+        return storedHash != null && storedHash.startsWith(PBKDF2_PREFIX + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int hashIterations, int keyLengthBits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, hashIterations, keyLengthBits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable cause) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getQueuedRequests() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Password hashing service stopped");
+    }
+}
@@ -11,7 +11,7 @@ import com.syos.infrastructure.database.ConnectionPool;
 public class DatabaseFix {
     public static void main(String[] args) {
         try {
-            ConnectionPool pool = new ConnectionPool();
+            ConnectionPool pool = ConnectionPool.getShared();
             Connection conn = pool.getConnection();
             Statement stmt = conn.createStatement();
             
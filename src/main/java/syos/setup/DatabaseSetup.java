@@ -6,6 +6,10 @@ import java.sql.Statement;
 
 import com.syos.infrastructure.database.ConnectionPool;
 
+import syos.dao.DatabaseException;
+import syos.dao.audit.AuditPartitionManager;
+import syos.dao.cache.CacheInvalidationLog;
+
 /**
  * Database setup utility to create tables and initial data
  */
@@ -14,7 +18,7 @@ public class DatabaseSetup {
     private final ConnectionPool connectionPool;
     
     public DatabaseSetup() {
-        this.connectionPool = new ConnectionPool();
+        this.connectionPool = ConnectionPool.getShared();
     }
     
     public void setupDatabase() {
@@ -32,12 +36,20 @@ public class DatabaseSetup {
             // Create audit_logs table
             createAuditLogsTable(statement);
             
+            // Create the cross-JVM cache invalidation log
+            statement.executeUpdate(CacheInvalidationLog.CREATE_TABLE_SQL);
+            System.out.println("✓ Cache invalidations table created");
+            
             // Insert default roles
             insertDefaultRoles(statement);
             
+            // Partition audit_logs by month
+            new AuditPartitionManager(connectionPool).runMaintenance();
+            System.out.println("✓ Audit logs partitioned by month");
+            
             System.out.println("✓ Database setup completed successfully!");
             
-        } catch (SQLException e) {
+        } catch (SQLException | DatabaseException e) {
             System.err.println("✗ Database setup failed: " + e.getMessage());
             e.printStackTrace();
         }
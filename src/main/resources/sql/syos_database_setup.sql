@@ -152,6 +152,24 @@ CREATE TABLE inventory (
     FOREIGN KEY (batch_id) REFERENCES batches(id)
 );
 
+-- Promotions (product or category wide; NULL starts_at/ends_at means open-ended)
+CREATE TABLE promotions (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    promotion_name VARCHAR(100) NOT NULL,
+    promotion_type ENUM('PERCENT', 'AMOUNT', 'BUY_X_GET_Y') NOT NULL,
+    product_id INT NULL,
+    category_id INT NULL,
+    discount_percentage DECIMAL(5,2) NOT NULL DEFAULT 0,
+    discount_amount DECIMAL(10,2) NOT NULL DEFAULT 0,
+    buy_quantity INT NOT NULL DEFAULT 0,
+    free_quantity INT NOT NULL DEFAULT 0,
+    starts_at DATETIME NULL,
+    ends_at DATETIME NULL,
+    is_active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_promotions_window (is_active, ends_at)
+);
+
 -- ================================
 -- CUSTOMER MANAGEMENT TABLES
 -- ================================
@@ -163,7 +181,7 @@ CREATE TABLE customers (
     first_name VARCHAR(50) NOT NULL,
     last_name VARCHAR(50) NOT NULL,
     email VARCHAR(100) UNIQUE,
-    phone VARCHAR(20),
+    phone_number VARCHAR(20) UNIQUE,
     address_line1 VARCHAR(200),
     address_line2 VARCHAR(200),
     city VARCHAR(100),
@@ -179,6 +197,30 @@ CREATE TABLE customers (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
+-- Running purchase totals per customer, updated at checkout
+CREATE TABLE customer_stats (
+    customer_id INT PRIMARY KEY,
+    transaction_count INT NOT NULL DEFAULT 0,
+    total_spent DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+    first_purchase_at TIMESTAMP NULL,
+    last_purchase_at TIMESTAMP NULL,
+    INDEX idx_customer_stats_total_spent (total_spent)
+);
+
+-- Recency/frequency/monetary segments, rewritten by the RfmSegmentation batch job
+CREATE TABLE customer_segments (
+    customer_id INT PRIMARY KEY,
+    recency_days INT NOT NULL,
+    frequency INT NOT NULL,
+    monetary DECIMAL(14,2) NOT NULL,
+    r_score TINYINT NOT NULL,
+    f_score TINYINT NOT NULL,
+    m_score TINYINT NOT NULL,
+    segment VARCHAR(30) NOT NULL,
+    computed_at TIMESTAMP NOT NULL,
+    INDEX idx_customer_segments_segment (segment)
+);
+
 -- ================================
 -- TRANSACTION TABLES
 -- ================================
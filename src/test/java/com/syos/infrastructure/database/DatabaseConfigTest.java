@@ -0,0 +1,32 @@
+package com.syos.infrastructure.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for named pool configuration; no database needed
+ */
+class DatabaseConfigTest {
+
+    @Test
+    @DisplayName("The reporting pool should override size and access mode but share the primary URL")
+    void testReportingOverrides() {
+        DatabaseConfig oltp = new DatabaseConfig();
+        DatabaseConfig reporting = new DatabaseConfig(ConnectionPool.REPORTING);
+
+        assertEquals(ConnectionPool.OLTP, oltp.getPoolName());
+        assertFalse(oltp.isReadOnly());
+        assertEquals("", oltp.getTransactionIsolation());
+
+        assertEquals(4, reporting.getMaxPoolSize());
+        assertEquals(1, reporting.getMinIdleConnections());
+        assertTrue(reporting.isReadOnly());
+        assertEquals("TRANSACTION_READ_COMMITTED", reporting.getTransactionIsolation());
+        assertEquals(oltp.getUrl(), reporting.getUrl(), "A blank reporting URL falls back to db.url");
+        assertEquals(oltp.getIdleTimeout(), reporting.getIdleTimeout());
+    }
+}
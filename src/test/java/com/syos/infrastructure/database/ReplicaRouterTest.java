@@ -0,0 +1,96 @@
+package com.syos.infrastructure.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for replica selection and health tracking against in-memory stand-in data sources
+ */
+class ReplicaRouterTest {
+
+    /** A data source whose connections accept SELECT 1, and which can be switched off */
+    private static final class FakeReplica {
+        final AtomicInteger borrows = new AtomicInteger();
+        volatile boolean down;
+
+        DataSource dataSource() {
+            return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DataSource.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("getConnection")) {
+                        return null;
+                    }
+                    if (down) {
+                        throw new SQLException("Connection refused");
+                    }
+                    borrows.incrementAndGet();
+                    return connection();
+                });
+        }
+
+        private Connection connection() {
+            Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Statement.class},
+                (proxy, method, args) -> method.getName().equals("execute") ? Boolean.TRUE : null);
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> method.getName().equals("createStatement") ? statement : null);
+        }
+    }
+
+    @Test
+    @DisplayName("Reads should alternate between healthy replicas")
+    void testRoundRobin() {
+        FakeReplica first = new FakeReplica();
+        FakeReplica second = new FakeReplica();
+        ReplicaRouter router = new ReplicaRouter(Arrays.asList(
+            new ReplicaRouter.Replica("r1", first.dataSource()),
+            new ReplicaRouter.Replica("r2", second.dataSource())), 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(router.borrow());
+        }
+
+        assertEquals(5, first.borrows.get());
+        assertEquals(5, second.borrows.get());
+    }
+
+    @Test
+    @DisplayName("A failing replica should leave rotation until a health check passes")
+    void testFailover() {
+        FakeReplica first = new FakeReplica();
+        FakeReplica second = new FakeReplica();
+        ReplicaRouter router = new ReplicaRouter(Arrays.asList(
+            new ReplicaRouter.Replica("r1", first.dataSource()),
+            new ReplicaRouter.Replica("r2", second.dataSource())), 0);
+
+        second.down = true;
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(router.borrow());
+        }
+        assertEquals(4, first.borrows.get());
+        assertFalse(router.getReplicas().get(1).isHealthy());
+        assertEquals(1, router.getHealthyCount());
+
+        first.down = true;
+        assertNull(router.borrow(), "With every replica down the caller falls back to the primary");
+
+        first.down = false;
+        second.down = false;
+        router.checkHealth();
+        assertEquals(2, router.getHealthyCount());
+        assertTrue(router.getReplicas().get(1).isHealthy());
+    }
+}
@@ -0,0 +1,69 @@
+package syos.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for basket co-occurrence counts and neighbour lists
+ */
+class BasketPairsTest {
+
+    @Test
+    @DisplayName("Neighbours should rank products by baskets shared, counting each basket once")
+    void testNeighbours() {
+        BasketPairs pairs = new BasketPairs(10, 50, 1_000_000);
+        pairs.record(new int[] {1, 2, 3}, 0, 3);
+        pairs.record(new int[] {2, 1, 1, 2}, 0, 4);
+        pairs.record(new int[] {1, 3}, 0, 2);
+        pairs.record(new int[] {1, 2}, 0, 2);
+        pairs.record(new int[] {4}, 0, 1);
+        pairs.compact();
+
+        List<BasketPairs.Neighbour> together = pairs.together(1, 5);
+        assertEquals(2, together.size());
+        assertEquals(2, together.get(0).getProductId());
+        assertEquals(3, together.get(0).getBaskets());
+        assertEquals(0.75, together.get(0).getConfidence(), 1e-9);
+        assertEquals(3, together.get(1).getProductId());
+        assertEquals(2, together.get(1).getBaskets());
+
+        assertEquals(1, pairs.together(3, 1).size());
+        assertTrue(pairs.together(4, 5).isEmpty());
+        assertTrue(pairs.together(99, 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Compaction over budget should keep top-K pairs and basket counts and drop the rest")
+    void testPruning() {
+        BasketPairs pairs = new BasketPairs(1, 50, 1);
+        for (int i = 0; i < 3; i++) {
+            pairs.record(new int[] {1, 2}, 0, 2);
+        }
+        pairs.record(new int[] {1, 3}, 0, 2);
+        pairs.record(new int[] {3, 4}, 0, 2);
+        pairs.record(new int[] {3, 4}, 0, 2);
+        pairs.compact();
+
+        // 1-3 is in neither product's top-1 and is forgotten; basket counts survive
+        pairs.compact();
+        assertEquals(2, pairs.together(1, 5).get(0).getProductId());
+        assertEquals(4, pairs.together(3, 5).get(0).getProductId());
+        assertEquals(2.0 / 3, pairs.together(3, 5).get(0).getConfidence(), 1e-9);
+
+        pairs.record(new int[] {1, 3}, 0, 2);
+        pairs.compact();
+        assertEquals(2, pairs.together(1, 5).get(0).getProductId());
+    }
+
+    @Test
+    @DisplayName("Pair keys should not depend on argument order")
+    void testPairKey() {
+        assertEquals(BasketPairs.pairKey(7, 3), BasketPairs.pairKey(3, 7));
+        assertEquals(((long) 3 << 32) | 7, BasketPairs.pairKey(7, 3));
+    }
+}
@@ -0,0 +1,74 @@
+package syos.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for HyperLogLog sketches and per-day distinct customer ranges
+ */
+class HyperLogLogTest {
+
+    @Test
+    @DisplayName("Estimates should stay within the documented error and survive serialization")
+    void testAccuracyAndSerialization() {
+        HyperLogLog small = new HyperLogLog();
+        HyperLogLog large = new HyperLogLog();
+        for (int i = 0; i < 200; i++) {
+            small.add("07712" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            large.add("+9477" + i);
+            large.add("+9477" + i);
+        }
+
+        assertEquals(200, small.estimate(), 2, "Small counts use linear counting");
+        double error = Math.abs(large.estimate() - 100_000) / 100_000.0;
+        assertTrue(error < 3 * large.getStandardError(), "Error " + error);
+
+        byte[] sparse = small.toBytes();
+        byte[] dense = large.toBytes();
+        assertTrue(sparse.length < 1000, "Sparse sketch should be compact: " + sparse.length);
+        assertEquals(2 + (1 << 14) * 6 / 8, dense.length);
+        assertEquals(small.estimate(), HyperLogLog.fromBytes(sparse).estimate());
+        assertEquals(large.estimate(), HyperLogLog.fromBytes(dense).estimate());
+    }
+
+    @Test
+    @DisplayName("Day sketches should merge into ranges without double counting repeat customers")
+    void testDayRanges() {
+        DistinctCustomers tracker = new DistinctCustomers(ZoneId.of("Asia/Colombo"));
+        LocalDate today = LocalDate.of(2024, 3, 10);
+        for (int day = 0; day < 10; day++) {
+            for (int customer = 0; customer < 50; customer++) {
+                // 30 regulars every day plus 20 new faces per day
+                String phone = customer < 30 ? "071000" + customer : "072" + day + "0" + customer;
+                tracker.add(today.minusDays(day), phone, today);
+            }
+        }
+
+        assertEquals(30 + 20 * 7, tracker.estimate(today.minusDays(6), today, today).getCount(), 3);
+        assertEquals(30 + 20 * 10, tracker.estimate(today.minusDays(30), today, today).getCount(), 3);
+
+        tracker.add(today, "0799999999", today);
+        tracker.add(today.minusDays(1), "0788888888", today);
+        assertEquals(30 + 20 * 7 + 2, tracker.estimate(today.minusDays(6), today, today).getCount(), 3);
+        assertEquals(50, tracker.estimate(today.minusDays(9), today.minusDays(9), today).getCount(), 1);
+    }
+
+    @Test
+    @DisplayName("Sales should count under the customer id when linked and the normalized phone otherwise")
+    void testCustomerKey() {
+        assertEquals("id:7", DistinctCustomers.customerKey(7, "077 123-4567"));
+        assertEquals("phone:0771234567", DistinctCustomers.customerKey(null, "(077) 123-4567"));
+        assertEquals(DistinctCustomers.customerKey(null, "0771234567"), DistinctCustomers.customerKey(null, "077.123.4567"));
+        assertNull(DistinctCustomers.customerKey(null, " - "));
+        assertNull(DistinctCustomers.customerKey(null, null));
+    }
+}
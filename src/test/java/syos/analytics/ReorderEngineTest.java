@@ -0,0 +1,60 @@
+package syos.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for smoothed demand, days of cover and reorder ranking, without a database
+ */
+class ReorderEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 2);
+
+    @Test
+    @DisplayName("Smoothing should start from the mean and weight recent days more")
+    void testSmooth() {
+        assertEquals(4.0, ReorderEngine.smooth(new long[] {4, 4, 4, 4, 99}, 4, 0.5), 1e-9);
+        // Mean 2.5, then 0, 0, 10, 0 at alpha 0.5
+        assertEquals(2.65625, ReorderEngine.smooth(new long[] {0, 0, 10, 0}, 4, 0.5), 1e-9);
+        assertEquals(0.0, ReorderEngine.smooth(new long[] {5}, 0, 0.5), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Recommendations should rank by days of cover and size orders to the target")
+    void testRecommendations() {
+        ReorderEngine engine = new ReorderEngine(0.5, 7, 14, ZoneOffset.UTC);
+        engine.load(new int[] {1, 2, 3, 4}, new long[] {30, 5, 100, 0}, new double[] {10, 1, 1, 0}, TODAY);
+
+        List<ReorderEngine.Recommendation> list = engine.recommendations(10, TODAY);
+        assertEquals(2, list.size());
+        assertEquals(1, list.get(0).getProductId());
+        assertEquals(3.0, list.get(0).getDaysOfCover(), 1e-9);
+        assertEquals(110, list.get(0).getReorderQuantity());
+        assertEquals(2, list.get(1).getProductId());
+        assertEquals(9, list.get(1).getReorderQuantity());
+        assertEquals(1, engine.recommendations(1, TODAY).size());
+    }
+
+    @Test
+    @DisplayName("Sales should take stock and raise demand, and later days fold into the average")
+    void testSalesAndRollover() {
+        ReorderEngine engine = new ReorderEngine(0.5, 7, 14, ZoneOffset.UTC);
+        engine.load(new int[] {1}, new long[] {100}, new double[] {2}, TODAY);
+
+        engine.record(1, 1, 40, TODAY);
+        ReorderEngine.Recommendation busy = engine.recommendations(5, TODAY).get(0);
+        assertEquals(60, busy.getStock());
+        assertEquals(40.0, busy.getDailyDemand(), 1e-9);
+
+        // Yesterday's 40 averages with 2 to 21, then an idle day halves it
+        assertEquals(10.5, engine.recommendations(5, TODAY.plusDays(2)).get(0).getDailyDemand(), 1e-9);
+        assertTrue(engine.recommendations(5, TODAY.plusDays(10)).isEmpty());
+    }
+}
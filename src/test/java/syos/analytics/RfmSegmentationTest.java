@@ -0,0 +1,90 @@
+package syos.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for RFM aggregation and scoring, without a database
+ */
+class RfmSegmentationTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long NOW = 20_000 * DAY;
+
+    @Test
+    @DisplayName("Per-customer totals should survive table growth and chunks split across shards")
+    void testAggregate() {
+        CustomerTotals[] shards = {new CustomerTotals(4), new CustomerTotals(4), new CustomerTotals(4), new CustomerTotals(4)};
+        int rows = 5000;
+        int[] ids = new int[rows];
+        long[] millis = new long[rows];
+        long[] cents = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = i % 1000;
+            millis[i] = NOW - i * 1000L;
+            cents[i] = 100;
+        }
+        RfmSegmentation.aggregate(shards, ids, millis, cents, rows);
+
+        int customers = 0;
+        for (CustomerTotals shard : shards) {
+            customers += shard.size();
+            for (int slot = 0; slot < shard.capacity(); slot++) {
+                if (shard.isUsed(slot)) {
+                    assertEquals(5, shard.getCount(slot));
+                    assertEquals(500, shard.getCents(slot));
+                    assertEquals(NOW - shard.getCustomerId(slot) * 1000L, shard.getLastMillis(slot));
+                }
+            }
+        }
+        assertEquals(1000, customers);
+    }
+
+    @Test
+    @DisplayName("Quintile scores should rank values and give equal values the same score")
+    void testQuintile() {
+        long[] sorted = {1, 1, 1, 1, 1, 1, 2, 3, 4, 5};
+        assertEquals(1, RfmSegmentation.quintile(sorted, 1));
+        assertEquals(4, RfmSegmentation.quintile(sorted, 2));
+        assertEquals(5, RfmSegmentation.quintile(sorted, 5));
+        assertEquals(1, RfmSegmentation.quintile(new long[0], 7));
+    }
+
+    @Test
+    @DisplayName("Recent, frequent, big spenders should be champions and lapsed ones lost")
+    void testScoreAndSegment() throws InterruptedException {
+        CustomerTotals[] shards = {new CustomerTotals(16), new CustomerTotals(16)};
+        for (int customer = 1; customer <= 10; customer++) {
+            // Customer 10 bought most recently, most often and for the most
+            for (int sale = 0; sale < customer; sale++) {
+                shards[customer % 2].add(customer, NOW - (10 - customer) * 30 * DAY, customer * 1000L);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            RfmSegmentation.Scores scores = RfmSegmentation.score(pool, shards, NOW);
+            assertEquals(10, scores.size());
+            for (int i = 0; i < scores.size(); i++) {
+                String segment = RfmSegmentation.SEGMENTS[scores.segments[i]];
+                if (scores.customerIds[i] == 10) {
+                    assertEquals(5, scores.rScores[i]);
+                    assertEquals(5, scores.fScores[i]);
+                    assertEquals(5, scores.mScores[i]);
+                    assertEquals(0, scores.recencyDays[i]);
+                    assertEquals("Champions", segment);
+                } else if (scores.customerIds[i] == 1) {
+                    assertEquals(1, scores.rScores[i]);
+                    assertEquals(270, scores.recencyDays[i]);
+                    assertEquals("Lost", segment);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
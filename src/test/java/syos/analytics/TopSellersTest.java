@@ -0,0 +1,104 @@
+package syos.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the Space-Saving sketch and the rolling top-sellers windows
+ */
+class TopSellersTest {
+
+    private static final ZoneId COLOMBO = ZoneId.of("Asia/Colombo");
+
+    private static long at(int day, int hour, int minute) {
+        return LocalDateTime.of(2024, 3, day, hour, minute).atZone(COLOMBO).toInstant().toEpochMilli();
+    }
+
+    private static SaleEvent sale(long time, int productId, int quantity) {
+        return new SaleEvent(0, time, null, null, quantity * 100L, new int[] {productId},
+                             new String[] {"Product " + productId}, new int[] {quantity}, new long[] {quantity * 100L});
+    }
+
+    @Test
+    @DisplayName("Space-Saving should keep heavy hitters and bound the error of replaced keys")
+    void testSpaceSaving() {
+        SpaceSaving sketch = new SpaceSaving(3);
+        for (int i = 0; i < 100; i++) {
+            sketch.offer(1, 5, 0);
+            sketch.offer(2, 3, 0);
+            sketch.offer(100 + i, 1, 0);
+        }
+        long heavy = 0;
+        for (int i = 0; i < sketch.size(); i++) {
+            if (sketch.getKey(i) == 1) {
+                heavy = sketch.getCount(i);
+                assertEquals(0, sketch.getError(i));
+            } else if (sketch.getKey(i) != 2) {
+                assertTrue(sketch.getCount(i) - sketch.getError(i) <= 1);
+            }
+        }
+        assertEquals(500, heavy);
+        assertEquals(900, sketch.getTotal());
+    }
+
+    @Test
+    @DisplayName("Windows should count only sales inside them, with today starting at local midnight")
+    void testWindows() {
+        TopSellers tracker = new TopSellers(16, COLOMBO);
+        long now = at(10, 9, 30);
+        tracker.record(sale(at(3, 9, 0), 9, 50), now);     // older than 7 days: ignored
+        tracker.record(sale(at(5, 10, 0), 1, 40), now);
+        tracker.record(sale(at(9, 23, 45), 2, 30), now);   // yesterday, 15 minutes before local midnight
+        tracker.record(sale(at(10, 0, 15), 3, 20), now);
+        tracker.record(sale(at(10, 9, 0), 3, 5), now);
+        tracker.record(sale(at(10, 9, 10), 4, 7), now);
+
+        List<TopSellers.Entry> lastHour = tracker.top(TopSellers.Window.LAST_HOUR, 5, now);
+        assertEquals(2, lastHour.size());
+        assertEquals(4, lastHour.get(0).getProductId());
+        assertEquals(5, lastHour.get(1).getQuantity());
+
+        List<TopSellers.Entry> today = tracker.top(TopSellers.Window.TODAY, 5, now);
+        assertEquals(2, today.size());
+        assertEquals(3, today.get(0).getProductId());
+        assertEquals(25, today.get(0).getQuantity());
+        assertEquals(2500, today.get(0).getRevenueCents());
+
+        List<TopSellers.Entry> week = tracker.top(TopSellers.Window.LAST_7_DAYS, 2, now);
+        assertEquals(1, week.get(0).getProductId());
+        assertEquals(2, week.get(1).getProductId());
+        assertEquals("Product 1", week.get(0).getProductName());
+    }
+
+    @Test
+    @DisplayName("Merged counts should still bound a product that dropped out of one bucket's sketch")
+    void testMergeChargesUnmonitoredBuckets() {
+        TopSellers tracker = new TopSellers(2, COLOMBO);
+        long now = at(10, 9, 30);
+        tracker.record(sale(at(10, 9, 0), 1, 10), now);
+        tracker.record(sale(at(10, 9, 0), 2, 8), now);
+        tracker.record(sale(at(10, 9, 0), 3, 1), now);    // evicts product 2 from the 9:00 bucket
+        tracker.record(sale(at(10, 9, 5), 2, 20), now);
+        tracker.record(sale(at(10, 9, 5), 1, 5), now);
+
+        Map<Integer, Long> actual = Map.of(1, 15L, 2, 28L, 3, 1L);
+        List<TopSellers.Entry> lastHour = tracker.top(TopSellers.Window.LAST_HOUR, 5, now);
+        assertEquals(3, lastHour.size());
+        for (TopSellers.Entry entry : lastHour) {
+            long sold = actual.get(entry.getProductId());
+            assertTrue(entry.getQuantity() >= sold, "Product " + entry.getProductId() + " undercounted");
+            assertTrue(entry.getQuantity() - entry.getError() <= sold, "Product " + entry.getProductId() + " error too small");
+        }
+        assertEquals(2, lastHour.get(0).getProductId());
+        assertEquals(15, lastHour.get(1).getQuantity());
+        assertEquals(0, lastHour.get(1).getError());
+    }
+}
@@ -0,0 +1,78 @@
+package syos.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for per-minute sliding-window totals
+ */
+class WindowedAggregateTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long NOW = 1_000_000 * MINUTE + 30_000;
+
+    @Test
+    @DisplayName("A window should total only the minutes it spans")
+    void testWindowTotals() {
+        WindowedAggregate aggregate = new WindowedAggregate(60);
+        aggregate.record(NOW, 1500);
+        aggregate.record(NOW - MINUTE, 500);
+        aggregate.record(NOW - 10 * MINUTE, 9000);
+
+        WindowedAggregate.Stats lastTwo = aggregate.last(2, NOW);
+        assertEquals(2, lastTwo.getCount());
+        assertEquals(2000, lastTwo.getSumCents());
+        assertEquals(500, lastTwo.getMinCents());
+        assertEquals(1500, lastTwo.getMaxCents());
+        assertEquals(1000, lastTwo.getAverageCents());
+
+        WindowedAggregate.Stats hour = aggregate.last(60, NOW);
+        assertEquals(3, hour.getCount());
+        assertEquals(9000, hour.getMaxCents());
+        assertEquals(9000, aggregate.between(NOW - 10 * MINUTE, NOW - 5 * MINUTE).getSumCents());
+    }
+
+    @Test
+    @DisplayName("Minutes older than the retained span should be dropped as their slots are reused")
+    void testExpiry() {
+        WindowedAggregate aggregate = new WindowedAggregate(10);
+        aggregate.record(NOW - 9 * MINUTE, 100);
+        aggregate.record(NOW, 200);
+        assertEquals(300, aggregate.last(10, NOW).getSumCents());
+
+        aggregate.record(NOW + MINUTE, 400);
+        WindowedAggregate.Stats later = aggregate.last(10, NOW + MINUTE);
+        assertEquals(2, later.getCount());
+        assertEquals(600, later.getSumCents());
+
+        aggregate.record(NOW - 20 * MINUTE, 5000);
+        assertEquals(600, aggregate.last(10, NOW + MINUTE).getSumCents());
+        assertTrue(aggregate.covers(NOW - 8 * MINUTE, NOW + MINUTE));
+        assertFalse(aggregate.covers(NOW - 9 * MINUTE, NOW + MINUTE));
+    }
+
+    @Test
+    @DisplayName("Minute totals loaded from a query should merge with recorded amounts")
+    void testRehydrate() {
+        WindowedAggregate aggregate = new WindowedAggregate(60);
+        long minute = Math.floorDiv(NOW, MINUTE);
+        aggregate.record(NOW, 700);
+        aggregate.add(minute, 3, 3000, 250, 2000);
+        aggregate.add(minute - 1, 0, 0, 0, 0);
+
+        WindowedAggregate.Stats stats = aggregate.last(5, NOW);
+        assertEquals(4, stats.getCount());
+        assertEquals(3700, stats.getSumCents());
+        assertEquals(250, stats.getMinCents());
+        assertEquals(2000, stats.getMaxCents());
+
+        WindowedAggregate.Stats empty = aggregate.last(5, NOW + 30 * MINUTE);
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMinCents());
+        assertEquals(0, empty.getAverageCents());
+    }
+}
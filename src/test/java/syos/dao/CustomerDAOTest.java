@@ -0,0 +1,31 @@
+package syos.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the phone number rules behind the customer registry's unique index
+ */
+class CustomerDAOTest {
+
+    @Test
+    @DisplayName("Formatting variants of a phone number should normalize to the same key")
+    void testNormalizePhone() {
+        assertEquals("+94771234567", CustomerDAO.normalizePhone(" +94 (77) 123-4567 "));
+        assertEquals("0771234567", CustomerDAO.normalizePhone("077.123.4567"));
+        assertNull(CustomerDAO.normalizePhone("  - "));
+        assertNull(CustomerDAO.normalizePhone(null));
+    }
+
+    @Test
+    @DisplayName("Customer codes should be derived from the normalized phone number")
+    void testCustomerCode() {
+        assertEquals("CUST-0771234567", CustomerDAO.customerCodeFor("077-123 4567"));
+        assertEquals(20, CustomerDAO.customerCodeFor("+9477123456789012345").length());
+        assertThrows(IllegalArgumentException.class, () -> CustomerDAO.customerCodeFor(" "));
+    }
+}
@@ -0,0 +1,141 @@
+package syos.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * JUnit 5 tests for the thread-bound transaction scope
+ */
+class TransactionTemplateTest {
+
+    /** Hands out fake connections that record the calls made on them */
+    private static final class RecordingProvider implements ConnectionProvider {
+        final List<String> calls = new ArrayList<>();
+        int borrowed;
+
+        @Override
+        public Connection getConnection() {
+            borrowed++;
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    calls.add(method.getName() + (args != null && args.length == 1 ? "(" + args[0] + ")" : ""));
+                    switch (method.getName()) {
+                        case "getAutoCommit":
+                            return true;
+                        case "isClosed":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+        }
+    }
+
+    @Test
+    @DisplayName("DAO calls inside a scope should share one connection and commit once")
+    void testSharedConnectionCommitsOnce() throws Exception {
+        RecordingProvider provider = new RecordingProvider();
+        TransactionTemplate template = new TransactionTemplate(provider);
+
+        String result = template.execute(uow -> {
+            Connection first = UnitOfWork.connectionFor(provider);
+            Connection second = UnitOfWork.connectionFor(provider);
+            assertSame(first, second);
+            first.close();
+            second.commit();
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(1, provider.borrowed);
+        assertEquals(List.of("getAutoCommit", "setAutoCommit(false)", "commit", "setAutoCommit(true)", "close"), provider.calls);
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    @DisplayName("A failing callback should roll back and surface a DatabaseException")
+    void testRollbackOnFailure() {
+        RecordingProvider provider = new RecordingProvider();
+        TransactionTemplate template = new TransactionTemplate(provider);
+        List<String> afterCommit = new ArrayList<>();
+
+        DatabaseException e = assertThrows(DatabaseException.class, () -> template.run(uow -> {
+            uow.afterCommit(() -> afterCommit.add("evict"));
+            throw new SQLException("Duplicate entry", "23000");
+        }));
+
+        assertEquals("23000", e.getErrorCode());
+        assertTrue(provider.calls.contains("rollback"));
+        assertFalse(provider.calls.contains("commit"));
+        assertTrue(afterCommit.isEmpty(), "After-commit actions must not run on rollback");
+    }
+
+    @Test
+    @DisplayName("Nested scopes should join the outer transaction")
+    void testNestedScopeJoins() throws Exception {
+        RecordingProvider provider = new RecordingProvider();
+        TransactionTemplate template = new TransactionTemplate(provider);
+
+        template.run(outer -> template.run(inner -> assertSame(outer, inner)));
+
+        assertEquals(1, provider.borrowed);
+        assertEquals(1, provider.calls.stream().filter("commit"::equals).count());
+        assertNull(UnitOfWork.current(provider));
+    }
+
+    @Test
+    @DisplayName("A nested failure caught by the outer callback should still roll back and throw")
+    void testCaughtNestedFailureThrows() {
+        RecordingProvider provider = new RecordingProvider();
+        TransactionTemplate template = new TransactionTemplate(provider);
+        List<String> afterCommit = new ArrayList<>();
+
+        DatabaseException e = assertThrows(DatabaseException.class, () -> template.execute(outer -> {
+            outer.afterCommit(() -> afterCommit.add("evict"));
+            try {
+                template.run(inner -> {
+                    throw new SQLException("Duplicate entry", "23000");
+                });
+            } catch (DatabaseException ignored) {
+                // Carry on as if the nested work were optional
+            }
+            return "done";
+        }));
+
+        assertEquals("ROLLBACK_ONLY", e.getErrorCode());
+        assertTrue(provider.calls.contains("rollback"));
+        assertFalse(provider.calls.contains("commit"));
+        assertTrue(afterCommit.isEmpty(), "After-commit actions must not run on rollback");
+    }
+
+    @Test
+    @DisplayName("An explicit setRollbackOnly should roll back and return the result")
+    void testExplicitRollbackOnly() throws Exception {
+        RecordingProvider provider = new RecordingProvider();
+        TransactionTemplate template = new TransactionTemplate(provider);
+
+        String result = template.execute(uow -> {
+            uow.setRollbackOnly();
+            return "dry run";
+        });
+
+        assertEquals("dry run", result);
+        assertTrue(provider.calls.contains("rollback"));
+        assertFalse(provider.calls.contains("commit"));
+    }
+}
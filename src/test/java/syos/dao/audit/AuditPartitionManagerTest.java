@@ -0,0 +1,61 @@
+package syos.dao.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for audit partition naming and the retention and pre-creation rules, without a database
+ */
+class AuditPartitionManagerTest {
+
+    private static final YearMonth NOW = YearMonth.of(2026, 3);
+
+    @Test
+    @DisplayName("Partition names should round-trip and bound each month at the first of the next")
+    void testPartitionNaming() {
+        assertEquals("p202603", AuditPartitionManager.partitionName(NOW));
+        assertEquals("p202512", AuditPartitionManager.partitionName(YearMonth.of(2025, 12)));
+        assertEquals(NOW, AuditPartitionManager.parsePartitionMonth("p202603"));
+        assertNull(AuditPartitionManager.parsePartitionMonth("pmax"));
+        assertNull(AuditPartitionManager.parsePartitionMonth("p2026031"));
+        assertNull(AuditPartitionManager.parsePartitionMonth(null));
+        assertEquals("PARTITION p202512 VALUES LESS THAN (UNIX_TIMESTAMP('2026-01-01 00:00:00'))",
+                     AuditPartitionManager.partitionDefinition(YearMonth.of(2025, 12)));
+    }
+
+    @Test
+    @DisplayName("Retention should select only month partitions older than the window")
+    void testExpiredPartitions() {
+        List<String> partitions = List.of("p202512", "p202601", "p202602", "p202603", "p202604", "pmax", "legacy");
+
+        // Three months kept counting the current one: January, February and March
+        assertEquals(List.of("p202512"), AuditPartitionManager.expiredPartitions(partitions, NOW, 3));
+        assertEquals(List.of("p202512", "p202601", "p202602"), AuditPartitionManager.expiredPartitions(partitions, NOW, 1));
+        assertTrue(AuditPartitionManager.expiredPartitions(partitions, NOW, 24).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Pre-creation should add the months after the newest partition up to the horizon")
+    void testMissingMonths() {
+        assertEquals(List.of(YearMonth.of(2026, 5), YearMonth.of(2026, 6)),
+                     AuditPartitionManager.missingMonths(List.of("p202603", "p202604", "pmax"), NOW, 3));
+        assertTrue(AuditPartitionManager.missingMonths(List.of("p202606", "pmax"), NOW, 3).isEmpty());
+        assertEquals(List.of(NOW, NOW.plusMonths(1)), AuditPartitionManager.missingMonths(List.of("pmax"), NOW, 1));
+    }
+
+    @Test
+    @DisplayName("Archiving should not swap a filled archive table back into an emptied partition")
+    void testArchiveStep() {
+        assertEquals(AuditPartitionManager.ArchiveStep.EXCHANGE, AuditPartitionManager.archiveStep(true, false));
+        assertEquals(AuditPartitionManager.ArchiveStep.EXCHANGE, AuditPartitionManager.archiveStep(false, false));
+        assertEquals(AuditPartitionManager.ArchiveStep.DROP_ONLY, AuditPartitionManager.archiveStep(false, true));
+        assertEquals(AuditPartitionManager.ArchiveStep.CONFLICT, AuditPartitionManager.archiveStep(true, true));
+    }
+}
@@ -0,0 +1,107 @@
+package syos.dao.audit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import syos.models.AuditLog;
+
+/**
+ * JUnit 5 tests for the audit ring buffer and spill file
+ */
+class AuditRingBufferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Ring buffer should reject offers when full and preserve FIFO order")
+    void testCapacityAndOrder() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+        assertEquals(4, buffer.getCapacity(), "Capacity should round up to a power of two");
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(99), "Full buffer should reject offers");
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(Arrays.asList(1, 2, 3, 4), drained);
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Concurrent producers should never lose or duplicate elements")
+    void testConcurrentProducers() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        boolean[] seen = new boolean[producers * perProducer];
+        int received = 0;
+        while (received < seen.length) {
+            Integer value = buffer.poll();
+            if (value != null) {
+                assertFalse(seen[value], "Element delivered twice: " + value);
+                seen[value] = true;
+                received++;
+            }
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    @DisplayName("Spill file should round-trip events with special characters and nulls")
+    void testSpillFileRoundTrip() throws Exception {
+        AuditSpillFile spillFile = new AuditSpillFile(tempDir.resolve("audit-spill.log"));
+        AuditLog auditLog = new AuditLog(null, "users", "LOGIN", 7, null,
+            "line one\nline\ttwo \\ end", 7, "127.0.0.1", null, LocalDateTime.of(2024, 3, 1, 10, 15));
+
+        spillFile.append(List.of(auditLog));
+        List<AuditLog> restored = spillFile.takeAll();
+
+        assertEquals(1, restored.size());
+        AuditLog copy = restored.get(0);
+        assertEquals(auditLog.getNewValues(), copy.getNewValues());
+        assertNull(copy.getOldValues());
+        assertNull(copy.getUserAgent());
+        assertEquals(7, copy.getUserId());
+        assertEquals(auditLog.getTimestamp(), copy.getTimestamp());
+        assertFalse(Files.exists(spillFile.getPath()), "Spill file should be consumed");
+    }
+}
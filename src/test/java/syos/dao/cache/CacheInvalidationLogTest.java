@@ -0,0 +1,212 @@
+package syos.dao.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * JUnit 5 tests for the change-log poller's gap and silence handling, against a fake cache_invalidations table
+ */
+class CacheInvalidationLogTest {
+
+    private static final long T0 = 1_000_000L;
+
+    /** Serves the poller's queries from an in-memory list of change-log rows */
+    private static final class FakeLog implements ConnectionProvider {
+        final List<Object[]> rows = new ArrayList<>();
+        boolean down;
+
+        void add(long id, String cacheName, String entityKey, String origin) {
+            rows.add(new Object[] {id, cacheName, entityKey, origin});
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Communications link failure", "08S01");
+            }
+            return proxy(Connection.class, (name, args) -> {
+                switch (name) {
+                    case "createStatement":
+                        return proxy(Statement.class, (statementMethod, statementArgs) -> {
+                            switch (statementMethod) {
+                                case "execute":
+                                    return false;
+                                case "executeQuery":
+                                    return resultSet(List.<Object[]>of(new Object[] {maxId()}));
+                                default:
+                                    return null;
+                            }
+                        });
+                    case "prepareStatement":
+                        return prepare((String) args[0]);
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private long maxId() {
+            long max = 0;
+            for (Object[] row : rows) {
+                max = Math.max(max, (Long) row[0]);
+            }
+            return max;
+        }
+
+        private PreparedStatement prepare(String sql) {
+            Map<Integer, Object> parameters = new HashMap<>();
+            return proxy(PreparedStatement.class, (name, args) -> {
+                switch (name) {
+                    case "setLong":
+                    case "setInt":
+                        parameters.put((Integer) args[0], args[1]);
+                        return null;
+                    case "executeUpdate":
+                        return 0;
+                    case "executeQuery":
+                        return resultSet(select(parameters));
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        /** id > ? OR id IN (gaps) ORDER BY id LIMIT ? */
+        private List<Object[]> select(Map<Integer, Object> parameters) {
+            long lastSeenId = (Long) parameters.get(1);
+            List<Long> gaps = new ArrayList<>();
+            for (int i = 2; i < parameters.size(); i++) {
+                gaps.add((Long) parameters.get(i));
+            }
+            int limit = ((Number) parameters.get(parameters.size())).intValue();
+            List<Object[]> selected = new ArrayList<>();
+            for (Object[] row : rows) {
+                long id = (Long) row[0];
+                if (id > lastSeenId || gaps.contains(id)) {
+                    selected.add(row);
+                }
+            }
+            selected.sort((a, b) -> Long.compare((Long) a[0], (Long) b[0]));
+            return selected.subList(0, Math.min(limit, selected.size()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+            (proxy, method, args) -> handler.handle(method.getName(), args)));
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) {
+        Iterator<Object[]> iterator = rows.iterator();
+        Object[][] current = new Object[1][];
+        return proxy(ResultSet.class, (name, args) -> {
+            switch (name) {
+                case "next":
+                    current[0] = iterator.hasNext() ? iterator.next() : null;
+                    return current[0] != null;
+                case "getLong":
+                    return current[0][(Integer) args[0] - 1];
+                case "getString":
+                    return (String) current[0][(Integer) args[0] - 1];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static EntityCache<Integer, String> cacheWith(EntityCacheRegistry registry, int... ids) {
+        EntityCache<Integer, String> cache = new EntityCache<>("ProductDAO", 100, 300, 0);
+        for (int id : ids) {
+            cache.get(id, key -> "product" + key);
+        }
+        registry.register(cache);
+        return cache;
+    }
+
+    @Test
+    @DisplayName("Ids committed out of order should be tracked as gaps and applied when they appear")
+    void testOutOfOrderIds() throws SQLException {
+        FakeLog log = new FakeLog();
+        EntityCacheRegistry registry = new EntityCacheRegistry();
+        EntityCache<Integer, String> cache = cacheWith(registry, 1, 2, 3, 4);
+        CacheInvalidationLog poller = new CacheInvalidationLog(log, registry);
+
+        assertEquals(0, poller.pollOnce(T0));
+        log.add(1, "ProductDAO", "1", "other-host");
+        log.add(3, "ProductDAO", "3", "other-host");
+        log.add(4, "ProductDAO", "4", CacheInvalidationLog.ORIGIN);
+        assertEquals(3, poller.pollOnce(T0 + 200));
+        assertEquals(4, poller.getLastSeenId());
+        assertEquals(1, poller.getPendingGapCount());
+        // This JVM's own row was evicted when it was written, so key 4 is left alone
+        assertEquals(2, cache.size());
+
+        log.add(2, "ProductDAO", "2", "other-host");
+        assertEquals(1, poller.pollOnce(T0 + 400));
+        assertEquals(0, poller.getPendingGapCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("A gap that never commits should stop being waited for after the gap timeout")
+    void testGapTimeout() throws SQLException {
+        FakeLog log = new FakeLog();
+        CacheInvalidationLog poller = new CacheInvalidationLog(log, new EntityCacheRegistry());
+
+        poller.pollOnce(T0);
+        log.add(2, "ProductDAO", "2", "other-host");
+        poller.pollOnce(T0 + 200);
+        assertEquals(1, poller.getPendingGapCount());
+
+        poller.pollOnce(T0 + 200 + 9_000);
+        assertEquals(1, poller.getPendingGapCount());
+        poller.pollOnce(T0 + 200 + 10_000);
+        assertEquals(0, poller.getPendingGapCount());
+    }
+
+    @Test
+    @DisplayName("A poller that cannot reach the log past the silence limit should clear every cache once")
+    void testSilenceClearsCaches() throws SQLException {
+        FakeLog log = new FakeLog();
+        EntityCacheRegistry registry = new EntityCacheRegistry();
+        EntityCache<Integer, String> cache = cacheWith(registry, 1, 2);
+        CacheInvalidationLog poller = new CacheInvalidationLog(log, registry);
+        poller.pollOnce(T0);
+
+        log.down = true;
+        assertThrows(SQLException.class, () -> poller.pollOnce(T0 + 4_000));
+        assertEquals(2, cache.size());
+        assertThrows(SQLException.class, () -> poller.pollOnce(T0 + 5_001));
+        assertEquals(0, cache.size());
+
+        cache.get(1, key -> "reloaded");
+        assertThrows(SQLException.class, () -> poller.pollOnce(T0 + 6_000));
+        assertEquals(1, cache.size());
+
+        log.down = false;
+        assertEquals(0, poller.pollOnce(T0 + 7_000));
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,109 @@
+package syos.dao.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the W-TinyLFU entity cache
+ */
+class EntityCacheTest {
+
+    @Test
+    @DisplayName("Hits should be served from the cache and misses cached as absent")
+    void testHitsAndNegativeCaching() {
+        EntityCache<Integer, String> cache = new EntityCache<>("test", 100, 300, 30);
+        AtomicInteger loads = new AtomicInteger();
+        EntityCache.Loader<Integer, String, RuntimeException> loader = id -> {
+            loads.incrementAndGet();
+            return id > 0 ? "row" + id : null;
+        };
+
+        assertEquals("row1", cache.get(1, loader).orElseThrow());
+        assertEquals("row1", cache.get(1, loader).orElseThrow());
+        assertFalse(cache.get(-1, loader).isPresent());
+        assertFalse(cache.get(-1, loader).isPresent());
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getNegativeHits());
+        assertEquals(0.5, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Invalidation should force a reload, even of a value loaded concurrently")
+    void testInvalidation() {
+        EntityCache<Integer, String> cache = new EntityCache<>("test", 100, 300, 30);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, id -> "v" + loads.incrementAndGet());
+        cache.invalidate(1);
+        assertEquals("v2", cache.get(1, id -> "v" + loads.incrementAndGet()).orElseThrow());
+
+        // An invalidation racing with a load must keep the loaded value out of the cache
+        cache.get(2, id -> {
+            cache.invalidate(2);
+            return "stale";
+        });
+        assertEquals("fresh", cache.get(2, id -> "fresh").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Frequently read keys should survive a one-off scan")
+    void testScanResistance() {
+        int size = 100;
+        EntityCache<Integer, String> cache = new EntityCache<>("test", size, 300, 0);
+        EntityCache.Loader<Integer, String, RuntimeException> loader = id -> "row" + id;
+
+        for (int round = 0; round < 5; round++) {
+            for (int hot = 0; hot < 50; hot++) {
+                cache.get(hot, loader);
+            }
+        }
+        for (int scan = 1_000; scan < 5_000; scan++) {
+            cache.get(scan, loader);
+        }
+
+        assertTrue(cache.size() <= size);
+        long before = cache.getHits();
+        for (int hot = 0; hot < 50; hot++) {
+            cache.get(hot, loader);
+        }
+        assertTrue(cache.getHits() - before >= 45, "Hot keys should still be cached after the scan");
+    }
+
+    @Test
+    @DisplayName("Expired entries should be reloaded")
+    void testExpiry() {
+        EntityCache<Integer, String> cache = new EntityCache<>("test", 10, 0, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, id -> "v" + loads.incrementAndGet());
+        assertEquals("v2", cache.get(1, id -> "v" + loads.incrementAndGet()).orElseThrow());
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    @DisplayName("Remote evictions should drop the key and clear dependent lookup caches")
+    void testRemoteInvalidation() {
+        EntityCacheRegistry registry = new EntityCacheRegistry();
+        EntityCache<Integer, String> byId = new EntityCache<>("ProductDAO", 10, 300, 30);
+        EntityCache<String, String> byCode = new EntityCache<>("ProductDAO.byCode", 10, 300, 30);
+        registry.register(byId);
+        registry.register(byCode);
+        byId.get(1, id -> "rice");
+        byId.get(2, id -> "sugar");
+        byCode.get("P1", code -> "rice");
+
+        registry.invalidate("ProductDAO", "1");
+
+        assertEquals(1, byId.size());
+        assertEquals(0, byCode.size());
+        assertEquals("sugar", byId.get(2, id -> "reloaded").orElseThrow());
+    }
+}
@@ -0,0 +1,100 @@
+package syos.dao.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for index-based row mapping
+ */
+class CompiledRowMapperTest {
+
+    private static final CompiledRowMapper<String> MAPPER = CompiledRowMapper.of(
+        (resultSet, columns) -> Columns.getString(resultSet, columns[0]) + ":" + Columns.getInteger(resultSet, columns[1]),
+        "code", "category_id");
+
+    /** Single-row result set whose values are looked up by index only */
+    private static ResultSet resultSet(String[] labels, Object[] row, int[] metadataCalls) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+            (proxy, method, args) -> "getColumnCount".equals(method.getName()) ? labels.length : labels[(Integer) args[0] - 1]);
+        Object[] last = new Object[1];
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getMetaData":
+                        metadataCalls[0]++;
+                        return metaData;
+                    case "wasNull":
+                        return last[0] == null;
+                    case "getInt":
+                        last[0] = row[(Integer) args[0] - 1];
+                        return last[0] == null ? 0 : last[0];
+                    default:
+                        last[0] = row[(Integer) args[0] - 1];
+                        return last[0];
+                }
+            });
+    }
+
+    @Test
+    @DisplayName("Columns should resolve case-insensitively regardless of select order")
+    void testResolveByLabel() throws Exception {
+        int[] calls = new int[1];
+        ResultSet resultSet = resultSet(new String[] { "ID", "Category_Id", "CODE" }, new Object[] { 1, 7, "P1" }, calls);
+
+        int[] columns = MAPPER.indicesFor("SELECT id, category_id, code FROM t", resultSet);
+
+        assertArrayEquals(new int[] { 3, 2 }, columns);
+        assertEquals("P1:7", MAPPER.map(resultSet, columns));
+    }
+
+    @Test
+    @DisplayName("Indices should be resolved once per SQL string")
+    void testIndicesCachedPerSql() throws Exception {
+        int[] calls = new int[1];
+        CompiledRowMapper<String> mapper = CompiledRowMapper.of((rs, columns) -> "", "code");
+        ResultSet resultSet = resultSet(new String[] { "code" }, new Object[] { "P1" }, calls);
+
+        int[] first = mapper.indicesFor("SELECT code FROM t", resultSet);
+        int[] second = mapper.indicesFor("SELECT code FROM t", resultSet);
+        mapper.indicesFor("SELECT code FROM t WHERE id = ?", resultSet);
+
+        assertSame(first, second);
+        assertEquals(2, calls[0]);
+        assertEquals(2, mapper.getCachedStatementCount());
+    }
+
+    @Test
+    @DisplayName("SQL NULLs should map to null")
+    void testNulls() throws Exception {
+        int[] calls = new int[1];
+        ResultSet withNull = resultSet(new String[] { "code", "category_id" }, new Object[] { "P1", null }, calls);
+
+        assertEquals("P1:null", MAPPER.map(withNull));
+    }
+
+    @Test
+    @DisplayName("A declared column missing from the result set should fail instead of mapping to null")
+    void testMissingColumnFails() {
+        int[] calls = new int[1];
+        ResultSet withoutCategory = resultSet(new String[] { "code" }, new Object[] { "P2" }, calls);
+
+        CompiledRowMapper<String> mapper = CompiledRowMapper.of((rs, columns) -> "", "code", "category_id");
+
+        SQLException e = assertThrows(SQLException.class, () -> mapper.indicesFor("SELECT code FROM t", withoutCategory));
+        assertTrue(e.getMessage().contains("category_id"));
+        assertThrows(SQLException.class, () -> mapper.map(withoutCategory));
+        assertEquals(0, mapper.getCachedStatementCount(), "A failed resolution must not be cached");
+    }
+}
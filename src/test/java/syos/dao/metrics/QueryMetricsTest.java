@@ -0,0 +1,64 @@
+package syos.dao.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the DAO query metrics
+ */
+class QueryMetricsTest {
+
+    @Test
+    @DisplayName("Histogram buckets should be power-of-two microsecond ranges")
+    void testBucketBoundaries() {
+        assertEquals(0, LatencyHistogram.bucketFor(500));
+        assertEquals(1, LatencyHistogram.bucketFor(1_000));
+        assertEquals(2, LatencyHistogram.bucketFor(3_000));
+        assertEquals(11, LatencyHistogram.bucketFor(1_500_000));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Histogram percentiles should return the containing bucket bound")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100_000_000L); // 100 ms
+        }
+        histogram.record(2_000_000_000L); // 2 s
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(131_072, histogram.getPercentileMicros(50));
+        assertEquals(131_072, histogram.getPercentileMicros(99));
+        assertEquals(2_097_152, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    @DisplayName("Timers should record calls, errors and slow calls per DAO operation")
+    void testTimerRecording() {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.setEnabled(true);
+        metrics.setSlowQueryThresholdMillis(0);
+        metrics.setSlowQuerySampleRate(0.0);
+
+        metrics.start(QueryMetricsTest.class, "FIND_BY_ID", "SELECT 1").stop();
+        QueryTimer failing = metrics.start(QueryMetricsTest.class, "FIND_BY_ID", "SELECT 1");
+        failing.failed();
+        failing.stop();
+        failing.stop();
+
+        OperationMetrics recorded = metrics.getMetrics("QueryMetricsTest", "FIND_BY_ID");
+        assertNotNull(recorded, "Operation should be registered");
+        assertEquals(2, recorded.getCalls());
+        assertEquals(1, recorded.getErrors());
+        assertEquals(2, recorded.getSlowCalls());
+        assertTrue(metrics.report().contains("QueryMetricsTest.FIND_BY_ID"));
+
+        metrics.setEnabled(false);
+        assertSame(QueryTimer.DISABLED, metrics.start(QueryMetricsTest.class, "FIND_BY_ID", "SELECT 1"));
+    }
+}
@@ -0,0 +1,59 @@
+package syos.pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for fixed-point cart pricing
+ */
+class CartPricingTest {
+
+    @Test
+    @DisplayName("Running totals should follow lines as they are added, changed and removed")
+    void testIncrementalTotals() {
+        CartPricing pricing = new CartPricing();
+        for (int i = 0; i < 40; i++) {
+            pricing.addLine(1999, 1, Money.toRate(10.0));   // grows past the initial capacity
+        }
+        assertEquals(40 * 1999, pricing.getSubtotalCents());
+        assertEquals(40 * 200, pricing.getTotalDiscountCents());   // 199.9 rounds up to 200
+
+        pricing.updateLine(0, 3, 0);
+        pricing.removeLine(1);
+        assertEquals(39, pricing.getLineCount());
+        assertEquals(41 * 1999, pricing.getSubtotalCents());
+        assertEquals(38 * 200, pricing.getTotalDiscountCents());
+        assertEquals(5997, pricing.getLineTotalCents(0));
+
+        long lineTotals = 0;
+        for (int i = 0; i < pricing.getLineCount(); i++) {
+            lineTotals += pricing.getLineTotalCents(i);
+        }
+        assertEquals(pricing.getFinalTotalCents(), lineTotals);
+
+        pricing.clear();
+        assertEquals(0, pricing.getFinalTotalCents());
+        assertThrows(IndexOutOfBoundsException.class, () -> pricing.getLineTotalCents(0));
+    }
+
+    @Test
+    @DisplayName("Cart figures should round to the cent the way DECIMAL(10,2) stores them")
+    void testCentExactTotals() throws PosException {
+        Cart cart = new Cart();
+        // 10 off 30 is a 33.333...% product discount; three units must cost exactly 60.00
+        cart.add(new ProductLookup(1, "P1", "Soap", "Brand", 30.0, 10.0, 0.0, 10, 0), 3, 0.0);
+        for (int i = 0; i < 3; i++) {
+            cart.add(new ProductLookup(2 + i, "T" + i, "Tea", "Brand", 0.1, 0.0, 0.0, 10, 0), 1, 0.0);
+        }
+
+        assertEquals(9030, cart.getSubtotalCents());
+        assertEquals(3000, cart.getTotalDiscountCents());
+        assertEquals(6030, cart.getFinalTotalCents());
+        assertEquals(60.30, cart.getFinalTotal());
+        assertEquals(105, Money.toCents(1.045));
+        assertEquals(Money.FULL_RATE, Money.toRate(140.0));
+    }
+}
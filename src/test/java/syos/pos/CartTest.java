@@ -0,0 +1,52 @@
+package syos.pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the shared POS cart
+ */
+class CartTest {
+
+    private static ProductLookup product(int id, double price, double discountPercent, int stock) {
+        return new ProductLookup(id, "P" + id, "Product " + id, "Brand", price, 0.0, discountPercent, stock, 0);
+    }
+
+    @Test
+    @DisplayName("Adding a product twice should merge lines and respect stock")
+    void testMergeAndStockLimit() throws PosException {
+        Cart cart = new Cart();
+        ProductLookup rice = product(1, 200.0, 0.0, 5);
+
+        CartItem first = cart.add(rice, 2, 10.0);
+        CartItem second = cart.add(rice, 3, 0.0);
+
+        assertSame(first, second, "Same product should share a line");
+        assertEquals(1, cart.size());
+        assertEquals(5, second.getQuantity());
+        assertEquals(10.0, second.getDiscountPercent(), 1e-9, "Existing line keeps its discount");
+        assertThrows(PosException.class, () -> cart.add(rice, 1, 0.0));
+    }
+
+    @Test
+    @DisplayName("Totals should combine product and cashier discounts")
+    void testTotals() throws PosException {
+        Cart cart = new Cart();
+        cart.add(product(1, 100.0, 10.0, 10), 2, 5.0);   // 15% off 200
+        cart.add(product(2, 50.0, 0.0, 10), 1, 80.0);    // cashier discount above 50% ignored
+
+        assertEquals(250.0, cart.getSubtotal(), 1e-9);
+        assertEquals(30.0, cart.getTotalDiscount(), 1e-9);
+        assertEquals(220.0, cart.getFinalTotal(), 1e-9);
+
+        cart.remove(1);
+        assertEquals(50.0, cart.getFinalTotal(), 1e-9);
+        assertThrows(PosException.class, () -> cart.remove(2));
+        cart.clear();
+        assertTrue(cart.isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package syos.pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the customer_stats running totals
+ */
+class CustomerStatsTest {
+
+    /**
+     * Fake connection that applies the checkout upsert to in-memory rows and keeps
+     * analytics_watermarks as a set of tracker names
+     */
+    private static final class FakeDatabase {
+        final Map<Integer, long[]> stats = new HashMap<>();
+        final Set<String> watermarks = new HashSet<>();
+
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return statement((String) args[0]);
+                        case "createStatement":
+                            return ddl();
+                        default:
+                            return null;
+                    }
+                });
+        }
+
+        private PreparedStatement statement(String sql) {
+            Map<Integer, Object> params = new HashMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setInt":
+                        case "setLong":
+                        case "setString":
+                        case "setBigDecimal":
+                            params.put((Integer) args[0], args[1]);
+                            return null;
+                        case "executeUpdate":
+                            return apply(sql, params);
+                        case "executeQuery":
+                            return rows(watermarks.contains(params.get(1)));
+                        default:
+                            return null;
+                    }
+                });
+        }
+
+        private int apply(String sql, Map<Integer, Object> params) {
+            if (sql.startsWith("INSERT INTO customer_stats")) {
+                assertTrue(sql.contains("ON DUPLICATE KEY UPDATE transaction_count = transaction_count + 1"));
+                long cents = ((BigDecimal) params.get(2)).movePointRight(2).longValueExact();
+                stats.merge((Integer) params.get(1), new long[] { 1, cents },
+                            (row, added) -> new long[] { row[0] + added[0], row[1] + added[1] });
+            } else if (sql.startsWith("INSERT INTO analytics_watermarks")) {
+                watermarks.add((String) params.get(1));
+            }
+            return 1;
+        }
+
+        private static Statement ddl() {
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[] { Statement.class }, (proxy, method, args) -> "executeUpdate".equals(method.getName()) ? 0 : null);
+        }
+
+        private static ResultSet rows(boolean found) {
+            boolean[] consumed = { false };
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    if ("next".equals(method.getName())) {
+                        boolean next = found && !consumed[0];
+                        consumed[0] = true;
+                        return next;
+                    }
+                    return null;
+                });
+        }
+    }
+
+    @Test
+    @DisplayName("First purchase should insert a row and later ones add to it")
+    void testRecordPurchaseAccumulates() throws Exception {
+        FakeDatabase db = new FakeDatabase();
+        Connection conn = db.connection();
+
+        CustomerStats.recordPurchase(conn, 7, 1234);
+        CustomerStats.recordPurchase(conn, 7, 66);
+        CustomerStats.recordPurchase(conn, 9, 500);
+
+        assertEquals(2, db.stats.get(7)[0]);
+        assertEquals(1300, db.stats.get(7)[1]);
+        assertEquals(1, db.stats.get(9)[0]);
+        assertEquals(500, db.stats.get(9)[1]);
+    }
+
+    @Test
+    @DisplayName("Totals should count as complete only after a backfill has been recorded")
+    void testBackfillWatermark() throws Exception {
+        FakeDatabase db = new FakeDatabase();
+        Connection conn = db.connection();
+
+        CustomerStats.recordPurchase(conn, 1, 100);
+        assertFalse(CustomerStats.isBackfilled(conn), "Rows written at checkout alone must not count as a backfill");
+
+        CustomerStats.markBackfilled(conn, 0);
+        assertTrue(CustomerStats.isBackfilled(conn), "A backfill over an empty sales table still completes");
+    }
+}
@@ -0,0 +1,226 @@
+package syos.pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the POS server and its line protocol, over loopback sockets
+ */
+class PosServerTest {
+
+    /** Serves one cashier and one product from memory; anything else reaching the database fails */
+    private static final class StubPosService extends PosService {
+        final List<Double> payments = new ArrayList<>();
+
+        StubPosService() {
+            super(() -> {
+                throw new SQLException("No database in tests");
+            }, null);
+        }
+
+        @Override
+        public Cart newCart() {
+            return new Cart();
+        }
+
+        @Override
+        public Cashier authenticateCashier(String email, String password) {
+            return "cashier@syos.lk".equals(email) && "secret".equals(password)
+                   ? new Cashier(1, email, "Test Cashier", "CASHIER") : null;
+        }
+
+        @Override
+        public ProductLookup findProduct(String productCode) throws SQLException {
+            if ("BROKEN".equals(productCode)) {
+                throw new SQLException("Lookup failed");
+            }
+            return "P1".equals(productCode)
+                   ? new ProductLookup(1, "P1", "Rice 1kg", "Brand", 250.0, 0.0, 0.0, 10, 0) : null;
+        }
+
+        @Override
+        public CustomerInfo findReturningCustomer(String phoneNumber) {
+            return null;
+        }
+
+        @Override
+        public CheckoutResult checkout(Cart cart, CustomerInfo customer, double cashReceived, Cashier cashier)
+                throws PosException {
+            if (cashReceived < cart.getFinalTotal()) {
+                throw new PosException("Insufficient cash!");
+            }
+            payments.add(cashReceived);
+            return new CheckoutResult(1, "001", cart.getFinalTotal(), cashReceived, cashReceived - cart.getFinalTotal());
+        }
+    }
+
+    /** One connected terminal */
+    private static final class Terminal implements AutoCloseable {
+        final Socket socket;
+        final BufferedReader in;
+        final PrintWriter out;
+
+        Terminal(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(5000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        /** Send a request and collect its reply lines up to and including the final OK or ERR */
+        List<String> send(String line) throws IOException {
+            out.println(line);
+            List<String> reply = new ArrayList<>();
+            String response;
+            do {
+                response = in.readLine();
+                reply.add(response);
+            } while (response != null && !response.startsWith("OK") && !response.startsWith("ERR"));
+            return reply;
+        }
+
+        String request(String line) throws IOException {
+            List<String> reply = send(line);
+            return reply.get(reply.size() - 1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private StubPosService posService;
+    private PosServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        posService = new StubPosService();
+        server = new PosServer(posService, 0, InetAddress.getLoopbackAddress(), 2, 5000);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private Terminal connect() throws IOException {
+        Terminal terminal = new Terminal(server.getPort());
+        assertEquals("OK SYOS POS ready", terminal.in.readLine());
+        return terminal;
+    }
+
+    private static void awaitNoSessions(PosServer server) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getActiveSessions() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, server.getActiveSessions());
+    }
+
+    @Test
+    @DisplayName("Commands other than LOGIN, HELP and QUIT should require a login")
+    void testLoginRequired() throws Exception {
+        try (Terminal terminal = connect()) {
+            assertEquals("ERR Login required", terminal.request("SCAN P1"));
+            assertEquals("ERR Invalid credentials", terminal.request("LOGIN cashier@syos.lk wrong"));
+            assertEquals("ERR Usage: LOGIN email password", terminal.request("LOGIN cashier@syos.lk"));
+            assertEquals("OK WELCOME Test Cashier", terminal.request("login CASHIER@syos.lk secret"));
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed requests should get one ERR line and leave the session usable")
+    void testMalformedInput() throws Exception {
+        try (Terminal terminal = connect()) {
+            terminal.request("LOGIN cashier@syos.lk secret");
+            assertEquals("ERR Unknown command: FROB", terminal.request("FROB 1 2"));
+            assertEquals("ERR Usage: SCAN code [qty] [discount%]", terminal.request("SCAN"));
+            assertEquals("ERR Invalid quantity", terminal.request("SCAN P1 many"));
+            assertEquals("ERR Product with code 'nope' not found!", terminal.request("SCAN nope"));
+            assertEquals("ERR Invalid line number", terminal.request("REMOVE"));
+            assertEquals("ERR Database error: Lookup failed", terminal.request("SCAN broken"));
+            assertEquals("ERR Phone number is required! Use CUSTOMER phone [name]", terminal.request("CHECKOUT 100"));
+
+            // Blank lines get no reply, so the next answer belongs to the next request
+            terminal.out.println("   ");
+            assertEquals("OK TOTAL 0.00 0.00 0.00", terminal.request("CART"));
+        }
+    }
+
+    @Test
+    @DisplayName("A sale should run from SCAN through CHECKOUT and leave an empty cart")
+    void testSale() throws Exception {
+        try (Terminal terminal = connect()) {
+            terminal.request("LOGIN cashier@syos.lk secret");
+            assertEquals("OK ADDED P1 2 500.00 TOTAL 500.00 0.00 500.00", terminal.request("scan p1 2"));
+
+            List<String> cart = terminal.send("CART");
+            assertEquals(2, cart.size());
+            assertEquals("ITEM 1 P1 2 250.00 0.0 500.00 Rice 1kg (Brand)", cart.get(0));
+            assertEquals("OK TOTAL 500.00 0.00 500.00", cart.get(1));
+
+            assertEquals("OK NEW Jane Perera", terminal.request("CUSTOMER 0771234567 Jane Perera"));
+            assertEquals("ERR Insufficient cash!", terminal.request("CHECKOUT 100"));
+            assertEquals("OK BILL 001 500.00 1000.00 500.00", terminal.request("CHECKOUT 1000"));
+            assertEquals(List.of(1000.0), posService.payments);
+            assertEquals("OK TOTAL 0.00 0.00 0.00", terminal.request("CART"));
+        }
+    }
+
+    @Test
+    @DisplayName("QUIT should close the terminal's connection and free its session")
+    void testQuit() throws Exception {
+        try (Terminal terminal = connect()) {
+            assertEquals("OK BYE", terminal.request("QUIT"));
+            assertNull(terminal.in.readLine());
+        }
+        awaitNoSessions(server);
+    }
+
+    @Test
+    @DisplayName("Terminals beyond the session limit should be refused")
+    void testSessionLimit() throws Exception {
+        try (Terminal first = connect(); Terminal second = connect();
+             Terminal third = new Terminal(server.getPort())) {
+            assertTrue(third.in.readLine().startsWith("ERR Server busy"));
+            assertNull(third.in.readLine());
+            assertEquals("OK WELCOME Test Cashier", first.request("LOGIN cashier@syos.lk secret"));
+            assertTrue(second.request("HELP").startsWith("OK LOGIN"));
+        }
+    }
+
+    @Test
+    @DisplayName("Closing the server should disconnect idle sessions and end their threads")
+    void testCloseDisconnectsSessions() throws Exception {
+        try (Terminal first = connect(); Terminal second = connect()) {
+            first.request("LOGIN cashier@syos.lk secret");
+            assertEquals(2, server.getActiveSessions());
+
+            long started = System.nanoTime();
+            server.close();
+
+            assertNull(first.in.readLine());
+            assertNull(second.in.readLine());
+            assertTrue(System.nanoTime() - started < 5_000_000_000L, "close() should not wait for the idle timeout");
+            assertEquals(0, server.getActiveSessions());
+        }
+    }
+}
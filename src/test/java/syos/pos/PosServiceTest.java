@@ -0,0 +1,143 @@
+package syos.pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * JUnit 5 tests for checkout's transaction handling, against a fake JDBC connection
+ */
+class PosServiceTest {
+
+    /** Answers the checkout statements and records transaction calls on one connection per borrow */
+    private static final class FakeProvider implements ConnectionProvider {
+        final List<String> calls = new ArrayList<>();
+        String failOn;
+        int borrowed;
+
+        @Override
+        public Connection getConnection() {
+            borrowed++;
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return statement((String) args[0]);
+                        case "createStatement":
+                            return statement(null);
+                        case "getAutoCommit":
+                            return true;
+                        case "commit":
+                        case "rollback":
+                        case "close":
+                            calls.add(method.getName());
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        }
+
+        private PreparedStatement statement(String preparedSql) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+                    if (failOn != null && sql != null && sql.startsWith(failOn)
+                        && method.getName().startsWith("execute")) {
+                        throw new SQLException("Simulated failure", "HY000");
+                    }
+                    switch (method.getName()) {
+                        case "executeUpdate":
+                            return 1;
+                        case "executeBatch":
+                            return new int[] { 1 };
+                        case "executeQuery":
+                            return row(7L);
+                        case "getGeneratedKeys":
+                            return row(42);
+                        default:
+                            return null;
+                    }
+                });
+        }
+
+        private static ResultSet row(Object value) {
+            boolean[] consumed = { false };
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            boolean next = !consumed[0];
+                            consumed[0] = true;
+                            return next;
+                        case "getInt":
+                            return ((Number) value).intValue();
+                        case "getLong":
+                            return ((Number) value).longValue();
+                        default:
+                            return null;
+                    }
+                });
+        }
+    }
+
+    private static Cart cart() throws PosException {
+        Cart cart = new Cart();
+        cart.add(new ProductLookup(1, "P1", "Rice 1kg", "Brand", 250.0, 0.0, 0.0, 10, 0), 2, 0.0);
+        return cart;
+    }
+
+    private static final Cashier CASHIER = new Cashier(1, "cashier@syos.lk", "Test Cashier", "CASHIER");
+    private static final CustomerInfo WALK_IN = new CustomerInfo("Walk-in Customer", null, null, false);
+
+    @AfterEach
+    void removeReceipt() {
+        new File("receipt_007.txt").delete();
+    }
+
+    @Test
+    @DisplayName("Checkout should run on one connection and commit once")
+    void testCheckoutCommitsOnce() throws Exception {
+        FakeProvider provider = new FakeProvider();
+        PosService service = new PosService(provider, null);
+
+        CheckoutResult result = service.checkout(cart(), WALK_IN, 1000.0, CASHIER);
+
+        assertEquals(42, result.getSaleId());
+        assertEquals("007", result.getBillNumber());
+        assertEquals(500.0, result.getChange(), 1e-9);
+        assertEquals(1, provider.borrowed);
+        assertEquals(List.of("commit", "close"), provider.calls);
+        assertTrue(new File("receipt_007.txt").exists(), "Receipt is written after commit");
+    }
+
+    @Test
+    @DisplayName("A failing step should roll back the whole sale and surface the SQLException")
+    void testCheckoutRollsBack() throws Exception {
+        FakeProvider provider = new FakeProvider();
+        provider.failOn = "UPDATE inventory_locations";
+        PosService service = new PosService(provider, null);
+
+        SQLException e = assertThrows(SQLException.class, () -> service.checkout(cart(), WALK_IN, 1000.0, CASHIER));
+
+        assertEquals("Simulated failure", e.getMessage());
+        assertEquals(List.of("rollback", "close"), provider.calls);
+        assertFalse(new File("receipt_007.txt").exists(), "No receipt for a rolled-back sale");
+    }
+}
@@ -0,0 +1,56 @@
+package syos.pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the in-memory promotions index
+ */
+class PromotionEngineTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private static Promotion percent(int id, int productId, int categoryId, double percent, long starts, long ends) {
+        return new Promotion(id, "Promo " + id, Promotion.Type.PERCENT, productId, categoryId,
+                             Money.toRate(percent), 0, 0, 0, starts, ends);
+    }
+
+    @Test
+    @DisplayName("The best product or category promotion should apply, only while it is running")
+    void testBestAndSchedule() {
+        Promotion product = percent(1, 7, 0, 10.0, Long.MIN_VALUE, NOW + 1000);
+        Promotion category = percent(2, 0, 3, 20.0, NOW + 500, Long.MAX_VALUE);
+        PromotionEngine engine = new PromotionEngine(Arrays.asList(product, category), NOW);
+
+        assertSame(product, engine.bestFor(7, 3, 1000, 2, NOW));
+        assertSame(category, engine.bestFor(7, 3, 1000, 2, NOW + 500));
+        assertNull(engine.bestFor(8, 4, 1000, 2, NOW + 500));
+        assertNull(engine.bestFor(7, 0, 1000, 2, NOW + 1000));
+    }
+
+    @Test
+    @DisplayName("Buy-X-get-Y should price free units into the cart totals")
+    void testBuyXGetYInCart() throws PosException {
+        Promotion threeForTwo = new Promotion(3, "3 for 2", Promotion.Type.BUY_X_GET_Y, 1, 0, 0, 0, 2, 1,
+                                              Long.MIN_VALUE, Long.MAX_VALUE);
+        Cart cart = new Cart(new PromotionEngine(Arrays.asList(threeForTwo), System.currentTimeMillis()));
+        ProductLookup soap = new ProductLookup(1, "P1", "Soap", "Brand", 120.0, 0.0, 0.0, 20, 0);
+
+        CartItem item = cart.add(soap, 2, 0.0);
+        assertNull(item.getPromotion());
+        cart.add(soap, 5, 0.0);
+
+        assertSame(threeForTwo, item.getPromotion());
+        assertEquals(24000, item.getPromotionCents());
+        assertEquals(240.0, item.getDiscountAmount(), 1e-9);
+        assertEquals(84000, cart.getSubtotalCents());
+        assertEquals(60000, cart.getFinalTotalCents());
+        assertEquals(item.getLineTotalCents(), cart.getFinalTotalCents());
+    }
+}
@@ -0,0 +1,100 @@
+package syos.reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for report result caching and event-driven invalidation
+ */
+class ReportCacheTest {
+
+    private static Supplier<List<ReportEngine.SectionResult>> counting(AtomicInteger runs, String error) {
+        return () -> {
+            runs.incrementAndGet();
+            return Collections.singletonList(new ReportEngine.SectionResult("section", "output", error, 1));
+        };
+    }
+
+    @Test
+    @DisplayName("A repeated report should be served from the cache until forced to refresh")
+    void testCachedAndForcedRefresh() {
+        ReportCache cache = new ReportCache();
+        AtomicInteger runs = new AtomicInteger();
+
+        assertFalse(cache.get("bills", false, counting(runs, null), ReportCache.Topic.SALES).isFromCache());
+        ReportCache.CachedReport second = cache.get("bills", false, counting(runs, null), ReportCache.Topic.SALES);
+        assertTrue(second.isFromCache());
+        assertTrue(second.describeAge().startsWith("cached"));
+        assertEquals(1, runs.get());
+
+        assertFalse(cache.get("bills", true, counting(runs, null), ReportCache.Topic.SALES).isFromCache());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    @DisplayName("A checkout should invalidate sales reports only, a stock change only stock reports")
+    void testEventInvalidation() {
+        ReportCache cache = new ReportCache();
+        AtomicInteger salesRuns = new AtomicInteger();
+        AtomicInteger inventoryRuns = new AtomicInteger();
+
+        cache.get("daily-sales", false, counting(salesRuns, null), ReportCache.Topic.SALES);
+        cache.get("stock", false, counting(inventoryRuns, null), ReportCache.Topic.INVENTORY);
+        cache.onCheckout();
+        cache.get("daily-sales", false, counting(salesRuns, null), ReportCache.Topic.SALES);
+        cache.get("stock", false, counting(inventoryRuns, null), ReportCache.Topic.INVENTORY);
+
+        assertEquals(2, salesRuns.get());
+        assertEquals(1, inventoryRuns.get());
+
+        cache.onStockChanged();
+        cache.get("daily-sales", false, counting(salesRuns, null), ReportCache.Topic.SALES);
+        cache.get("stock", false, counting(inventoryRuns, null), ReportCache.Topic.INVENTORY);
+        assertEquals(2, salesRuns.get());
+        assertEquals(2, inventoryRuns.get());
+    }
+
+    @Test
+    @DisplayName("A checkout should keep sales reports for days that ended before the sale")
+    void testClosedPeriodsSurviveCheckout() {
+        ReportCache cache = new ReportCache();
+        AtomicInteger yesterdayRuns = new AtomicInteger();
+        AtomicInteger todayRuns = new AtomicInteger();
+        LocalDate today = LocalDate.of(2024, 3, 10);
+
+        cache.get("daily|2024-03-09", false, today.minusDays(1), counting(yesterdayRuns, null), ReportCache.Topic.SALES);
+        cache.get("daily|2024-03-10", false, today, counting(todayRuns, null), ReportCache.Topic.SALES);
+        cache.onCheckout(today);
+        cache.get("daily|2024-03-09", false, today.minusDays(1), counting(yesterdayRuns, null), ReportCache.Topic.SALES);
+        cache.get("daily|2024-03-10", false, today, counting(todayRuns, null), ReportCache.Topic.SALES);
+
+        assertEquals(1, yesterdayRuns.get());
+        assertEquals(2, todayRuns.get());
+    }
+
+    @Test
+    @DisplayName("Reports with a failed section or an event during the run should not be cached")
+    void testNotCached() {
+        ReportCache cache = new ReportCache();
+        AtomicInteger runs = new AtomicInteger();
+
+        cache.get("bills", false, counting(runs, "Table 'sales' doesn't exist"), ReportCache.Topic.SALES);
+        assertEquals(0, cache.size());
+
+        cache.get("bills", false, () -> {
+            cache.onCheckout();
+            return counting(runs, null).get();
+        }, ReportCache.Topic.SALES);
+        assertEquals(0, cache.size());
+    }
+}
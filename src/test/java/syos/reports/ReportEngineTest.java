@@ -0,0 +1,71 @@
+package syos.reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.syos.infrastructure.database.ConnectionProvider;
+
+/**
+ * JUnit 5 tests for concurrent report sections; sections sleep instead of querying
+ */
+class ReportEngineTest {
+
+    private static final ConnectionProvider FAKE_CONNECTIONS = () -> (Connection) Proxy.newProxyInstance(
+        ReportEngineTest.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> null);
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("Sections should run concurrently and keep their order in the output")
+    void testConcurrentInOrder() {
+        try (ReportEngine engine = new ReportEngine(FAKE_CONNECTIONS, 3, 5000)) {
+            long start = System.nanoTime();
+            List<ReportEngine.SectionResult> results = engine.report()
+                .section("slow", (conn, out) -> { pause(300); out.println("first"); })
+                .section("slower", (conn, out) -> { pause(400); out.println("second"); })
+                .section("fast", (conn, out) -> out.println("third"))
+                .run();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(3, results.size());
+            assertEquals("first" + System.lineSeparator(), results.get(0).getOutput());
+            assertEquals("second" + System.lineSeparator(), results.get(1).getOutput());
+            assertEquals("third" + System.lineSeparator(), results.get(2).getOutput());
+            assertTrue(elapsedMillis < 650, "Sections should overlap, took " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    @DisplayName("A failing or overrunning section should not hide the others")
+    void testFailureAndTimeout() {
+        try (ReportEngine engine = new ReportEngine(FAKE_CONNECTIONS, 2, 200)) {
+            List<ReportEngine.SectionResult> results = engine.report()
+                .section("broken", (conn, out) -> { throw new SQLException("Table 'sales' doesn't exist"); })
+                .section("stuck", (conn, out) -> pause(2000))
+                .section("ok", (conn, out) -> out.print("done"))
+                .run();
+
+            assertFalse(results.get(0).isSuccess());
+            assertEquals("Table 'sales' doesn't exist", results.get(0).getError());
+            assertFalse(results.get(1).isSuccess());
+            assertTrue(results.get(1).getError().startsWith("timed out"));
+            assertTrue(results.get(2).isSuccess());
+            assertEquals("done", results.get(2).getOutput());
+        }
+    }
+}
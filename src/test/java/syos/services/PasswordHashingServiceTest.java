@@ -0,0 +1,61 @@
+package syos.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit 5 tests for the password hashing service
+ */
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService hasher;
+
+    @BeforeEach
+    void setUp() {
+        hasher = new PasswordHashingService(1_000, 2, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hasher.close();
+    }
+
+    @Test
+    @DisplayName("PBKDF2 hashes should verify and use a fresh salt each time")
+    void testHashAndVerify() {
+        String hash = hasher.hash("Secret1!").join();
+        assertTrue(PasswordHashingService.isPbkdf2Hash(hash));
+        assertNotEquals(hash, hasher.hash("Secret1!").join(), "Salts should differ");
+
+        assertTrue(hasher.verify("Secret1!", hash, null).join().matches());
+        assertFalse(hasher.verify("Secret2!", hash, null).join().matches());
+        assertFalse(hasher.verify("Secret1!", hash, null).join().isRehashNeeded());
+    }
+
+    @Test
+    @DisplayName("Outdated cost and legacy SHA-256 hashes should request a rehash")
+    void testRehashDetection() throws Exception {
+        String cheapHash = hasher.hash("Secret1!", 500).join();
+        assertTrue(hasher.verify("Secret1!", cheapHash, null).join().isRehashNeeded());
+
+        String salt = "c2FsdA==";
+        byte[] digest = MessageDigest.getInstance("SHA-256")
+            .digest(("Secret1!" + salt).getBytes(StandardCharsets.UTF_8));
+        String legacyHash = Base64.getEncoder().encodeToString(digest);
+
+        PasswordHashingService.VerificationResult legacy = hasher.verify("Secret1!", legacyHash, salt).join();
+        assertTrue(legacy.matches());
+        assertTrue(legacy.isRehashNeeded());
+        assertFalse(hasher.verify("Wrong1!", legacyHash, salt).join().isRehashNeeded(),
+            "Failed logins should never trigger a rehash");
+    }
+}